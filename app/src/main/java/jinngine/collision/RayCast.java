@@ -19,6 +19,35 @@ import jinngine.math.Vector3;
 public final class RayCast {
 	final GJK gjk = new GJK();
 	final GJK.State gjkstate = gjk.getState();
+
+	// the current point on the ray, and the optional support map added to it
+	private final Vector3 x = new Vector3();
+	private SupportMap3 Sc;
+
+	// support mapping of the point x
+	private final SupportMap3 pointmap = new SupportMap3() {
+		@Override
+		public final Vector3 supportPoint(Vector3 direction) { return new Vector3(x); }
+		@Override
+		public final void supportPoint(Vector3 direction, Vector3 result) { result.assign(x); }
+		@Override
+		public final void supportFeature(Vector3 d, List<Vector3> returnList) {}
+		@Override
+		public final double sphereSweepRadius() {return 0;}
+	};
+
+	// support mapping of Sc translated by x
+	private final SupportMap3 translatedmap = new SupportMap3() {
+		@Override
+		public final Vector3 supportPoint(Vector3 direction) { return x.add(Sc.supportPoint(direction)); }
+		@Override
+		public final void supportPoint(Vector3 direction, Vector3 result) { Sc.supportPoint(direction, result); Vector3.add(result, x); }
+		@Override
+		public final void supportFeature(Vector3 d, List<Vector3> returnList) {}
+		@Override
+		public final double sphereSweepRadius() {return 0;}
+	};
+
 	/** 
 	 * Perform ray cast against the convex object defined by Sb. 
 	 * @param Sb support mapping of a convex shape
@@ -50,7 +79,8 @@ public final class RayCast {
 			final boolean sweep) {
 		
 		int iterations = 0; 
-		final Vector3 x = point.add(direction.multiply(lambda));
+		final Vector3 x = this.x;
+		x.assign(point); Vector3.multiplyAndAdd(direction, lambda, x);
 		final double sphere;
 		
 		// sphere swept volumes?
@@ -60,29 +90,14 @@ public final class RayCast {
 			sphere = 0;
 		}
 		
-		
 		// translated support mapping Sc+x
 		final SupportMap3 Sa;		
 		if (Sc == null) {
-			Sa = new SupportMap3() {
-				@Override
-				public final Vector3 supportPoint(Vector3 direction) { return new Vector3(x); }
-				@Override
-				public final void supportFeature(Vector3 d, List<Vector3> returnList) {}
-				@Override
-				public final double sphereSweepRadius() {return 0;}
-			};
+			Sa = pointmap;
 		} else {
 			// if Sc is given, add it to the second support map
-			Sa = new SupportMap3() {
-				@Override
-				public final Vector3 supportPoint(Vector3 direction) { return x.add(Sc.supportPoint(direction)); }
-				@Override
-				public final void supportFeature(Vector3 d, List<Vector3> returnList) {}
-				@Override
-				public final double sphereSweepRadius() {return 0;}
-				
-			};			
+			this.Sc = Sc;
+			Sa = translatedmap;
 		}
 		
 		// vectors from the GJK internal state (pretty ugly but it works) 
@@ -104,9 +119,10 @@ public final class RayCast {
 				return Double.POSITIVE_INFINITY;
 			} else {
 				// move forward as much as possible, half way into the envelope 
-				Vector3 vs = v.sub(v.normalize().multiply(envelope*0.5+sphere));
-				lambda = lambda - vs.dot(w) / v.dot(direction);
-				x.assign(point.add(direction.multiply(lambda)));
+				// vs = v - (v/|v|)(envelope/2+sphere)
+				final double vsdotw = v.dot(w)*(1-(envelope*0.5+sphere)/v.norm());
+				lambda = lambda - vsdotw / v.dot(direction);
+				x.assign(point); Vector3.multiplyAndAdd(direction, lambda, x);
 			}			
 		}
 //		System.out.println("RayCast: Hitpoint lambda=" + lambda);
@@ -17,7 +17,6 @@ import jinngine.math.Vector3;
 import jinngine.physics.*;
 import jinngine.physics.constraint.Constraint;
 import jinngine.physics.constraint.joint.UniversalJoint;
-import jinngine.physics.force.GravityForce;
 import jinngine.physics.solver.NonsmoothNonlinearConjugateGradient;
 import jinngine.rendering.Interaction;
 import jinngine.rendering.Rendering;
@@ -37,8 +36,12 @@ public class MobileExample implements Rendering.Callback {
 	public MobileExample(CubeRenderer r) {
 		renderer = r;		
 		// start jinngine 
-		scene = new DefaultScene(new SAP2(), new NonsmoothNonlinearConjugateGradient(75), new DefaultDeactivationPolicy());
-		scene.setTimestep(0.03);
+		DefaultScene defaultscene = new DefaultScene(new SAP2(), new NonsmoothNonlinearConjugateGradient(75), new DefaultDeactivationPolicy());
+		defaultscene.setTimestep(0.03);
+		
+		// gravity on all bodies
+		defaultscene.getForceField().setGravity(new Vector3(0,-9.8,0));
+		scene = defaultscene;
 		/*
 		// add boxes to bound the world
 		Body floor = new Body("floor", new Box(1500,20,1500));
@@ -117,23 +120,10 @@ public class MobileExample implements Rendering.Callback {
 		scene.addBody(stickLv2L);
 		scene.addBody(stickLv2R);	
 		*/
-//		 put gravity on limbs
-		
-		scene.addForce( new GravityForce(head));		
-		scene.addForce( new GravityForce(stickLv1));		
-		//scene.addForce( new GravityForce(lv1LeftObject));		
-		//scene.addForce( new GravityForce(lv1RightObject));	
-		
-		//scene.addForce( new GravityForce(ceiling));		
-		
-		//scene.addForce( new GravityForce(stickLv2L));	
-		//scene.addForce( new GravityForce(stickLv2R));	
-
 		Iterator<Body> bi = bodies.iterator();
 		while(bi.hasNext()){
 			Body tempBody = (Body)bi.next();
 			scene.addBody(tempBody);
-			scene.addForce( new GravityForce(tempBody));
 		}
 
 
@@ -33,6 +33,7 @@ public class Box implements SupportMap3, Geometry, Material {
 	private final Matrix3 localrotation = new Matrix3();
 	private final Vector3 localdisplacement = new Vector3();
 	private final Vector3 bounds = new Vector3();
+	private final Vector3 support = new Vector3();
 	private double envelope = 0.125;
 //	private final double sweep = 1.05;
 //	private final double extra = 2;
@@ -189,6 +190,20 @@ public class Box implements SupportMap3, Geometry, Material {
 		return body.state.rotation.multiply(localtransform.multiply(new Vector3(sv1, sv2, sv3)).add(localdisplacement)).add(body.state.position);
 	}
 
+	@Override
+	public void supportPoint(Vector3 direction, Vector3 result) {
+		// direction in box space
+		Matrix3.transposeVectorAndMultiply(direction, body.state.rotation, support);
+		Matrix3.transposeVectorAndMultiply(support, localrotation, support);
+		support.assign(support.x<0?-0.5:0.5, support.y<0?-0.5:0.5, support.z<0?-0.5:0.5);
+
+		// transform the corner to world space
+		Matrix3.multiply(localtransform, support, result);
+		Vector3.add(result, localdisplacement);
+		Matrix3.multiply(body.state.rotation, result, result);
+		Vector3.add(result, body.state.position);
+	}
+
 	@Override
 	public Body getBody() { return body; }
 	
@@ -269,7 +284,8 @@ public class Box implements SupportMap3, Geometry, Material {
 		Tb.getRowVectors(rx, ry, rz);
 		
 		// return the final bounds, adding the envelope and sweep size
-		return new Vector3(rx.dot(px)+envelope, ry.dot(py)+envelope, rz.dot(pz)+envelope).add(body.state.position);
+		final double margin = envelope+body.sweep;
+		return new Vector3(rx.dot(px)+margin, ry.dot(py)+margin, rz.dot(pz)+margin).add(body.state.position);
 	}
 
 	@Override
@@ -306,7 +322,8 @@ public class Box implements SupportMap3, Geometry, Material {
 		Tb.getRowVectors(rx, ry, rz);
 
 		// return final bounds, subtracting the envelope size and sphere sweep size
-		return new Vector3(rx.dot(px)-envelope, ry.dot(py)-envelope, rz.dot(pz)-envelope).add(body.state.position);		
+		final double margin = envelope+body.sweep;
+		return new Vector3(rx.dot(px)-margin, ry.dot(py)-margin, rz.dot(pz)-margin).add(body.state.position);		
 	}
 
 	@Override
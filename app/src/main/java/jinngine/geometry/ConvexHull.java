@@ -230,6 +230,7 @@ public class ConvexHull implements SupportMap3, Geometry, Material {
 //      private final Vector3 displacement = new Vector3();
         private final Vector3 localscale = new Vector3(1,1,1);
         private final Vector3 inverselocalscale = new Vector3(1,1,1);
+        private final Vector3 support = new Vector3();
 
         // AxisAlignedBoundingBox
         private final Vector3 extremalpoint = new Vector3();
@@ -291,6 +292,46 @@ public class ConvexHull implements SupportMap3, Geometry, Material {
 
         }
 
+        @Override
+        public void supportPoint(Vector3 direction, Vector3 result) {
+                // normals are transformed (RS^-1)
+                final Vector3 v = support;
+                Matrix3.transposeVectorAndMultiply(direction, body.state.rotation, v);
+                Matrix3.transposeVectorAndMultiply(v, localrotation, v);
+                v.assign(v.x*localscale.x, v.y*localscale.y, v.z*localscale.z);
+
+                //hill climb along v
+                int index = cachedVertex;
+                double value = v.dot(vertices.get(index));
+                boolean better = true;
+                while (better) {
+                        better = false;
+                        //go through adjacency list and pick first improver (greedy)
+                        final ArrayList<Integer> neighbours = adjacent.get(index);
+                        for ( int k=0; k<neighbours.size(); k++) {
+                                final int i = neighbours.get(k);
+                                double newvalue = v.dot(vertices.get(i));
+                                if ( newvalue > value) {
+                                        value = newvalue;
+                                        index = i;
+                                        better = true;
+                                        break;
+                                }
+                        }
+                }
+
+                // keep the vertex
+                cachedVertex = index;
+
+                // final support point in world space
+                final Vector3 p = vertices.get(index);
+                v.assign(p.x*localscale.x, p.y*localscale.y, p.z*localscale.z);
+                Matrix3.multiply(localrotation, v, result);
+                Vector3.add(result, localtranslation);
+                Matrix3.multiply(body.state.rotation, result, result);
+                Vector3.add(result, body.state.position);
+        }
+
         @Override
         public void supportFeature(Vector3 direction, List<Vector3> returnface) {
                 // Su
@@ -366,14 +407,14 @@ public class ConvexHull implements SupportMap3, Geometry, Material {
         public Vector3 getMaxBounds() {
                 // return the max bounds in world space
 //              return bounds.add(localtranslation).add(body.state.position);
-                return body.state.rotation.multiply(localtranslation).add(body.state.position).add(bounds);
+                return body.state.rotation.multiply(localtranslation).add(body.state.position).add(bounds).add(new Vector3(body.sweep,body.sweep,body.sweep));
 
         }
 
         @Override
         public Vector3 getMinBounds() {
                 // return the min bounds in world space
-                return body.state.rotation.multiply(localtranslation).add(body.state.position).sub(bounds);
+                return body.state.rotation.multiply(localtranslation).add(body.state.position).sub(bounds).sub(new Vector3(body.sweep,body.sweep,body.sweep));
         }
 
         @Override
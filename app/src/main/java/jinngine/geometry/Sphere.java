@@ -37,7 +37,7 @@ public class Sphere implements SupportMap3, Geometry, Material {
 	private final Vector3 displacement = new Vector3();
 	private final Matrix4 transform4 = new Matrix4();
 	private final Matrix4 localtransform4 = new Matrix4();
-	private double envelope = 1;
+	private double envelope = 0.125;
 	private Object auxiliary;
 	private double restitution = 0.7;
 	private double friction = 0.5;
@@ -48,7 +48,6 @@ public class Sphere implements SupportMap3, Geometry, Material {
 		super();
 		this.radius = radius;		
 		this.mass = (4.0/3.0)*Math.PI*radius*radius*radius;
-		this.envelope = 1;
 
 		//set the initial local transform
 		setLocalTransform( Matrix3.identity(), new Vector3());
@@ -62,6 +61,19 @@ public class Sphere implements SupportMap3, Geometry, Material {
 		return direction.normalize().multiply(radius).add(body.state.position).add(Matrix3.multiply(body.state.rotation, displacement, new Vector3()) );
 	}
 
+	@Override
+	public void supportPoint(Vector3 direction, Vector3 result) {
+		//sphere is invariant under rotation
+		final double l = direction.norm();
+		Matrix3.multiply(body.state.rotation, displacement, result);
+		Vector3.add(result, body.state.position);
+		if ( l == 0.0 ) {
+			result.x += radius;
+		} else {
+			Vector3.multiplyAndAdd(direction, radius/l, result);
+		}
+	}
+
 	@Override
 	public Body getBody() {
 		return body;
@@ -75,14 +87,14 @@ public class Sphere implements SupportMap3, Geometry, Material {
 	@Override
 	public Vector3 getMaxBounds() {
 		//return new Vector3(radius+envelope,radius+envelope,radius+envelope).add(Matrix3.multiply(body.state.rotation, displacement, new Vector3())).add(body.state.rCm);
-		return body.state.position.add( Matrix3.multiply(body.state.rotation, displacement, new Vector3())).add( new Vector3(radius+envelope,radius+envelope,radius+envelope));
+		return body.state.position.add( Matrix3.multiply(body.state.rotation, displacement, new Vector3())).add( new Vector3(radius+envelope+body.sweep,radius+envelope+body.sweep,radius+envelope+body.sweep));
 		
 	}
 
 	@Override
 	public Vector3 getMinBounds() {
 		//return  new Vector3(-radius-envelope,-radius-envelope,-radius-envelope).add(Matrix3.multiply(body.state.rotation, displacement, new Vector3())).add(body.state.rCm);	
-		return body.state.position.add( Matrix3.multiply(body.state.rotation, displacement, new Vector3())).add( new Vector3(-radius-envelope,-radius-envelope,-radius-envelope));
+		return body.state.position.add( Matrix3.multiply(body.state.rotation, displacement, new Vector3())).add( new Vector3(-radius-envelope-body.sweep,-radius-envelope-body.sweep,-radius-envelope-body.sweep));
 
 	}
 	
@@ -120,7 +132,7 @@ public class Sphere implements SupportMap3, Geometry, Material {
 
 	@Override
 	public void setEnvelope(double envelope) {
-		//this.envelope = envelope;
+		this.envelope = envelope;
 	}
 
 	@Override
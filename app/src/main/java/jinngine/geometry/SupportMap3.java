@@ -28,6 +28,15 @@ public interface SupportMap3  {
 	 */
 	public Vector3 supportPoint(Vector3 direction);
 
+	/**
+	 * Compute a support point of this geometry, in the given direction, and store it in result. Unlike 
+	 * {@link #supportPoint(Vector3)}, this method does not allocate any new objects, and is used by the 
+	 * collision detection algorithms in their inner loops. The result vector must not be the direction vector.
+	 * @param direction the support direction, which is not modified
+	 * @param result on return, the farthest point, in the given direction, existing on this geometry
+	 */
+	public void supportPoint(Vector3 direction, Vector3 result);
+
 	/**
 	 * Return the feature that supports the direction d. This could be either a point, 
 	 * line segment, or a face. In case of a face, the points must appear in counter 
@@ -70,6 +70,7 @@ public final class UniformCapsule implements Geometry, SupportMap3, Material {
 	private double envelope = 0.125;
 	private final Matrix3 rotation = new Matrix3(Matrix3.identity());
 	private final Vector3 translation = new Vector3();
+	private final Vector3 support = new Vector3();
 	
 	@Override
 	public final Object getAuxiliary() {return this.auxiliary;}
@@ -117,14 +118,16 @@ public final class UniformCapsule implements Geometry, SupportMap3, Material {
 	public Vector3 getMaxBounds() {
 		Vector3 p1 = body.state.rotation.multiply(rotation.multiply(new Vector3(0, 0,  0.5*length)).add(translation)).add(body.state.position);
 		Vector3 p2 = body.state.rotation.multiply(rotation.multiply(new Vector3(0, 0, -0.5*length)).add(translation)).add(body.state.position);
-		return new Vector3((p1.x>p2.x?p1.x:p2.x) + envelope+radius, (p1.y>p2.y?p1.y:p2.y)+ envelope+radius, (p1.z>p2.z?p1.z:p2.z)+envelope+radius );
+		final double margin = envelope+radius+body.sweep;
+		return new Vector3((p1.x>p2.x?p1.x:p2.x)+margin, (p1.y>p2.y?p1.y:p2.y)+margin, (p1.z>p2.z?p1.z:p2.z)+margin );
 	}
 
 	@Override
 	public Vector3 getMinBounds() {
 		Vector3 p1 = body.state.rotation.multiply(rotation.multiply(new Vector3(0, 0,  0.5*length)).add(translation)).add(body.state.position);
 		Vector3 p2 = body.state.rotation.multiply(rotation.multiply(new Vector3(0, 0, -0.5*length)).add(translation)).add(body.state.position);
-		return new Vector3((p1.x<p2.x?p1.x:p2.x)-envelope-radius, (p1.y<p2.y?p1.y:p2.y)-envelope-radius, (p1.z<p2.z?p1.z:p2.z)-envelope-radius );
+		final double margin = envelope+radius+body.sweep;
+		return new Vector3((p1.x<p2.x?p1.x:p2.x)-margin, (p1.y<p2.y?p1.y:p2.y)-margin, (p1.z<p2.z?p1.z:p2.z)-margin );
 	}
 
 	/*  
@@ -153,6 +156,18 @@ public final class UniformCapsule implements Geometry, SupportMap3, Material {
 		return body.state.rotation.multiply(rotation.multiply(new Vector3(0, 0, sv3*length)).add(translation)).add(body.state.position);
 	}
 
+	@Override
+	public void supportPoint(Vector3 direction, Vector3 result) {
+		// the capsule axis in body space, and the end point in the given direction
+		result.assign(rotation.a13, rotation.a23, rotation.a33);
+		Matrix3.transposeVectorAndMultiply(direction, body.state.rotation, support);
+		final double sv3 = support.dot(result)<0?-0.5:0.5;
+		Vector3.multiply(result, sv3*length);
+		Vector3.add(result, translation);
+		Matrix3.multiply(body.state.rotation, result, result);
+		Vector3.add(result, body.state.position);
+	}
+
 	@Override
 	public double sphereSweepRadius() {
 		return radius;
@@ -16,6 +16,7 @@ public class BulletNativeContactGenerator implements ContactGenerator {
 	private ContactPoint[] contacts = new ContactPoint[N];
 	private int[] record = new int[8];
 	private double envelope = 0.125;
+	private double margin = 0;
 	
 	public BulletNativeContactGenerator(Geometry Sa, Geometry Sb) {
 		//System.out.println("setup");
@@ -125,7 +126,7 @@ public class BulletNativeContactGenerator implements ContactGenerator {
 		// fill in contact points
 		int c = 0;
 		for (int i=0; i<numberOfContacts; i++) {
-			if (  dists[i] < envelope ) {
+			if (  dists[i] < envelope+margin ) {
 				contacts[c].b1 = A;
 				contacts[c].b2 = B;
 				contacts[c].normal.x = normals[i*3];
@@ -146,6 +147,7 @@ public class BulletNativeContactGenerator implements ContactGenerator {
 				//contacts[i].normal.print();
 				contacts[c].restitution = 0.7;
 				contacts[c].friction = 0.5;
+				contacts[c].envelope = envelope;
 				c = c+1;				
 			}
 		}
@@ -177,6 +179,11 @@ public class BulletNativeContactGenerator implements ContactGenerator {
 		
 	}
 
+	@Override
+	public final void setSpeculativeMargin(double margin) {
+		this.margin = margin;
+	}
+
 	@Override
 	public final void remove() {
 		// free memory in the native bullet impl.
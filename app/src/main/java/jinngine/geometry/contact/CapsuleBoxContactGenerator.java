@@ -0,0 +1,280 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.geometry.contact;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import jinngine.geometry.Box;
+import jinngine.geometry.UniformCapsule;
+import jinngine.math.Matrix3;
+import jinngine.math.Vector3;
+
+/**
+ * Analytic contact generator for Capsule-Box combinations. The capsule core segment is transformed
+ * into the box frame. The squared distance from a point on the segment to the box is a convex,
+ * piecewise quadratic function of the segment parameter, with breaks where the segment crosses the
+ * planes of the box faces. Each piece is minimised in closed form, giving the closest points exactly.
+ * When the closest feature of the box is a face, the segment is clipped against that face, so
+ * a capsule lying flat on a box is supported by two contact points.
+ */
+public final class CapsuleBoxContactGenerator implements ContactGenerator {
+	// data
+	private final UniformCapsule capsule;
+	private final Box box;
+	private final boolean invertnormal;
+	private final List<ContactPoint> contacts = new ArrayList<ContactPoint>();
+	private final ContactPoint[] pool = { new ContactPoint(), new ContactPoint() };
+
+	// settings
+	private final double envelope;
+	private final double shell;
+	private double margin = 0;
+	private static final double epsilon = 1e-9;
+
+	// scratch data
+	private final Matrix3 R = new Matrix3();
+	private final Matrix3 Rbox = new Matrix3();
+	private final Vector3 centre = new Vector3();
+	private final Vector3 p = new Vector3();
+	private final Vector3 d = new Vector3();
+	private final Vector3 x = new Vector3();
+	private final Vector3 q = new Vector3();
+	private final Vector3 n = new Vector3();
+	private final double[] h = new double[3];
+	private final double[] breaks = new double[8];
+
+	public CapsuleBoxContactGenerator(UniformCapsule capsule, Box box) {
+		this(capsule, box, false);
+	}
+
+	/**
+	 * Alternative constructor for geometries in reversed order
+	 */
+	public CapsuleBoxContactGenerator(Box box, UniformCapsule capsule) {
+		this(capsule, box, true);
+	}
+
+	private CapsuleBoxContactGenerator(UniformCapsule capsule, Box box, boolean invertnormal) {
+		this.capsule = capsule;
+		this.box = box;
+		this.invertnormal = invertnormal;
+
+		// select the largest envelope for contact generation
+		envelope = Math.max(capsule.getEnvelope(), box.getEnvelope());
+		shell = envelope*0.5;
+
+		// pick smallest restitution and friction coefficients
+		for (ContactPoint cp: pool) {
+			cp.b1 = invertnormal? box.getBody() : capsule.getBody();
+			cp.b2 = invertnormal? capsule.getBody() : box.getBody();
+			cp.envelope = envelope;
+			cp.restitution = MaterialCombination.restitution(capsule, box);
+			cp.friction = MaterialCombination.friction(capsule, box);
+		}
+	}
+
+	@Override
+	public Iterator<ContactPoint> getContacts() {
+		return contacts.iterator();
+	}
+
+	@Override
+	public void run() {
+		contacts.clear();
+
+		// box frame in world space
+		box.getLocalTransform(Rbox, centre);
+		Matrix3.multiply(box.getBody().state.rotation, centre, centre);
+		Vector3.add(centre, box.getBody().state.position);
+		Matrix3.multiply(box.getBody().state.rotation, Rbox, Rbox);
+
+		// capsule segment in box space
+		CapsuleCapsuleContactGenerator.segment(capsule, R, p, d);
+		Vector3.sub(p, centre);
+		Matrix3.transposeVectorAndMultiply(p, Rbox, p);
+		Matrix3.transposeVectorAndMultiply(d, Rbox, d);
+
+		// half side lengths of the box
+		final Vector3 dimensions = box.getDimentions();
+		h[0] = dimensions.x*0.5; h[1] = dimensions.y*0.5; h[2] = dimensions.z*0.5;
+
+		// break points, where the segment crosses face planes
+		int m = 0;
+		breaks[m++] = 0;
+		for (int i=0; i<3; i++) {
+			final double di = d.get(i);
+			if (Math.abs(di) > epsilon) {
+				final double t1 = ( h[i]-p.get(i))/di;
+				final double t2 = (-h[i]-p.get(i))/di;
+				if (t1 > 0 && t1 < 1) breaks[m++] = t1;
+				if (t2 > 0 && t2 < 1) breaks[m++] = t2;
+			}
+		}
+		breaks[m++] = 1;
+
+		// insertion sort
+		for (int i=1; i<m; i++) {
+			final double v = breaks[i];
+			int j = i-1;
+			while (j >= 0 && breaks[j] > v) {
+				breaks[j+1] = breaks[j]; j--;
+			}
+			breaks[j+1] = v;
+		}
+
+		// minimise the squared distance on each piece. On a piece, each coordinate is either inside
+		// the slab of the box, or outside on a fixed side, so the squared distance is a quadratic
+		double tbest = 0, fbest = Double.POSITIVE_INFINITY;
+		for (int k=0; k<m-1; k++) {
+			final double ta = breaks[k], tb = breaks[k+1];
+			final double tm = 0.5*(ta+tb);
+			double num = 0, den = 0;
+			for (int i=0; i<3; i++) {
+				final double xi = p.get(i)+tm*d.get(i);
+				final double di = d.get(i);
+				if (xi > h[i]) {
+					num -= di*(p.get(i)-h[i]); den += di*di;
+				} else if (xi < -h[i]) {
+					num -= di*(p.get(i)+h[i]); den += di*di;
+				}
+			}
+			double t = den > epsilon ? num/den : tm;
+			t = t < ta ? ta : (t > tb ? tb : t);
+			final double f = squaredDistance(t);
+			if (f < fbest) {
+				fbest = f; tbest = t;
+			}
+		}
+
+		final double r = capsule.getRadius();
+
+		// separated core segment
+		if (fbest > epsilon) {
+			final double norm = Math.sqrt(fbest);
+			if (norm - r >= envelope+margin)
+				return;
+
+			pointAt(tbest, x);
+			clamp(x, q);
+			n.assign(x); Vector3.sub(n, q); Vector3.multiply(n, 1/norm);
+
+			// if the closest feature is a face, clip the segment against it
+			int outside = 0, axis = 0;
+			for (int i=0; i<3; i++)
+				if (Math.abs(x.get(i)) > h[i]) { outside++; axis = i; }
+
+			if (outside == 1) {
+				face(axis, x.get(axis) < 0 ? -1 : 1, tbest);
+			} else {
+				add(x, q, norm - r);
+			}
+
+		// core segment intersects the box, push out through the face with the smallest penetration
+		} else {
+			double best = Double.POSITIVE_INFINITY; int axis = 0; double sign = 1;
+			for (int i=0; i<3; i++) {
+				final double lo = Math.min(p.get(i), p.get(i)+d.get(i));
+				final double hi = Math.max(p.get(i), p.get(i)+d.get(i));
+				if (h[i]-lo < best) { best = h[i]-lo; axis = i; sign = 1; }
+				if (hi+h[i] < best) { best = hi+h[i]; axis = i; sign = -1; }
+			}
+			face(axis, sign, tbest);
+		}
+	}
+
+	// generate contacts against the box face with the given axis and sign, by clipping the
+	// segment against the remaining two slabs. The parameter t is used if clipping fails.
+	private void face( final int axis, final double sign, final double t ) {
+		n.assign(0,0,0);
+		n.set(axis, sign);
+
+		// Liang-Barsky clipping against the slabs orthogonal to the face
+		double t0 = 0, t1 = 1;
+		for (int i=0; i<3; i++) {
+			if (i == axis) continue;
+			final double pi = p.get(i), di = d.get(i);
+			if (Math.abs(di) < epsilon) {
+				if (Math.abs(pi) > h[i]) { t0 = 1; t1 = 0; }
+			} else {
+				final double ta = ( h[i]-pi)/di;
+				final double tb = (-h[i]-pi)/di;
+				t0 = Math.max(t0, Math.min(ta, tb));
+				t1 = Math.min(t1, Math.max(ta, tb));
+			}
+		}
+
+		if (t0 > t1) {
+			t0 = t; t1 = t;
+		}
+
+		facePoint(axis, sign, t0);
+		if ((t1-t0)*d.norm() > envelope)
+			facePoint(axis, sign, t1);
+	}
+
+	private void facePoint( final int axis, final double sign, final double t ) {
+		pointAt(t, x);
+		clamp(x, q);
+		q.set(axis, sign*h[axis]);
+		add(x, q, (x.get(axis)-q.get(axis))*sign - capsule.getRadius());
+	}
+
+	// add a contact given the core point x and box point y in box space, with normal n
+	private void add( final Vector3 x, final Vector3 y, final double distance ) {
+		if (distance >= envelope+margin)
+			return;
+
+		final ContactPoint cp = pool[contacts.size()];
+
+		// transform to world space, n points from the box towards the capsule
+		final Vector3 cappoint = invertnormal ? cp.pbw : cp.paw;
+		final Vector3 boxpoint = invertnormal ? cp.paw : cp.pbw;
+		Matrix3.multiply(Rbox, n, cp.normal);
+		Matrix3.multiply(Rbox, x, cappoint); Vector3.add(cappoint, centre);
+		Vector3.multiplyAndAdd(cp.normal, -capsule.getRadius(), cappoint);
+		Matrix3.multiply(Rbox, y, boxpoint); Vector3.add(boxpoint, centre);
+
+		// normal points from geometry b towards geometry a
+		if (invertnormal)
+			Vector3.multiply(cp.normal, -1);
+
+		cp.point.assign(cp.paw); Vector3.add(cp.point, cp.pbw); Vector3.multiply(cp.point, 0.5);
+		cp.distance = distance;
+		cp.depth = shell-distance;
+		contacts.add(cp);
+	}
+
+	private void pointAt( final double t, final Vector3 result ) {
+		result.assign(p); Vector3.multiplyAndAdd(d, t, result);
+	}
+
+	private void clamp( final Vector3 v, final Vector3 result ) {
+		for (int i=0; i<3; i++) {
+			final double vi = v.get(i);
+			result.set(i, vi < -h[i] ? -h[i] : (vi > h[i] ? h[i] : vi));
+		}
+	}
+
+	private double squaredDistance( final double t ) {
+		pointAt(t, x);
+		clamp(x, q);
+		Vector3.sub(x, q);
+		return x.squaredNorm();
+	}
+
+	@Override
+	public void setSpeculativeMargin(double margin) {
+		this.margin = margin;
+	}
+
+	@Override
+	public void remove() {/* nothing to clean up */}
+}
@@ -0,0 +1,192 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.geometry.contact;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import jinngine.geometry.UniformCapsule;
+import jinngine.math.Matrix3;
+import jinngine.math.Vector3;
+
+/**
+ * Analytic contact generator for pairs of capsules. The closest points between the two core
+ * segments are found in closed form, and the sphere sweeping radii are subtracted afterwards. When
+ * the segments are close to parallel, the overlapping part of the segments is reported by two contact
+ * points, so that capsules lying side by side are supported along their length.
+ */
+public final class CapsuleCapsuleContactGenerator implements ContactGenerator {
+	// data
+	private final UniformCapsule ca, cb;
+	private final List<ContactPoint> contacts = new ArrayList<ContactPoint>();
+	private final ContactPoint[] pool = { new ContactPoint(), new ContactPoint() };
+
+	// settings
+	private final double envelope;
+	private final double shell;
+	private double margin = 0;
+	private static final double epsilon = 1e-9;
+
+	// scratch data
+	private final Matrix3 R = new Matrix3();
+	private final Vector3 pa = new Vector3(), da = new Vector3();
+	private final Vector3 pb = new Vector3(), db = new Vector3();
+	private final Vector3 r = new Vector3();
+	private final Vector3 a = new Vector3();
+	private final Vector3 b = new Vector3();
+	private final Vector3 n = new Vector3();
+
+	public CapsuleCapsuleContactGenerator(UniformCapsule a, UniformCapsule b) {
+		this.ca = a;
+		this.cb = b;
+
+		// select the largest envelope for contact generation
+		envelope = Math.max(a.getEnvelope(), b.getEnvelope());
+		shell = envelope*0.5;
+
+		// pick smallest restitution and friction coefficients
+		for (ContactPoint cp: pool) {
+			cp.b1 = a.getBody();
+			cp.b2 = b.getBody();
+			cp.envelope = envelope;
+			cp.restitution = MaterialCombination.restitution(a, b);
+			cp.friction = MaterialCombination.friction(a, b);
+		}
+	}
+
+	@Override
+	public Iterator<ContactPoint> getContacts() {
+		return contacts.iterator();
+	}
+
+	@Override
+	public void run() {
+		contacts.clear();
+
+		// core segments in world space, given as start point and direction
+		segment(ca, R, pa, da);
+		segment(cb, R, pb, db);
+
+		// closest points between segments, see Ericson, Real-Time Collision Detection, section 5.1.9
+		r.assign(pa); Vector3.sub(r, pb);
+		final double aa = da.dot(da);
+		final double ee = db.dot(db);
+		final double f = db.dot(r);
+		final double c = da.dot(r);
+		final double bb = da.dot(db);
+		final double denom = aa*ee-bb*bb;
+		double s, t;
+		if (aa <= epsilon && ee <= epsilon) {
+			s = 0; t = 0;
+		} else if (aa <= epsilon) {
+			s = 0; t = clamp(f/ee);
+		} else if (ee <= epsilon) {
+			t = 0; s = clamp(-c/aa);
+		} else {
+			s = denom > epsilon*aa*ee ? clamp((bb*f-c*ee)/denom) : 0;
+			t = (bb*s+f)/ee;
+			if (t < 0) {
+				t = 0; s = clamp(-c/aa);
+			} else if (t > 1) {
+				t = 1; s = clamp((bb-c)/aa);
+			}
+		}
+		a.assign(pa); Vector3.multiplyAndAdd(da, s, a);
+		b.assign(pb); Vector3.multiplyAndAdd(db, t, b);
+
+		// contact normal, pointing from b towards a
+		n.assign(a); Vector3.sub(n, b);
+		final double norm = n.norm();
+		if (norm > epsilon) {
+			Vector3.multiply(n, 1/norm);
+		} else {
+			// core segments intersect, use a direction orthogonal to both
+			Vector3.crossProduct(da, db, n);
+			if (n.squaredNorm() < epsilon) {
+				// parallel and overlapping, any direction orthogonal to da will do
+				n.assign(da.y, -da.x, 0);
+				if (n.squaredNorm() < epsilon) n.assign(0, da.z, -da.y);
+			}
+			n.assign(n.normalize());
+			// orient it from the centre of b towards the centre of a
+			r.assign(pa); Vector3.multiplyAndAdd(da, 0.5, r);
+			Vector3.sub(r, pb); Vector3.multiplyAndAdd(db, -0.5, r);
+			if (r.dot(n) < 0) Vector3.multiply(n, -1);
+		}
+
+		final double radii = ca.getRadius() + cb.getRadius();
+		if (norm - radii >= envelope+margin)
+			return;
+
+		// nearly parallel segments, report both ends of the overlapping interval
+		if (aa > epsilon && ee > epsilon && denom <= 1e-4*aa*ee) {
+			r.assign(pb); Vector3.sub(r, pa);
+			final double s0 = clamp(r.dot(da)/aa);
+			Vector3.add(r, db);
+			final double s1 = clamp(r.dot(da)/aa);
+			if (Math.abs(s1-s0)*Math.sqrt(aa) > envelope) {
+				addContact(s0);
+				addContact(s1);
+				return;
+			}
+		}
+
+		add(a, b);
+	}
+
+	// add a contact at the point with parameter s on segment a, and its closest point on segment b
+	private void addContact( final double s ) {
+		a.assign(pa); Vector3.multiplyAndAdd(da, s, a);
+		r.assign(a); Vector3.sub(r, pb);
+		b.assign(pb); Vector3.multiplyAndAdd(db, clamp(r.dot(db)/db.dot(db)), b);
+		add(a, b);
+	}
+
+	// add a contact between core points a and b
+	private void add( final Vector3 a, final Vector3 b ) {
+		r.assign(a); Vector3.sub(r, b);
+		final double distance = r.dot(n) - ca.getRadius() - cb.getRadius();
+		if (distance >= envelope+margin)
+			return;
+
+		final ContactPoint cp = pool[contacts.size()];
+		cp.normal.assign(n);
+		cp.paw.assign(a); Vector3.multiplyAndAdd(n, -ca.getRadius(), cp.paw);
+		cp.pbw.assign(b); Vector3.multiplyAndAdd(n, cb.getRadius(), cp.pbw);
+		cp.point.assign(cp.paw); Vector3.add(cp.point, cp.pbw); Vector3.multiply(cp.point, 0.5);
+		cp.distance = distance;
+		cp.depth = shell-distance;
+		contacts.add(cp);
+	}
+
+	// the core segment of a capsule in world space, given by a start point p and a direction d
+	static void segment( final UniformCapsule capsule, final Matrix3 R, final Vector3 p, final Vector3 d ) {
+		final Matrix3 Rb = capsule.getBody().state.rotation;
+		capsule.getLocalTransform(R, p);
+		Matrix3.multiply(Rb, R, R);
+		Matrix3.multiply(Rb, p, p);
+		Vector3.add(p, capsule.getBody().state.position);
+		final double length = capsule.getLength();
+		d.assign(R.a13*length, R.a23*length, R.a33*length);
+		Vector3.multiplyAndAdd(d, -0.5, p);
+	}
+
+	static double clamp( final double x ) {
+		return x < 0 ? 0 : (x > 1 ? 1 : x);
+	}
+
+	@Override
+	public void setSpeculativeMargin(double margin) {
+		this.margin = margin;
+	}
+
+	@Override
+	public void remove() {/* nothing to clean up */}
+}
@@ -93,6 +93,16 @@ public interface ContactGenerator {
 	 */
 	public Iterator<ContactPoint> getContacts();	
 	
+	/**
+	 * Set the speculative margin for this contact generator. Contact points are normally reported when the 
+	 * distance between geometries is below the envelope. With a positive margin, contact points are also reported
+	 * when the distance is below the envelope plus the margin. Such speculative contact points have a distance 
+	 * larger than the envelope, and are used to prevent fast moving bodies from passing through each other within 
+	 * a single time-step. The margin is usually set by the {@link ContactConstraint} before each call to run().
+	 * @param margin non-negative extra distance
+	 */
+	public void setSpeculativeMargin(double margin);
+	
 	
 	/**
 	 * Called when this ContactGenerator is being removed from the {@link ContactConstraint} (or some other user). 
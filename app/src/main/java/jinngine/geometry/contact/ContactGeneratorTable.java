@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.geometry.contact;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jinngine.geometry.Geometry;
+
+/**
+ * Table driven dispatch from pairs of geometries to {@link ContactGenerator} instances. Each concrete
+ * geometry class is assigned an integer type id the first time it is seen, and a two dimensional
+ * table, indexed by the type ids of both geometries, holds the {@link Factory} to use for that pair.
+ * <p>
+ * Factories are registered for an ordered pair of classes or interfaces, for instance (SupportMap3, Sphere).
+ * When a pair of concrete types is seen for the first time, the registrations are searched for the most
+ * recent one that matches, and the result is stored in the table. Later registrations take precedence over
+ * earlier ones, so specialised generators are registered after general ones. Registering a factory clears
+ * the resolved table entries.
+ */
+public final class ContactGeneratorTable {
+
+	/**
+	 * Creates contact generators for a pair of geometries. The geometries are given in the order
+	 * they were registered with, and the generated contact normals must point from b towards a
+	 */
+	public interface Factory {
+		public ContactGenerator create(Geometry a, Geometry b);
+	}
+
+	// a factory registered for an ordered pair of geometry classes
+	private static final class Registration {
+		final Class<?> a, b;
+		final Factory factory;
+		Registration(Class<?> a, Class<?> b, Factory factory) {
+			this.a = a; this.b = b; this.factory = factory;
+		}
+	}
+
+	// marks a resolved table entry with no matching factory
+	private static final Factory none = new Factory() {
+		public final ContactGenerator create(Geometry a, Geometry b) { return null; }
+	};
+
+	private final Map<Class<?>,Integer> typeids = new HashMap<Class<?>,Integer>();
+	private final List<Registration> registrations = new ArrayList<Registration>();
+	private Factory[][] table = new Factory[8][8];
+
+	/**
+	 * Register a factory for geometries of class a and b, in that order. The classes can be interfaces.
+	 * @param a class of the first geometry
+	 * @param b class of the second geometry
+	 * @param factory factory creating contact generators for such pairs
+	 */
+	public final void register( Class<?> a, Class<?> b, Factory factory ) {
+		if (a == null || b == null || factory == null)
+			throw new IllegalArgumentException("ContactGeneratorTable: null argument");
+
+		registrations.add(new Registration(a, b, factory));
+
+		// forget resolved entries
+		for (Factory[] row: table)
+			Arrays.fill(row, null);
+	}
+
+	/**
+	 * Get the type id of the given geometry class, assigning a new id if the class has not been seen before
+	 */
+	public final int getTypeId( Class<?> type ) {
+		Integer id = typeids.get(type);
+		if (id == null) {
+			id = typeids.size();
+			typeids.put(type, id);
+
+			// grow the table
+			if (id >= table.length) {
+				final Factory[][] newtable = new Factory[table.length*2][table.length*2];
+				for (int i=0; i<table.length; i++)
+					System.arraycopy(table[i], 0, newtable[i], 0, table.length);
+				table = newtable;
+			}
+		}
+		return id;
+	}
+
+	/**
+	 * Create a new contact generator for the geometries a and b, or return null if no factory handles
+	 * this pair of geometries
+	 */
+	public final ContactGenerator getGenerator( Geometry a, Geometry b ) {
+		final int ia = getTypeId(a.getClass());
+		final int ib = getTypeId(b.getClass());
+
+		Factory factory = table[ia][ib];
+		if (factory == null) {
+			factory = resolve(a.getClass(), b.getClass());
+			table[ia][ib] = factory;
+		}
+
+		return factory.create(a, b);
+	}
+
+	// find the latest registration matching the given classes
+	private Factory resolve( Class<?> a, Class<?> b ) {
+		for (int i=registrations.size()-1; i>=0; i--) {
+			final Registration r = registrations.get(i);
+			if (r.a.isAssignableFrom(a) && r.b.isAssignableFrom(b))
+				return r.factory;
+		}
+		return none;
+	}
+}
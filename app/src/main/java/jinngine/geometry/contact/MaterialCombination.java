@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.geometry.contact;
+
+import jinngine.geometry.Geometry;
+import jinngine.geometry.Material;
+
+/**
+ * Combination of the {@link Material} properties of two interacting geometries. The smallest
+ * restitution and friction coefficients are selected. Geometries that are not a {@link Material}
+ * do not contribute, and if neither geometry is a {@link Material}, default values are used.
+ * Contact generators evaluate these once, when they are created.
+ */
+public final class MaterialCombination {
+	/** Restitution coefficient used when no geometry specifies a material */
+	public static final double DEFAULT_RESTITUTION = 0.7;
+	/** Friction coefficient used when no geometry specifies a material */
+	public static final double DEFAULT_FRICTION = 0.5;
+
+	private MaterialCombination() {}
+
+	/**
+	 * Combined restitution coefficient of the geometries a and b
+	 */
+	public static double restitution( final Geometry a, final Geometry b ) {
+		if ( a instanceof Material && b instanceof Material) {
+			return Math.min(((Material)a).getRestitution(), ((Material)b).getRestitution());
+		} else if ( a instanceof Material ) {
+			return ((Material)a).getRestitution();
+		} else if ( b instanceof Material ) {
+			return ((Material)b).getRestitution();
+		} else {
+			return DEFAULT_RESTITUTION;
+		}
+	}
+
+	/**
+	 * Combined friction coefficient of the geometries a and b
+	 */
+	public static double friction( final Geometry a, final Geometry b ) {
+		if ( a instanceof Material && b instanceof Material) {
+			return Math.min(((Material)a).getFrictionCoefficient(), ((Material)b).getFrictionCoefficient());
+		} else if ( a instanceof Material ) {
+			return ((Material)a).getFrictionCoefficient();
+		} else if ( b instanceof Material ) {
+			return ((Material)b).getFrictionCoefficient();
+		} else {
+			return DEFAULT_FRICTION;
+		}
+	}
+}
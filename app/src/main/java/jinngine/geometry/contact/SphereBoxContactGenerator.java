@@ -0,0 +1,194 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.geometry.contact;
+
+import java.util.Iterator;
+
+import jinngine.geometry.Box;
+import jinngine.geometry.Sphere;
+import jinngine.math.Matrix3;
+import jinngine.math.Vector3;
+
+/**
+ * Analytic contact generator for Sphere-Box combinations. The sphere centre is transformed into
+ * the box frame and clamped against the box extents, which gives the closest point directly. If the
+ * centre lies inside the box, the face with the smallest penetration is used. This replaces
+ * the GJK and ray-cast based {@link SupportMapSphereContactGenerator} for this pair. The envelope is half 
+ * the largest envelope of the two geometries, which gives the settings of SupportMapSphereContactGenerator 
+ * for the default envelopes.
+ */
+public final class SphereBoxContactGenerator implements ContactGenerator {
+	// data
+	private final Sphere sphere;
+	private final Box box;
+	private final boolean invertnormal;
+	private final ContactPoint cp = new ContactPoint();
+	private boolean incontact = false;
+	private double margin = 0;
+
+	// settings
+	private final double envelope;
+	private final double shell;
+
+	// scratch data
+	private final Matrix3 rotation = new Matrix3();
+	private final Vector3 centre = new Vector3();
+	private final Vector3 spherecentre = new Vector3();
+	private final Vector3 p = new Vector3();
+	private final Vector3 q = new Vector3();
+	private final Vector3 n = new Vector3();
+
+	public SphereBoxContactGenerator(Sphere sphere, Box box) {
+		this(sphere, box, false);
+	}
+
+	/**
+	 * Alternative constructor for geometries in reversed order
+	 */
+	public SphereBoxContactGenerator(Box box, Sphere sphere) {
+		this(sphere, box, true);
+	}
+
+	private SphereBoxContactGenerator(Sphere sphere, Box box, boolean invertnormal) {
+		this.sphere = sphere;
+		this.box = box;
+		this.invertnormal = invertnormal;
+
+		// select the largest envelope for contact generation
+		envelope = 0.5*Math.max(sphere.getEnvelope(), box.getEnvelope());
+		shell = envelope*0.75;
+
+		// pick smallest restitution and friction coefficients
+		cp.restitution = MaterialCombination.restitution(sphere, box);
+		cp.friction = MaterialCombination.friction(sphere, box);
+		cp.envelope = envelope;
+		cp.b1 = invertnormal? box.getBody() : sphere.getBody();
+		cp.b2 = invertnormal? sphere.getBody() : box.getBody();
+	}
+
+	@Override
+	public final Iterator<ContactPoint> getContacts() {
+		return new Iterator<ContactPoint>() {
+			boolean done = false;
+			@Override
+			public boolean hasNext() {
+				return (!done)&&incontact;
+			}
+			@Override
+			public ContactPoint next() {
+				done = true;
+				return cp;
+			}
+			@Override
+			public void remove() {}
+		};
+	}
+
+	@Override
+	public final void run() {
+		// box frame in world space
+		box.getLocalTransform(rotation, centre);
+		Matrix3.multiply(box.getBody().state.rotation, centre, centre);
+		Vector3.add(centre, box.getBody().state.position);
+		Matrix3.multiply(box.getBody().state.rotation, rotation, rotation);
+
+		// sphere centre in world space
+		sphere.getLocalTranslation(spherecentre);
+		Matrix3.multiply(sphere.getBody().state.rotation, spherecentre, spherecentre);
+		Vector3.add(spherecentre, sphere.getBody().state.position);
+
+		// sphere centre in box space
+		p.assign(spherecentre);
+		Vector3.sub(p, centre);
+		Matrix3.transposeVectorAndMultiply(p, rotation, p);
+
+		// half side lengths of the box
+		final Vector3 dimensions = box.getDimentions();
+		final double hx = dimensions.x*0.5, hy = dimensions.y*0.5, hz = dimensions.z*0.5;
+
+		// clamp to box extents
+		q.assign( clamp(p.x,hx), clamp(p.y,hy), clamp(p.z,hz) );
+
+		final double r = sphere.getRadius();
+		final double d;
+
+		// sphere centre is outside the box
+		if ( q.x != p.x || q.y != p.y || q.z != p.z ) {
+			n.assign(p);
+			Vector3.sub(n, q);
+			final double norm = n.norm();
+			Vector3.multiply(n, 1/norm);
+			d = norm - r;
+		// sphere centre is inside the box, push out through the nearest face
+		} else {
+			final double dx = hx-Math.abs(p.x);
+			final double dy = hy-Math.abs(p.y);
+			final double dz = hz-Math.abs(p.z);
+			if ( dx <= dy && dx <= dz ) {
+				n.assign(p.x<0?-1:1, 0, 0);
+				q.x = p.x<0?-hx:hx;
+				d = -dx - r;
+			} else if ( dy <= dz ) {
+				n.assign(0, p.y<0?-1:1, 0);
+				q.y = p.y<0?-hy:hy;
+				d = -dy - r;
+			} else {
+				n.assign(0, 0, p.z<0?-1:1);
+				q.z = p.z<0?-hz:hz;
+				d = -dz - r;
+			}
+		}
+
+		// back to world space. n points from the box towards the sphere
+		Matrix3.multiply(rotation, n, n);
+		Matrix3.multiply(rotation, q, q);
+		Vector3.add(q, centre);
+		p.assign(spherecentre);
+		Vector3.multiplyAndAdd(n, -r, p);
+
+		// normal points from geometry b towards geometry a
+		if (invertnormal) {
+			cp.paw.assign(q);
+			cp.pbw.assign(p);
+			cp.normal.assign(n);
+			Vector3.multiply(cp.normal, -1);
+		} else {
+			cp.paw.assign(p);
+			cp.pbw.assign(q);
+			cp.normal.assign(n);
+		}
+
+		cp.point.assign(p);
+		Vector3.add(cp.point, q);
+		Vector3.multiply(cp.point, 0.5);
+		cp.distance = d;
+
+		// contact within envelope or penetration
+		if ( d < envelope+margin ) {
+			cp.depth = shell-d;
+			incontact = true;
+		// separation
+		} else {
+			cp.depth = 0;
+			incontact = false;
+		}
+	}
+
+	private static double clamp( final double x, final double h ) {
+		return x < -h ? -h : (x > h ? h : x);
+	}
+
+	@Override
+	public final void setSpeculativeMargin(double margin) {
+		this.margin = margin;
+	}
+
+	@Override
+	public final void remove() {}
+}
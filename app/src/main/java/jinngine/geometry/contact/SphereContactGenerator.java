@@ -9,7 +9,6 @@
 package jinngine.geometry.contact;
 import java.util.Iterator;
 
-import jinngine.geometry.Material;
 import jinngine.geometry.Sphere;
 import jinngine.math.*;
 
@@ -29,6 +28,7 @@ public class SphereContactGenerator implements ContactGenerator {
 	private final double shell = envelope*0.75;
 	private final double restitution;
 	private final double friction;
+	private double margin = 0;
 
 	public SphereContactGenerator(Sphere a, Sphere b) {
 		this.s1 = a; 
@@ -38,30 +38,13 @@ public class SphereContactGenerator implements ContactGenerator {
 		//System.out.println("created");
 		
 		//select the smallest restitution and friction coefficients 
-		if ( a instanceof Material && b instanceof Material) {
-			double ea = ((Material)a).getRestitution();
-			double fa = ((Material)a).getFrictionCoefficient();
-			double eb = ((Material)b).getRestitution();
-			double fb = ((Material)b).getFrictionCoefficient();
-
-			//pick smallest values
-			restitution = ea > eb ? eb : ea;
-			friction    = fa > fb ? fb : fa;
-
-		} else if ( a instanceof Material ) {
-			restitution = ((Material)a).getRestitution();
-			friction    = ((Material)a).getFrictionCoefficient();
-		} else if ( b instanceof Material ) {
-			restitution = ((Material)b).getRestitution();
-			friction    = ((Material)b).getFrictionCoefficient();
-		} else { //default values
-			restitution = 0.7;
-			friction = 0.5;
-		}
+		restitution = MaterialCombination.restitution(a, b);
+		friction = MaterialCombination.friction(a, b);
 		
 		//copy material properties to the contactpoint
 		cp.restitution = restitution;
 		cp.friction = friction;
+		cp.envelope = envelope;
 	}
 	
 	@Override
@@ -111,7 +94,7 @@ public class SphereContactGenerator implements ContactGenerator {
 				
 
 		// contact within envelope
-		if ( d >= 0  && d < envelope ) {
+		if ( d >= 0  && d < envelope+margin ) {
 			cp.depth = shell-d;
 			//cp.depth = depth-(envelope/2.0) > 0 ? depth-(envelope/2.0):0;
 			incontact = true;
@@ -130,6 +113,11 @@ public class SphereContactGenerator implements ContactGenerator {
 		}
 	}
 
+	@Override
+	public void setSpeculativeMargin(double margin) {
+		this.margin = margin;
+	}
+
 	@Override
 	public void remove() {
 		// TODO Auto-generated method stub
@@ -16,8 +16,8 @@ import java.util.List;
 import jinngine.collision.GJK;
 import jinngine.collision.RayCast;
 import jinngine.geometry.Geometry;
-import jinngine.geometry.Material;
 import jinngine.geometry.UniformCapsule;
+import jinngine.geometry.util.ManifoldReduction;
 import jinngine.geometry.util.ORourke;
 import jinngine.geometry.SupportMap3;
 import jinngine.math.Matrix3;
@@ -40,16 +40,38 @@ public final class SupportMapContactGenerator implements ContactGenerator {
 	private final double epsilon = 1e-7;
 	private final double envelope;
 	private final double shell;
-	private double restitution;
-	private double friction;
+	private final double restitution;
+	private final double friction;
 	private final double spa;
 	private final double spb;
+	private double margin = 0;
+
+	// maximum number of contact points kept after clipping
+	private final int maximumContactPoints;
 
 	// distance algorithms
 	private final GJK gjk = new GJK();
 	private final RayCast raycast = new RayCast();
+	private final ManifoldReduction reduction = new ManifoldReduction();
 
+	/**
+	 * Create a contact generator reporting at most 4 contact points
+	 */
 	public SupportMapContactGenerator(SupportMap3 sa, Geometry ga, SupportMap3 sb, Geometry gb) {
+		this(sa, ga, sb, gb, 4);
+	}
+
+	/**
+	 * Create a contact generator reporting at most the given number of contact points. Face-face configurations 
+	 * are reduced to this number of points, keeping the deepest point and maximising the area of the contact 
+	 * polygon. To use a different limit for some pairs of geometries, register a factory creating generators 
+	 * with that limit in the {@link ContactGeneratorTable}
+	 * @param maximumContactPoints maximum number of contact points, must be positive
+	 */
+	public SupportMapContactGenerator(SupportMap3 sa, Geometry ga, SupportMap3 sb, Geometry gb, int maximumContactPoints) {
+		if (maximumContactPoints < 1)
+			throw new IllegalArgumentException("SupportMapContactGenerator: maximum number of contact points must be positive");
+		this.maximumContactPoints = maximumContactPoints;
 		this.Sa = sa;
 		this.Sb = sb;
 		this.ga = ga;
@@ -67,8 +89,19 @@ public final class SupportMapContactGenerator implements ContactGenerator {
 			envelope = ga.getEnvelope();
 			shell = envelope*0.5;			
 		}
+
+		// combined material properties
+		restitution = MaterialCombination.restitution(ga, gb);
+		friction = MaterialCombination.friction(ga, gb);
 	}
 	
+	/**
+	 * Get the maximum number of contact points reported by this generator
+	 */
+	public final int getMaximumContactPoints() {
+		return maximumContactPoints;
+	}
+
 	@Override
 	public Iterator<ContactPoint> getContacts() {
 		return contacts.iterator();
@@ -76,31 +109,10 @@ public final class SupportMapContactGenerator implements ContactGenerator {
 
 	@Override
 	public void run() {		
-		//select the smallest restitution and friction coefficients 
-		if ( ga instanceof Material && gb instanceof Material) {
-			double ea = ((Material)ga).getRestitution();
-			double fa = ((Material)ga).getFrictionCoefficient();
-			double eb = ((Material)gb).getRestitution();
-			double fb = ((Material)gb).getFrictionCoefficient();
-			//pick smallest values
-			restitution = ea > eb ? eb : ea;
-			friction    = fa > fb ? fb : fa;
-
-		} else if ( ga instanceof Material ) {
-			restitution = ((Material)ga).getRestitution();
-			friction    = ((Material)ga).getFrictionCoefficient();
-		} else if ( gb instanceof Material ) {
-			restitution = ((Material)gb).getRestitution();
-			friction    = ((Material)gb).getFrictionCoefficient();
-		} else { // default values
-			restitution = 0.7;
-			friction = 0.5;
-		}
-		
 		// first we run GJK (the same as setting t=0)
 		// we must know is the distance is less than the envelope 
 		// plus sphere sweep radius for both geometries
-		gjk.run(Sa, Sb, pa, pb, envelope+spa+spb, epsilon, 32);
+		gjk.run(Sa, Sb, pa, pb, envelope+margin+spa+spb, epsilon, 32);
 		
 		// if objects are intersecting
 		if (gjk.getState().intersection) {
@@ -139,8 +151,8 @@ public final class SupportMapContactGenerator implements ContactGenerator {
 			// that A and/or B can be sphere swept 
 			final double d = pa.sub(pb).norm() - spa - spb;
 
-			// if distance is less that the envelope, generate contact points
-			if (d<envelope) {
+			// if distance is less that the envelope (plus the speculative margin), generate contact points
+			if (d<envelope+margin) {
 				generate(pa, pb, pa.sub(pb).normalize() );
 			// or outside envelope
 			} else {
@@ -186,7 +198,7 @@ public final class SupportMapContactGenerator implements ContactGenerator {
 				cp.distance = (p.z-q.z)-spb-spa;  // take into account sphere sweeping
 
 				// if contact is within the envelope size
-				if (cp.distance < envelope ) {
+				if (cp.distance < envelope+margin ) {
 					cp.depth = shell-cp.distance;
 					cp.envelope = envelope;
 					cp.restitution = restitution;
@@ -208,6 +220,9 @@ public final class SupportMapContactGenerator implements ContactGenerator {
 		// run 2d intersection
 		ORourke.run(faceA, faceB, handler);
 		
+		// bound the number of contact points
+		reduction.reduce(contacts, maximumContactPoints);
+		
 //		if (contacts.size() == 0) {
 //			System.out.println("contacts="+contacts.size()+" (" + faceA.size() +","+faceB.size()+")" );
 //
@@ -220,6 +235,11 @@ public final class SupportMapContactGenerator implements ContactGenerator {
 //			System.out.println("contacts="+contacts.size() +"("+faceA.size()+","+faceB.size()+")");
 	}
 	
+	@Override
+	public void setSpeculativeMargin(double margin) {
+		this.margin = margin;
+	}
+
 	@Override
 	public void remove() {/* nothing to clean up */}
 }
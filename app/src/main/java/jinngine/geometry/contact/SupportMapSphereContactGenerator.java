@@ -14,7 +14,6 @@ import java.util.List;
 import jinngine.collision.GJK;
 import jinngine.collision.RayCast;
 import jinngine.geometry.Geometry;
-import jinngine.geometry.Material;
 import jinngine.geometry.Sphere;
 import jinngine.geometry.SupportMap3;
 import jinngine.math.Matrix3;
@@ -39,6 +38,7 @@ public final class SupportMapSphereContactGenerator implements ContactGenerator
 	private final ContactPoint cp = new ContactPoint();
 	private boolean incontact = false;
 	private boolean invertnormal = false;
+	private double margin = 0;
 	
 	// settings
 	private static double epsilon = 1e-7;
@@ -60,12 +60,15 @@ public final class SupportMapSphereContactGenerator implements ContactGenerator
 		// SupportMap for the sphere centre
 		this.pointmap = new SupportMap3() {
 			public final Vector3 supportPoint(Vector3 direction) { return new Vector3(spherecentreworld); }
+			public final void supportPoint(Vector3 direction, Vector3 result) { result.assign(spherecentreworld); }
 			public final void supportFeature(Vector3 d, List<Vector3> face) {}
 			public final double sphereSweepRadius() {return 0;}
 		};
 		
-		cp.restitution = 0.7;
-		cp.friction = 0.5;
+		// combined material properties
+		cp.restitution = MaterialCombination.restitution(g1, sphere);
+		cp.friction = MaterialCombination.friction(g1, sphere);
+		cp.envelope = envelope;
 	}
 
 	/**
@@ -85,13 +88,15 @@ public final class SupportMapSphereContactGenerator implements ContactGenerator
 		// SupportMap for the sphere centre
 		this.pointmap = new SupportMap3() {
 			public final Vector3 supportPoint(Vector3 direction) { return new Vector3(spherecentreworld); }
+			public final void supportPoint(Vector3 direction, Vector3 result) { result.assign(spherecentreworld); }
 			public final void supportFeature(Vector3 d, List<Vector3> face) {}
 			public final double sphereSweepRadius() { return 0; }
 		};
 		
-		// default material settings
-		cp.restitution = 0.7;
-		cp.friction = 0.5;		
+		// combined material properties
+		cp.restitution = MaterialCombination.restitution(g1, sphere);
+		cp.friction = MaterialCombination.friction(g1, sphere);
+		cp.envelope = envelope;
 		invertnormal = true;
 	}
 	
@@ -116,27 +121,6 @@ public final class SupportMapSphereContactGenerator implements ContactGenerator
 	@Override
 	public final void run() {
 		
-		//select the smallest restitution and friction coefficients 
-		if ( g1 instanceof Material && sphere instanceof Material) {
-			double ea = ((Material)g1).getRestitution();
-			double fa = ((Material)g1).getFrictionCoefficient();
-			double eb = ((Material)sphere).getRestitution();
-			double fb = ((Material)sphere).getFrictionCoefficient();
-			//pick smallest values
-			cp.restitution = ea > eb ? eb : ea;
-			cp.friction    = fa > fb ? fb : fa;
-
-		} else if ( g1 instanceof Material ) {
-			cp.restitution = ((Material)g1).getRestitution();
-			cp.friction    = ((Material)g1).getFrictionCoefficient();
-		} else if ( sphere instanceof Material ) {
-			cp.restitution = ((Material)sphere).getRestitution();
-			cp.friction    = ((Material)sphere).getFrictionCoefficient();
-		} else { // default values
-			cp.restitution = 0.7;
-			cp.friction = 0.5;
-		}
-
 		//boolean penetrating = false;
 		// assign the centre of mass position of the sphere in world space
 		sphere.getLocalTranslation(spherecentreworld);
@@ -144,7 +128,7 @@ public final class SupportMapSphereContactGenerator implements ContactGenerator
 		Vector3.add(spherecentreworld, b2.state.position);
 
 		// run GJK
-		closest.run(convex, pointmap, cp.paw, cp.pbw, sphere.getRadius()+envelope, epsilon, 31); //notice the envelope size
+		closest.run(convex, pointmap, cp.paw, cp.pbw, sphere.getRadius()+envelope+margin, epsilon, 31); //notice the envelope size
 				
 		// penetration
 		if ( closest.getState().simplexSize > 3  || cp.paw.sub(cp.pbw).norm() < 1e-7 ) {
@@ -191,7 +175,7 @@ public final class SupportMapSphereContactGenerator implements ContactGenerator
 			Vector3.multiply( cp.normal, -1);
 		
 		// contact within envelope
-		if ( cp.distance >= 0  && cp.distance < envelope ) {
+		if ( cp.distance >= 0  && cp.distance < envelope+margin ) {
 			cp.depth = shell-cp.distance;
 			//cp.depth = depth-(envelope/2.0) > 0 ? depth-(envelope/2.0):0;
 			incontact = true;		
@@ -210,6 +194,11 @@ public final class SupportMapSphereContactGenerator implements ContactGenerator
 		}
 	}
 
+	@Override
+	public final void setSpeculativeMargin(double margin) {
+		this.margin = margin;
+	}
+
 	@Override
 	public final void remove() {
 		// TODO Auto-generated method stub
@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.geometry.util;
+
+import java.util.List;
+
+import jinngine.geometry.contact.ContactGenerator.ContactPoint;
+import jinngine.math.Vector3;
+
+/**
+ * Reduction of a contact manifold to a bounded number of contact points. Face-face contacts,
+ * as produced by clipping the support features of two shapes, can result in many contact points
+ * that all share the same normal. Each point becomes a number of NCP constraints, while only a
+ * few of them are needed to support the contact. The reduction keeps the deepest point, and then
+ * greedily adds the points that maximise the area of the contact polygon, measured in the plane
+ * orthogonal to the contact normal.
+ */
+public final class ManifoldReduction {
+	// scratch storage, grows when needed
+	private ContactPoint[] selected = new ContactPoint[8];
+	private boolean[] taken = new boolean[8];
+	private final Vector3 e1 = new Vector3();
+	private final Vector3 e2 = new Vector3();
+	private final Vector3 cross = new Vector3();
+
+	/**
+	 * Reduce the given list of contact points to at most max points. The list is modified in place.
+	 * All contact points are assumed to share the same contact normal. If the list already contains
+	 * max or fewer points, it is left untouched.
+	 * @param contacts list of contact points to reduce
+	 * @param max maximum number of contact points to keep, must be positive
+	 */
+	public final void reduce( final List<ContactPoint> contacts, final int max ) {
+		if (max < 1)
+			throw new IllegalArgumentException("ManifoldReduction: max must be positive");
+
+		final int n = contacts.size();
+		if (n <= max)
+			return;
+
+		// grow scratch storage
+		if (taken.length < n) {
+			taken = new boolean[n];
+		}
+		if (selected.length < max) {
+			selected = new ContactPoint[max];
+		}
+		for (int i=0; i<n; i++)
+			taken[i] = false;
+
+		final Vector3 normal = contacts.get(0).normal;
+
+		// first point is the deepest one (smallest distance)
+		int best = 0;
+		for (int i=1; i<n; i++)
+			if (contacts.get(i).distance < contacts.get(best).distance)
+				best = i;
+		selected[0] = contacts.get(best); taken[best] = true;
+		int size = 1;
+
+		// second point is the point farthest away from the first, in the contact plane
+		double span = 0;
+		if (size < max) {
+			best = -1; double bestvalue = -1;
+			for (int i=0; i<n; i++) {
+				if (taken[i]) continue;
+				planar(contacts.get(i).point, selected[0].point, normal, e1);
+				final double value = e1.squaredNorm();
+				if (value > bestvalue) {
+					bestvalue = value; best = i;
+				}
+			}
+			selected[1] = contacts.get(best); taken[best] = true;
+			span = bestvalue;
+			size = 2;
+		}
+
+		// remaining points are inserted into the polygon, where they add the most area. The polygon
+		// is kept in counter clock-wise order wrt. the normal, so a point c that lies outside edge (a,b)
+		// forms a triangle (a,c,b) with positive orientation, and adds exactly that area. For the 
+		// degenerate polygon of two points, both orientations count. Areas that are small relative to the 
+		// squared span of the first two points are round-off, for instance from collinear points
+		while (size < max) {
+			best = -1; int bestedge = 0; double bestvalue = 1e-9*span;
+			for (int i=0; i<n; i++) {
+				if (taken[i]) continue;
+				final Vector3 c = contacts.get(i).point;
+				for (int k=0; k<size; k++) {
+					final Vector3 a = selected[k].point;
+					final Vector3 b = selected[(k+1)%size].point;
+					double area = orientedArea(a, c, b, normal);
+					if (size == 2) area = Math.abs(area);
+					if (area > bestvalue) {
+						bestvalue = area; best = i; bestedge = k;
+					}
+				}
+			}
+
+			// no point adds any area, stop here
+			if (best < 0)
+				break;
+
+			// insert after bestedge, flipping the segment to ccw order if we just formed the first triangle
+			for (int k=size; k>bestedge+1; k--)
+				selected[k] = selected[k-1];
+			selected[bestedge+1] = contacts.get(best);
+			taken[best] = true;
+			size++;
+
+			if (size == 3 && orientedArea(selected[0].point, selected[1].point, selected[2].point, normal) < 0) {
+				final ContactPoint t = selected[1];
+				selected[1] = selected[2];
+				selected[2] = t;
+			}
+		}
+
+		// write back result
+		contacts.clear();
+		for (int k=0; k<size; k++) {
+			contacts.add(selected[k]);
+			selected[k] = null;
+		}
+	}
+
+	// twice the signed area of the triangle (a,b,c) projected onto the plane given by n
+	private final double orientedArea( final Vector3 a, final Vector3 b, final Vector3 c, final Vector3 n ) {
+		e1.assign(b); Vector3.sub(e1, a);
+		e2.assign(c); Vector3.sub(e2, a);
+		Vector3.crossProduct(e1, e2, cross);
+		return cross.dot(n);
+	}
+
+	// the vector p-q projected onto the plane given by n
+	private static void planar( final Vector3 p, final Vector3 q, final Vector3 n, final Vector3 result ) {
+		result.assign(p); Vector3.sub(result, q);
+		Vector3.multiplyAndAdd(n, -result.dot(n), result);
+	}
+}
@@ -34,12 +34,27 @@ public class Body {
 	public boolean                     deactivated = false;
 	public final Vector3               deactivatedexternalforce = new Vector3();
 	public final Vector3               deactivatedexternaltorque= new Vector3();
+	public double                      motion = 0; // rolling average of motion, see WindowedDeactivationPolicy
 
 	// more auxiliary members
 	public final Vector3               auxDeltav     = new Vector3();
 	public final Vector3               auxDeltaOmega = new Vector3();
 	public final Vector3               auxDeltav2 = new Vector3();
 	public final Vector3               auxDeltaOmega2 = new Vector3();
+	
+	// index of this body in the arrays of packed solvers, see PackedConstraints
+	public int                         index = -1;
+	
+	// extension of the bounding boxes of the geometries, covering the motion of the body
+	// in the next time-step when speculative contacts are enabled. Updated by the scene
+	public double                      sweep = 0;
+	
+	// kinematic setting of the body as seen by the constraint graph of the scene. Kinematic bodies
+	// delimit components like fixed bodies, and the scene updates this when the setting changes
+	public boolean                     kinematicNode = false;
+	
+	// radius of a sphere around the centre of mass, containing all geometries
+	private double boundingRadius = 0;
 
 	// physical state of body
 	public final State state = new State();
@@ -49,6 +64,11 @@ public class Body {
 	
 	// fixed setting
 	private boolean fixed = false;
+	
+	// kinematic setting, and the inverse mass properties muted while kinematic
+	private boolean kinematic = false;
+	private Matrix3 mutedInverseMass;
+	private Matrix3 mutedInverseInertia;
 			
 	/**
 	 * Create a now body with no geometry
@@ -193,6 +213,20 @@ public class Body {
 			this.state.inverseanisotropicmass.assignScale(1);
 			this.state.inertia.assign(InertiaMatrix.identity());
 		}
+		
+		// bounding radius, from the bounds of the geometries relative to the centre of mass
+		boundingRadius = 0;
+		for (Geometry g: geometries) {
+			final Vector3 max = g.getMaxBounds(), min = g.getMinBounds();
+			final Vector3 centre = max.add(min).multiply(0.5).sub(state.position);
+			boundingRadius = Math.max(boundingRadius, centre.norm() + max.sub(min).norm()*0.5);
+		}
+		
+		// keep the new inverse mass properties muted if the body is kinematic
+		if (kinematic) {
+			kinematic = false;
+			setKinematic(true);
+		}
 	}
 
 	
@@ -212,6 +246,51 @@ public class Body {
 		fixed = value;
 	}
 
+	/**
+	 * Get the radius of a sphere around the centre of mass, containing all geometries of this body. 
+	 * Computed by finalize()
+	 */
+	public final double getBoundingRadius() {
+		return boundingRadius;
+	}
+
+	/**
+	 * Return true if this body is kinematic
+	 * @see #setKinematic(boolean)
+	 */
+	public final boolean isKinematic() {
+		return kinematic;
+	}
+
+	/**
+	 * Make this body kinematic. A kinematic body is moved by the velocity and angular velocity set by the
+	 * user, and is treated as having infinite mass, so it is not affected by forces, contacts or joints. Its
+	 * inverse mass and inertia are zeroed while it is kinematic, and restored when it becomes dynamic again. 
+	 * Like fixed bodies, kinematic bodies do not join the groups of interacting bodies in the {@link Scene}. 
+	 * Unlike {@link #setFixed(boolean)}, the setting can be changed at any time, also for bodies in a scene. 
+	 * The scene moves the constraints of the body in its next time-step, in time proportional to their number.
+	 */
+	public final void setKinematic( boolean value ) {
+		if (kinematic == value)
+			return;
+		
+		if (value) {
+			if (mutedInverseMass == null) {
+				mutedInverseMass = new Matrix3();
+				mutedInverseInertia = new Matrix3();
+			}
+			mutedInverseMass.assign(state.inverseanisotropicmass);
+			mutedInverseInertia.assign(state.inverseinertia);
+			state.inverseanisotropicmass.assignZero();
+			state.inverseinertia.assignZero();
+		} else {
+			state.inverseanisotropicmass.assign(mutedInverseMass);
+			state.inverseinertia.assign(mutedInverseInertia);
+		}
+		
+		kinematic = value;
+	}
+
 	/**
 	 * Set the linear velocity of this body
 	 */
@@ -0,0 +1,218 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jinngine.physics.constraint.Constraint;
+import jinngine.physics.constraint.contact.ContactConstraint;
+import jinngine.physics.constraint.contact.ContactConstraintManager;
+import jinngine.physics.solver.Solver.NCPConstraint;
+import jinngine.util.Pair;
+
+/**
+ * Dispatches contact events to callbacks subscribed to bodies, see {@link ContactTrigger}. Instead of each trigger
+ * polling its contact constraints every time-step, the {@link Scene} records the NCP constraint rows of contact
+ * constraints acting on subscribed bodies as they are applied. After the solver has run, the total normal impulse
+ * of each recorded contact is summed into a compact array, and threshold crossings are detected in a single pass
+ * over the recorded contacts. Contacts in deactivated components are not applied, and their impulse does not change.
+ * <p>
+ * A callback is notified once when the total normal impulse of a contact rises above its threshold, and once when
+ * it drops below the threshold again, or when the contact vanishes.
+ */
+public final class ContactTriggerDispatcher {
+
+	/**
+	 * A callback subscribed to the contacts of a body
+	 */
+	public static final class Subscription {
+		private final Body body;
+		private final double threshold;
+		private final ContactTrigger.Callback callback;
+
+		// contacts currently above the threshold
+		private final Set<ContactConstraint> triggered = new HashSet<ContactConstraint>();
+
+		private Subscription(Body body, double threshold, ContactTrigger.Callback callback) {
+			this.body = body;
+			this.threshold = threshold;
+			this.callback = callback;
+		}
+
+		public Body getBody() {
+			return body;
+		}
+
+		public double getThreshold() {
+			return threshold;
+		}
+	}
+
+	// subscriptions for each body
+	private final Map<Body,Subscription[]> subscriptions = new HashMap<Body,Subscription[]>();
+
+	// contacts on subscribed bodies applied in the current time-step, their rows and normal impulses
+	private ContactConstraint[] contacts = new ContactConstraint[16];
+	private Subscription[][] first = new Subscription[16][];
+	private Subscription[][] second = new Subscription[16][];
+	private int[] rowStart = new int[16];
+	private int[] rowEnd = new int[16];
+	private double[] impulse = new double[16];
+	private int count = 0;
+
+	public ContactTriggerDispatcher(ContactConstraintManager manager) {
+		// contacts that vanish drop below any threshold
+		manager.addHandler(new ContactConstraintManager.Handler() {
+			@Override
+			public void contactConstraintCreated(Pair<Body> bodies, ContactConstraint contact) {}
+			@Override
+			public void contactConstraintRemoved(Pair<Body> bodies, ContactConstraint contact) {
+				if (subscriptions.isEmpty())
+					return;
+				removed(subscriptions.get(bodies.getFirst()), contact, bodies.getSecond());
+				removed(subscriptions.get(bodies.getSecond()), contact, bodies.getFirst());
+			}
+		});
+	}
+
+	/**
+	 * Subscribe a callback to the contacts of the given body
+	 * @param body body to monitor
+	 * @param threshold the total normal impulse of a contact, above which the callback is notified
+	 * @param callback callback to notify
+	 * @return the subscription, to be used with {@link #unsubscribe(Subscription)}
+	 */
+	public Subscription subscribe(Body body, double threshold, ContactTrigger.Callback callback) {
+		if (body == null || callback == null)
+			throw new IllegalArgumentException("ContactTriggerDispatcher: null body or callback");
+
+		final Subscription subscription = new Subscription(body, threshold, callback);
+		final Subscription[] existing = subscriptions.get(body);
+		if (existing == null) {
+			subscriptions.put(body, new Subscription[] {subscription});
+		} else {
+			final Subscription[] extended = Arrays.copyOf(existing, existing.length+1);
+			extended[existing.length] = subscription;
+			subscriptions.put(body, extended);
+		}
+		return subscription;
+	}
+
+	/**
+	 * Remove a subscription. No further events are dispatched to its callback
+	 */
+	public void unsubscribe(Subscription subscription) {
+		final Subscription[] existing = subscriptions.get(subscription.body);
+		if (existing == null)
+			return;
+
+		int k = 0;
+		final Subscription[] reduced = new Subscription[existing.length];
+		for (Subscription s: existing)
+			if (s != subscription)
+				reduced[k++] = s;
+
+		if (k == 0)
+			subscriptions.remove(subscription.body);
+		else
+			subscriptions.put(subscription.body, Arrays.copyOf(reduced, k));
+	}
+
+	/**
+	 * Called by {@link Scene} after the rows of a constraint have been added to the list of NCP constraints
+	 * @param constraint the constraint that was applied
+	 * @param rows the list of NCP constraints
+	 * @param start index of the first row of the constraint
+	 * @param end index after the last row of the constraint
+	 */
+	public void record(Constraint constraint, List<NCPConstraint> rows, int start, int end) {
+		if (subscriptions.isEmpty() || start == end || !(constraint instanceof ContactConstraint))
+			return;
+
+		final NCPConstraint row = rows.get(start);
+		final Subscription[] a = subscriptions.get(row.body1);
+		final Subscription[] b = subscriptions.get(row.body2);
+		if (a == null && b == null)
+			return;
+
+		if (count == contacts.length) {
+			final int size = count*2;
+			contacts = Arrays.copyOf(contacts, size);
+			first = Arrays.copyOf(first, size);
+			second = Arrays.copyOf(second, size);
+			rowStart = Arrays.copyOf(rowStart, size);
+			rowEnd = Arrays.copyOf(rowEnd, size);
+			impulse = Arrays.copyOf(impulse, size);
+		}
+
+		contacts[count] = (ContactConstraint)constraint;
+		first[count] = a;
+		second[count] = b;
+		rowStart[count] = start;
+		rowEnd[count] = end;
+		count++;
+	}
+
+	/**
+	 * Called by {@link Scene} after the solver has run. Sums the normal impulse of each recorded contact, and
+	 * notifies the subscriptions of thresholds crossed
+	 * @param rows the list of NCP constraints given to {@link #record(Constraint, List, int, int)}
+	 */
+	public void dispatch(List<NCPConstraint> rows) {
+		// total normal impulse, from the unbounded rows that are not coupled to other rows
+		for (int i=0; i<count; i++) {
+			double sum = 0;
+			for (int r=rowStart[i]; r<rowEnd[i]; r++) {
+				final NCPConstraint row = rows.get(r);
+				if (row.coupling == null && row.upper == Double.POSITIVE_INFINITY)
+					sum += row.lambda;
+			}
+			impulse[i] = sum;
+		}
+
+		// detect threshold crossings
+		final int n = count;
+		count = 0;
+		for (int i=0; i<n; i++) {
+			final NCPConstraint row = rows.get(rowStart[i]);
+			crossed(first[i], contacts[i], impulse[i], row.body2);
+			crossed(second[i], contacts[i], impulse[i], row.body1);
+			contacts[i] = null;
+			first[i] = second[i] = null;
+		}
+	}
+
+	private static void crossed(Subscription[] subscriptions, ContactConstraint contact, double impulse, Body interacting) {
+		if (subscriptions == null)
+			return;
+		for (Subscription s: subscriptions) {
+			if (impulse > s.threshold) {
+				if (s.triggered.add(contact))
+					s.callback.contactAboveThreshold(interacting, contact);
+			} else if (impulse < s.threshold) {
+				if (s.triggered.remove(contact))
+					s.callback.contactBelowThreshold(interacting, contact);
+			}
+		}
+	}
+
+	private static void removed(Subscription[] subscriptions, ContactConstraint contact, Body interacting) {
+		if (subscriptions == null)
+			return;
+		for (Subscription s: subscriptions) {
+			if (s.triggered.remove(contact))
+				s.callback.contactBelowThreshold(interacting, contact);
+		}
+	}
+}
@@ -41,8 +41,16 @@ public interface DeactivationPolicy {
 	
 	
 	/** 
-	 * Force the next call to shouldBeActivated() to return true for the given body
+	 * Force the next call to shouldBeActivated() to return true for the given body. The forced activation
+	 * is discarded if the body is activated by other means before that
 	 * @param b
 	 */
 	public void forceActivate(Body b);
+	
+	/**
+	 * Return the number of consecutive time-steps that all bodies in a group of interacting bodies must be 
+	 * classified for deactivation, before the group is deactivated. A value of 1 deactivates a group as soon 
+	 * as possible.
+	 */
+	public int getSleepDelay();
 }
@@ -8,8 +8,8 @@
  */
 package jinngine.physics;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 
 import jinngine.math.Vector3;
 
@@ -18,7 +18,7 @@ import jinngine.math.Vector3;
  * energy to reason about the activity of a body. 
  */
 public class DefaultDeactivationPolicy implements DeactivationPolicy {
-	private final List<Body> forced = new ArrayList<Body>();
+	private final Set<Body> forced = new HashSet<Body>();
 	
 	@Override
 	public boolean shouldBeDeactivated(Body b) {
@@ -35,8 +35,7 @@ public class DefaultDeactivationPolicy implements DeactivationPolicy {
 	public boolean shouldBeActivated(Body b) {
 		
 		if (forced.size() > 0) {
-			if (forced.contains(b)) {
-				forced.remove(b);
+			if (forced.remove(b)) {
 				return true;
 			}
 		}
@@ -56,6 +55,10 @@ public class DefaultDeactivationPolicy implements DeactivationPolicy {
 	@Override
 	public void activate(Body b) {
 		b.deactivated = false;
+		
+		// a pending forced activation is spent
+		if (forced.size() > 0)
+			forced.remove(b);
 	}
 	
 	@Override
@@ -75,5 +78,10 @@ public class DefaultDeactivationPolicy implements DeactivationPolicy {
 	public void forceActivate(Body b) {
 		forced.add(b);
 	}
+	
+	@Override
+	public int getSleepDelay() {
+		return 1;
+	}
 
 }
@@ -12,10 +12,12 @@ import java.util.*;
 import jinngine.physics.constraint.*;
 import jinngine.physics.constraint.contact.ContactConstraintManager;
 import jinngine.physics.constraint.contact.DefaultContactConstraintManager;
+import jinngine.physics.constraint.contact.FrictionalContactConstraint;
 import jinngine.physics.solver.*;
 import jinngine.physics.solver.Solver.NCPConstraint;
 import jinngine.collision.*;
 import jinngine.geometry.*;
+import jinngine.math.Vector3;
 import jinngine.physics.force.*;
 import jinngine.util.*;
 
@@ -33,6 +35,7 @@ public final class DefaultScene implements Scene {
 	public final List<NCPConstraint> ncpconstraints = new ArrayList<NCPConstraint>();
 	private final List<Body> ncpbodies = new ArrayList<Body>();
 	private final List<Force> forces = new ArrayList<Force>(); 
+	private final ForceField field = new ForceField();
 	private final List<Constraint> liveconstraints = new ArrayList<Constraint>();
 	
 	// triggers
@@ -41,17 +44,27 @@ public final class DefaultScene implements Scene {
 	public static Object monitor = new Object();
 	
 	// create a contact graph classifier, used by the contact graph for determining
-	// fixed bodies, i.e. bodies considered to have infinite mass. 
+	// fixed and kinematic bodies, i.e. bodies considered to have infinite mass. 
 	private final ComponentGraph.NodeClassifier<Body> classifier = 
 		new ComponentGraph.NodeClassifier<Body>() {
 			public boolean isDelimitor(Body node) {
-				return node.isFixed();
+				return node.isFixed() || node.kinematicNode;
 			}
 	};
 	
 	// inner class for storing data in components in constraint graph
 	public final class ConstraintGroup {
 		public boolean deactivated = false;
+		
+		// constraints in the order given by the constraint graph, used to detect changes in 
+		// topology, and the constraints ordered by distance from fixed and kinematic bodies
+		private Constraint[] edges = new Constraint[0];
+		private Constraint[] ordered = new Constraint[0];
+		private int size = 0;
+		
+		// number of consecutive time-steps where all bodies in the group could be deactivated
+		private int quiet = 0;
+		
 		@Override
 		public String toString() {
 			return deactivated?"deactivated":"active";
@@ -67,11 +80,15 @@ public final class DefaultScene implements Scene {
 		new ComponentGraph.ComponentHandler<Body,ConstraintGroup>() {
 		public ConstraintGroup newComponent() {return new ConstraintGroup();}
 		public void mergeComponent( ConstraintGroup remaining, ConstraintGroup leaving) {
+			// the constraint order must be recomputed
+			remaining.size = 0;
+			
 			if ( remaining.deactivated && leaving.deactivated ) {
 				// we let the deactivated setting live
 			} else {
 				// activate the new group
 				remaining.deactivated = false;
+				remaining.quiet = 0;
 				
 				// all bodies from the remaining group
 				Iterator<Body> bodies = constraintGraph.getNodesInComponent(remaining);
@@ -88,6 +105,8 @@ public final class DefaultScene implements Scene {
 		}
 
 		public void nodeAddedToComponent(ConstraintGroup component, Body node) {
+			component.size = 0;
+			
 			// if the Body is active and the group is deactivated, activate the component 
 			if (!node.deactivated && component.deactivated) {
 				// all bodies from the remaining group
@@ -98,36 +117,239 @@ public final class DefaultScene implements Scene {
 				
 				// set the group activation setting
 				component.deactivated = false;
+				component.quiet = 0;
 			}
 		}
 
 		public void nodeRemovedFromComponent(ConstraintGroup component, Body node) {
-			// no need for action here
+			// the constraint order must be recomputed
+			component.size = 0;
 		}
 	};
 
 	
-	// create the contact graph using the classifier above
+	// create the contact graph using the classifier above. Components are split once per time-step, 
+	// after the broad-phase has removed the contacts that ended
 	private final ComponentGraph<Body,Constraint,ConstraintGroup> constraintGraph = 
-		new HashMapComponentGraph<Body,Constraint,ConstraintGroup>(classifier,componenthandler);
+		new ArrayComponentGraph<Body,Constraint,ConstraintGroup>(classifier,componenthandler,true);
 
 	// broadphase collision detection
 	private final BroadphaseCollisionDetection broadphase;
 	
 	// contact constraints
 	private final ContactConstraintManager contactmanager;
+	private final ContactTriggerDispatcher contacttriggers;
+	
+	// batch control of joint axes
+	private final JointAxisScheduler jointaxes = new JointAxisScheduler();
+	
+	// bodies interacting with moving kinematic bodies, which are kept active, and constraints 
+	// of bodies whose kinematic setting changed, that are moved in the constraint graph
+	private final Set<Body> driven = new HashSet<Body>();
+	private final List<Constraint> reclassified = new ArrayList<Constraint>();
 
 	// ncp solver
 	private final Solver solver;
 	
-	// PGS iteration for live constraints
+	// PGS iteration for live constraints, the rows and bodies of the live constraints, 
+	// and the groups activated by live constraints in the last time-step
 	private final Solver pgs = new ProjectedGaussSeidel(1);
+	private final List<NCPConstraint> liverows = new ArrayList<NCPConstraint>();
+	private final Set<Body> livebodies = new LinkedHashSet<Body>();
+	private final List<ConstraintGroup> liveactivated = new ArrayList<ConstraintGroup>();
 	
 	// deactivation policy
 	private final DeactivationPolicy policy;
 	
 	// time-step size
 	private double timestep = 0.08; 
+	
+	// solver time budget in nanoseconds, negative if disabled
+	private long solverBudget = -1;
+	private final SolverResult solverResult = new SolverResult();
+	
+	// solver monitor, and the first ncp constraint of each island for island summaries
+	private SolverMonitor solverMonitor = null;
+	private int[] islandStart = new int[16];
+	private int islands = 0;
+	
+	// solver for islands that can be solved directly, and the ncp constraints left for the ncp solver
+	private IslandSolver islandSolver = new ArticulatedBodySolver();
+	private final List<NCPConstraint> iterativeconstraints = new ArrayList<NCPConstraint>();
+	
+	// order constraints by distance from fixed bodies
+	private boolean constraintOrdering = true;
+	
+	// scratch storage for ordering constraints, indexed by Body.index. The bodies seen, their 
+	// distances from fixed bodies, the breadth first queue, and the counting sort keys and counts
+	private Body[] orderBodies = new Body[16];
+	private int[] orderDistance = new int[16];
+	private int[] orderQueue = new int[16];
+	private int[] orderKey = new int[16];
+	private int[] orderCount = new int[16];
+	private int nordered = 0;
+	
+	// solver storage precision
+	private boolean singlePrecision = false;
+
+	// apply the constraints of a component, in order of distance from fixed bodies if enabled
+	private void applyConstraints( ConstraintGroup g, ListIterator<NCPConstraint> constraintIterator ) {
+		if (!constraintOrdering) {
+			Iterator<Constraint> constraints = constraintGraph.getEdgesInComponent(g);
+			while (constraints.hasNext()) {
+				applyConstraint(constraints.next(), constraintIterator);
+			}
+			return;
+		}
+		
+		// the graph keeps the constraints of a component in insertion order, so the topology 
+		// is unchanged if the constraints are the same as in the previous time-step
+		Iterator<Constraint> constraints = constraintGraph.getEdgesInComponent(g);
+		boolean changed = false;
+		int k = 0;
+		while (constraints.hasNext()) {
+			Constraint c = constraints.next();
+			if (k >= g.edges.length) {
+				g.edges = Arrays.copyOf(g.edges, Math.max(8, 2*g.edges.length));
+			}
+			if (k >= g.size || g.edges[k] != c) {
+				g.edges[k] = c;
+				changed = true;
+			}
+			k++;
+		}
+		if (changed || k != g.size) {
+			g.size = k;
+			orderConstraints(g);
+		}
+		
+		for (int i=0; i<g.size; i++)
+			applyConstraint(g.ordered[i], constraintIterator);
+	}
+	
+	// apply a single constraint, and record the rows of contacts monitored by triggers
+	private void applyConstraint( Constraint c, ListIterator<NCPConstraint> constraintIterator ) {
+		final int start = ncpconstraints.size();
+		c.applyConstraints(constraintIterator, timestep);
+		contacttriggers.record(c, ncpconstraints, start, ncpconstraints.size());
+	}
+	
+	// sort the constraints of a component by graph distance from fixed and kinematic bodies, the 
+	// delimiters of the constraint graph. A constraint attached to a delimiter has distance 0. 
+	// Components without delimiters are ordered by distance from an arbitrary body. Bodies are 
+	// numbered through their index fields, and the search uses the scratch arrays below, so no 
+	// allocation happens in steady state
+	private void orderConstraints( ConstraintGroup g ) {
+		nordered = 0;
+		int head = 0, tail = 0;
+		for (int i=0; i<g.size; i++) {
+			Pair<Body> bodies = g.edges[i].getBodies();
+			Body a = bodies.getFirst(), b = bodies.getSecond();
+			if (classifier.isDelimitor(a) && !classifier.isDelimitor(b)) {
+				final int k = orderIndex(b);
+				if (orderDistance[k] < 0) { orderDistance[k] = 1; orderQueue[tail++] = k; }
+			} else if (classifier.isDelimitor(b) && !classifier.isDelimitor(a)) {
+				final int k = orderIndex(a);
+				if (orderDistance[k] < 0) { orderDistance[k] = 1; orderQueue[tail++] = k; }
+			}
+		}
+		if (tail == 0 && g.size > 0) {
+			final int k = orderIndex(g.edges[0].getBodies().getFirst());
+			orderDistance[k] = 0; orderQueue[tail++] = k;
+		}
+		
+		// breadth first search through the component
+		int maximum = 0;
+		while (head < tail) {
+			Body body = orderBodies[orderQueue[head++]];
+			final int d = orderDistance[body.index];
+			maximum = Math.max(maximum, d);
+			Iterator<Constraint> connected = constraintGraph.getConnectedEdges(body);
+			while (connected.hasNext()) {
+				Pair<Body> bodies = connected.next().getBodies();
+				Body other = bodies.getFirst() == body? bodies.getSecond() : bodies.getFirst();
+				if (!classifier.isDelimitor(other)) {
+					final int k = orderIndex(other);
+					if (orderDistance[k] < 0) { orderDistance[k] = d+1; orderQueue[tail++] = k; }
+				}
+			}
+		}
+		
+		// counting sort of constraints by the smallest distance of their bodies
+		if (orderKey.length < g.size)
+			orderKey = new int[Math.max(g.size, orderKey.length*2)];
+		if (orderCount.length < maximum+2)
+			orderCount = new int[Math.max(maximum+2, orderCount.length*2)];
+		Arrays.fill(orderCount, 0, maximum+2, 0);
+		for (int i=0; i<g.size; i++) {
+			Pair<Body> bodies = g.edges[i].getBodies();
+			orderKey[i] = Math.min(distance(bodies.getFirst(), maximum), distance(bodies.getSecond(), maximum));
+			orderCount[orderKey[i]+1]++;
+		}
+		for (int d=0; d<=maximum; d++)
+			orderCount[d+1] += orderCount[d];
+		if (g.ordered.length < g.edges.length)
+			g.ordered = new Constraint[g.edges.length];
+		for (int i=0; i<g.size; i++)
+			g.ordered[orderCount[orderKey[i]]++] = g.edges[i];
+	}
+	
+	// return the scratch index of the given body during constraint ordering, adding it if not yet seen
+	private int orderIndex( Body body ) {
+		final int k = body.index;
+		if (k >= 0 && k < nordered && orderBodies[k] == body)
+			return k;
+		if (nordered >= orderBodies.length) {
+			final int capacity = orderBodies.length*2;
+			orderBodies = Arrays.copyOf(orderBodies, capacity);
+			orderDistance = Arrays.copyOf(orderDistance, capacity);
+			orderQueue = Arrays.copyOf(orderQueue, capacity);
+		}
+		orderBodies[nordered] = body;
+		orderDistance[nordered] = -1;
+		body.index = nordered;
+		return nordered++;
+	}
+	
+	// true if the body is kinematic and moving, in which case the bodies interacting with it must be kept active
+	private static boolean isMoving( Body body ) {
+		if (!body.isKinematic()) return false;
+		final Vector3 v = body.state.velocity, w = body.state.omega;
+		return v.x != 0 || v.y != 0 || v.z != 0 || w.x != 0 || w.y != 0 || w.z != 0;
+	}
+	
+	// true if the body interacts with a moving kinematic body in this time-step
+	private boolean isDriven( Body body ) {
+		return !driven.isEmpty() && driven.contains(body);
+	}
+	
+	// move the constraints of a body whose kinematic setting changed, so the constraint graph sees 
+	// it as a delimiter while kinematic. The constraints are removed with the old setting in place, 
+	// and added again with the new one
+	private void reclassify( Body body ) {
+		reclassified.clear();
+		Iterator<Constraint> connected = constraintGraph.getConnectedEdges(body);
+		while (connected.hasNext())
+			reclassified.add(connected.next());
+		for (Constraint c: reclassified)
+			constraintGraph.removeEdge(c.getBodies());
+		
+		// kinematic bodies are never deactivated, and dynamic bodies start out active
+		body.kinematicNode = body.isKinematic();
+		policy.activate(body);
+		
+		for (Constraint c: reclassified)
+			constraintGraph.addEdge(c.getBodies(), c);
+		reclassified.clear();
+	}
+	
+	// distance of a body during constraint ordering, bodies not reached by the search are given the maximum distance
+	private int distance( Body body, int maximum ) {
+		if (classifier.isDelimitor(body)) return 0;
+		final int k = body.index;
+		if (k < 0 || k >= nordered || orderBodies[k] != body || orderDistance[k] < 0) return maximum;
+		return orderDistance[k];
+	}
 
 	/** 
 	 * Create a new fixed time-stepping simulator 
@@ -143,6 +365,7 @@ public final class DefaultScene implements Scene {
 		
 		// start the new contact constraint manager
 		this.contactmanager = new DefaultContactConstraintManager( broadphase, constraintGraph);
+		this.contacttriggers = new ContactTriggerDispatcher(contactmanager);
 	}
 	
 	/**
@@ -158,10 +381,12 @@ public final class DefaultScene implements Scene {
 		
 //		this.solver = new ProjectedGaussSeidel(55);
 //		this.solver = new NonsmoothNonlinearConjugateGradient(55);
-		this.solver = new NonsmoothNonlinearConjugateGradient(45);
+//		this.solver = new NonsmoothNonlinearConjugateGradient(45);
+		this.solver = new PackedNonsmoothNonlinearConjugateGradient(45);
 		
 		// start the new contact constraint manager
 		this.contactmanager = new DefaultContactConstraintManager( broadphase, constraintGraph);
+		this.contacttriggers = new ContactTriggerDispatcher(contactmanager);
 	}
 
 
@@ -173,9 +398,45 @@ public final class DefaultScene implements Scene {
 		// but in short, ContactConstraintManager will insert ContactConstraints into the constraintGraph, and update 
 		// these constraints. See ContactConstraintManager for more details on this.
 		
+		// extend the bounds of the geometries by the speculative margin of each body, so the broad-phase
+		// reports pairs that may come into contact during this time-step
+		final double speculative = FrictionalContactConstraint.getSpeculativeMarginScale()*timestep;
+		for (Body bi: bodies) {
+			bi.sweep = speculative > 0? speculative*(bi.state.velocity.norm() + bi.state.omega.norm()*bi.getBoundingRadius()) : 0;
+		}
+		
+		// update the constraint graph for bodies that became kinematic or dynamic
+		for (Body bi: bodies) {
+			if (bi.isKinematic() != bi.kinematicNode)
+				reclassify(bi);
+		}
+		
 		// run the broad-phase collision detection (this automatically updates the contactGraph,
 		// through the BroadfaseCollisionDetection.Handler type)
 		broadphase.run();
+		
+		// split the components that fell apart when constraints were removed
+		constraintGraph.resolveComponents();
+		
+		// apply scheduled joint motor and limit changes, and activate the affected bodies
+		jointaxes.apply(policy);
+		
+		// kinematic bodies are not in any component, so the deactivation policy does not see them. Instead,
+		// bodies interacting with moving kinematic bodies are activated, and kept active
+		driven.clear();
+		for (Body bi: bodies) {
+			if (isMoving(bi)) {
+				Iterator<Body> connected = constraintGraph.getConnectedNodes(bi);
+				while (connected.hasNext()) {
+					final Body body = connected.next();
+					if (body.isFixed() || body.kinematicNode)
+						continue;
+					driven.add(body);
+					if (body.deactivated)
+						policy.forceActivate(body);
+				}
+			}
+		}
 				
 		// clear acting forces and delta velocities
 		for (Body bi:bodies) {
@@ -188,6 +449,10 @@ public final class DefaultScene implements Scene {
 		for (Force fi: forces) {
 			fi.apply(timestep);
 		}
+		
+		// apply the scene force field. Like forces, the field also acts on deactivated bodies, so the
+		// deactivation policy sees the external delta velocities balancing their contact impulses 
+		field.apply(bodies, timestep);
 						
 		// Process live constraints. Live constraints are constraints which is not purely
 		// a function of the velocities in the system, such as user controlled motors.
@@ -195,23 +460,30 @@ public final class DefaultScene implements Scene {
 		// and they have to be treated separately. Basically we perform a single PGS iteration
 		// on the ncp constraints given by the live constraint. This will update the delta 
 		// velocities of the involved bodies, and they can thus be activated.
-		for ( Constraint live: liveconstraints) {
-			ncpconstraints.clear(); ncpbodies.clear();
-			Pair<Body> bodies = live.getBodies();
-			ncpbodies.add(bodies.getFirst());
-			ncpbodies.add(bodies.getSecond());		
-			
-			// apply the live constraints and run a single pgs iteration to reveal 
-			// any change in force contribution
-			live.applyConstraints(ncpconstraints.listIterator(), timestep);
-			pgs.solve(ncpconstraints, ncpbodies , 1e-7);
+		// The rows of all live constraints are gathered, and given to the PGS iteration together. Since each
+		// row is visited once, in order, this is the same as solving each live constraint on its own.
+		liverows.clear(); livebodies.clear(); liveactivated.clear();
+		if (!liveconstraints.isEmpty()) {
+			ListIterator<NCPConstraint> liveIterator = liverows.listIterator();
+			for ( Constraint live: liveconstraints) {
+				Pair<Body> bodies = live.getBodies();
+				livebodies.add(bodies.getFirst());
+				livebodies.add(bodies.getSecond());		
+				live.applyConstraints(liveIterator, timestep);
+			} 
 			
-		} 
+			// run a single pgs iteration to reveal any change in force contribution
+			ncpbodies.clear();
+			ncpbodies.addAll(livebodies);
+			pgs.solve(liverows, ncpbodies, 1e-7);
+		}
 
 		// create a special iterator to be used with constraints. Each constraint will
 		// insert its ncp-constraints into this list
 		ncpconstraints.clear();
+		final int sleepDelay = Math.max(1, policy.getSleepDelay());
 		ListIterator<NCPConstraint> constraintIterator = ncpconstraints.listIterator();
+		islands = 0;
 		
 		// iterate through groups/components in the constraint graph
 		Iterator<ConstraintGroup> components = 
@@ -222,30 +494,37 @@ public final class DefaultScene implements Scene {
 			// get the component 
 			ConstraintGroup g = components.next();
 			
+			// record where the ncp constraints of this component begin
+			if (islands+1 >= islandStart.length)
+				islandStart = Arrays.copyOf(islandStart, islandStart.length*2);
+			islandStart[islands++] = ncpconstraints.size();
+			
 			// if the component is marked as active
 			if ( !g.deactivated) {
-				// check if the whole component can be deactivated
+				// check if the whole component can be deactivated. Policies that deactivate over more 
+				// than one time-step are given every body, to keep their statistics up to date
 				Iterator<Body> bodyiter =constraintGraph.getNodesInComponent(g);
 				boolean activefound = false;
 				while (bodyiter.hasNext()) {
-					if ( !policy.shouldBeDeactivated(bodyiter.next()) ) {
+					final Body body = bodyiter.next();
+					if ( !policy.shouldBeDeactivated(body) || isDriven(body) ) {
 						activefound = true;
-						break;
+						if (sleepDelay == 1) 
+							break;
 					}
 				}
+				
+				// count the time-steps where the group could be deactivated
+				g.quiet = activefound? 0 : g.quiet+1;
 
-				// if there are active bodies in the group, apply constraints
-				if (activefound) {
+				// if there are active bodies in the group, or it has not been at rest for long enough, apply constraints
+				if (g.quiet < sleepDelay) {
 					// mark the group as active in the component data
 					ConstraintGroup data = g;
 					data.deactivated = false;
 					
 					// apply all constraints in interaction component
-					Iterator<Constraint> constraints = constraintGraph.getEdgesInComponent(g);
-					while (constraints.hasNext()) {
-						Constraint c = constraints.next();
-						c.applyConstraints(constraintIterator, timestep);
-					} // while
+					applyConstraints(g, constraintIterator);
 				} // if active found
 				else {
 					// if we don't find an active body, we mark the whole group as deactivated
@@ -265,7 +544,8 @@ public final class DefaultScene implements Scene {
 				Iterator<Body> bodyiter =constraintGraph.getNodesInComponent(g);
 				boolean activefound = false;
 				while (bodyiter.hasNext()) {
-					if ( policy.shouldBeActivated(bodyiter.next()) ) {
+					final Body body = bodyiter.next();
+					if ( policy.shouldBeActivated(body) || isDriven(body) ) {
 						activefound = true;
 						break;
 					}
@@ -275,20 +555,23 @@ public final class DefaultScene implements Scene {
 					// mark component as active
 					ConstraintGroup data = g;
 					data.deactivated = false;
+					data.quiet = 0;
 
-					// activate all bodies in component
+					// activate all bodies in component, and report the component if
+					// it contains bodies driven by live constraints
+					boolean live = false;
 					bodyiter =constraintGraph.getNodesInComponent(g);
 					while (bodyiter.hasNext()) {
-						policy.activate(bodyiter.next());
+						final Body body = bodyiter.next();
+						policy.activate(body);
+						live = live || livebodies.contains(body);
 					}
+					if (live)
+						liveactivated.add(g);
 
 					
 					// apply all constraints in interaction component
-					Iterator<Constraint> constraints = constraintGraph.getEdgesInComponent(g);
-					while (constraints.hasNext()) {
-						Constraint c = constraints.next();
-						c.applyConstraints(constraintIterator, timestep);
-					} // while					
+					applyConstraints(g, constraintIterator);
 				} // if activatable body found
 				
 			}
@@ -298,12 +581,15 @@ public final class DefaultScene implements Scene {
 		Iterator<Body> freebodies = constraintGraph.getFreeNodes();
 		while (freebodies.hasNext()) {
 			Body body = freebodies.next();
+			// the velocity of a kinematic body is given by the user
+			if (body.isKinematic())
+				continue;
 			if (body.deactivated) {
-				if (policy.shouldBeActivated(body)) {
+				if (policy.shouldBeActivated(body) || isDriven(body)) {
 					policy.activate(body);
 				}
 			} else {
-				if (policy.shouldBeDeactivated(body)) {
+				if (policy.shouldBeDeactivated(body) && !isDriven(body)) {
 					policy.deactivate(body);
 				}
 			}
@@ -320,11 +606,39 @@ public final class DefaultScene implements Scene {
 			}
 		}
 		
+		// solve the islands accepted by the island solver directly, and leave the 
+		// remaining islands to the ncp solver
+		islandStart[islands] = ncpconstraints.size();
+		List<NCPConstraint> remaining = ncpconstraints;
+		if (islandSolver != null) {
+			iterativeconstraints.clear();
+			for (int i=0; i<islands; i++) {
+				final int from = islandStart[i], to = islandStart[i+1];
+				if (to > from && !islandSolver.solve(ncpconstraints, from, to))
+					iterativeconstraints.addAll(ncpconstraints.subList(from, to));
+			}
+			remaining = iterativeconstraints;
+		}
+		
 		// run the solver (compute delta velocities) for all 
 		// components in the constraint graph
-		solver.solve( ncpconstraints, bodies, 1e-5 );
+		if (solverBudget >= 0) {
+			((BudgetedSolver)solver).solve( remaining, bodies, 1e-5, solverBudget, solverResult );
+		} else {
+			solver.solve( remaining, bodies, 1e-5 );
+		}
+		
+		// report convergence of each island
+		if (solverMonitor != null && solverMonitor.isIslandSummaryEnabled()) {
+			for (int i=0, k=0; i<islands; i++) {
+				final int rows = islandStart[i+1]-islandStart[i];
+				if (rows > 0)
+					solverMonitor.island(k++, rows, SolverTrace.projectedResidual(ncpconstraints, islandStart[i], islandStart[i+1]));
+			}
+		}
 		
-		// update triggers
+		// detect contact trigger events, and update triggers
+		contacttriggers.dispatch(ncpconstraints);
 		for (Trigger trigger: triggers) {
 			trigger.update(this);
 		}
@@ -332,7 +646,8 @@ public final class DefaultScene implements Scene {
 		// go through bodies to advance velocities and positions
 		for (Body body: bodies) {
 			if ( !body.deactivated ) {
-				if ( !body.isFixed() ) {
+				// kinematic bodies keep the velocities set by the user
+				if ( !body.isFixed() && !body.isKinematic() ) {
 					if (body.deltavelocity.isNaN() || body.deltaomega.isNaN() ) 
 						throw new IllegalStateException("DefaultScene: delta velocities containes NaN");
 					if (body.externaldeltavelocity.isNaN() || body.externaldeltaomega.isNaN() ) 
@@ -429,6 +744,101 @@ public final class DefaultScene implements Scene {
 		this.timestep = dt;
 	}
 
+	/**
+	 * Limit the time spent in the solver each time-step. The solver will stop iterating when the budget
+	 * is used up, and return the best solution found so far. The solver must be a {@link BudgetedSolver}.
+	 * @param nanoseconds time budget in nanoseconds, or a negative value to disable the budget
+	 */
+	public void setSolverTimeBudget(long nanoseconds) {
+		if (nanoseconds >= 0 && !(solver instanceof BudgetedSolver))
+			throw new IllegalStateException("DefaultScene: solver does not support time budgets");
+		this.solverBudget = nanoseconds;
+	}
+	
+	/**
+	 * Get the solver time budget in nanoseconds, or a negative value if disabled
+	 */
+	public long getSolverTimeBudget() {
+		return solverBudget;
+	}
+	
+	/**
+	 * Set a monitor to receive convergence information from the solver, and per island summaries if 
+	 * enabled by the monitor. The solver must be a {@link MonitoredSolver}.
+	 * @param monitor the monitor, or null to disable monitoring
+	 */
+	public void setSolverMonitor(SolverMonitor monitor) {
+		if (!(solver instanceof MonitoredSolver))
+			throw new IllegalStateException("DefaultScene: solver does not support monitoring");
+		((MonitoredSolver)solver).setMonitor(monitor);
+		this.solverMonitor = monitor;
+	}
+
+	/**
+	 * Choose the precision used by the solver for storing constraint rows and delta velocities. Single 
+	 * precision halves the memory traffic of the solver loops, at the cost of accuracy. The solver must 
+	 * be a {@link SinglePrecisionSolver} to enable single precision.
+	 * @param enabled true for single precision, false for double precision
+	 */
+	public void setSinglePrecision(boolean enabled) {
+		if (!(solver instanceof SinglePrecisionSolver)) {
+			if (enabled)
+				throw new IllegalStateException("DefaultScene: solver does not support single precision");
+			return;
+		}
+		((SinglePrecisionSolver)solver).setSinglePrecision(enabled);
+		this.singlePrecision = enabled;
+	}
+	
+	public boolean isSinglePrecision() {
+		return singlePrecision;
+	}
+
+	/**
+	 * Set the solver used for islands that can be solved directly, before the remaining islands are given
+	 * to the ncp solver. By default, an {@link ArticulatedBodySolver} is used, which solves islands of joints 
+	 * forming a tree exactly in linear time. 
+	 * @param solver the island solver, or null to give all islands to the ncp solver
+	 */
+	public void setIslandSolver(IslandSolver solver) {
+		this.islandSolver = solver;
+	}
+	
+	public IslandSolver getIslandSolver() {
+		return islandSolver;
+	}
+
+	/**
+	 * Get the force field of this scene. The field is applied to all bodies in each time-step, in addition 
+	 * to the {@link Force} objects added to the scene. By default, the field is zero.
+	 */
+	public ForceField getForceField() {
+		return field;
+	}
+
+	/**
+	 * Enable or disable ordering of constraints by distance from fixed bodies. When enabled, the ncp constraints 
+	 * of each island are given to the solver starting with the constraints attached to fixed bodies, followed by 
+	 * constraints further out in the graph. Gauss-Seidel type solvers then propagate forces from the ground and 
+	 * outwards in a single sweep. The order is recomputed only when the constraints of an island change. 
+	 * Enabled by default.
+	 */
+	public void setConstraintOrdering(boolean enabled) {
+		this.constraintOrdering = enabled;
+	}
+	
+	public boolean isConstraintOrdering() {
+		return constraintOrdering;
+	}
+
+	/**
+	 * Get the iterations, residual and time used by the solver in the latest time-step. Only updated 
+	 * when a solver time budget is set
+	 */
+	public SolverResult getSolverResult() {
+		return solverResult;
+	}
+
 	@Override
 	public void fixBody(Body b, boolean fixed) {
 		// this may seem a bit drastic, but it is necessary. If one
@@ -465,6 +875,15 @@ public final class DefaultScene implements Scene {
 	public void removeLiveConstraint( Constraint c) {
 		liveconstraints.remove(c);
 	}
+	
+	/**
+	 * Get the groups of interacting bodies that were activated in the last time-step, and contain 
+	 * bodies driven by live constraints
+	 * @see #addLiveConstraint(Constraint)
+	 */
+	public Iterator<ConstraintGroup> getLiveActivatedGroups() {
+		return liveactivated.iterator();
+	}
 
 	
 	@Override
@@ -494,6 +913,16 @@ public final class DefaultScene implements Scene {
 		return this.contactmanager;
 	}
 	
+	@Override
+	public ContactTriggerDispatcher getContactTriggerDispatcher() {
+		return this.contacttriggers;
+	}
+	
+	@Override
+	public JointAxisScheduler getJointAxisScheduler() {
+		return this.jointaxes;
+	}
+	
 	@Override
 	public BroadphaseCollisionDetection getBroadphase() {
 		return this.broadphase;
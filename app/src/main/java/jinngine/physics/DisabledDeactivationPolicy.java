@@ -33,4 +33,9 @@ public class DisabledDeactivationPolicy implements DeactivationPolicy {
 		return false;
 	}
 
+	@Override
+	public int getSleepDelay() {
+		return 1;
+	}
+
 }
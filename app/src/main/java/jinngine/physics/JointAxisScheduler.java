@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics;
+
+import java.util.Arrays;
+
+import jinngine.physics.constraint.Constraint;
+import jinngine.physics.constraint.joint.JointAxisController;
+import jinngine.util.Pair;
+
+/**
+ * Batch control of joint axes, for instance when many joints are driven by animation curves. Each joint axis
+ * is registered once, and given an integer id. Motor and limit settings are then given for arrays of ids, and
+ * applied to the {@link JointAxisController} instances by the {@link Scene}, in one pass before the time-step
+ * is solved. Only axes whose settings changed are updated, and only the deactivated islands of those joints are
+ * activated, so the cost is proportional to the number of changed axes.
+ */
+public final class JointAxisScheduler {
+	// pending changes
+	private static final int MOTOR = 1;
+	private static final int LIMITS = 2;
+
+	// registered axes and their joint bodies
+	private JointAxisController[] axes = new JointAxisController[16];
+	private Body[] first = new Body[16];
+	private Body[] second = new Body[16];
+	private int size = 0;
+
+	// settings for each axis, NaN until first set
+	private double[] force = new double[16];
+	private double[] velocity = new double[16];
+	private double[] lower = new double[16];
+	private double[] upper = new double[16];
+
+	// axes with pending changes
+	private int[] changed = new int[16];
+	private int[] pending = new int[16];
+	private int count = 0;
+
+	/**
+	 * Register a joint axis
+	 * @param joint the joint constraint owning the axis
+	 * @param axis controller of the axis
+	 * @return the id of the axis, used with {@link #setMotors(int[], double[], double[], int)} and
+	 * {@link #setLimits(int[], double[], double[], int)}
+	 */
+	public int add(Constraint joint, JointAxisController axis) {
+		if (joint == null || axis == null)
+			throw new IllegalArgumentException("JointAxisScheduler: null joint or axis");
+
+		if (size == axes.length) {
+			final int length = size*2;
+			axes = Arrays.copyOf(axes, length);
+			first = Arrays.copyOf(first, length);
+			second = Arrays.copyOf(second, length);
+			force = Arrays.copyOf(force, length);
+			velocity = Arrays.copyOf(velocity, length);
+			lower = Arrays.copyOf(lower, length);
+			upper = Arrays.copyOf(upper, length);
+			changed = Arrays.copyOf(changed, length);
+			pending = Arrays.copyOf(pending, length);
+		}
+
+		final Pair<Body> bodies = joint.getBodies();
+		axes[size] = axis;
+		first[size] = bodies.getFirst();
+		second[size] = bodies.getSecond();
+		force[size] = velocity[size] = Double.NaN;
+		lower[size] = upper[size] = Double.NaN;
+		changed[size] = 0;
+		return size++;
+	}
+
+	/**
+	 * Get the number of registered axes
+	 */
+	public int getNumberOfAxes() {
+		return size;
+	}
+
+	/**
+	 * Set the motors of the axes ids[0] to ids[n-1], see {@link JointAxisController#setMotorForce(double, double)}
+	 * @param ids axis ids
+	 * @param forces maximum motor force magnitudes, non-negative
+	 * @param velocities motor target velocities
+	 * @param n number of axes to set
+	 */
+	public void setMotors(int[] ids, double[] forces, double[] velocities, int n) {
+		for (int i=0; i<n; i++) {
+			final int id = check(ids[i]);
+			if (forces[i] < 0)
+				throw new IllegalArgumentException("JointAxisScheduler: force magnitude must be positive");
+			if (forces[i] != force[id] || velocities[i] != velocity[id]) {
+				force[id] = forces[i];
+				velocity[id] = velocities[i];
+				mark(id, MOTOR);
+			}
+		}
+	}
+
+	/**
+	 * Set the limits of the axes ids[0] to ids[n-1], see {@link JointAxisController#setLimits(double, double)}
+	 * @param ids axis ids
+	 * @param lowers lower limits
+	 * @param uppers upper limits
+	 * @param n number of axes to set
+	 */
+	public void setLimits(int[] ids, double[] lowers, double[] uppers, int n) {
+		for (int i=0; i<n; i++) {
+			final int id = check(ids[i]);
+			if (lowers[i] > uppers[i])
+				throw new IllegalArgumentException("JointAxisScheduler: lower limit exceeds upper limit");
+			if (lowers[i] != lower[id] || uppers[i] != upper[id]) {
+				lower[id] = lowers[i];
+				upper[id] = uppers[i];
+				mark(id, LIMITS);
+			}
+		}
+	}
+
+	/**
+	 * Called by {@link Scene} before the constraints of a time-step are applied. Applies the pending
+	 * changes, and activates the bodies of the affected joints using the given policy
+	 */
+	public void apply(DeactivationPolicy policy) {
+		for (int i=0; i<count; i++) {
+			final int id = pending[i];
+			final JointAxisController axis = axes[id];
+			if ((changed[id] & MOTOR) != 0)
+				axis.setMotorForce(force[id], velocity[id]);
+			if ((changed[id] & LIMITS) != 0)
+				axis.setLimits(lower[id], upper[id]);
+			changed[id] = 0;
+
+			// activate the island of the joint. Both bodies are in the same island unless one is 
+			// fixed or kinematic, so only one body is forced
+			final Body body = delimits(first[id])? second[id] : first[id];
+			if (body.deactivated && !delimits(body))
+				policy.forceActivate(body);
+		}
+		count = 0;
+	}
+
+	// fixed and kinematic bodies are not part of any island
+	private static boolean delimits(Body body) {
+		return body.isFixed() || body.isKinematic();
+	}
+
+	private int check(int id) {
+		if (id < 0 || id >= size)
+			throw new IllegalArgumentException("JointAxisScheduler: unknown axis id "+id);
+		return id;
+	}
+
+	private void mark(int id, int change) {
+		if (changed[id] == 0)
+			pending[count++] = id;
+		changed[id] |= change;
+	}
+}
@@ -134,6 +134,16 @@ public interface Scene {
 	 */
 	public ContactConstraintManager getContactConstraintManager();
 	
+	/**
+	 * Get the {@link ContactTriggerDispatcher} that detects contact events for {@link ContactTrigger} instances in this scene.
+	 */
+	public ContactTriggerDispatcher getContactTriggerDispatcher();
+	
+	/**
+	 * Get the {@link JointAxisScheduler} used to control many joint axes in this scene at once.
+	 */
+	public JointAxisScheduler getJointAxisScheduler();
+	
 	/**
 	 * Get the broadphase collision detection system
 	 */
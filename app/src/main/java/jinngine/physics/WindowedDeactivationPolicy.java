@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A deactivation policy that decides over a window of time-steps, rather than from a single time-step. Each body
+ * keeps a rolling average of its motion, in {@link Body#motion}, with a span of the given window. A body can be
+ * deactivated when this average is below the sleep threshold, and the motion in the current time-step is below the
+ * wake threshold. A deactivated body is activated when its motion exceeds the wake threshold, which is larger than the
+ * sleep threshold, so bodies close to the limit do not flicker between the two states.
+ * <p>
+ * In addition, {@link #getSleepDelay()} returns the window, so {@link DefaultScene} only deactivates a group of
+ * interacting bodies when all of them could be deactivated for a whole window of time-steps.
+ * <p>
+ * Unlike other policies, {@link #shouldBeDeactivated(Body)} updates the rolling average of the body, so it must be 
+ * called exactly once for each active body in each time-step, as {@link DefaultScene} does. 
+ */
+public class WindowedDeactivationPolicy implements DeactivationPolicy {
+	private final Set<Body> forced = new HashSet<Body>();
+	private final int window;
+	private final double alpha;
+	private final double sleepThreshold;
+	private final double wakeThreshold;
+
+	/**
+	 * Create a policy with a window of 20 time-steps, and the thresholds used by {@link DefaultDeactivationPolicy}
+	 */
+	public WindowedDeactivationPolicy() {
+		this(20, 1e-3, 1e-1);
+	}
+
+	/**
+	 * Create a new policy
+	 * @param window number of time-steps in the rolling average, and the number of time-steps a group of bodies must be at rest before deactivation
+	 * @param sleepThreshold motion below which a body can be deactivated
+	 * @param wakeThreshold motion above which a deactivated body is activated
+	 */
+	public WindowedDeactivationPolicy(int window, double sleepThreshold, double wakeThreshold) {
+		if (window < 1)
+			throw new IllegalArgumentException("WindowedDeactivationPolicy: window must be positive");
+		if (sleepThreshold > wakeThreshold)
+			throw new IllegalArgumentException("WindowedDeactivationPolicy: sleep threshold must not exceed wake threshold");
+		this.window = window;
+		this.alpha = 2.0/(window+1);
+		this.sleepThreshold = sleepThreshold;
+		this.wakeThreshold = wakeThreshold;
+	}
+
+	/**
+	 * Update the rolling average of the motion of b, and return true if b can be deactivated. This changes 
+	 * {@link Body#motion}, and must be called exactly once per time-step for each active body. Calling it 
+	 * more often shortens the window, and calling it less often extends it
+	 */
+	@Override
+	public boolean shouldBeDeactivated(Body b) {
+		final double motion = b.totalScaledKinetic() + acceleration(b);
+
+		// update the rolling average
+		b.motion += (motion-b.motion)*alpha;
+
+		return b.motion < sleepThreshold && motion < wakeThreshold;
+	}
+
+	@Override
+	public boolean shouldBeActivated(Body b) {
+		if (!forced.isEmpty() && forced.remove(b))
+			return true;
+
+		return acceleration(b) > wakeThreshold;
+	}
+
+	@Override
+	public void activate(Body b) {
+		b.deactivated = false;
+		if (!forced.isEmpty())
+			forced.remove(b);
+	}
+
+	@Override
+	public void deactivate(Body b) {
+		b.deactivated = true;
+
+		// remove velocity from body
+		b.state.velocity.assignZero();
+		b.state.omega.assignZero();
+		b.motion = 0;
+	}
+
+	@Override
+	public void forceActivate(Body b) {
+		forced.add(b);
+	}
+
+	@Override
+	public int getSleepDelay() {
+		return window;
+	}
+
+	// squared norm of the total delta velocities of b
+	private static double acceleration(Body b) {
+		final double vx = b.deltavelocity.x+b.externaldeltavelocity.x;
+		final double vy = b.deltavelocity.y+b.externaldeltavelocity.y;
+		final double vz = b.deltavelocity.z+b.externaldeltavelocity.z;
+		final double wx = b.deltaomega.x+b.externaldeltaomega.x;
+		final double wy = b.deltaomega.y+b.externaldeltaomega.y;
+		final double wz = b.deltaomega.z+b.externaldeltaomega.z;
+		return vx*vx+vy*vy+vz*vz + wx*wx+wy*wy+wz*wz;
+	}
+}
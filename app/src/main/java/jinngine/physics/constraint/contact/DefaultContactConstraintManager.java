@@ -16,9 +16,15 @@ import java.util.Map;
 import jinngine.physics.*;
 import jinngine.collision.BroadphaseCollisionDetection;
 import jinngine.geometry.Geometry;
+import jinngine.geometry.Box;
+import jinngine.geometry.Sphere;
 import jinngine.geometry.SupportMap3;
+import jinngine.geometry.UniformCapsule;
+import jinngine.geometry.contact.CapsuleBoxContactGenerator;
+import jinngine.geometry.contact.CapsuleCapsuleContactGenerator;
 import jinngine.geometry.contact.ContactGenerator;
-import jinngine.geometry.contact.ContactGeneratorClassifier;
+import jinngine.geometry.contact.ContactGeneratorTable;
+import jinngine.geometry.contact.SphereBoxContactGenerator;
 import jinngine.geometry.contact.SphereContactGenerator;
 import jinngine.geometry.contact.SupportMapContactGenerator;
 import jinngine.geometry.contact.SupportMapSphereContactGenerator;
@@ -41,8 +47,8 @@ public class DefaultContactConstraintManager implements ContactConstraintManager
 	// the broad phase collision handler installed by this contact constraint manager
 	private final BroadphaseCollisionDetection.Handler handler;
 	
-	// list of geometry classifiers
-	private final List<ContactGeneratorClassifier> geometryClassifiers = new ArrayList<ContactGeneratorClassifier>();
+	// dispatch table of contact generator factories
+	private final ContactGeneratorTable generators = new ContactGeneratorTable();
 
 	// list of contact constraint creators
 	private final List<ContactConstraintCreator> contactConstraintCreators = new ArrayList<ContactConstraintCreator>();
@@ -227,51 +233,62 @@ public class DefaultContactConstraintManager implements ContactConstraintManager
 		// add the handler to the broad phase
 		broadphase.addHandler(handler);
 		
-		// create some initial ContactGeneratorClassifiers
-		// The Sphere - Sphere classifier
-		geometryClassifiers.add(new ContactGeneratorClassifier() {
-			@Override
-			public final ContactGenerator getGenerator(Geometry a,
-					Geometry b) {
-				if ( a instanceof jinngine.geometry.Sphere && b instanceof jinngine.geometry.Sphere) {
-					return new SphereContactGenerator((jinngine.geometry.Sphere)a, (jinngine.geometry.Sphere)b);
-				}
-				//not recognised
-				return null;	
+		// register the initial contact generator factories. Later registrations take
+		// precedence, so the general support map factories go first
+		generators.register(SupportMap3.class, SupportMap3.class, new ContactGeneratorTable.Factory() {
+			public final ContactGenerator create(Geometry a, Geometry b) {
+				return new SupportMapContactGenerator((SupportMap3)a, a, (SupportMap3)b, b);
 			}
 		});
-		
-		// The Sphere - SupportMap classifier
-		geometryClassifiers.add(new ContactGeneratorClassifier() {
-			@Override
-			public final ContactGenerator getGenerator(Geometry a,
-					Geometry b) {
-				if ( a instanceof jinngine.geometry.SupportMap3 && b instanceof jinngine.geometry.Sphere) {
-					return new SupportMapSphereContactGenerator(a.getBody(), a, (jinngine.geometry.SupportMap3)a, b.getBody(), (jinngine.geometry.Sphere)b);
-				}
-				if ( a instanceof jinngine.geometry.Sphere && b instanceof jinngine.geometry.SupportMap3) {
-					return new SupportMapSphereContactGenerator(a.getBody(), (jinngine.geometry.Sphere)a, b.getBody(), b, (jinngine.geometry.SupportMap3)b);
-				}
-				//not recognised
-				return null;	
+		generators.register(SupportMap3.class, Sphere.class, new ContactGeneratorTable.Factory() {
+			public final ContactGenerator create(Geometry a, Geometry b) {
+				return new SupportMapSphereContactGenerator(a.getBody(), a, (SupportMap3)a, b.getBody(), (Sphere)b);
 			}
 		});
-		
-		
-		// General convex support maps
-		geometryClassifiers.add(new ContactGeneratorClassifier() {
-			@Override
-			public final ContactGenerator getGenerator(Geometry a,
-					Geometry b) {
-				if ( a instanceof SupportMap3 && b instanceof SupportMap3) {
-					return new SupportMapContactGenerator((SupportMap3)a, a,  (SupportMap3)b, b);
-//					return new BulletNativeContactGenerator(a,b);
-				}
-				//not recognised
-				return null;	
+		generators.register(Sphere.class, SupportMap3.class, new ContactGeneratorTable.Factory() {
+			public final ContactGenerator create(Geometry a, Geometry b) {
+				return new SupportMapSphereContactGenerator(a.getBody(), (Sphere)a, b.getBody(), b, (SupportMap3)b);
+			}
+		});
+		generators.register(Sphere.class, Sphere.class, new ContactGeneratorTable.Factory() {
+			public final ContactGenerator create(Geometry a, Geometry b) {
+				return new SphereContactGenerator((Sphere)a, (Sphere)b);
+			}
+		});
+		generators.register(Sphere.class, Box.class, new ContactGeneratorTable.Factory() {
+			public final ContactGenerator create(Geometry a, Geometry b) {
+				return new SphereBoxContactGenerator((Sphere)a, (Box)b);
+			}
+		});
+		generators.register(Box.class, Sphere.class, new ContactGeneratorTable.Factory() {
+			public final ContactGenerator create(Geometry a, Geometry b) {
+				return new SphereBoxContactGenerator((Box)a, (Sphere)b);
+			}
+		});
+		generators.register(UniformCapsule.class, UniformCapsule.class, new ContactGeneratorTable.Factory() {
+			public final ContactGenerator create(Geometry a, Geometry b) {
+				return new CapsuleCapsuleContactGenerator((UniformCapsule)a, (UniformCapsule)b);
+			}
+		});
+		generators.register(UniformCapsule.class, Box.class, new ContactGeneratorTable.Factory() {
+			public final ContactGenerator create(Geometry a, Geometry b) {
+				return new CapsuleBoxContactGenerator((UniformCapsule)a, (Box)b);
+			}
+		});
+		generators.register(Box.class, UniformCapsule.class, new ContactGeneratorTable.Factory() {
+			public final ContactGenerator create(Geometry a, Geometry b) {
+				return new CapsuleBoxContactGenerator((Box)a, (UniformCapsule)b);
 			}
 		});
-
+	}
+	
+	/**
+	 * Get the table of contact generator factories used by this contact constraint manager. New
+	 * factories can be registered to handle additional pairs of geometry types, or to replace the
+	 * default contact generators.
+	 */
+	public final ContactGeneratorTable getContactGeneratorTable() {
+		return generators;
 	}
 	
 	/**
@@ -298,14 +315,7 @@ public class DefaultContactConstraintManager implements ContactConstraintManager
 	}
 	
 	private ContactGenerator getContactGenerator(Pair<Geometry> pair) {
-		for ( ContactGeneratorClassifier gc: geometryClassifiers) {
-			ContactGenerator g = gc.getGenerator(pair.getFirst(), pair.getSecond());
-			
-			if (g!=null) {
-				return g;
-			}
-		}
-		return null;
+		return generators.getGenerator(pair.getFirst(), pair.getSecond());
 	}
 
 	@Override
@@ -39,6 +39,10 @@ public final class FrictionalContactConstraint implements ContactConstraint {
 	
 	private boolean enableCoupling = true;
 	
+	// speculative margin, as a factor of the distance travelled by the relative velocity in a timestep. 
+	// Zero disables speculative contacts
+	private static double speculativeMarginScale = 0;
+	
 	/**
 	 * Create a new ContactConstraint, using one initial ContactGenerator
 	 * @param b1
@@ -76,14 +80,56 @@ public final class FrictionalContactConstraint implements ContactConstraint {
 		return generators.size();
 	}
 	
+	/**
+	 * Enable speculative contacts for all contact constraints. Contact generators will report contact points 
+	 * within the envelope plus a speculative margin, which is the given scale times a bound on the distance travelled
+	 * by the surface points of the bodies relative to each other during a timestep. The bound includes the relative 
+	 * linear velocity, and the angular velocities times the bounding radii of the bodies. The scene inflates the
+	 * bounding boxes of the geometries in the same way, see {@link Body#sweep}, so the broad-phase reports such pairs. 
+	 * Speculative contact points, that lie outside the envelope, give rise to normal constraints without friction, that
+	 * allow the bodies to approach each other until the gap is closed, but not any further. This prevents fast moving 
+	 * bodies from tunnelling through each other, without the cost of continuous collision detection. A scale of 0 
+	 * disables speculative contacts.
+	 * @param scale non-negative scale of the speculative margin
+	 */
+	public static void setSpeculativeMarginScale( double scale ) {
+		if (scale < 0)
+			throw new IllegalArgumentException("FrictionalContactConstraint: speculative margin scale must be non-negative");
+		speculativeMarginScale = scale;
+	}
+	
+	/**
+	 * Get the speculative margin scale
+	 * @see #setSpeculativeMarginScale(double)
+	 */
+	public static double getSpeculativeMarginScale() {
+		return speculativeMarginScale;
+	}
+	
 	@Override
 	public final void applyConstraints(ListIterator<NCPConstraint> constraintIterator, double dt) {
 		//clear list of ncp constraints
 		ncpconstraints.clear();
 		
+		// no rows between bodies of infinite mass. A kinematic body can touch a fixed body, 
+		// or another kinematic body
+		if ((b1.isFixed() || b1.isKinematic()) && (b2.isFixed() || b2.isKinematic()))
+			return;
+		
+		// speculative margin from the relative velocity of the bodies surfaces, bounded
+		// by the relative linear velocity and the angular velocities times the radii 
+		double margin = 0;
+		if (speculativeMarginScale > 0) {
+			final Vector3 v1 = b1.state.velocity, v2 = b2.state.velocity;
+			final double dx = v1.x-v2.x, dy = v1.y-v2.y, dz = v1.z-v2.z;
+			margin = speculativeMarginScale*dt*(Math.sqrt(dx*dx+dy*dy+dz*dz) 
+					+ b1.state.omega.norm()*b1.getBoundingRadius() + b2.state.omega.norm()*b2.getBoundingRadius());
+		}
+		
 		//use ContactGenerators to create new contactpoints
 		for ( ContactGenerator cg: generators) {
 			//run contact generator
+			cg.setSpeculativeMargin(margin);
 			cg.run();
 			
 			//generate contacts
@@ -122,7 +168,9 @@ public final class FrictionalContactConstraint implements ContactConstraint {
 		//First off, create the constraint in the normal direction
 		final double e = cp.restitution; //coeficient of restitution
 		final double uni = nJ1.dot(b1.state.velocity) + nJ2.dot(b1.state.omega) + nJ3.dot(b2.state.velocity) + nJ4.dot(b2.state.omega);
-		final double unf = uni<0 ? -e*uni: 0;		
+		// speculative contact points lie outside the envelope, and no restitution is applied to them
+		final boolean speculative = cp.distance >= cp.envelope;
+		final double unf = uni<0 && !speculative ? -e*uni: 0;		
 		
 		//compute B vector
 		final Matrix3 I1 = b1.state.inverseinertia;
@@ -146,9 +194,13 @@ public final class FrictionalContactConstraint implements ContactConstraint {
 		final double limit = 2;
 		
 		
+		// a speculative contact allows the bodies to approach each other by the gap to the 
+		// shell in the next timestep, so the (negative) correction is used unmodified
+		if (speculative) {
+			//nothing to adjust
 		// if the unf velocity will make the contact leave the envelope in the next timestep, 
 		// we ignore corrections
-		if (unf > escape) {
+		} else if (unf > escape) {
 			//System.out.println("escape");
 			correction = 0;
 		} else {
@@ -163,12 +215,14 @@ public final class FrictionalContactConstraint implements ContactConstraint {
 			}
 		}
 	
-		// limit the correction velocity
-		correction = correction< -limit? -limit:correction;  
-		correction = correction>  limit?  limit:correction;
-		
-		// take a factor of real correction velocity
-		correction = correction * 0.9;
+		if (!speculative) {
+			// limit the correction velocity
+			correction = correction< -limit? -limit:correction;  
+			correction = correction>  limit?  limit:correction;
+
+			// take a factor of real correction velocity
+			correction = correction * 0.9;
+		}
 		
 		//correction=correction>0?0:correction;
 
@@ -189,6 +243,13 @@ public final class FrictionalContactConstraint implements ContactConstraint {
 		
 		//set the correct friction setting for this contact
 		c.mu = cp.friction;
+		
+		// bodies are not yet touching at speculative contact points, so there is no friction
+		if (speculative) {
+			outConstraints.add(c);
+			ncpconstraints.add(c);
+			return;
+		}
 						
 		//first tangent
 		final Vector3 t2J1 = t2;
@@ -46,6 +46,18 @@ public final class HingeJoint implements Constraint {
 	private NCPConstraint angular2 = new NCPConstraint();
 	private NCPConstraint angular3 = new NCPConstraint();
 	private NCPConstraint extra = new NCPConstraint();
+	
+	// world space vectors, updated every time-step
+	private final Vector3 ri = new Vector3();
+	private final Vector3 rj = new Vector3();
+	private final Vector3 tt2i = new Vector3();
+	private final Vector3 tt2j = new Vector3();
+	private final Vector3 tt3i = new Vector3();
+	private final Vector3 tn1 = new Vector3();
+	private final Vector3 tn2 = new Vector3();
+	private final Vector3 nerror = new Vector3();
+	private final Vector3 u = new Vector3();
+	private final Vector3 t = new Vector3();
 
 	
 	/**
@@ -145,67 +157,37 @@ public final class HingeJoint implements Constraint {
 	
 	public final void applyConstraints(ListIterator<NCPConstraint> iterator, double dt) {
 		//transform points
-		Vector3 ri = Matrix3.multiply(b1.state.rotation, pi, new Vector3());
-		Vector3 rj = Matrix3.multiply(b2.state.rotation, pj, new Vector3());
-		Vector3 tt2i = Matrix3.multiply(b1.state.rotation, t2i, new Vector3());
-		Vector3 tt2j = Matrix3.multiply(b2.state.rotation, t2j, new Vector3());		
-		Vector3 tt3i = Matrix3.multiply(b1.state.rotation, t3i, new Vector3());
-		Vector3 tn1 = Matrix3.multiply(b1.state.rotation, ni, new Vector3());
-		Vector3 tn2 = Matrix3.multiply(b2.state.rotation, nj, new Vector3());
-		
-		//jacobians on matrix form
-		final Matrix3 Ji = Matrix3.identity().multiply(1);
-		final Matrix3 Jangi = Matrix3.crossProductMatrix(ri).multiply(-1);
-		final Matrix3 Jj = Matrix3.identity().multiply(-1);
-		final Matrix3 Jangj = Matrix3.crossProductMatrix(rj);
-
-//		Matrix3 MiInv = Matrix3.identity().multiply(1/b1.state.mass);
-//		Matrix3 MjInv = Matrix3.identity().multiply(1/b2.state.mass);
-		final Matrix3 MiInv = b1.state.inverseanisotropicmass;
-		final Matrix3 MjInv = b2.state.inverseanisotropicmass;
-		
-
-		final Matrix3 Bi = b1.isFixed()? new Matrix3() : MiInv.multiply(Ji.transpose());
-		final Matrix3 Bangi = b1.isFixed()? new Matrix3() : b1.state.inverseinertia.multiply(Jangi.transpose());
-		final Matrix3 Bj = b2.isFixed()? new Matrix3() : MjInv.multiply(Jj.transpose());
-		final Matrix3 Bangj = b2.isFixed()? new Matrix3() : b2.state.inverseinertia.multiply(Jangj.transpose());
+		Matrix3.multiply(b1.state.rotation, pi, ri);
+		Matrix3.multiply(b2.state.rotation, pj, rj);
+		Matrix3.multiply(b1.state.rotation, t2i, tt2i);
+		Matrix3.multiply(b2.state.rotation, t2j, tt2j);
+		Matrix3.multiply(b1.state.rotation, t3i, tt3i);
+		Matrix3.multiply(b1.state.rotation, ni, tn1);
+		Matrix3.multiply(b2.state.rotation, nj, tn2);
 
 		double Kcor = 0.9;
 		
-//		Vector3 u = b1.state.velocity.minus( ri.cross(b1.state.omega)).minus(b2.state.velocity).add(rj.cross(b2.state.omega));
-		Vector3 u = b1.state.velocity.add( b1.state.omega.cross(ri)).sub(b2.state.velocity.add(b2.state.omega.cross(rj)));
+		// relative velocity of the anchor points, u = vi + wi x ri - (vj + wj x rj)
+		Vector3.crossProduct(b1.state.omega, ri, u);
+		Vector3.crossProduct(b2.state.omega, rj, t);
+		u.x += b1.state.velocity.x - b2.state.velocity.x - t.x;
+		u.y += b1.state.velocity.y - b2.state.velocity.y - t.y;
+		u.z += b1.state.velocity.z - b2.state.velocity.z - t.z;
+
+		// add position error correction
+		final double s = Kcor/dt;
+		u.x += (b1.state.position.x + ri.x - b2.state.position.x - rj.x)*s;
+		u.y += (b1.state.position.y + ri.y - b2.state.position.y - rj.y)*s;
+		u.z += (b1.state.position.z + ri.z - b2.state.position.z - rj.z)*s;
 
-		Vector3 posError = b1.state.position.add(ri).sub(b2.state.position).sub(rj).multiply(1/dt);
 		//error in transformed normal
-		Vector3 nerror = tn1.cross(tn2);
-		u.assign( u.add(posError.multiply(Kcor)));
+		Vector3.crossProduct(tn1, tn2, nerror);
 		
-		linear1.assign( 
-				b1,	b2, 
-				Bi.column(0), Bangi.column(0), Bj.column(0), Bangj.column(0), 
-				Ji.row(0), Jangi.row(0), Jj.row(0), Jangj.row(0),
-				Double.NEGATIVE_INFINITY,
-				Double.POSITIVE_INFINITY,
-				null,
-				u.x, 0 );
-
-		linear2.assign( 
-				b1,	b2, 
-				Bi.column(1), Bangi.column(1), Bj.column(1), Bangj.column(1), 
-				Ji.row(1), Jangi.row(1), Jj.row(1), Jangj.row(1),
-				Double.NEGATIVE_INFINITY,
-				Double.POSITIVE_INFINITY,
-				null,
-				u.y, 0 );
-
-		linear3.assign( 
-				b1,	b2, 
-				Bi.column(2), Bangi.column(2), Bj.column(2), Bangj.column(2), 
-				Ji.row(2), Jangi.row(2), Jj.row(2), Jangj.row(2),
-				Double.NEGATIVE_INFINITY,
-				Double.POSITIVE_INFINITY,
-				null,
-				u.z, 0 );	
+		// rows of the jacobian are written directly, using the identity 
+		// and cross product matrix structure, see JointRows
+		JointRows.linear(linear1, b1, b2, 0, ri, rj, u.x);
+		JointRows.linear(linear2, b1, b2, 1, ri, rj, u.y);
+		JointRows.linear(linear3, b1, b2, 2, ri, rj, u.z);
 
 	
 		// handle the constraint modelling joint limits and motor
@@ -213,7 +195,8 @@ public final class HingeJoint implements Constraint {
 		double high = 0;
 		double correction = 0;
 		Vector3 axis = tn1;		
-		double sign = tt2i.cross(tt2j).dot(tn1)>0?1:-1;
+		Vector3.crossProduct(tt2i, tt2j, t);
+		double sign = t.dot(tn1)>0?1:-1;
 		double product = tt2i.dot(tt2j);
 		// make sure product is excatly in [-1,1]
 		product = Math.max( Math.min( product, 1), -1);		
@@ -240,14 +223,10 @@ public final class HingeJoint implements Constraint {
 			// if motor is working to leave the limit, we need an extra 
 			// velocity constraint to model the motors contribution at the limit
 			if ( motorTargetVelocity<0 && motor>0) {
-				extra.assign( 
-						b1,	b2, 
-						new Vector3(), b1.isFixed()? new Vector3():b1.state.inverseinertia.multiply(axis), new Vector3(), b2.isFixed()? new Vector3() : b2.state.inverseinertia.multiply(axis.multiply(-1)), 
-						new Vector3(), axis, new Vector3(), axis.multiply(-1), 
+				JointRows.angular(extra, b1, b2, axis,
 						-this.motor,
 						0,
-						null,
-						this.velocity-this.motorTargetVelocity, 0 );
+						this.velocity-this.motorTargetVelocity );
 				// add the motor constraint
 				iterator.add(extra);
 			}
@@ -262,14 +241,10 @@ public final class HingeJoint implements Constraint {
 			// if motor is working to leave the limit, we need an extra 
 			// velocity constraint to model the motors contribution at the limit
 			if ( motorTargetVelocity>0 && motor>0) {
-				extra.assign( 
-						b1,	b2, 
-						new Vector3(), b1.isFixed()? new Vector3():b1.state.inverseinertia.multiply(axis), new Vector3(), b2.isFixed()? new Vector3() : b2.state.inverseinertia.multiply(axis.multiply(-1)), 
-						new Vector3(), axis, new Vector3(), axis.multiply(-1), 
+				JointRows.angular(extra, b1, b2, axis,
 						0,
 						this.motor,
-						null,
-						this.velocity-this.motorTargetVelocity, 0 );
+						this.velocity-this.motorTargetVelocity );
 
 				// add the motor constraint
 				iterator.add(extra);
@@ -292,35 +267,23 @@ public final class HingeJoint implements Constraint {
 		
 		
 		
-		angular1.assign( 
-				b1,	b2, 
-				new Vector3(), b1.isFixed()? new Vector3():b1.state.inverseinertia.multiply(axis), new Vector3(), b2.isFixed()? new Vector3() : b2.state.inverseinertia.multiply(axis.multiply(-1)), 
-				new Vector3(), axis, new Vector3(), axis.multiply(-1), 
+		JointRows.angular(angular1, b1, b2, axis,
 				low,
 				high,
-				null,
-				bvalue, 0 );
+				bvalue );
 
 		
 		//keep bodies aligned to the axis
-		angular2.assign( 
-				b1, b2, 
-				new Vector3(), b1.isFixed()? new Vector3() : b1.state.inverseinertia.multiply(tt2i), new Vector3(), b2.isFixed()? new Vector3() : b2.state.inverseinertia.multiply(tt2i.multiply(-1)), 
-				new Vector3(), tt2i, new Vector3(), tt2i.multiply(-1),
+		JointRows.angular(angular2, b1, b2, tt2i,
 				Double.NEGATIVE_INFINITY,
 				Double.POSITIVE_INFINITY,
-				null,
-				tt2i.dot(b1.state.omega)-tt2i.dot(b2.state.omega) - Kcor*tt2i.dot(nerror)*(1/dt), 0  );	
+				tt2i.dot(b1.state.omega)-tt2i.dot(b2.state.omega) - Kcor*tt2i.dot(nerror)*(1/dt) );	
 
 		
-		angular3.assign( 
-				b1,	b2, 
-				new Vector3(), b1.isFixed()? new Vector3() : b1.state.inverseinertia.multiply(tt3i), new Vector3(), b2.isFixed()? new Vector3() : b2.state.inverseinertia.multiply(tt3i.multiply(-1)), 
-				new Vector3(), tt3i, new Vector3(), tt3i.multiply(-1),
+		JointRows.angular(angular3, b1, b2, tt3i,
 				Double.NEGATIVE_INFINITY,
 				Double.POSITIVE_INFINITY,
-				null,
-				tt3i.dot(b1.state.omega)-tt3i.dot(b2.state.omega) - Kcor*tt3i.dot(nerror)*(1/dt), 0  );		
+				tt3i.dot(b1.state.omega)-tt3i.dot(b2.state.omega) - Kcor*tt3i.dot(nerror)*(1/dt) );		
 
 
 		// add constraints to return list
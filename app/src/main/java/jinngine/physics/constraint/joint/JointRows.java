@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics.constraint.joint;
+
+import jinngine.math.Matrix3;
+import jinngine.math.Vector3;
+import jinngine.physics.Body;
+import jinngine.physics.solver.Solver.NCPConstraint;
+
+/**
+ * Assembly of the NCP constraint rows shared by the joints. The rows are written directly into the
+ * given {@link NCPConstraint}, without forming the Jacobian and B matrices. For a joint anchored at
+ * riw on body i and rjw on body j, the linear Jacobian blocks are
+ * <p>
+ * J = [ I  -[riw]x  -I  [rjw]x ]
+ * <p>
+ * so row k is ( e_k, riw x e_k, -e_k, e_k x rjw ), and column k of B = M^-1 J^T is the
+ * inverse mass and inertia applied to the same vectors. No objects are allocated.
+ */
+final class JointRows {
+	private JointRows() {}
+
+	/**
+	 * Write row k of the linear constraint, keeping the anchor points riw and rjw together
+	 * @param row constraint to write into
+	 * @param k row index, 0, 1 or 2
+	 * @param riw anchor point on bi, relative to the centre of mass, in world space
+	 * @param rjw anchor point on bj, relative to the centre of mass, in world space
+	 * @param b b value of the row
+	 */
+	static void linear( NCPConstraint row, Body bi, Body bj, int k, Vector3 riw, Vector3 rjw, double b ) {
+		final double ex = k==0?1:0, ey = k==1?1:0, ez = k==2?1:0;
+
+		// J = ( e_k, riw x e_k, -e_k, e_k x rjw )
+		row.j1.assign(ex, ey, ez);
+		row.j2.assign(riw.y*ez-riw.z*ey, riw.z*ex-riw.x*ez, riw.x*ey-riw.y*ex);
+		row.j3.assign(-ex, -ey, -ez);
+		row.j4.assign(ey*rjw.z-ez*rjw.y, ez*rjw.x-ex*rjw.z, ex*rjw.y-ey*rjw.x);
+
+		// B = M^-1 J^T, zero for fixed bodies
+		if (bi.isFixed()) {
+			row.b1.assignZero();
+			row.b2.assignZero();
+		} else {
+			column(bi.state.inverseanisotropicmass, k, 1, row.b1);
+			Matrix3.multiply(bi.state.inverseinertia, row.j2, row.b2);
+		}
+
+		if (bj.isFixed()) {
+			row.b3.assignZero();
+			row.b4.assignZero();
+		} else {
+			column(bj.state.inverseanisotropicmass, k, -1, row.b3);
+			Matrix3.multiply(bj.state.inverseinertia, row.j4, row.b4);
+		}
+
+		finish(row, bi, bj, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, b);
+	}
+
+	/**
+	 * Write an angular constraint row, acting on the relative angular velocity along the given axis
+	 * @param row constraint to write into
+	 * @param axis axis in world space
+	 * @param lower lower limit on lambda
+	 * @param upper upper limit on lambda
+	 * @param b b value of the row
+	 */
+	static void angular( NCPConstraint row, Body bi, Body bj, Vector3 axis, double lower, double upper, double b ) {
+		// J = ( 0, axis, 0, -axis )
+		row.j1.assignZero();
+		row.j2.assign(axis);
+		row.j3.assignZero();
+		row.j4.assign(-axis.x, -axis.y, -axis.z);
+
+		// B = M^-1 J^T, zero for fixed bodies
+		row.b1.assignZero();
+		row.b3.assignZero();
+		if (bi.isFixed())
+			row.b2.assignZero();
+		else
+			Matrix3.multiply(bi.state.inverseinertia, row.j2, row.b2);
+
+		if (bj.isFixed())
+			row.b4.assignZero();
+		else
+			Matrix3.multiply(bj.state.inverseinertia, row.j4, row.b4);
+
+		finish(row, bi, bj, lower, upper, b);
+	}
+
+	// column k of M, scaled by s
+	private static void column( Matrix3 M, int k, double s, Vector3 r ) {
+		switch (k) {
+		case 0: r.assign(M.a11*s, M.a21*s, M.a31*s); break;
+		case 1: r.assign(M.a12*s, M.a22*s, M.a32*s); break;
+		default: r.assign(M.a13*s, M.a23*s, M.a33*s);
+		}
+	}
+
+	// set the remaining members, as in NCPConstraint.assign()
+	private static void finish( NCPConstraint row, Body bi, Body bj, double lower, double upper, double b ) {
+		row.body1 = bi;
+		row.body2 = bj;
+		row.lambda = 0;
+		row.lower = lower;
+		row.upper = upper;
+		row.coupling = null;
+		row.b = b;
+		row.c = 0;
+		row.diagonal = row.j1.dot(row.b1) + row.j2.dot(row.b2) + row.j3.dot(row.b3) + row.j4.dot(row.b4);
+	}
+}
@@ -54,6 +54,17 @@ public final class UniversalJoint implements Constraint {
 	private NCPConstraint linear3 = new NCPConstraint();
 	private NCPConstraint angular1 = new NCPConstraint();
 	
+	// world space vectors, updated every time-step
+	private final Vector3 riw = new Vector3();
+	private final Vector3 rjw = new Vector3();
+	private final Vector3 n1iw = new Vector3();
+	private final Vector3 n2iw = new Vector3();
+	private final Vector3 n1jw = new Vector3();
+	private final Vector3 n2jw = new Vector3();
+	private final Vector3 u = new Vector3();
+	private final Vector3 q = new Vector3();
+	private final Vector3 t = new Vector3();
+	
 	/**
 	 * Get the axis controller for the first axis. Use this controller to adjust joint limits, motor and friction
 	 * @return A controller for this hinge joint
@@ -172,84 +183,43 @@ public final class UniversalJoint implements Constraint {
 	
 	public final void applyConstraints(ListIterator<NCPConstraint> iterator, double dt) {
 		//transform vectors to world space
-		final Vector3 riw = Matrix3.multiply(bi.state.rotation, pi, new Vector3());
-		final Vector3 rjw = Matrix3.multiply(bj.state.rotation, pj, new Vector3());
-		final Vector3 n1iw = Matrix3.multiply(bi.state.rotation, n1i, new Vector3());
-		final Vector3 n2iw = Matrix3.multiply(bi.state.rotation, n2i, new Vector3());
-		final Vector3 n1jw = Matrix3.multiply(bj.state.rotation, n1j, new Vector3());
-		final Vector3 n2jw = Matrix3.multiply(bj.state.rotation, n2j, new Vector3());
-		
+		Matrix3.multiply(bi.state.rotation, pi, riw);
+		Matrix3.multiply(bj.state.rotation, pj, rjw);
+		Matrix3.multiply(bi.state.rotation, n1i, n1iw);
+		Matrix3.multiply(bi.state.rotation, n2i, n2iw);
+		Matrix3.multiply(bj.state.rotation, n1j, n1jw);
+		Matrix3.multiply(bj.state.rotation, n2j, n2jw);
 		
 		// at all times, n1iw and n2jw are orthogonal 
-		
-		//jacobians on matrix form
-		Matrix3 Ji = Matrix3.identity().multiply(1);
-		Matrix3 Jangi = Matrix3.crossProductMatrix(riw).multiply(-1);
-		Matrix3 Jj = Matrix3.identity().multiply(-1);
-		Matrix3 Jangj = Matrix3.crossProductMatrix(rjw);
-
-//		Matrix3 MiInv = Matrix3.identity().multiply(1/bi.state.mass);
-//		Matrix3 MjInv = Matrix3.identity().multiply(1/bj.state.mass);
-		final Matrix3 MiInv = bi.state.inverseanisotropicmass;
-		final Matrix3 MjInv = bj.state.inverseanisotropicmass;
-
-
-		Matrix3 Bi = bi.isFixed()? new Matrix3() : MiInv.multiply(Ji.transpose());
-		Matrix3 Bangi = bi.isFixed()? new Matrix3() : bi.state.inverseinertia.multiply(Jangi.transpose());
-		Matrix3 Bj = bj.isFixed()? new Matrix3() : MjInv.multiply(Jj.transpose());
-		Matrix3 Bangj = bj.isFixed()? new Matrix3() : bj.state.inverseinertia.multiply(Jangj.transpose());
 
 		double Kcor = 0.8;
 		
-//		Vector3 u = b1.state.velocity.minus( ri.cross(b1.state.omega)).minus(b2.state.velocity).add(rj.cross(b2.state.omega));
-		Vector3 u = bi.state.velocity.add( bi.state.omega.cross(riw)).sub(bj.state.velocity.add(bj.state.omega.cross(rjw)));
-
-		Vector3 posError = bi.state.position.add(riw).sub(bj.state.position).sub(rjw).multiply(1/dt);
-		//error in transformed normal
-		Vector3 nerror = n1iw.cross(n2jw);
-		u.assign( u.add(posError.multiply(Kcor)));
+		// relative velocity of the anchor points, u = vi + wi x riw - (vj + wj x rjw)
+		Vector3.crossProduct(bi.state.omega, riw, u);
+		Vector3.crossProduct(bj.state.omega, rjw, t);
+		u.x += bi.state.velocity.x - bj.state.velocity.x - t.x;
+		u.y += bi.state.velocity.y - bj.state.velocity.y - t.y;
+		u.z += bi.state.velocity.z - bj.state.velocity.z - t.z;
+
+		// add position error correction
+		final double s = Kcor/dt;
+		u.x += (bi.state.position.x + riw.x - bj.state.position.x - rjw.x)*s;
+		u.y += (bi.state.position.y + riw.y - bj.state.position.y - rjw.y)*s;
+		u.z += (bi.state.position.z + riw.z - bj.state.position.z - rjw.z)*s;
 		
-		linear1.assign( 
-				bi,	bj, 
-				Bi.column(0), Bangi.column(0), Bj.column(0), Bangj.column(0), 
-				Ji.row(0), Jangi.row(0), Jj.row(0), Jangj.row(0),
-				Double.NEGATIVE_INFINITY,
-				Double.POSITIVE_INFINITY,
-				null,
-				u.x, 0 );
-
-		linear2.assign( 
-				bi,	bj, 
-				Bi.column(1), Bangi.column(1), Bj.column(1), Bangj.column(1), 
-				Ji.row(1), Jangi.row(1), Jj.row(1), Jangj.row(1),
-				Double.NEGATIVE_INFINITY,
-				Double.POSITIVE_INFINITY,
-				null,
-				u.y, 0 );
-
-		linear3.assign( 
-				bi,	bj, 
-				Bi.column(2), Bangi.column(2), Bj.column(2), Bangj.column(2), 
-				Ji.row(2), Jangi.row(2), Jj.row(2), Jangj.row(2),
-				Double.NEGATIVE_INFINITY,
-				Double.POSITIVE_INFINITY,
-				null,
-				u.z, 0 );	
-
-	
-
+		// rows of the jacobian are written directly, using the identity 
+		// and cross product matrix structure, see JointRows
+		JointRows.linear(linear1, bi, bj, 0, riw, rjw, u.x);
+		JointRows.linear(linear2, bi, bj, 1, riw, rjw, u.y);
+		JointRows.linear(linear3, bi, bj, 2, riw, rjw, u.z);
 
 		// angular axis where relative velocity must be zero
-		Vector3 q = n1iw.cross(n2jw);
+		Vector3.crossProduct(n1iw, n2jw, q);
 		
-		angular1.assign( 
-				bi,	bj, 
-				new Vector3(), bi.isFixed()? new Vector3() : bi.state.inverseinertia.multiply(q), new Vector3(), bj.isFixed()? new Vector3() : bj.state.inverseinertia.multiply(q.multiply(-1)), 
-				new Vector3(), q, new Vector3(), q.multiply(-1),
+		JointRows.angular(angular1, bi, bj, q,
 				Double.NEGATIVE_INFINITY,
 				Double.POSITIVE_INFINITY,
-				null,
-				q.dot(bi.state.omega)-q.dot(bj.state.omega) - Kcor*(-n1iw.dot(n2jw))*(1/dt), 0  );		
+				q.dot(bi.state.omega)-q.dot(bj.state.omega) - Kcor*(-n1iw.dot(n2jw))*(1/dt) );		
 
 
 		// add constraints to return list
@@ -278,7 +248,8 @@ public final class UniversalJoint implements Constraint {
 		double high = 0;
 		double correction = 0;
 		Vector3 axis = joint.nijw;		
-		double sign = joint.tiw.cross(joint.tjw).dot(joint.nijw)>0?1:-1;
+		Vector3.crossProduct(joint.tiw, joint.tjw, t);
+		double sign = t.dot(joint.nijw)>0?1:-1;
 		double product = joint.tiw.dot(joint.tjw);
 		// make sure product is excatly in [-1,1]
 		product = Math.max( Math.min( product, 1), -1);		
@@ -306,14 +277,10 @@ public final class UniversalJoint implements Constraint {
 			// if motor is working to leave the limit, we need an extra 
 			// velocity constraint to model the motors contribution at the limit
 			if ( joint.motorTargetVelocity<0 && joint.motor>0) {
-				joint.extra.assign( 
-						bi,	bj, 
-						new Vector3(), bi.isFixed()? new Vector3():bi.state.inverseinertia.multiply(axis), new Vector3(), bj.isFixed()? new Vector3() : bj.state.inverseinertia.multiply(axis.multiply(-1)), 
-						new Vector3(), axis, new Vector3(), axis.multiply(-1), 
+				JointRows.angular(joint.extra, bi, bj, axis,
 						-joint.motor,
 						0,
-						null,
-						joint.velocity-joint.motorTargetVelocity, 0 );
+						joint.velocity-joint.motorTargetVelocity );
 				// add the motor constraint
 				iterator.add(joint.extra);
 			} else {
@@ -338,14 +305,10 @@ public final class UniversalJoint implements Constraint {
 			// if motor is working to leave the limit, we need an extra 
 			// velocity constraint to model the motors contribution at the limit
 			if ( joint.motorTargetVelocity>0 && joint.motor>0) {
-				joint.extra.assign( 
-						bi,	bj, 
-						new Vector3(), bi.isFixed()? new Vector3():bi.state.inverseinertia.multiply(axis), new Vector3(), bj.isFixed()? new Vector3() : bj.state.inverseinertia.multiply(axis.multiply(-1)), 
-								new Vector3(), axis, new Vector3(), axis.multiply(-1), 
-								0,
-								joint.motor,
-								null,
-								joint.velocity-joint.motorTargetVelocity, 0 );
+				JointRows.angular(joint.extra, bi, bj, axis,
+						0,
+						joint.motor,
+						joint.velocity-joint.motorTargetVelocity );
 
 				// add the motor constraint
 				iterator.add(joint.extra);
@@ -373,14 +336,10 @@ public final class UniversalJoint implements Constraint {
 		// unlimited joint axis
 		
 		
-		joint.angular.assign( 
-				bi,	bj, 
-				new Vector3(), bi.isFixed()? new Vector3():bi.state.inverseinertia.multiply(axis), new Vector3(), bj.isFixed()? new Vector3() : bj.state.inverseinertia.multiply(axis.multiply(-1)), 
-				new Vector3(), axis, new Vector3(), axis.multiply(-1), 
+		JointRows.angular(joint.angular, bi, bj, axis,
 				low,
 				high,
-				null,
-				bvalue, 0 );
+				bvalue );
 		
 		iterator.add(joint.angular);
 
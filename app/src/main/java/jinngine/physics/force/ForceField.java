@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics.force;
+
+import java.util.List;
+
+import jinngine.math.Matrix3;
+import jinngine.math.Vector3;
+import jinngine.physics.Body;
+
+/**
+ * Uniform force field acting on all bodies in a scene. The field combines a uniform gravity acceleration, and a
+ * linear drag towards a uniform wind velocity. The force on a body with velocity v and angular velocity w is
+ * <p>
+ * F = m g - c (v - u) <br>
+ * T = - c_a w
+ * <p>
+ * where g is the gravity, u is the wind velocity, and c and c_a are the linear and angular drag coefficients.
+ * The drag is integrated implicitly, so it only damps the velocity towards the wind velocity, regardless of
+ * the time-step size and the mass of the body.
+ * Gravity is zero and there is no drag by default. Unlike {@link Force} objects, one field is applied to all
+ * bodies in a single loop, without allocating. Fixed and kinematic bodies are not affected.
+ */
+public final class ForceField {
+	private final Vector3 gravity = new Vector3();
+	private final Vector3 wind = new Vector3();
+	private double drag = 0;
+	private double angularDrag = 0;
+
+	// auxiliary vectors
+	private final Vector3 t1 = new Vector3();
+	private final Vector3 t2 = new Vector3();
+	private final Matrix3 A = new Matrix3();
+	private final Matrix3 Ainv = new Matrix3();
+
+	/**
+	 * Set the gravity acceleration, for instance (0,-9.8,0)
+	 */
+	public void setGravity(Vector3 g) {
+		gravity.assign(g);
+	}
+
+	/**
+	 * Get the gravity acceleration
+	 */
+	public Vector3 getGravity() {
+		return new Vector3(gravity);
+	}
+
+	/**
+	 * Set the wind velocity. The wind acts on bodies through the linear drag
+	 */
+	public void setWind(Vector3 u) {
+		wind.assign(u);
+	}
+
+	/**
+	 * Get the wind velocity
+	 */
+	public Vector3 getWind() {
+		return new Vector3(wind);
+	}
+
+	/**
+	 * Set the linear and angular drag coefficients
+	 */
+	public void setDrag(double linear, double angular) {
+		if (linear < 0 || angular < 0)
+			throw new IllegalArgumentException("ForceField: negative drag coefficient");
+		this.drag = linear;
+		this.angularDrag = angular;
+	}
+
+	/**
+	 * Apply the field to the external delta velocities of all bodies in the list. As with {@link Force} objects,
+	 * deactivated bodies are included, since deactivation policies compare their delta velocities from contacts
+	 * with the external delta velocities
+	 * @param bodies bodies to apply the field to
+	 * @param dt time-step size
+	 */
+	public void apply(List<Body> bodies, double dt) {
+		final int n = bodies.size();
+		for (int i=0; i<n; i++)
+			apply(bodies.get(i), dt);
+	}
+
+	/**
+	 * Apply the field to the external delta velocities of the body b, unless it is fixed or kinematic
+	 */
+	public void apply(Body b, double dt) {
+		if (b.isFixed() || b.isKinematic())
+			return;
+
+		// gravity acts equally on all masses
+		final Vector3 dv = b.externaldeltavelocity;
+		dv.x += gravity.x*dt;
+		dv.y += gravity.y*dt;
+		dv.z += gravity.z*dt;
+
+		// linear drag towards the wind velocity
+		if (drag > 0) {
+			final Vector3 v = b.state.velocity;
+			t1.assign(wind.x-v.x, wind.y-v.y, wind.z-v.z);
+			damp(b.state.inverseanisotropicmass, drag*dt, t1, t2);
+			dv.x += t2.x; dv.y += t2.y; dv.z += t2.z;
+		}
+
+		// angular drag
+		if (angularDrag > 0) {
+			final Vector3 w = b.state.omega;
+			t1.assign(-w.x, -w.y, -w.z);
+			damp(b.state.inverseinertia, angularDrag*dt, t1, t2);
+			final Vector3 dw = b.externaldeltaomega;
+			dw.x += t2.x; dw.y += t2.y; dw.z += t2.z;
+		}
+	}
+
+	// implicit drag response r = (I + hW)^-1 hW x, for the inverse mass W and the drag impulse
+	// coefficient h. For a scalar mass m this is x h/(m+h), so the velocity change never exceeds x
+	private void damp(Matrix3 W, double h, Vector3 x, Vector3 r) {
+		A.assign(W);
+		A.a11 *= h; A.a12 *= h; A.a13 *= h;
+		A.a21 *= h; A.a22 *= h; A.a23 *= h;
+		A.a31 *= h; A.a32 *= h; A.a33 *= h;
+		Matrix3.multiply(A, x, r);
+		A.a11 += 1; A.a22 += 1; A.a33 += 1;
+		Matrix3.inverse(A, Ainv);
+		Matrix3.multiply(Ainv, r, r);
+	}
+}
@@ -8,8 +8,16 @@
  */
 package jinngine.physics.force;
 
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.ListIterator;
+
+import jinngine.math.Matrix3;
 import jinngine.math.Vector3;
 import jinngine.physics.Body;
+import jinngine.physics.constraint.Constraint;
+import jinngine.physics.solver.Solver.NCPConstraint;
+import jinngine.util.Pair;
 
 /**
  * Models a spring mounted between two bodies, at points pa and pb. The initial distance between pa and pb will be the 
@@ -20,15 +28,29 @@ import jinngine.physics.Body;
  * <p>
  * where x is the unit vector pointing from pa to pb, e is the deviation from the equilibrium length,
  *  k is the force coefficient, v is the velocity of the spring ( v = u x ) and d is the damping coefficient.  
- *
+ * <p>
+ * By default, the force is applied explicitly, which requires small time-steps for stiff springs to remain stable. 
+ * Using {@link #setImplicit(boolean)}, the spring is instead expressed as a soft constraint, a single NCP constraint 
+ * row with unbounded force and a damper term, and is integrated implicitly by the solver. This is stable for any 
+ * time-step and stiffness. In this case the spring must be added to the scene as a {@link Constraint}, and like other 
+ * constraints, it takes the place of contact constraints between the two bodies.
  */
-public class SpringForce implements Force {
+public class SpringForce implements Force, Constraint {
 	private final Body a;
 	private final Body b;
 	private final Vector3 pa, pb;
 	private double equilibrium;
 	private final double force;
 	private final double damper;
+	private boolean implicit = false;
+	
+	// soft constraint row and auxiliary vectors
+	private final NCPConstraint row = new NCPConstraint();
+	private final Vector3 n = new Vector3(1,0,0);
+	private final Vector3 ra = new Vector3(), rb = new Vector3();
+	private final Vector3 x = new Vector3(), t = new Vector3();
+	private final Vector3 j2 = new Vector3(), j3 = new Vector3(), j4 = new Vector3();
+	private final Vector3 b1 = new Vector3(), b2 = new Vector3(), b3 = new Vector3(), b4 = new Vector3();
 	
 	public SpringForce(Body a, Vector3 pa,  Body b, Vector3 pb) {		
 		this.a = a;
@@ -80,7 +102,23 @@ public class SpringForce implements Force {
 		this.damper = 1;
 	}
 	
+	/**
+	 * Express the spring as a soft constraint, integrated implicitly by the solver, rather than as an explicit force.
+	 * An implicit spring must be added to the scene as a constraint, and has no effect as a force. Disabled by default.
+	 */
+	public void setImplicit(boolean implicit) {
+		this.implicit = implicit;
+	}
+	
+	public boolean isImplicit() {
+		return implicit;
+	}
+	
 	public void apply(double dt) {
+		// implicit springs are handled by the solver
+		if (implicit)
+			return;
+		
 		//point on a 
 		Vector3 pra = a.toWorldNoTranslation(pa);
 		
@@ -123,4 +161,74 @@ public class SpringForce implements Force {
 		b.applyForce( prb, Ftotal.multiply(-1), dt);
 	}
 
+	@Override
+	public void applyConstraints(ListIterator<NCPConstraint> iterator, double dt) {
+		// explicit springs are applied as forces, and springs without coefficients do nothing
+		final double denominator = dt*force + damper;
+		if (!implicit || denominator <= 0)
+			return;
+		
+		// anchor points relative to the centres of mass, and the spring vector from a to b
+		Matrix3.multiply(a.state.rotation, pa, ra);
+		Matrix3.multiply(b.state.rotation, pb, rb);
+		x.assign(b.state.position.x + rb.x - a.state.position.x - ra.x,
+				b.state.position.y + rb.y - a.state.position.y - ra.y,
+				b.state.position.z + rb.z - a.state.position.z - ra.z);
+		
+		// keep the previous direction if the anchor points coincide
+		final double length = x.norm();
+		if (length > 1e-9)
+			n.assign(x.x/length, x.y/length, x.z/length);
+		
+		// jacobian of the velocity of a relative to b along the spring
+		Vector3.crossProduct(ra, n, j2);
+		j3.assign(-n.x, -n.y, -n.z);
+		Vector3.crossProduct(rb, j3, j4);
+		
+		// B = M^-1 J^T, zero for fixed bodies
+		if (a.isFixed()) {
+			b1.assignZero(); b2.assignZero();
+		} else {
+			Matrix3.multiply(a.state.inverseanisotropicmass, n, b1);
+			Matrix3.multiply(a.state.inverseinertia, j2, b2);
+		}
+		if (b.isFixed()) {
+			b3.assignZero(); b4.assignZero();
+		} else {
+			Matrix3.multiply(b.state.inverseanisotropicmass, j3, b3);
+			Matrix3.multiply(b.state.inverseinertia, j4, b4);
+		}
+		
+		// relative velocity along the spring
+		Vector3.crossProduct(a.state.omega, ra, t);
+		double u = n.x*(a.state.velocity.x+t.x) + n.y*(a.state.velocity.y+t.y) + n.z*(a.state.velocity.z+t.z);
+		Vector3.crossProduct(b.state.omega, rb, t);
+		u -= n.x*(b.state.velocity.x+t.x) + n.y*(b.state.velocity.y+t.y) + n.z*(b.state.velocity.z+t.z);
+		
+		// the impulse dt(-k e - d v), with e and v taken at the end of the time-step, gives the
+		// row u + damper lambda + k e/(dt k + d) = 0, where damper = 1/(dt(dt k + d))
+		final double deviation = equilibrium - length;
+		row.assign(a, b, 
+				b1, b2, b3, b4, 
+				n, j2, j3, j4, 
+				Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 
+				null, 
+				u + force*deviation/denominator, 0);
+		row.damper = 1/(dt*denominator);
+		
+		iterator.add(row);
+	}
+	
+	@Override
+	public Iterator<NCPConstraint> getNcpConstraints() {
+		if (implicit)
+			return Collections.singletonList(row).iterator();
+		return Collections.<NCPConstraint>emptyList().iterator();
+	}
+	
+	@Override
+	public Pair<Body> getBodies() {
+		return new Pair<Body>(a,b);
+	}
+
 }
@@ -0,0 +1,514 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics.solver;
+
+import java.util.List;
+
+import jinngine.math.Matrix3;
+import jinngine.math.Vector3;
+import jinngine.physics.Body;
+import jinngine.physics.solver.Solver.NCPConstraint;
+
+/**
+ * Exact, linear time solver for articulated structures, where bodies are connected by joints in a tree.
+ * Featherstone's articulated body algorithm achieves linear time by a recursion from the leaves towards
+ * the root of the tree, where the effective inertia of each subtree is propagated to its parent, followed by
+ * a pass from the root towards the leaves. This solver performs the same two recursions, but on the
+ * joint impulses in the maximal coordinates used by Jinngine, as described by Baraff in "Linear-Time Dynamics
+ * using Lagrange Multipliers", 1996. The system
+ * <p>
+ * | M  J^T | | x | = | 0 |  <br>
+ * | J  -D  | | y |   | r |
+ * <p>
+ * where x is the change in body velocities and y = -lambda, is factored along the tree formed by bodies
+ * and joints, with children eliminated before their parents, which gives no fill-in.
+ * <p>
+ * The solver accepts a range of NCP constraint rows, where consecutive rows between the same pair of
+ * bodies form a joint. Rows must be equality rows, with infinite bounds, or inactive rows, where both bounds
+ * are zero. With fixed bodies considered a single ground body, the joints and bodies must form a forest. If
+ * these conditions are not met, or the system is singular, solve() returns false and leaves everything
+ * untouched, so the rows can be given to an iterative solver instead.
+ */
+public final class ArticulatedBodySolver implements IslandSolver {
+
+	// node counts. Bodies are nodes 0..nb-1, joints are nodes nb..nb+nj-1
+	private int nb = 0, nj = 0;
+	private Body[] bodies = new Body[0];
+
+	// joints. Rows of joint j are rows[rowStart[j]..rowStart[j+1]-1], the bodies of a joint are in
+	// jointBody1 and jointBody2, with -1 for fixed bodies
+	private int[] rowStart = new int[1];
+	private int[] rows = new int[0];
+	private int[] jointBody1 = new int[0];
+	private int[] jointBody2 = new int[0];
+
+	// joints connected to each body, in compressed form
+	private int[] adjacencyStart = new int[1];
+	private int[] adjacency = new int[0];
+
+	// tree structure. Nodes in order, with children before parents, and the parent of each node
+	private int[] order = new int[0];
+	private int[] parent = new int[0];
+	private int[] stack = new int[0];
+	private boolean[] visited = new boolean[0];
+
+	// per node dimension, offset into the matrix storage and offset into the vector storage
+	private int[] dimension = new int[0];
+	private int[] matrixOffset = new int[0];
+	private int[] vectorOffset = new int[0];
+
+	// per node diagonal blocks D and their inverses, and vectors
+	private double[] D = new double[0];
+	private double[] Dinv = new double[0];
+	private double[] y = new double[0];
+	private double[] x = new double[0];
+
+	// scratch
+	private final double[] work = new double[6*12];
+	private final double[] block = new double[6*6];
+	private final double[] temp = new double[6*6];
+	private final Vector3 v = new Vector3();
+
+	// pivots smaller than this are considered singular
+	private static final double epsilon = 1e-12;
+
+	@Override
+	public final boolean solve( List<NCPConstraint> constraints, int from, int to ) {
+		if (!build(constraints, from, to))
+			return false;
+		if (!factor(constraints))
+			return false;
+
+		// inactive rows end with lambda = 0. Remove any initial lambda from the delta velocities
+		for (int i=from; i<to; i++) {
+			final NCPConstraint ci = constraints.get(i);
+			if (ci.lower == 0 && ci.upper == 0 && ci.lambda != 0) {
+				final double lambda = ci.lambda;
+				Vector3.add(ci.body1.deltavelocity, ci.b1.multiply(-lambda));
+				Vector3.add(ci.body1.deltaomega, ci.b2.multiply(-lambda));
+				Vector3.add(ci.body2.deltavelocity, ci.b3.multiply(-lambda));
+				Vector3.add(ci.body2.deltaomega, ci.b4.multiply(-lambda));
+				ci.lambda = 0;
+			}
+		}
+
+		solve(constraints);
+
+		// write back the solution
+		for (int i=0; i<nb; i++) {
+			final int o = vectorOffset[i];
+			final Body b = bodies[i];
+			b.deltavelocity.assign(b.deltavelocity.x+x[o], b.deltavelocity.y+x[o+1], b.deltavelocity.z+x[o+2]);
+			b.deltaomega.assign(b.deltaomega.x+x[o+3], b.deltaomega.y+x[o+4], b.deltaomega.z+x[o+5]);
+		}
+		for (int j=0; j<nj; j++) {
+			final int o = vectorOffset[nb+j];
+			for (int k=rowStart[j]; k<rowStart[j+1]; k++)
+				constraints.get(rows[k]).lambda -= x[o+k-rowStart[j]];
+		}
+
+		return true;
+	}
+
+	/**
+	 * Return true if the given row can be handled, which is when the row is an equality
+	 * row or an inactive row
+	 */
+	public static boolean isAccepted( NCPConstraint row ) {
+		return row.coupling == null
+		    && ((row.lower == Double.NEGATIVE_INFINITY && row.upper == Double.POSITIVE_INFINITY)
+		    || (row.lower == 0 && row.upper == 0));
+	}
+
+	// build joints, bodies and the tree. Return false if the rows do not form a forest
+	private boolean build( List<NCPConstraint> constraints, int from, int to ) {
+		nb = 0; nj = 0;
+		ensureJoints(to-from);
+
+		// group consecutive rows between the same pair of bodies into joints
+		Body previous1 = null, previous2 = null;
+		int count = 0;
+		for (int i=from; i<to; i++) {
+			final NCPConstraint ci = constraints.get(i);
+			if (!isAccepted(ci))
+				return false;
+
+			if (ci.body1 != previous1 || ci.body2 != previous2 || nj == 0) {
+				rowStart[nj] = count;
+				jointBody1[nj] = ci.body1.isFixed()? -1 : indexOf(ci.body1);
+				jointBody2[nj] = ci.body2.isFixed()? -1 : indexOf(ci.body2);
+				if (jointBody1[nj] == jointBody2[nj] && jointBody1[nj] >= 0)
+					return false;
+				nj++;
+				previous1 = ci.body1; previous2 = ci.body2;
+			}
+
+			// inactive rows are left out of the system
+			if (ci.lower == 0 && ci.upper == 0)
+				continue;
+			rows[count++] = i;
+		}
+		rowStart[nj] = count;
+
+		// remove joints without rows or without bodies
+		int k = 0;
+		for (int j=0; j<nj; j++) {
+			final int start = rowStart[j], end = rowStart[j+1];
+			if (end-start == 0 || (jointBody1[j] < 0 && jointBody2[j] < 0))
+				continue;
+			if (end-start > 6)
+				return false;
+			jointBody1[k] = jointBody1[j]; jointBody2[k] = jointBody2[j];
+			final int kstart = k == 0? 0 : rowStart[k];
+			System.arraycopy(rows, start, rows, kstart, end-start);
+			rowStart[k] = kstart;
+			rowStart[k+1] = kstart+end-start;
+			k++;
+		}
+		nj = k;
+
+		// joints connected to each body
+		final int n = nb+nj;
+		ensureNodes(n);
+		for (int i=0; i<=nb; i++)
+			adjacencyStart[i] = 0;
+		for (int j=0; j<nj; j++) {
+			if (jointBody1[j] >= 0) adjacencyStart[jointBody1[j]+1]++;
+			if (jointBody2[j] >= 0) adjacencyStart[jointBody2[j]+1]++;
+		}
+		for (int i=0; i<nb; i++)
+			adjacencyStart[i+1] += adjacencyStart[i];
+		if (adjacency.length < adjacencyStart[nb])
+			adjacency = new int[2*adjacencyStart[nb]];
+		for (int j=0; j<nj; j++) {
+			if (jointBody1[j] >= 0) adjacency[adjacencyStart[jointBody1[j]]++] = nb+j;
+			if (jointBody2[j] >= 0) adjacency[adjacencyStart[jointBody2[j]]++] = nb+j;
+		}
+		for (int i=nb; i>0; i--)
+			adjacencyStart[i] = adjacencyStart[i-1];
+		adjacencyStart[0] = 0;
+
+		// traverse the forest, starting from joints attached to the ground, then from any body
+		// not yet reached. The order is a pre-order, that is reversed afterwards
+		for (int i=0; i<n; i++)
+			visited[i] = false;
+		int ordered = 0;
+		for (int pass=0; pass<2; pass++) {
+			for (int root=0; root<n; root++) {
+				if (visited[root])
+					continue;
+				if (pass == 0 && !(root >= nb && (jointBody1[root-nb] < 0 || jointBody2[root-nb] < 0)))
+					continue;
+
+				int top = 0;
+				stack[top++] = root;
+				parent[root] = -1;
+				visited[root] = true;
+				while (top > 0) {
+					final int node = stack[--top];
+					order[ordered++] = node;
+					int children = 0;
+					if (node < nb) {
+						for (int a=adjacencyStart[node]; a<adjacencyStart[node+1]; a++) {
+							final int joint = adjacency[a];
+							if (joint == parent[node]) continue;
+							// a second path to a node, or a second ground joint, means a loop
+							if (visited[joint]) return false;
+							visited[joint] = true; parent[joint] = node; stack[top++] = joint;
+						}
+					} else {
+						final int j = node-nb;
+						for (int e=0; e<2; e++) {
+							final int body = e==0? jointBody1[j] : jointBody2[j];
+							if (body < 0 || body == parent[node]) continue;
+							if (visited[body]) return false;
+							visited[body] = true; parent[body] = node; stack[top++] = body;
+							children++;
+						}
+						// a joint without children gives a zero pivot. This happens for a second ground joint
+						if (children == 0)
+							return false;
+					}
+				}
+			}
+		}
+
+		// children before parents
+		for (int i=0, k2=ordered-1; i<k2; i++, k2--) {
+			final int t = order[i]; order[i] = order[k2]; order[k2] = t;
+		}
+
+		// storage layout
+		int mo = 0, vo = 0;
+		for (int i=0; i<n; i++) {
+			final int d = i < nb? 6 : rowStart[i-nb+1]-rowStart[i-nb];
+			dimension[i] = d;
+			matrixOffset[i] = mo; mo += d*d;
+			vectorOffset[i] = vo; vo += d;
+		}
+		if (D.length < mo) {
+			D = new double[2*mo];
+			Dinv = new double[D.length];
+		}
+		if (y.length < vo) {
+			y = new double[2*vo];
+			x = new double[y.length];
+		}
+
+		return true;
+	}
+
+	// factor the system along the tree. Return false if a pivot block is singular
+	private boolean factor( List<NCPConstraint> constraints ) {
+		// initial diagonal blocks, body mass matrices and joint damping
+		for (int i=0; i<nb; i++) {
+			final int o = matrixOffset[i];
+			final Matrix3 M = bodies[i].state.inverseanisotropicmass;
+			final Matrix3 I = bodies[i].state.inverseinertia;
+			for (int k=0; k<36; k++) block[k] = 0;
+			block[0]  = M.a11; block[1]  = M.a12; block[2]  = M.a13;
+			block[6]  = M.a21; block[7]  = M.a22; block[8]  = M.a23;
+			block[12] = M.a31; block[13] = M.a32; block[14] = M.a33;
+			block[21] = I.a11; block[22] = I.a12; block[23] = I.a13;
+			block[27] = I.a21; block[28] = I.a22; block[29] = I.a23;
+			block[33] = I.a31; block[34] = I.a32; block[35] = I.a33;
+			if (!invert(block, 6, D, o))
+				return false;
+		}
+		for (int j=0; j<nj; j++) {
+			final int node = nb+j, o = matrixOffset[node], d = dimension[node];
+			for (int k=0; k<d*d; k++) D[o+k] = 0;
+			for (int r=0; r<d; r++)
+				D[o+r*d+r] = -constraints.get(rows[rowStart[j]+r]).damper;
+		}
+
+		// eliminate children before parents
+		for (int k=0; k<nb+nj; k++) {
+			final int c = order[k];
+			final int dc = dimension[c];
+			for (int e=0; e<dc*dc; e++) block[e] = D[matrixOffset[c]+e];
+			if (!invert(block, dc, Dinv, matrixOffset[c]))
+				return false;
+
+			final int p = parent[c];
+			if (p < 0)
+				continue;
+
+			// D_p -= H_pc Dinv_c H_cp
+			final int dp = dimension[p];
+			coupling(constraints, p, c, block);  // dp x dc
+			multiply(block, dp, dc, Dinv, matrixOffset[c], dc, temp);  // dp x dc
+			final int op = matrixOffset[p];
+			for (int r=0; r<dp; r++)
+				for (int s=0; s<dp; s++) {
+					double sum = 0;
+					for (int t=0; t<dc; t++)
+						sum += temp[r*dc+t]*block[s*dc+t];
+					D[op+r*dp+s] -= sum;
+				}
+		}
+
+		return true;
+	}
+
+	// solve the factored system
+	private void solve( List<NCPConstraint> constraints ) {
+		// right hand side, zero for bodies, r = -(b + Fext + J dv + D lambda) for joint rows. The solution
+		// is the change of lambda relative to the current values, in line with the iterative solvers
+		for (int i=0; i<nb; i++)
+			for (int r=0; r<6; r++)
+				y[vectorOffset[i]+r] = 0;
+		for (int j=0; j<nj; j++) {
+			final int o = vectorOffset[nb+j];
+			for (int k=rowStart[j]; k<rowStart[j+1]; k++) {
+				final NCPConstraint ci = constraints.get(rows[k]);
+				final Body b1 = ci.body1, b2 = ci.body2;
+				v.assign(b1.deltavelocity); Vector3.add(v, b1.externaldeltavelocity);
+				double w = ci.j1.dot(v);
+				v.assign(b1.deltaomega); Vector3.add(v, b1.externaldeltaomega);
+				w += ci.j2.dot(v);
+				v.assign(b2.deltavelocity); Vector3.add(v, b2.externaldeltavelocity);
+				w += ci.j3.dot(v);
+				v.assign(b2.deltaomega); Vector3.add(v, b2.externaldeltaomega);
+				w += ci.j4.dot(v);
+				y[o+k-rowStart[j]] = -(ci.b + w + ci.damper*ci.lambda);
+			}
+		}
+
+		// forward pass, y_p -= H_pc Dinv_c y_c
+		for (int k=0; k<nb+nj; k++) {
+			final int c = order[k], p = parent[c];
+			if (p < 0) continue;
+			final int dc = dimension[c], dp = dimension[p];
+			final int oc = vectorOffset[c], mc = matrixOffset[c];
+			for (int r=0; r<dc; r++) {
+				double sum = 0;
+				for (int s=0; s<dc; s++)
+					sum += Dinv[mc+r*dc+s]*y[oc+s];
+				work[r] = sum;
+			}
+			coupling(constraints, p, c, block);
+			final int op = vectorOffset[p];
+			for (int r=0; r<dp; r++) {
+				double sum = 0;
+				for (int s=0; s<dc; s++)
+					sum += block[r*dc+s]*work[s];
+				y[op+r] -= sum;
+			}
+		}
+
+		// backward pass, x_c = Dinv_c (y_c - H_cp x_p)
+		for (int k=nb+nj-1; k>=0; k--) {
+			final int c = order[k], p = parent[c];
+			final int dc = dimension[c];
+			final int oc = vectorOffset[c], mc = matrixOffset[c];
+			for (int r=0; r<dc; r++)
+				work[r] = y[oc+r];
+			if (p >= 0) {
+				final int dp = dimension[p], op = vectorOffset[p];
+				coupling(constraints, p, c, block);
+				for (int r=0; r<dc; r++) {
+					double sum = 0;
+					for (int s=0; s<dp; s++)
+						sum += block[s*dc+r]*x[op+s];
+					work[r] -= sum;
+				}
+			}
+			for (int r=0; r<dc; r++) {
+				double sum = 0;
+				for (int s=0; s<dc; s++)
+					sum += Dinv[mc+r*dc+s]*work[s];
+				x[oc+r] = sum;
+			}
+		}
+	}
+
+	// the off diagonal block H_pc between parent p and child c, one of which is a body and the other a joint.
+	// The result is a dimension[p] by dimension[c] matrix
+	private void coupling( List<NCPConstraint> constraints, int p, int c, double[] result ) {
+		final boolean joint = p >= nb;
+		final int j = joint? p-nb : c-nb;
+		final int body = joint? c : p;
+		final int m = rowStart[j+1]-rowStart[j];
+		for (int r=0; r<m; r++) {
+			final NCPConstraint ci = constraints.get(rows[rowStart[j]+r]);
+			final boolean first = jointBody1[j] == body;
+			final Vector3 lin = first? ci.j1 : ci.j3;
+			final Vector3 ang = first? ci.j2 : ci.j4;
+			if (joint) {
+				// m x 6, the Jacobian block
+				final int o = r*6;
+				result[o] = lin.x; result[o+1] = lin.y; result[o+2] = lin.z;
+				result[o+3] = ang.x; result[o+4] = ang.y; result[o+5] = ang.z;
+			} else {
+				// 6 x m, the transposed Jacobian block
+				result[r] = lin.x; result[m+r] = lin.y; result[2*m+r] = lin.z;
+				result[3*m+r] = ang.x; result[4*m+r] = ang.y; result[5*m+r] = ang.z;
+			}
+		}
+	}
+
+	// C = A B, where A is n by m and B is m by m, stored at offset ob
+	private static void multiply( double[] A, int n, int m, double[] B, int ob, int ld, double[] C ) {
+		for (int r=0; r<n; r++)
+			for (int s=0; s<m; s++) {
+				double sum = 0;
+				for (int t=0; t<m; t++)
+					sum += A[r*m+t]*B[ob+t*ld+s];
+				C[r*m+s] = sum;
+			}
+	}
+
+	// invert the n by n matrix a, which is overwritten, into result at the given offset. Gauss-Jordan
+	// elimination with partial pivoting. Return false if the matrix is singular
+	private boolean invert( double[] a, int n, double[] result, int offset ) {
+		for (int r=0; r<n; r++)
+			for (int s=0; s<n; s++)
+				result[offset+r*n+s] = r==s? 1 : 0;
+
+		double scale = 0;
+		for (int k=0; k<n*n; k++) scale = Math.max(scale, Math.abs(a[k]));
+		if (scale == 0)
+			return false;
+
+		for (int col=0; col<n; col++) {
+			// pivot
+			int pivot = col;
+			for (int r=col+1; r<n; r++)
+				if (Math.abs(a[r*n+col]) > Math.abs(a[pivot*n+col])) pivot = r;
+			if (Math.abs(a[pivot*n+col]) <= epsilon*scale)
+				return false;
+			if (pivot != col) {
+				for (int s=0; s<n; s++) {
+					double t = a[col*n+s]; a[col*n+s] = a[pivot*n+s]; a[pivot*n+s] = t;
+					t = result[offset+col*n+s]; result[offset+col*n+s] = result[offset+pivot*n+s]; result[offset+pivot*n+s] = t;
+				}
+			}
+
+			// normalise pivot row
+			final double inv = 1/a[col*n+col];
+			for (int s=0; s<n; s++) {
+				a[col*n+s] *= inv;
+				result[offset+col*n+s] *= inv;
+			}
+
+			// eliminate other rows
+			for (int r=0; r<n; r++) {
+				if (r == col) continue;
+				final double f = a[r*n+col];
+				if (f == 0) continue;
+				for (int s=0; s<n; s++) {
+					a[r*n+s] -= f*a[col*n+s];
+					result[offset+r*n+s] -= f*result[offset+col*n+s];
+				}
+			}
+		}
+		return true;
+	}
+
+	// return the index of the given body, adding it if not already present
+	private int indexOf( final Body body ) {
+		final int k = body.index;
+		if (k >= 0 && k < nb && bodies[k] == body)
+			return k;
+		if (nb >= bodies.length) {
+			final Body[] newbodies = new Body[Math.max(16, bodies.length*2)];
+			System.arraycopy(bodies, 0, newbodies, 0, nb);
+			bodies = newbodies;
+		}
+		bodies[nb] = body;
+		body.index = nb;
+		return nb++;
+	}
+
+	private void ensureJoints( int m ) {
+		if (rows.length >= m)
+			return;
+		final int capacity = Math.max(m, rows.length*2);
+		rows = new int[capacity];
+		rowStart = new int[capacity+1];
+		jointBody1 = new int[capacity];
+		jointBody2 = new int[capacity];
+	}
+
+	private void ensureNodes( int n ) {
+		if (adjacencyStart.length < nb+1)
+			adjacencyStart = new int[Math.max(nb+1, 2*adjacencyStart.length)];
+		if (order.length >= n)
+			return;
+		final int capacity = Math.max(n, order.length*2);
+		order = new int[capacity];
+		parent = new int[capacity];
+		stack = new int[capacity];
+		visited = new boolean[capacity];
+		dimension = new int[capacity];
+		matrixOffset = new int[capacity];
+		vectorOffset = new int[capacity];
+	}
+}
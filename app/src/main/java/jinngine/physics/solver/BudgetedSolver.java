@@ -0,0 +1,40 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics.solver;
+
+import java.util.List;
+
+import jinngine.physics.Body;
+
+/**
+ * A {@link Solver} that can solve under a time budget. Iterations stop when the residual target is 
+ * reached, when the maximum number of iterations is performed, or when the time budget is used up. The 
+ * clock is only checked every few iterations, so the budget can be overrun by a few iterations. The solver
+ * keeps the iterate with the smallest residual seen at the clock checks, and returns that iterate if 
+ * the last one is worse.
+ */
+public interface BudgetedSolver extends Solver {
+
+	/**
+	 * Solve the NCP given by the constraints within the given time budget
+	 * @param constraints list of constraints
+	 * @param bodies list of bodies 
+	 * @param epsilon residual target
+	 * @param budget time budget in nanoseconds
+	 * @param result receives the number of iterations, the residual and the time used
+	 * @return the result argument
+	 */
+	public SolverResult solve(List<NCPConstraint> constraints, List<Body> bodies, double epsilon, long budget, SolverResult result);
+	
+	/**
+	 * Set the number of iterations between checks of the clock
+	 * @param n a positive number of iterations
+	 */
+	public void setClockInterval(int n);
+}
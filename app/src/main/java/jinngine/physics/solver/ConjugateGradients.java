@@ -16,8 +16,10 @@ import jinngine.physics.Body;
  * Preconditioned Conjugate Gradients solver. Solves the given list of constraints, 
  * as if they described a plain symmetric linear system of equations, not a NCP problem. 
  * Phased in another way, CG can solve the NCP, if l=-infinity and u=infinity for all constraints.
+ * Rows with a vanishing diagonal are singular, and are left unchanged. 
  */
 public class ConjugateGradients implements Solver {
+	// maximum iterations, or 0 to use the number of constraints
 	int maxIterations = 0;
 
 	@Override
@@ -27,7 +29,7 @@ public class ConjugateGradients implements Solver {
 
 	@Override
 	public double solve(List<NCPConstraint> constraints, List<Body> bodies, double epsilon) {
-		maxIterations = constraints.size();
+		final int maxIterations = this.maxIterations > 0? this.maxIterations : constraints.size();
 		//System.out.println("*) CG "+ n+"x" + n+" system");
 		
 		//Conjugate Gradients
@@ -54,13 +56,13 @@ public class ConjugateGradients implements Solver {
 						- ci.j3.dot(ci.body2.deltavelocity.add(ci.body2.externaldeltavelocity)) - ci.j4.dot(ci.body2.deltaomega.add(ci.body2.externaldeltaomega))
 						- ci.lambda*ci.damper;
 							
-			//d = M^-1 r
-			ci.d = ci.residual / (ci.diagonal+ci.damper);
-			
-			//TODO remove
-			if (Math.abs(ci.diagonal)<1e-13) {
-				System.exit(0);
+			// singular rows are kept out of the system
+			if (Math.abs(ci.diagonal+ci.damper)<1e-13) {
+				ci.residual = 0;
 			}
+			
+			//d = M^-1 r
+			ci.d = preconditioner(ci)*ci.residual;
 
 			//reflect d in the delta velocities
 			Vector3.add( ci.body1.auxDeltav,     ci.b1.multiply(ci.d));
@@ -115,7 +117,7 @@ public class ConjugateGradients implements Solver {
 				ci.residual -= alpha*ci.q;
 				
 				//s = M^(-1) r
-				ci.s = ci.residual / (ci.diagonal+ci.damper);
+				ci.s = preconditioner(ci)*ci.residual;
 								
 				//delta_new = rTs
 				delta_new += ci.residual*ci.s;
@@ -201,5 +203,11 @@ public class ConjugateGradients implements Solver {
 		
 		return (iterations+1);
 	}
+	
+	// Jacobi preconditioner, zero for singular rows
+	private static double preconditioner( NCPConstraint ci ) {
+		final double diagonal = ci.diagonal+ci.damper;
+		return Math.abs(diagonal)<1e-13? 0 : 1/diagonal;
+	}
 
 }
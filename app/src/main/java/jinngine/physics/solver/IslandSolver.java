@@ -0,0 +1,27 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics.solver;
+
+import java.util.List;
+
+import jinngine.physics.solver.Solver.NCPConstraint;
+
+/**
+ * A solver for a single island of constraint rows, which only accepts some kinds of problems. Islands 
+ * that are not accepted are left untouched, and can be given to a general {@link Solver} instead.
+ */
+public interface IslandSolver {
+	
+	/**
+	 * Solve the rows constraints[from..to-1], if accepted by this solver. On success, the lambda values 
+	 * of the rows are set, and the delta velocities of the bodies are updated.
+	 * @return true if the rows were solved, false if the rows are not accepted by this solver
+	 */
+	public boolean solve( List<NCPConstraint> constraints, int from, int to );
+}
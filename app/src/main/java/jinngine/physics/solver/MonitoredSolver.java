@@ -0,0 +1,20 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics.solver;
+
+/**
+ * A {@link Solver} reporting its convergence to a {@link SolverMonitor}
+ */
+public interface MonitoredSolver extends Solver {
+	
+	/**
+	 * Set the monitor to receive convergence information, or null to disable monitoring
+	 */
+	public void setMonitor(SolverMonitor monitor);
+}
@@ -13,8 +13,9 @@ import java.util.List;
 import jinngine.math.Vector3;
 import jinngine.physics.Body;
 
-public class NonsmoothNonlinearConjugateGradient implements Solver {
+public class NonsmoothNonlinearConjugateGradient implements MonitoredSolver {
 	int max = 10000;
+	private SolverMonitor monitor = null;
 	private final double eps = 1e-7;
 	
 	public double[] pgsiters = new double[max];
@@ -22,8 +23,16 @@ public class NonsmoothNonlinearConjugateGradient implements Solver {
 	
 	@Override
 	public void setMaximumIterations(int n) {
-	//	max =n;
+		this.max = n;
+		if (pgsiters.length < n) {
+			pgsiters = new double[n];
+			errors = new double[n];
+		}
+	}
 
+	@Override
+	public void setMonitor(SolverMonitor monitor) {
+		this.monitor = monitor;
 	}
 
 	public NonsmoothNonlinearConjugateGradient(int n ) {
@@ -42,6 +51,7 @@ public class NonsmoothNonlinearConjugateGradient implements Solver {
 		double beta= 0;		
 		int iter = 0;
 		int restarts = 0;
+		if (monitor != null) monitor.begin(constraints.size());
 		
 		
 		// compute external force contribution, clear direction and residual, compute b vector norm
@@ -79,6 +89,7 @@ public class NonsmoothNonlinearConjugateGradient implements Solver {
 			}
 			
 			rold = rnew; rnew = 0;
+			double change = 0;
 			
 			// use one PGS iteration to compute new residual 
 			for (NCPConstraint ci: constraints) {
@@ -138,8 +149,11 @@ public class NonsmoothNonlinearConjugateGradient implements Solver {
 //				}
 				
 				ci.residual = deltaLambda;
+				change += (alpha+deltaLambda)*(alpha+deltaLambda);
 			} //for constraints	
 
+			if (monitor != null) monitor.iteration(iter, rnew, restarts, Math.sqrt(change));
+
 			if (Math.abs(rnew) < epsilon) {
 				break;
 			}	
@@ -180,15 +194,19 @@ public class NonsmoothNonlinearConjugateGradient implements Solver {
 		} // while true
 //		System.out.println("rnew="+rnew+", iters="+iter);
 		
-		// scale lambda in the bnorm. This is unnecessary if bnorm is set to 1
+		// scale lambda and the delta velocities in the bnorm, so lambda is the impulse applied to the 
+		// bodies. This is unnecessary if bnorm is set to 1
 		for (NCPConstraint ci: constraints) {
 			final double factor = (bnorm-1)*ci.lambda;
 			Vector3.add( ci.body1.deltavelocity, ci.b1.multiply(factor));
 			Vector3.add( ci.body1.deltaomega, ci.b2.multiply(factor));
 			Vector3.add( ci.body2.deltavelocity, ci.b3.multiply(factor));
 			Vector3.add( ci.body2.deltaomega, ci.b4.multiply(factor));
+			ci.lambda *= bnorm;
 		}
 		
+		if (monitor != null) monitor.end(iter, rnew);
+		
 		
 		return 0;
 	}
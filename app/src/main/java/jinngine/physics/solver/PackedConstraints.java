@@ -0,0 +1,561 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics.solver;
+
+import java.util.Arrays;
+import java.util.List;
+
+import jinngine.math.Vector3;
+import jinngine.physics.Body;
+import jinngine.physics.solver.Solver.NCPConstraint;
+
+/**
+ * Flat array representation of a list of {@link NCPConstraint} rows and the bodies they act on. Each row
+ * stores its 1 by 12 Jacobian and its 12 by 1 B matrix contiguously in the arrays J and B, while bodies
+ * are referred to by integer indices. The delta velocities of body i are stored in dv[6i..6i+5], linear
+ * velocity first. Solvers iterate these arrays instead of following references through NCPConstraint and
+ * Body instances, which keeps the inner loops free of allocations and pointer chasing.
+ * <p>
+ * Arrays are grown when needed and reused between calls to pack(), so packing a problem of the same or
+ * smaller size as a previous one does not allocate. The index fields of NCPConstraint and Body are
+ * overwritten during packing.
+ * <p>
+ * If block solving is enabled, up to three consecutive equality rows acting on the same pair of bodies, 
+ * such as the point constraint rows of a joint, are grouped into a block. The size of the block starting
+ * at row i is stored in blockSize[i], and the inverse of its 3 by 3 matrix A = J B + D in blockInverse[9i..9i+8].
+ * Solvers can then solve each block exactly, instead of one row at a time. Rows not in a block have size 1. 
+ * <p>
+ * In single precision mode, the Jacobians, the B matrices and the delta velocities are stored as floats in the
+ * arrays Jf, Bf and dvf, instead of J, B and dv, which halves the memory traffic of the solver loops. Products are
+ * still accumulated in double precision, and lambda values and bounds are kept in double precision. Only solvers 
+ * accessing the rows through the operations of precision() support single precision.
+ */
+public final class PackedConstraints {
+
+	/** Number of rows */
+	int n = 0;
+	/** Number of bodies */
+	int nb = 0;
+
+	// row data
+	double[] J = new double[0];
+	double[] B = new double[0];
+	double[] lower = new double[0];
+	double[] upper = new double[0];
+	double[] b = new double[0];
+	double[] fext = new double[0];
+	double[] diagonal = new double[0];
+	double[] damper = new double[0];
+	double[] mu = new double[0];
+	double[] lambda = new double[0];
+	int[] body1 = new int[0];
+	int[] body2 = new int[0];
+	int[] coupling = new int[0];
+
+	// blocks
+	int[] blockSize = new int[0];
+	double[] blockInverse = new double[0];
+	private boolean blockSolving = false;
+
+	// zero the B columns of fixed bodies
+	private boolean fixedBodiesUnchanged = false;
+
+	// body data
+	double[] dv = new double[0];
+	Body[] bodies = new Body[0];
+
+	// single precision storage
+	private boolean single = false;
+	float[] Jf = new float[0];
+	float[] Bf = new float[0];
+	float[] dvf = new float[0];
+	private float[] savedDvf = new float[0];
+
+	// row operations for each precision, and the one selected by pack()
+	private final Precision doublePrecision = new DoublePrecision();
+	private final Precision singlePrecision = new SinglePrecision();
+	private Precision precision = doublePrecision;
+
+	// saved iterate
+	private double[] savedLambda = new double[0];
+	private double[] savedDv = new double[0];
+
+	// scratch
+	private final double[] block = new double[9];
+
+	/**
+	 * Pack the given constraints and bodies into the flat arrays. Bodies referenced by the constraints,
+	 * but not present in the body list, are added as well. The current delta velocities of the bodies
+	 * are copied, and the lambda values of the constraints are used as initial values. A constraint may be
+ * coupled to a constraint that is not in the list, for instance a friction row whose normal row is solved
+ * elsewhere. The coupled lambda is then constant during solving, as it is for the unpacked solvers, and
+ * the bounds of the constraint are fixed to the friction bounds given by the current coupled lambda.
+	 * @param constraints list of constraints
+	 * @param bodylist list of bodies
+	 */
+	public final void pack( List<NCPConstraint> constraints, List<Body> bodylist ) {
+		precision = single? singlePrecision : doublePrecision;
+		nb = 0;
+		for (int i=0, m=bodylist.size(); i<m; i++)
+			indexOf(bodylist.get(i));
+
+		n = constraints.size();
+		ensureRows(n);
+		ensureJacobians(n);
+
+		// assign row indices first, coupled rows may appear after the rows referring to them
+		for (int i=0; i<n; i++)
+			constraints.get(i).index = i;
+
+		for (int i=0; i<n; i++) {
+			final NCPConstraint ci = constraints.get(i);
+			final int j = 12*i;
+			if (single) {
+				put(ci.j1, Jf, j); put(ci.j2, Jf, j+3); put(ci.j3, Jf, j+6); put(ci.j4, Jf, j+9);
+				put(ci.b1, Bf, j); put(ci.b2, Bf, j+3); put(ci.b3, Bf, j+6); put(ci.b4, Bf, j+9);
+			} else {
+				put(ci.j1, J, j); put(ci.j2, J, j+3); put(ci.j3, J, j+6); put(ci.j4, J, j+9);
+				put(ci.b1, B, j); put(ci.b2, B, j+3); put(ci.b3, B, j+6); put(ci.b4, B, j+9);
+			}
+
+			final int o1 = 6*(body1[i] = indexOf(ci.body1));
+			final int o2 = 6*(body2[i] = indexOf(ci.body2));
+
+			// fixed bodies may be shared by rows that are updated at the same time, so they must never be changed
+			if (fixedBodiesUnchanged) {
+				if (ci.body1.isFixed()) clearB(j);
+				if (ci.body2.isFixed()) clearB(j+6);
+			}
+
+			lower[i] = ci.lower;
+			upper[i] = ci.upper;
+			coupling[i] = -1;
+			if (ci.coupling != null) {
+				final int c = ci.coupling.index;
+				if ( c >= 0 && c < n && constraints.get(c) == ci.coupling) {
+					coupling[i] = c;
+				} else {
+					// the coupled constraint is not solved, so its lambda is constant and the bounds are fixed
+					lower[i] = -Math.abs(ci.coupling.lambda)*ci.coupling.mu;
+					upper[i] =  Math.abs(ci.coupling.lambda)*ci.coupling.mu;
+				}
+			}
+
+			// external force contribution
+			final Body a = bodies[o1/6], c = bodies[o2/6];
+			fext[i] = ci.j1.dot(a.externaldeltavelocity)
+			+ ci.j2.dot(a.externaldeltaomega)
+			+ ci.j3.dot(c.externaldeltavelocity)
+			+ ci.j4.dot(c.externaldeltaomega);
+
+			b[i] = ci.b;
+			diagonal[i] = ci.diagonal;
+			damper[i] = ci.damper;
+			mu[i] = ci.mu;
+			lambda[i] = ci.lambda;
+		}
+
+		// group rows into blocks
+		for (int i=0; i<n; ) {
+			int k = 1;
+			if (blockSolving && isEquality(i)) {
+				while (k < 3 && i+k < n && isEquality(i+k) && body1[i+k] == body1[i] && body2[i+k] == body2[i])
+					k++;
+				while (k > 1 && !invertBlock(i, k))
+					k--;
+			}
+			blockSize[i] = k;
+			for (int r=1; r<k; r++)
+				blockSize[i+r] = 0;
+			i += k;
+		}
+	}
+
+	/**
+	 * Enable or disable grouping of rows into blocks in the following calls to pack()
+	 */
+	public final void setBlockSolving( boolean enabled ) {
+		this.blockSolving = enabled;
+	}
+
+	public final boolean isBlockSolving() {
+		return blockSolving;
+	}
+
+	/**
+	 * Enable or disable zeroing of the B matrix columns of fixed bodies in the following calls to pack(). 
+	 * When enabled, applying a row never changes the delta velocity of a fixed body, which allows a solver 
+	 * to apply rows sharing only a fixed body concurrently. This is disabled by default, where the given 
+	 * B matrices are used as they are.
+	 */
+	public final void setFixedBodiesUnchanged( boolean enabled ) {
+		this.fixedBodiesUnchanged = enabled;
+	}
+
+	public final boolean isFixedBodiesUnchanged() {
+		return fixedBodiesUnchanged;
+	}
+
+	/**
+	 * Enable or disable single precision storage in the following calls to pack()
+	 */
+	public final void setSinglePrecision( boolean enabled ) {
+		this.single = enabled;
+	}
+
+	public final boolean isSinglePrecision() {
+		return single;
+	}
+
+	/**
+	 * Write the lambda values and bounds back into the given constraints, and the delta velocities back
+	 * into the bodies. The constraint list must be the one given to the latest call to pack()
+	 * @param constraints list of constraints
+	 */
+	public final void unpack( List<NCPConstraint> constraints ) {
+		for (int i=0; i<n; i++) {
+			final NCPConstraint ci = constraints.get(i);
+			ci.lambda = lambda[i];
+			ci.lower = lower[i];
+			ci.upper = upper[i];
+		}
+
+		for (int i=0; i<nb; i++) {
+			final int o = 6*i;
+			if (single) {
+				bodies[i].deltavelocity.assign(dvf[o], dvf[o+1], dvf[o+2]);
+				bodies[i].deltaomega.assign(dvf[o+3], dvf[o+4], dvf[o+5]);
+			} else {
+				bodies[i].deltavelocity.assign(dv[o], dv[o+1], dv[o+2]);
+				bodies[i].deltaomega.assign(dv[o+3], dv[o+4], dv[o+5]);
+			}
+		}
+	}
+
+	/**
+	 * Save the current lambda values and delta velocities, to be restored later by restore()
+	 */
+	public final void save() {
+		if (savedLambda.length < n)
+			savedLambda = new double[lambda.length];
+		System.arraycopy(lambda, 0, savedLambda, 0, n);
+		if (single) {
+			if (savedDvf.length < 6*nb)
+				savedDvf = new float[dvf.length];
+			System.arraycopy(dvf, 0, savedDvf, 0, 6*nb);
+		} else {
+			if (savedDv.length < 6*nb)
+				savedDv = new double[dv.length];
+			System.arraycopy(dv, 0, savedDv, 0, 6*nb);
+		}
+	}
+
+	/**
+	 * Restore the lambda values and delta velocities stored by the latest call to save(). 
+	 */
+	public final void restore() {
+		System.arraycopy(savedLambda, 0, lambda, 0, n);
+		if (single)
+			System.arraycopy(savedDvf, 0, dvf, 0, 6*nb);
+		else
+			System.arraycopy(savedDv, 0, dv, 0, 6*nb);
+	}
+
+	/**
+	 * Get the number of packed rows
+	 */
+	public final int getNumberOfRows() {
+		return n;
+	}
+
+	/**
+	 * Get the number of packed bodies
+	 */
+	public final int getNumberOfBodies() {
+		return nb;
+	}
+
+	/**
+	 * Get the row operations for the precision selected by the latest call to pack(). Solvers obtain 
+	 * these once before iterating, so the row loops do not test the precision
+	 */
+	final Precision precision() {
+		return precision;
+	}
+
+	/**
+	 * Row operations on the Jacobians, B matrices and delta velocities, stored in one precision
+	 */
+	abstract class Precision {
+		/**
+		 * Compute J_i dv for row i
+		 */
+		abstract double velocity( int i );
+
+		/**
+		 * Add B_i deltaLambda to the delta velocities, for row i
+		 */
+		abstract void apply( int i, double deltaLambda );
+
+		/**
+		 * Get the k'th packed delta velocity, where body i has entries 6i..6i+5
+		 */
+		abstract double getVelocity( int k );
+
+		/**
+		 * Add a value to the k'th packed delta velocity
+		 */
+		abstract void addVelocity( int k, double value );
+
+		/**
+		 * Copy all packed delta velocities into the given array
+		 */
+		abstract void copyVelocities( double[] target );
+
+		// the product J_r B_s^T of rows r and s
+		abstract double product( int r, int s );
+
+		/**
+		 * Solve the block starting at row i exactly, and apply the change in lambda to the delta velocities.
+		 * The right hand side of row i+r is given by rhs[r], with w = J dv + lambda damper + rhs, so that 
+		 * the change is -A^-1 w. The change is stored in delta. 
+		 */
+		final void solveBlock( final int i, final int k, final double[] rhs, final double[] delta ) {
+			final double[] inverse = blockInverse, lambda = PackedConstraints.this.lambda, damper = PackedConstraints.this.damper;
+			final int o = 9*i;
+			for (int r=0; r<k; r++)
+				rhs[r] += velocity(i+r) + lambda[i+r]*damper[i+r];
+			for (int r=0; r<k; r++) {
+				double sum = 0;
+				for (int s=0; s<k; s++)
+					sum += inverse[o+3*r+s]*rhs[s];
+				delta[r] = -sum;
+			}
+			for (int r=0; r<k; r++) {
+				lambda[i+r] += delta[r];
+				apply(i+r, delta[r]);
+			}
+		}
+	}
+
+	// rows stored in J, B and dv
+	private final class DoublePrecision extends Precision {
+		@Override
+		final double velocity( final int i ) {
+			final double[] J = PackedConstraints.this.J, dv = PackedConstraints.this.dv;
+			final int j = 12*i, o1 = 6*body1[i], o2 = 6*body2[i];
+			return (J[j]*dv[o1]     + J[j+1]*dv[o1+1]  + J[j+2]*dv[o1+2])
+			     + (J[j+3]*dv[o1+3] + J[j+4]*dv[o1+4]  + J[j+5]*dv[o1+5])
+			     + (J[j+6]*dv[o2]   + J[j+7]*dv[o2+1]  + J[j+8]*dv[o2+2])
+			     + (J[j+9]*dv[o2+3] + J[j+10]*dv[o2+4] + J[j+11]*dv[o2+5]);
+		}
+
+		@Override
+		final void apply( final int i, final double deltaLambda ) {
+			final double[] B = PackedConstraints.this.B, dv = PackedConstraints.this.dv;
+			final int j = 12*i, o1 = 6*body1[i], o2 = 6*body2[i];
+			dv[o1]   += B[j]*deltaLambda;    dv[o1+1] += B[j+1]*deltaLambda;  dv[o1+2] += B[j+2]*deltaLambda;
+			dv[o1+3] += B[j+3]*deltaLambda;  dv[o1+4] += B[j+4]*deltaLambda;  dv[o1+5] += B[j+5]*deltaLambda;
+			dv[o2]   += B[j+6]*deltaLambda;  dv[o2+1] += B[j+7]*deltaLambda;  dv[o2+2] += B[j+8]*deltaLambda;
+			dv[o2+3] += B[j+9]*deltaLambda;  dv[o2+4] += B[j+10]*deltaLambda; dv[o2+5] += B[j+11]*deltaLambda;
+		}
+
+		@Override
+		final double getVelocity( final int k ) {
+			return dv[k];
+		}
+
+		@Override
+		final void addVelocity( final int k, final double value ) {
+			dv[k] += value;
+		}
+
+		@Override
+		final void copyVelocities( final double[] target ) {
+			System.arraycopy(dv, 0, target, 0, 6*nb);
+		}
+
+		@Override
+		final double product( final int r, final int s ) {
+			double sum = 0;
+			for (int t=0; t<12; t++)
+				sum += J[12*r+t]*B[12*s+t];
+			return sum;
+		}
+	}
+
+	// rows stored in Jf, Bf and dvf, with products accumulated in double precision
+	private final class SinglePrecision extends Precision {
+		@Override
+		final double velocity( final int i ) {
+			final float[] J = Jf, dv = dvf;
+			final int j = 12*i, o1 = 6*body1[i], o2 = 6*body2[i];
+			return ((double)J[j]*dv[o1]   + (double)J[j+1]*dv[o1+1]  + (double)J[j+2]*dv[o1+2])
+			     + ((double)J[j+3]*dv[o1+3] + (double)J[j+4]*dv[o1+4]  + (double)J[j+5]*dv[o1+5])
+			     + ((double)J[j+6]*dv[o2]   + (double)J[j+7]*dv[o2+1]  + (double)J[j+8]*dv[o2+2])
+			     + ((double)J[j+9]*dv[o2+3] + (double)J[j+10]*dv[o2+4] + (double)J[j+11]*dv[o2+5]);
+		}
+
+		@Override
+		final void apply( final int i, final double deltaLambda ) {
+			final float[] B = Bf, dv = dvf;
+			final int j = 12*i, o1 = 6*body1[i], o2 = 6*body2[i];
+			dv[o1]   += B[j]*deltaLambda;    dv[o1+1] += B[j+1]*deltaLambda;  dv[o1+2] += B[j+2]*deltaLambda;
+			dv[o1+3] += B[j+3]*deltaLambda;  dv[o1+4] += B[j+4]*deltaLambda;  dv[o1+5] += B[j+5]*deltaLambda;
+			dv[o2]   += B[j+6]*deltaLambda;  dv[o2+1] += B[j+7]*deltaLambda;  dv[o2+2] += B[j+8]*deltaLambda;
+			dv[o2+3] += B[j+9]*deltaLambda;  dv[o2+4] += B[j+10]*deltaLambda; dv[o2+5] += B[j+11]*deltaLambda;
+		}
+
+		@Override
+		final double getVelocity( final int k ) {
+			return dvf[k];
+		}
+
+		@Override
+		final void addVelocity( final int k, final double value ) {
+			dvf[k] += value;
+		}
+
+		@Override
+		final void copyVelocities( final double[] target ) {
+			final float[] dv = dvf;
+			for (int k=0, m=6*nb; k<m; k++)
+				target[k] = dv[k];
+		}
+
+		@Override
+		final double product( final int r, final int s ) {
+			double sum = 0;
+			for (int t=0; t<12; t++)
+				sum += (double)Jf[12*r+t]*Bf[12*s+t];
+			return sum;
+		}
+	}
+
+	// true if row i is an equality row, without bounds or coupling
+	private boolean isEquality( final int i ) {
+		return lower[i] == Double.NEGATIVE_INFINITY && upper[i] == Double.POSITIVE_INFINITY && coupling[i] < 0;
+	}
+
+	// compute the inverse of the k by k block matrix at row i. Return false if the block is near singular
+	private boolean invertBlock( final int i, final int k ) {
+		final double[] a = this.block;
+
+		// A = J B + D, padded with the identity for blocks smaller than 3 by 3
+		double scale = 0;
+		for (int r=0; r<3; r++)
+			for (int s=0; s<3; s++) {
+				if (r < k && s < k) {
+					double sum = r==s? damper[i+r] : 0;
+					sum += precision.product(i+r, i+s);
+					a[3*r+s] = sum;
+					scale = Math.max(scale, Math.abs(sum));
+				} else {
+					a[3*r+s] = r==s? 1 : 0;
+				}
+			}
+
+		// cofactors and determinant
+		final double c11 = a[4]*a[8]-a[5]*a[7], c12 = a[5]*a[6]-a[3]*a[8], c13 = a[3]*a[7]-a[4]*a[6];
+		final double det = a[0]*c11 + a[1]*c12 + a[2]*c13;
+		if (Math.abs(det) <= 1e-9*Math.pow(scale, k))
+			return false;
+
+		final double inv = 1/det;
+		final double[] result = this.blockInverse;
+		final int o = 9*i;
+		result[o]   = c11*inv; result[o+1] = (a[2]*a[7]-a[1]*a[8])*inv; result[o+2] = (a[1]*a[5]-a[2]*a[4])*inv;
+		result[o+3] = c12*inv; result[o+4] = (a[0]*a[8]-a[2]*a[6])*inv; result[o+5] = (a[2]*a[3]-a[0]*a[5])*inv;
+		result[o+6] = c13*inv; result[o+7] = (a[1]*a[6]-a[0]*a[7])*inv; result[o+8] = (a[0]*a[4]-a[1]*a[3])*inv;
+		return true;
+	}
+
+	// return the index of the given body, adding it if not already packed
+	private int indexOf( final Body body ) {
+		final int k = body.index;
+		if (k >= 0 && k < nb && bodies[k] == body)
+			return k;
+
+		// grow body arrays
+		if (nb >= bodies.length) {
+			final int capacity = Math.max(16, bodies.length*2);
+			final Body[] newbodies = new Body[capacity];
+			System.arraycopy(bodies, 0, newbodies, 0, nb);
+			bodies = newbodies;
+		}
+
+		final int o = 6*nb;
+		if (single) {
+			if (o+6 > dvf.length)
+				dvf = Arrays.copyOf(dvf, 6*bodies.length);
+			dvf[o]   = (float)body.deltavelocity.x; dvf[o+1] = (float)body.deltavelocity.y; dvf[o+2] = (float)body.deltavelocity.z;
+			dvf[o+3] = (float)body.deltaomega.x;    dvf[o+4] = (float)body.deltaomega.y;    dvf[o+5] = (float)body.deltaomega.z;
+		} else {
+			if (o+6 > dv.length)
+				dv = Arrays.copyOf(dv, 6*bodies.length);
+			dv[o]   = body.deltavelocity.x; dv[o+1] = body.deltavelocity.y; dv[o+2] = body.deltavelocity.z;
+			dv[o+3] = body.deltaomega.x;    dv[o+4] = body.deltaomega.y;    dv[o+5] = body.deltaomega.z;
+		}
+		bodies[nb] = body;
+		body.index = nb;
+		return nb++;
+	}
+
+	// make room for at least m rows
+	private void ensureRows( final int m ) {
+		if (m <= lambda.length)
+			return;
+
+		final int capacity = Math.max(m, lambda.length*2);
+		lower = new double[capacity];
+		upper = new double[capacity];
+		b = new double[capacity];
+		fext = new double[capacity];
+		diagonal = new double[capacity];
+		damper = new double[capacity];
+		mu = new double[capacity];
+		lambda = new double[capacity];
+		body1 = new int[capacity];
+		body2 = new int[capacity];
+		coupling = new int[capacity];
+		blockSize = new int[capacity];
+		blockInverse = new double[9*capacity];
+	}
+
+	// make room for the Jacobians and B matrices of m rows, in the current precision
+	private void ensureJacobians( final int m ) {
+		if (single) {
+			if (12*m > Jf.length) {
+				Jf = new float[12*lambda.length];
+				Bf = new float[12*lambda.length];
+			}
+		} else {
+			if (12*m > J.length) {
+				J = new double[12*lambda.length];
+				B = new double[12*lambda.length];
+			}
+		}
+	}
+
+	// zero the six B entries of one body of a row, starting at i
+	private void clearB( final int i ) {
+		if (single)
+			Arrays.fill(Bf, i, i+6, 0);
+		else
+			Arrays.fill(B, i, i+6, 0);
+	}
+
+	private static void put( final Vector3 v, final double[] a, final int i ) {
+		a[i] = v.x; a[i+1] = v.y; a[i+2] = v.z;
+	}
+
+	private static void put( final Vector3 v, final float[] a, final int i ) {
+		a[i] = (float)v.x; a[i+1] = (float)v.y; a[i+2] = (float)v.z;
+	}
+}
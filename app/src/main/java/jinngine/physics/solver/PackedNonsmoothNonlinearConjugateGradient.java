@@ -0,0 +1,263 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics.solver;
+
+import java.util.List;
+
+import jinngine.physics.Body;
+
+/**
+ * Implementation of the NNCG solver over {@link PackedConstraints}. Performs the same iterations as
+ * {@link NonsmoothNonlinearConjugateGradient}, with the search direction and the previous delta velocities
+ * kept in flat arrays next to the packed delta velocities. The inner loop does not allocate.
+ * <p>
+ * As in {@link PackedProjectedGaussSeidel}, blocks of up to 3 equality rows between the same bodies are solved
+ * together in the inner PGS iteration, unless disabled. 
+ */
+public class PackedNonsmoothNonlinearConjugateGradient implements BudgetedSolver, MonitoredSolver, SinglePrecisionSolver {
+	private final PackedConstraints rows = new PackedConstraints();
+	private final SolverResult result = new SolverResult();
+	private int max = 10000;
+	private int clockInterval = 4;
+	private SolverMonitor monitor = null;
+
+	// per row search direction and residual
+	private double[] d = new double[0];
+	private double[] residual = new double[0];
+
+	// per body search direction and previous delta velocities
+	private double[] direction = new double[0];
+	private double[] previous = new double[0];
+
+	// block scratch
+	private final double[] rhs = new double[3];
+	private final double[] delta = new double[3];
+	private final double[] alphas = new double[3];
+
+	public PackedNonsmoothNonlinearConjugateGradient(int n) {
+		this.max = n;
+		rows.setBlockSolving(true);
+	}
+
+	@Override
+	public void setSinglePrecision(boolean enabled) {
+		rows.setSinglePrecision(enabled);
+	}
+
+	/**
+	 * Enable or disable solving blocks of equality rows together. Enabled by default
+	 */
+	public void setBlockSolving(boolean enabled) {
+		rows.setBlockSolving(enabled);
+	}
+
+	@Override
+	public void setMaximumIterations(int n) {
+		this.max = n;
+	}
+
+	@Override
+	public void setMonitor(SolverMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	@Override
+	public void setClockInterval(int n) {
+		if (n < 1)
+			throw new IllegalArgumentException("PackedNonsmoothNonlinearConjugateGradient: clock interval must be positive");
+		this.clockInterval = n;
+	}
+
+	@Override
+	public double solve(List<NCPConstraint> constraints, List<Body> bodies, double epsilon) {
+		rows.pack(constraints, bodies);
+		iterate(epsilon, -1, result);
+		rows.unpack(constraints);
+		return 0;
+	}
+
+	@Override
+	public SolverResult solve(List<NCPConstraint> constraints, List<Body> bodies, double epsilon, long budget, SolverResult result) {
+		if (budget < 0)
+			throw new IllegalArgumentException("PackedNonsmoothNonlinearConjugateGradient: negative time budget");
+		rows.pack(constraints, bodies);
+		iterate(epsilon, budget, result);
+		rows.unpack(constraints);
+		return result;
+	}
+
+	// perform iterations on the packed rows. A negative budget means no time limit
+	private void iterate( final double epsilon, final long budget, final SolverResult result ) {
+		final long begin = System.nanoTime();
+		final int n = rows.n;
+		final int nv = 6*rows.nb;
+		if (d.length < n) {
+			d = new double[Math.max(n, d.length*2)];
+			residual = new double[d.length];
+		}
+		if (direction.length < nv) {
+			direction = new double[Math.max(nv, direction.length*2)];
+			previous = new double[direction.length];
+		}
+
+		final double[] lambda = rows.lambda, lower = rows.lower, upper = rows.upper;
+		final double[] b = rows.b, fext = rows.fext, diagonal = rows.diagonal, damper = rows.damper, mu = rows.mu;
+		final double[] d = this.d, residual = this.residual;
+		final double[] direction = this.direction, previous = this.previous;
+		final int[] coupling = rows.coupling, blockSize = rows.blockSize;
+		final PackedConstraints.Precision precision = rows.precision();
+
+		double rnew = 0;
+		double rold = 0;
+		double beta = 0;
+		int iter = 0;
+		int restarts = 0;
+		double best = Double.POSITIVE_INFINITY;
+		result.clear();
+		if (monitor != null) monitor.begin(n);
+
+		// clear direction and residual, compute b vector norm
+		double bnorm = 0;
+		for (int i=0; i<n; i++) {
+			d[i] = 0; residual[i] = 0;
+			bnorm += (b[i]+fext[i])*(b[i]+fext[i]);
+		}
+		bnorm = Math.sqrt(bnorm);
+
+		// reset search direction
+		for (int k=0; k<nv; k++)
+			direction[k] = 0;
+
+		while (true) {
+			// copy body velocity
+			precision.copyVelocities(previous);
+
+			rold = rnew; rnew = 0;
+			double change = 0;
+
+			// use one PGS iteration to compute new residual
+			for (int i=0; i<n; i++) {
+				// solve blocks of equality rows exactly
+				final int k = blockSize[i];
+				if (k > 1) {
+					for (int r=0; r<k; r++) {
+						final double alpha = beta*d[i+r];
+						lambda[i+r] += alpha;
+						d[i+r] = alpha + residual[i+r];
+						alphas[r] = alpha;
+						rhs[r] = (b[i+r]+fext[i+r])/bnorm;
+					}
+					precision.solveBlock(i, k, rhs, delta);
+					for (int r=0; r<k; r++) {
+						rnew += delta[r]*delta[r];
+						residual[i+r] = delta[r];
+						change += (alphas[r]+delta[r])*(alphas[r]+delta[r]);
+					}
+					i += k-1;
+					continue;
+				}
+
+				// update lambda and d
+				final double alpha = beta*d[i];
+				lambda[i] += alpha;
+				d[i] = alpha + residual[i]; // gradient is -r
+
+				//calculate (Ax+b)_i
+				final double w = precision.velocity(i) + lambda[i]*damper[i];
+
+				double deltaLambda = -((b[i]+fext[i])/bnorm+w)/(diagonal[i] + damper[i]);
+				final double lambda0 = lambda[i];
+
+				//if the constraint is coupled, allow only lambda <= coupled lambda
+				final int c = coupling[i];
+				if (c >= 0) {
+					lower[i] = -Math.abs(lambda[c])*mu[c];
+					upper[i] =  Math.abs(lambda[c])*mu[c];
+				}
+
+				// do projection
+				final double newlambda = Math.max(lower[i], Math.min(lambda0 + deltaLambda, upper[i]));
+
+				// apply to delta velocities
+				deltaLambda = newlambda - lambda0;
+				precision.apply(i, deltaLambda);
+				lambda[i] += deltaLambda;
+
+				// update residual and squared gradient
+				rnew += deltaLambda*deltaLambda;
+				residual[i] = deltaLambda;
+				change += (alpha+deltaLambda)*(alpha+deltaLambda);
+			}
+
+			if (monitor != null) monitor.iteration(iter, rnew, restarts, Math.sqrt(change));
+
+			if (Math.abs(rnew) < epsilon) {
+				result.converged = true;
+				break;
+			}
+
+			// iteration limit
+			if (iter>max || restarts > 17)
+				break;
+
+			// keep the best iterate and check the clock
+			if (budget >= 0 && (iter+1) % clockInterval == 0) {
+				if (rnew < best) {
+					best = rnew;
+					rows.save();
+				}
+				if (System.nanoTime()-begin >= budget) {
+					result.deadline = true;
+					break;
+				}
+			}
+
+			//compute beta
+			beta = rnew/rold;
+
+			if (beta > 1.0 || iter == 0) {
+				beta = 0;
+				restarts = restarts+1;
+			}
+
+			for (int k=0; k<nv; k++) {
+				// residual in body space
+				final double gradient = precision.getVelocity(k)-previous[k];
+
+				// apply search direction to delta velocities
+				direction[k] *= beta;
+				precision.addVelocity(k, direction[k]);
+
+				// add gradient from this iteration
+				direction[k] += gradient;
+			}
+
+			//iteration count
+			iter = iter+1;
+		}
+
+		// return to the best iterate, if the last one is worse
+		if (best < rnew) {
+			rows.restore();
+			rnew = best;
+		}
+
+		// scale lambda and the delta velocities in the bnorm, so lambda is the impulse applied to the 
+		// bodies. This is unnecessary if bnorm is set to 1
+		for (int i=0; i<n; i++) {
+			precision.apply(i, (bnorm-1)*lambda[i]);
+			lambda[i] *= bnorm;
+		}
+
+		result.iterations = iter;
+		result.residual = rnew;
+		result.elapsed = System.nanoTime()-begin;
+		if (monitor != null) monitor.end(iter, rnew);
+	}
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics.solver;
+
+import java.util.List;
+
+import jinngine.physics.Body;
+
+/**
+ * Implementation of the PGS solver over {@link PackedConstraints}. Performs the same iterations as
+ * {@link ProjectedGaussSeidel}, but the rows are packed into flat arrays before solving, and the results
+ * are written back afterwards. The inner loop does not allocate.
+ * <p>
+ * By default, consecutive equality rows between the same bodies, such as the point constraint rows of a joint, 
+ * are solved together as blocks of up to 3 rows, using the inverse of the block matrix computed when packing. 
+ * Bounded rows are projected one at a time, as usual. 
+ * <p>
+ * Optionally, iterations alternate between sweeping the rows forwards and backwards. 
+ */
+public class PackedProjectedGaussSeidel implements BudgetedSolver, MonitoredSolver, SinglePrecisionSolver {
+	private final PackedConstraints rows = new PackedConstraints();
+	private final SolverResult result = new SolverResult();
+	private int maximumIterations = 35;
+	private int clockInterval = 4;
+	private SolverMonitor monitor = null;
+	private final double[] rhs = new double[3];
+	private final double[] delta = new double[3];
+	private boolean symmetric = false;
+
+	public PackedProjectedGaussSeidel() {
+		rows.setBlockSolving(true);
+	}
+
+	public PackedProjectedGaussSeidel(int n) {
+		maximumIterations = n;
+		rows.setBlockSolving(true);
+	}
+
+	@Override
+	public void setSinglePrecision(boolean enabled) {
+		rows.setSinglePrecision(enabled);
+	}
+
+	/**
+	 * Enable or disable solving blocks of equality rows together. Enabled by default
+	 */
+	public void setBlockSolving(boolean enabled) {
+		rows.setBlockSolving(enabled);
+	}
+
+	@Override
+	public void setMaximumIterations(int n) {
+		this.maximumIterations = n;
+	}
+
+	/**
+	 * Enable or disable symmetric sweeps. When enabled, every second iteration sweeps the rows in reverse
+	 * order, so forces propagate both ways along ordered chains of constraints. Disabled by default
+	 */
+	public void setSymmetricSweeps(boolean enabled) {
+		this.symmetric = enabled;
+	}
+
+	@Override
+	public void setMonitor(SolverMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	@Override
+	public void setClockInterval(int n) {
+		if (n < 1)
+			throw new IllegalArgumentException("PackedProjectedGaussSeidel: clock interval must be positive");
+		this.clockInterval = n;
+	}
+
+	@Override
+	//solve NCP problem
+	public final double solve(List<NCPConstraint> constraints, List<Body> bodies, double epsilon) {
+		rows.pack(constraints, bodies);
+		iterate(epsilon, -1, result);
+		rows.unpack(constraints);
+		return result.iterations;
+	}
+
+	@Override
+	public final SolverResult solve(List<NCPConstraint> constraints, List<Body> bodies, double epsilon, long budget, SolverResult result) {
+		if (budget < 0)
+			throw new IllegalArgumentException("PackedProjectedGaussSeidel: negative time budget");
+		rows.pack(constraints, bodies);
+		iterate(epsilon, budget, result);
+		rows.unpack(constraints);
+		return result;
+	}
+
+	// perform iterations on the packed rows. A negative budget means no time limit
+	private void iterate( final double epsilon, final long budget, final SolverResult result ) {
+		final long begin = System.nanoTime();
+		final int n = rows.n;
+		final double[] lambda = rows.lambda, lower = rows.lower, upper = rows.upper;
+		final double[] b = rows.b, fext = rows.fext, diagonal = rows.diagonal, damper = rows.damper, mu = rows.mu;
+		final int[] coupling = rows.coupling, blockSize = rows.blockSize;
+		final PackedConstraints.Precision precision = rows.precision();
+
+		result.clear();
+		double deltaResidual = Double.POSITIVE_INFINITY;
+		double best = Double.POSITIVE_INFINITY;
+		if (monitor != null) monitor.begin(n);
+
+		//perform iterations
+		for (int m=0; m<maximumIterations; m++) {
+			deltaResidual = 0;
+			final boolean backward = symmetric && m % 2 == 1;
+			for (int s=0; s<n; s++) {
+				final int i = backward? n-1-s : s;
+
+				// solve blocks of equality rows exactly. Sweeping backwards, the last row of a block is met first
+				if (blockSize[i] != 1) {
+					int start = i;
+					while (blockSize[start] == 0)
+						start--;
+					final int k = blockSize[start];
+					for (int r=0; r<k; r++)
+						rhs[r] = b[start+r] + fext[start+r];
+					precision.solveBlock(start, k, rhs, delta);
+					for (int r=0; r<k; r++)
+						deltaResidual += delta[r]*delta[r];
+					s += backward? i-start : k-1;
+					continue;
+				}
+
+				//calculate (Ax+b)_i
+				final double w = precision.velocity(i) + lambda[i]*damper[i] + fext[i];
+
+				double deltaLambda = (-b[i]-w)/(diagonal[i] + damper[i]);
+				final double lambda0 = lambda[i];
+
+				//if the constraint is coupled, allow only lambda <= coupled lambda
+				final int c = coupling[i];
+				if (c >= 0) {
+					lower[i] = -Math.abs(lambda[c])*mu[c];
+					upper[i] =  Math.abs(lambda[c])*mu[c];
+				}
+
+				//do projection
+				lambda[i] = Math.max(lower[i], Math.min(lambda0 + deltaLambda, upper[i]));
+
+				//update residual of change
+				deltaLambda = lambda[i] - lambda0;
+				deltaResidual += deltaLambda*deltaLambda;
+
+				//apply to delta velocities
+				precision.apply(i, deltaLambda);
+			}
+
+			if (monitor != null) monitor.iteration(m, deltaResidual, 0, Math.sqrt(deltaResidual));
+
+			if (deltaResidual < epsilon) {
+				result.converged = true;
+				break;
+			}
+
+			result.iterations +=1;
+
+			// keep the best iterate and check the clock
+			if (budget >= 0 && result.iterations % clockInterval == 0) {
+				if (deltaResidual < best) {
+					best = deltaResidual;
+					rows.save();
+				}
+				if (System.nanoTime()-begin >= budget) {
+					result.deadline = true;
+					break;
+				}
+			}
+		}
+
+		// return to the best iterate, if the last one is worse
+		if (best < deltaResidual) {
+			rows.restore();
+			deltaResidual = best;
+		}
+
+		result.residual = deltaResidual;
+		result.elapsed = System.nanoTime()-begin;
+		if (monitor != null) monitor.end(result.iterations, deltaResidual);
+	}
+}
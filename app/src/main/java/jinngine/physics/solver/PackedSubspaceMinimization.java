@@ -0,0 +1,427 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics.solver;
+
+import java.util.List;
+
+import jinngine.physics.Body;
+
+/**
+ * The PGS-Subspace Minimisation method over {@link PackedConstraints}. A few PGS iterations are used to guess
+ * which rows are at their bounds. The remaining free rows are then solved as a linear system, using preconditioned
+ * Conjugate Gradients, while rows at their bounds are kept fixed. Rows leaving their bounds during the solve are
+ * projected back and removed from the free set, after which the system is solved again. This is repeated for a
+ * number of outer iterations.
+ * <p>
+ * The preconditioner is either the diagonal of the system (Jacobi), or the inverses of the 3 by 3 blocks of
+ * equality rows, as used by {@link PackedProjectedGaussSeidel}, for blocks where all rows are free. Rows with a
+ * vanishing diagonal are singular, and are only updated by PGS, where they are skipped as well.
+ * <p>
+ * A subspace step is only accepted if it decreases the projected residual. Otherwise, the rows are restored to
+ * the values found by PGS. After two rejected steps, the solver falls back to plain PGS for the remaining
+ * iterations, so the result is never worse than PGS alone.
+ * <p>
+ * The solver terminates when the squared projected residual, see merit(), is below the given epsilon. This is 
+ * also the residual reported to a {@link SolverMonitor}, after each outer iteration.
+ */
+public class PackedSubspaceMinimization implements MonitoredSolver {
+	private final PackedConstraints rows = new PackedConstraints();
+	private int maximumIterations = 10;
+	private int pgsIterations = 5;
+	private int subspaceIterations = 4;
+	private int cgIterations = 50;
+	private boolean blockPreconditioning = true;
+	private SolverMonitor monitor = null;
+
+	// rows with a diagonal below this are singular
+	private static final double singular = 1e-13;
+
+	// free rows
+	private int[] free = new int[0];
+	private int nf = 0;
+
+	// per row CG vectors
+	private double[] x = new double[0];
+	private double[] r = new double[0];
+	private double[] z = new double[0];
+	private double[] p = new double[0];
+	private double[] q = new double[0];
+	private boolean[] isFree = new boolean[0];
+
+	// lambda at the start of an outer iteration
+	private double[] initial = new double[0];
+
+	// per body auxiliary delta velocities
+	private double[] aux = new double[0];
+
+	// block scratch
+	private final double[] rhs = new double[3];
+	private final double[] delta = new double[3];
+
+	public PackedSubspaceMinimization() {
+		rows.setBlockSolving(true);
+	}
+
+	/**
+	 * Create a new solver
+	 * @param n maximum number of outer iterations, each consisting of PGS iterations followed by a subspace step
+	 */
+	public PackedSubspaceMinimization(int n) {
+		this();
+		this.maximumIterations = n;
+	}
+
+	@Override
+	public void setMaximumIterations(int n) {
+		this.maximumIterations = n;
+	}
+
+	@Override
+	public void setMonitor(SolverMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	/**
+	 * Set the number of PGS iterations used to guess the active set, in each outer iteration
+	 */
+	public void setPGSIterations(int n) {
+		if (n < 1)
+			throw new IllegalArgumentException("PackedSubspaceMinimization: at least one PGS iteration is required");
+		this.pgsIterations = n;
+	}
+
+	/**
+	 * Set the maximum number of CG iterations used for each solve of the free rows
+	 */
+	public void setCGIterations(int n) {
+		if (n < 1)
+			throw new IllegalArgumentException("PackedSubspaceMinimization: at least one CG iteration is required");
+		this.cgIterations = n;
+	}
+
+	/**
+	 * Set the maximum number of times the free rows are solved and projected, in each outer iteration
+	 */
+	public void setSubspaceIterations(int n) {
+		if (n < 1)
+			throw new IllegalArgumentException("PackedSubspaceMinimization: at least one subspace iteration is required");
+		this.subspaceIterations = n;
+	}
+
+	/**
+	 * Use block preconditioning for blocks of free equality rows. Otherwise, Jacobi preconditioning is
+	 * used for all rows. Enabled by default
+	 */
+	public void setBlockPreconditioning(boolean enabled) {
+		this.blockPreconditioning = enabled;
+	}
+
+	@Override
+	public double solve(List<NCPConstraint> constraints, List<Body> bodies, double epsilon) {
+		rows.pack(constraints, bodies);
+		final int iterations = iterate(epsilon);
+		rows.unpack(constraints);
+		return iterations;
+	}
+
+	// perform outer iterations, and return the number of PGS iterations performed
+	private int iterate( final double epsilon ) {
+		final int n = rows.n;
+		final int nv = 6*rows.nb;
+		if (x.length < n) {
+			final int capacity = Math.max(n, 2*x.length);
+			x = new double[capacity]; r = new double[capacity]; z = new double[capacity];
+			p = new double[capacity]; q = new double[capacity]; free = new int[capacity];
+			isFree = new boolean[capacity];
+		}
+		if (initial.length < n)
+			initial = new double[x.length];
+		if (aux.length < nv)
+			aux = new double[Math.max(nv, 2*aux.length)];
+
+		if (monitor != null) monitor.begin(n);
+		int iterations = 0;
+		int rejected = 0;
+		double residual = Double.POSITIVE_INFINITY;
+
+		for (int m=0; m<maximumIterations; m++) {
+			System.arraycopy(rows.lambda, 0, initial, 0, n);
+
+			// guess the active set
+			for (int k=0; k<pgsIterations; k++) {
+				sweep();
+				iterations++;
+			}
+			residual = merit();
+
+			// subspace minimisation, unless converged or falling back to plain PGS
+			if (residual >= epsilon && rejected < 2) {
+				rows.save();
+				subspace();
+				final double after = merit();
+
+				// reject steps that does not improve the solution, or gave invalid values
+				if (after < residual) {
+					residual = after;
+				} else {
+					rows.restore();
+					rejected++;
+				}
+			}
+
+			if (monitor != null) monitor.iteration(m, residual, rejected, change(initial));
+			if (residual < epsilon)
+				break;
+		}
+
+		if (monitor != null) monitor.end(iterations, residual);
+		return iterations;
+	}
+
+	// 2-norm of the change in lambda since the given values
+	private double change( final double[] initial ) {
+		final double[] lambda = rows.lambda;
+		double sum = 0;
+		for (int i=0, n=rows.n; i<n; i++) {
+			final double d = lambda[i] - initial[i];
+			sum += d*d;
+		}
+		return Math.sqrt(sum);
+	}
+
+	// a single PGS iteration, where blocks of equality rows are solved exactly. Return the squared change in lambda
+	private double sweep() {
+		final int n = rows.n;
+		final double[] lambda = rows.lambda, lower = rows.lower, upper = rows.upper;
+		final double[] b = rows.b, fext = rows.fext, diagonal = rows.diagonal, damper = rows.damper, mu = rows.mu;
+		final int[] coupling = rows.coupling, blockSize = rows.blockSize;
+		final PackedConstraints.Precision precision = rows.precision();
+		double deltaResidual = 0;
+
+		for (int i=0; i<n; i++) {
+			final int k = blockSize[i];
+			if (k > 1) {
+				for (int s=0; s<k; s++)
+					rhs[s] = b[i+s] + fext[i+s];
+				precision.solveBlock(i, k, rhs, delta);
+				for (int s=0; s<k; s++)
+					deltaResidual += delta[s]*delta[s];
+				i += k-1;
+				continue;
+			}
+
+			final double d = diagonal[i] + damper[i];
+			if (Math.abs(d) < singular)
+				continue;
+
+			final double w = precision.velocity(i) + lambda[i]*damper[i] + fext[i];
+			final double lambda0 = lambda[i];
+
+			// bounds of coupled rows follow the lambda of the normal row
+			final int c = coupling[i];
+			if (c >= 0) {
+				lower[i] = -Math.abs(lambda[c])*mu[c];
+				upper[i] =  Math.abs(lambda[c])*mu[c];
+			}
+
+			lambda[i] = Math.max(lower[i], Math.min(lambda0 + (-b[i]-w)/d, upper[i]));
+			final double deltaLambda = lambda[i] - lambda0;
+			deltaResidual += deltaLambda*deltaLambda;
+			precision.apply(i, deltaLambda);
+		}
+		return deltaResidual;
+	}
+
+	// solve for the free rows, with the remaining rows fixed at their bounds
+	private void subspace() {
+		final int n = rows.n;
+		final double[] lambda = rows.lambda, lower = rows.lower, upper = rows.upper;
+		final double[] diagonal = rows.diagonal, damper = rows.damper;
+		final PackedConstraints.Precision precision = rows.precision();
+
+		// the free set is all nonsingular rows strictly inside their bounds
+		nf = 0;
+		for (int i=0; i<n; i++) {
+			isFree[i] = lower[i] < lambda[i] && lambda[i] < upper[i] && Math.abs(diagonal[i]+damper[i]) >= singular;
+			if (isFree[i])
+				free[nf++] = i;
+		}
+
+		for (int k=0; k<subspaceIterations && nf > 0; k++) {
+			conjugateGradients();
+
+			// project onto the bounds, and remove rows at their bounds from the free set
+			boolean projected = false;
+			int kept = 0;
+			for (int f=0; f<nf; f++) {
+				final int i = free[f];
+				final double value = Math.max(lower[i], Math.min(lambda[i], upper[i]));
+				if (value != lambda[i]) {
+					precision.apply(i, value-lambda[i]);
+					lambda[i] = value;
+					isFree[i] = false;
+					projected = true;
+				} else {
+					free[kept++] = i;
+				}
+			}
+			nf = kept;
+
+			if (!projected)
+				break;
+		}
+	}
+
+	// solve A_FF x_F = -w_F for the free rows F using preconditioned CG, and add x to lambda
+	private void conjugateGradients() {
+		final double[] lambda = rows.lambda, b = rows.b, fext = rows.fext, damper = rows.damper;
+		final double[] x = this.x, r = this.r, z = this.z, p = this.p, q = this.q;
+		final PackedConstraints.Precision precision = rows.precision();
+
+		// r = -w, z = P r, p = z
+		double rz = 0, rr0 = 0;
+		for (int f=0; f<nf; f++) {
+			final int i = free[f];
+			x[i] = 0;
+			r[i] = -(precision.velocity(i) + lambda[i]*damper[i] + fext[i] + b[i]);
+			rr0 += r[i]*r[i];
+		}
+		precondition();
+		for (int f=0; f<nf; f++) {
+			final int i = free[f];
+			p[i] = z[i];
+			rz += r[i]*z[i];
+		}
+
+		for (int k=0; k<cgIterations; k++) {
+			// q = A p
+			multiply();
+			double pq = 0;
+			for (int f=0; f<nf; f++) {
+				final int i = free[f];
+				pq += p[i]*q[i];
+			}
+
+			// the system is singular or solved in the direction p
+			if (!(pq > singular*rr0))
+				break;
+
+			final double alpha = rz/pq;
+			double rr = 0;
+			for (int f=0; f<nf; f++) {
+				final int i = free[f];
+				x[i] += alpha*p[i];
+				r[i] -= alpha*q[i];
+				rr += r[i]*r[i];
+			}
+			if (rr <= 1e-20*rr0)
+				break;
+
+			precondition();
+			double rznew = 0;
+			for (int f=0; f<nf; f++) {
+				final int i = free[f];
+				rznew += r[i]*z[i];
+			}
+			final double beta = rznew/rz;
+			rz = rznew;
+			for (int f=0; f<nf; f++) {
+				final int i = free[f];
+				p[i] = z[i] + beta*p[i];
+			}
+		}
+
+		// apply the solution, unless it is invalid
+		for (int f=0; f<nf; f++) {
+			final int i = free[f];
+			if (Double.isNaN(x[i]) || Double.isInfinite(x[i]))
+				return;
+		}
+		for (int f=0; f<nf; f++) {
+			final int i = free[f];
+			lambda[i] += x[i];
+			precision.apply(i, x[i]);
+		}
+	}
+
+	// q = A_FF p, computed through the auxiliary delta velocities aux = B_F p
+	private void multiply() {
+		final double[] J = rows.J, B = rows.B, aux = this.aux, damper = rows.damper;
+		final int[] body1 = rows.body1, body2 = rows.body2;
+		final int nv = 6*rows.nb;
+		for (int k=0; k<nv; k++)
+			aux[k] = 0;
+		for (int f=0; f<nf; f++) {
+			final int i = free[f], j = 12*i, o1 = 6*body1[i], o2 = 6*body2[i];
+			final double value = p[i];
+			for (int s=0; s<6; s++) {
+				aux[o1+s] += B[j+s]*value;
+				aux[o2+s] += B[j+6+s]*value;
+			}
+		}
+		for (int f=0; f<nf; f++) {
+			final int i = free[f], j = 12*i, o1 = 6*body1[i], o2 = 6*body2[i];
+			double sum = damper[i]*p[i];
+			for (int s=0; s<6; s++)
+				sum += J[j+s]*aux[o1+s] + J[j+6+s]*aux[o2+s];
+			q[i] = sum;
+		}
+	}
+
+	// z = P r, using block inverses for blocks where all rows are free, and the diagonal otherwise
+	private void precondition() {
+		final double[] diagonal = rows.diagonal, damper = rows.damper, inverse = rows.blockInverse;
+		final int[] blockSize = rows.blockSize;
+		for (int f=0; f<nf; f++) {
+			final int i = free[f];
+			final int k = blockSize[i];
+			if (blockPreconditioning && k > 1 && f+k <= nf && free[f+k-1] == i+k-1) {
+				// rows in the block are consecutive in the free list
+				final int o = 9*i;
+				for (int s=0; s<k; s++) {
+					double sum = 0;
+					for (int t=0; t<k; t++)
+						sum += inverse[o+3*s+t]*r[i+t];
+					z[i+s] = sum;
+				}
+				f += k-1;
+				continue;
+			}
+			z[i] = r[i]/(diagonal[i]+damper[i]);
+		}
+	}
+
+	// the squared projected residual, the squared change a PGS iteration would make to lambda with all
+	// rows updated simultaneously
+	private double merit() {
+		final int n = rows.n;
+		final double[] lambda = rows.lambda, lower = rows.lower, upper = rows.upper;
+		final double[] b = rows.b, fext = rows.fext, diagonal = rows.diagonal, damper = rows.damper, mu = rows.mu;
+		final int[] coupling = rows.coupling;
+		final PackedConstraints.Precision precision = rows.precision();
+		double value = 0;
+		for (int i=0; i<n; i++) {
+			final double d = diagonal[i] + damper[i];
+			if (Math.abs(d) < singular)
+				continue;
+			final double w = precision.velocity(i) + lambda[i]*damper[i] + fext[i] + b[i];
+			double l = lower[i], u = upper[i];
+			final int c = coupling[i];
+			if (c >= 0) {
+				l = -Math.abs(lambda[c])*mu[c];
+				u =  Math.abs(lambda[c])*mu[c];
+			}
+			final double change = Math.max(l, Math.min(lambda[i] - w/d, u)) - lambda[i];
+			value += change*change;
+		}
+
+		// invalid values are never an improvement
+		return Double.isNaN(value)? Double.POSITIVE_INFINITY : value;
+	}
+}
@@ -0,0 +1,296 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics.solver;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import jinngine.physics.Body;
+
+/**
+ * Parallel PGS solver using graph colouring. The constraint rows are coloured, such that no two rows
+ * of the same colour act on the same non-fixed body. Rows of a single colour are therefore independent,
+ * and are processed in parallel on a {@link ForkJoinPool}, while the colours are processed one after
+ * another. Fixed bodies never receive velocity updates, so they do not constrain the colouring, and a
+ * structure hanging from a single fixed body does not force all its rows into separate colours.
+ * <p>
+ * The iteration is a Gauss-Seidel iteration in colour order, so results differ slightly from
+ * {@link ProjectedGaussSeidel}, which uses the order of the constraint list. Problems with few rows are
+ * solved on the calling thread.
+ */
+public class ParallelProjectedGaussSeidel implements MonitoredSolver {
+	private final PackedConstraints rows = new PackedConstraints();
+	private final ForkJoinPool pool;
+	private int maximumIterations = 35;
+	private SolverMonitor monitor = null;
+
+	// rows per task, and the smallest problem that is solved in parallel
+	static final int chunk = 64;
+	static final int sequentialLimit = 4*chunk;
+
+	// rows in colour order, with the rows of colour c in order[start[c]..start[c+1]-1]
+	private int[] order = new int[0];
+	private int[] color = new int[0];
+	private int[] start = new int[2];
+	private int colors = 0;
+
+	// colours used by each body, as bit sets of the given number of words
+	private long[] used = new long[0];
+	private int words = 1;
+
+	// tasks for each colour, and a task waiting for all tasks of a colour
+	private Sweep[][] tasks = new Sweep[0][];
+	private Barrier[] barriers = new Barrier[0];
+
+	/**
+	 * Create a parallel PGS solver, using a new pool with a thread for each available processor
+	 * @param n maximum number of iterations
+	 */
+	public ParallelProjectedGaussSeidel(int n) {
+		this(n, new ForkJoinPool());
+	}
+
+	/**
+	 * Create a parallel PGS solver, using the given pool
+	 * @param n maximum number of iterations
+	 * @param pool pool used for executing the iterations
+	 */
+	public ParallelProjectedGaussSeidel(int n, ForkJoinPool pool) {
+		if (pool == null)
+			throw new IllegalArgumentException("ParallelProjectedGaussSeidel: null pool");
+		this.maximumIterations = n;
+		this.pool = pool;
+		// fixed bodies are shared between rows of one colour, so they must never receive updates
+		rows.setFixedBodiesUnchanged(true);
+	}
+
+	@Override
+	public void setMaximumIterations(int n) {
+		this.maximumIterations = n;
+	}
+
+	@Override
+	public void setMonitor(SolverMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	/**
+	 * Get the number of colours used in the latest call to solve()
+	 */
+	public final int getNumberOfColors() {
+		return colors;
+	}
+
+	/**
+	 * Get the colour of the given row in the latest call to solve(). Rows of the same colour
+	 * never share a non-fixed body
+	 */
+	final int getColor( int row ) {
+		return color[row];
+	}
+
+	@Override
+	public final double solve(List<NCPConstraint> constraints, List<Body> bodies, double epsilon) {
+		rows.pack(constraints, bodies);
+		colorRows();
+
+		final boolean parallel = rows.n >= sequentialLimit;
+		if (parallel)
+			createTasks();
+
+		double iterations = 0;
+		double deltaResidual = Double.POSITIVE_INFINITY;
+		if (monitor != null) monitor.begin(rows.n);
+		for (int m=0; m<maximumIterations; m++) {
+			deltaResidual = 0;
+
+			for (int c=0; c<colors; c++) {
+				if (parallel) {
+					// invokeAll returns when all rows of this colour are done, which is the barrier between colours
+					final Sweep[] colortasks = tasks[c];
+					for (Sweep task: colortasks)
+						task.reinitialize();
+					if (colortasks.length == 1) {
+						pool.invoke(colortasks[0]);
+					} else {
+						barriers[c].reinitialize();
+						pool.invoke(barriers[c]);
+					}
+					for (Sweep task: colortasks)
+						deltaResidual += task.deltaResidual;
+				} else {
+					deltaResidual += sweep(start[c], start[c+1]);
+				}
+			}
+
+			if (monitor != null) monitor.iteration(m, deltaResidual, 0, Math.sqrt(deltaResidual));
+
+			if (deltaResidual < epsilon)
+				break;
+
+			iterations +=1;
+		}
+
+		if (monitor != null) monitor.end((int)iterations, deltaResidual);
+		rows.unpack(constraints);
+		return iterations;
+	}
+
+	// perform a projected Gauss-Seidel step on the rows order[from..to-1], returning the squared change in lambda
+	private double sweep( final int from, final int to ) {
+		final PackedConstraints rows = this.rows;
+		final double[] lambda = rows.lambda, lower = rows.lower, upper = rows.upper;
+		final double[] b = rows.b, fext = rows.fext, diagonal = rows.diagonal, damper = rows.damper, mu = rows.mu;
+		final int[] coupling = rows.coupling, order = this.order;
+		final PackedConstraints.Precision precision = rows.precision();
+		double deltaResidual = 0;
+
+		for (int k=from; k<to; k++) {
+			final int i = order[k];
+
+			//calculate (Ax+b)_i
+			final double w = precision.velocity(i) + lambda[i]*damper[i] + fext[i];
+			double deltaLambda = (-b[i]-w)/(diagonal[i] + damper[i]);
+			final double lambda0 = lambda[i];
+
+			//if the constraint is coupled, allow only lambda <= coupled lambda
+			final int c = coupling[i];
+			if (c >= 0) {
+				lower[i] = -Math.abs(lambda[c])*mu[c];
+				upper[i] =  Math.abs(lambda[c])*mu[c];
+			}
+
+			//do projection
+			lambda[i] = Math.max(lower[i], Math.min(lambda0 + deltaLambda, upper[i]));
+
+			deltaLambda = lambda[i] - lambda0;
+			deltaResidual += deltaLambda*deltaLambda;
+			precision.apply(i, deltaLambda);
+		}
+
+		return deltaResidual;
+	}
+
+	// greedy colouring of the packed rows, ignoring fixed bodies
+	private void colorRows() {
+		final int n = rows.n, nb = rows.nb;
+		final Body[] bodies = rows.bodies;
+
+		if (order.length < n) {
+			order = new int[Math.max(n, order.length*2)];
+			color = new int[order.length];
+		}
+		words = 1;
+		if (used.length < nb*words)
+			used = new long[Math.max(nb, used.length*2)];
+		for (int k=0; k<nb*words; k++)
+			used[k] = 0;
+
+		colors = 0;
+		for (int i=0; i<n; i++) {
+			final Body a = bodies[rows.body1[i]], c = bodies[rows.body2[i]];
+			final int ia = a.isFixed()? -1 : rows.body1[i];
+			final int ic = c.isFixed()? -1 : rows.body2[i];
+
+			// first colour not used by any of the non-fixed bodies
+			int k = 0;
+			while (true) {
+				if (k >= 64*words)
+					grow();
+				final int word = k >>> 6;
+				final long bit = 1L << (k & 63);
+				if ((ia < 0 || (used[ia*words+word] & bit) == 0) && (ic < 0 || (used[ic*words+word] & bit) == 0))
+					break;
+				k++;
+			}
+
+			final int word = k >>> 6;
+			final long bit = 1L << (k & 63);
+			if (ia >= 0) used[ia*words+word] |= bit;
+			if (ic >= 0) used[ic*words+word] |= bit;
+			color[i] = k;
+			colors = Math.max(colors, k+1);
+		}
+
+		// counting sort of the rows by colour, keeping the list order within each colour
+		if (start.length < colors+1)
+			start = new int[Math.max(colors+1, start.length*2)];
+		for (int c=0; c<=colors; c++)
+			start[c] = 0;
+		for (int i=0; i<n; i++)
+			start[color[i]+1]++;
+		for (int c=0; c<colors; c++)
+			start[c+1] += start[c];
+		for (int i=0; i<n; i++)
+			order[start[color[i]]++] = i;
+		for (int c=colors; c>0; c--)
+			start[c] = start[c-1];
+		start[0] = 0;
+	}
+
+	// double the number of words in the colour bit sets
+	private void grow() {
+		final int nb = rows.nb;
+		final long[] newused = new long[nb*words*2];
+		for (int i=0; i<nb; i++)
+			System.arraycopy(used, i*words, newused, i*words*2, words);
+		used = newused;
+		words = words*2;
+	}
+
+	// split each colour into tasks of at most chunk rows
+	private void createTasks() {
+		if (tasks.length < colors) {
+			final int capacity = Math.max(colors, tasks.length*2);
+			tasks = Arrays.copyOf(tasks, capacity);
+			barriers = Arrays.copyOf(barriers, capacity);
+		}
+		for (int c=0; c<colors; c++) {
+			final int from = start[c], to = start[c+1];
+			final int count = (to-from+chunk-1)/chunk;
+			if (tasks[c] == null || tasks[c].length != count) {
+				tasks[c] = new Sweep[count];
+				for (int t=0; t<count; t++)
+					tasks[c][t] = new Sweep();
+				barriers[c] = new Barrier(tasks[c]);
+			}
+			for (int t=0; t<count; t++) {
+				tasks[c][t].from = from + t*chunk;
+				tasks[c][t].to = Math.min(to, from + (t+1)*chunk);
+			}
+		}
+	}
+
+	// task processing a range of rows of one colour
+	private final class Sweep extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		int from, to;
+		double deltaResidual;
+		@Override
+		protected void compute() {
+			deltaResidual = sweep(from, to);
+		}
+	}
+
+	// task running all tasks of one colour, and waiting for them to complete
+	private static final class Barrier extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final ForkJoinTask<?>[] tasks;
+		Barrier(ForkJoinTask<?>[] tasks) {
+			this.tasks = tasks;
+		}
+		@Override
+		protected void compute() {
+			invokeAll(tasks);
+		}
+	}
+}
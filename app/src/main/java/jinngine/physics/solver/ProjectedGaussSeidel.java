@@ -14,9 +14,10 @@ import jinngine.physics.Body;
 /**
  * Implementation of the PGS solver. 
  */
-public class ProjectedGaussSeidel implements Solver {
+public class ProjectedGaussSeidel implements MonitoredSolver {
 	private int maximumIterations = 35;
-	private double deltaResidual = 0;	
+	private double deltaResidual = 0;
+	private SolverMonitor monitor = null;	
 		
 	public ProjectedGaussSeidel() {}
 	
@@ -26,13 +27,19 @@ public class ProjectedGaussSeidel implements Solver {
 	
 	@Override
 	public void setMaximumIterations(int n) {
-		//this.maximumIterations = n;
+		this.maximumIterations = n;
+	}
+
+	@Override
+	public void setMonitor(SolverMonitor monitor) {
+		this.monitor = monitor;
 	}
 
 	@Override
 	//solve NCP problem
 	public final double solve(List<NCPConstraint> constraints, List<Body> bodies, double epsilon) {
 		double iterations = 0;
+		if (monitor != null) monitor.begin(constraints.size());
 		
 		// compute external force contribution, clear direction and residual
 		for (NCPConstraint ci: constraints) {
@@ -106,11 +113,15 @@ public class ProjectedGaussSeidel implements Solver {
 				
 			} //for constraints	
 			
+			if (monitor != null) monitor.iteration(m, deltaResidual, 0, Math.sqrt(deltaResidual));
+			
 			if (deltaResidual < epsilon)
 				break;
 			
 			iterations +=1;
 		}
+		
+		if (monitor != null) monitor.end((int)iterations, deltaResidual);
 		return iterations ;
 	}
 }
@@ -0,0 +1,21 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics.solver;
+
+/**
+ * A {@link Solver} that can store its working data in single precision, while lambda values and 
+ * accumulated products are kept in double precision
+ */
+public interface SinglePrecisionSolver extends Solver {
+	
+	/**
+	 * Enable or disable single precision storage. Disabled by default
+	 */
+	public void setSinglePrecision(boolean enabled);
+}
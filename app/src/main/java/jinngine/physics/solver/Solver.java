@@ -111,6 +111,8 @@ public interface Solver {
 		public double u;
 		public double l;
 		public double distance;
+		/** Row index, assigned when constraints are packed into flat arrays */
+		public int index;
 		
 		// hack
 		public final Vector3 stickA = new Vector3();
@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics.solver;
+
+/**
+ * Receives convergence information from a {@link MonitoredSolver}. The solver calls begin() once per solve,
+ * iteration() after each iteration and end() when done. Implementations are called from within the solver
+ * loop, and should not allocate or do expensive work. 
+ * <p>
+ * If island summaries are enabled, {@link jinngine.physics.DefaultScene} calls island() after end(), once for
+ * each island that was part of the solve, with the projected residual of the rows in that island.
+ */
+public interface SolverMonitor {
+	
+	/**
+	 * Called before the first iteration
+	 * @param rows number of constraint rows in the problem
+	 */
+	public void begin(int rows);
+
+	/**
+	 * Called after each iteration
+	 * @param iteration iteration number, starting at 0
+	 * @param residual residual in the measure used by the solver for termination
+	 * @param restarts number of restarts so far, always zero for solvers that do not restart
+	 * @param deltaLambdaNorm 2-norm of the change in lambda during this iteration
+	 */
+	public void iteration(int iteration, double residual, int restarts, double deltaLambdaNorm);
+
+	/**
+	 * Called when the solver terminates
+	 * @param iterations number of iterations performed
+	 * @param residual final residual
+	 */
+	public void end(int iterations, double residual);
+	
+	/**
+	 * Called after end(), for each island in the problem, if island summaries are enabled
+	 * @param island index of the island in this solve
+	 * @param rows number of constraint rows in the island
+	 * @param residual squared projected residual of the rows in the island
+	 */
+	public void island(int island, int rows, double residual);
+	
+	/**
+	 * Return true if island() should be called
+	 */
+	public boolean isIslandSummaryEnabled();
+}
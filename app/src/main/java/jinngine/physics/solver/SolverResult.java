@@ -0,0 +1,43 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics.solver;
+
+/**
+ * Outcome of a call to {@link BudgetedSolver#solve(java.util.List, java.util.List, double, long, SolverResult)}.
+ * Instances are supplied by the caller and overwritten, so they can be reused every time-step.
+ */
+public final class SolverResult {
+	/** Number of iterations performed */
+	public int iterations;
+	/** Residual of the returned iterate, in the measure used by the solver */
+	public double residual;
+	/** Time spent solving, in nanoseconds */
+	public long elapsed;
+	/** True if the residual target was reached */
+	public boolean converged;
+	/** True if the solver stopped because the time budget was used up */
+	public boolean deadline;
+
+	/**
+	 * Reset all fields
+	 */
+	public final void clear() {
+		iterations = 0;
+		residual = Double.POSITIVE_INFINITY;
+		elapsed = 0;
+		converged = false;
+		deadline = false;
+	}
+
+	@Override
+	public String toString() {
+		return "iterations=" + iterations + ", residual=" + residual + ", elapsed=" + elapsed + "ns"
+			+ (converged? ", converged" : "") + (deadline? ", deadline" : "");
+	}
+}
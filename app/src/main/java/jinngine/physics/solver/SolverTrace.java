@@ -0,0 +1,209 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics.solver;
+
+import java.util.List;
+
+import jinngine.physics.Body;
+import jinngine.physics.solver.Solver.NCPConstraint;
+
+/**
+ * A {@link SolverMonitor} that records convergence data in preallocated ring buffers. When a buffer is
+ * full, the oldest entries are overwritten, so recording never allocates. Entries are accessed by
+ * index, where index 0 is the oldest entry still in the buffer.
+ * <p>
+ * In trace mode, every iteration of every solve is recorded. In summary mode, iterations are only counted,
+ * and instead the convergence of each island is recorded at the end of each solve. Statistics over all
+ * solves, such as the average and maximum number of iterations, are kept in both modes.
+ */
+public final class SolverTrace implements SolverMonitor {
+	private final int capacity;
+	private boolean summary = false;
+
+	// iteration ring buffer
+	private final int[] solve, iteration, restarts;
+	private final double[] residual, norm;
+	private int head = 0, entries = 0;
+
+	// island ring buffer
+	private final int[] islandSolve, islandIndex, islandRows;
+	private final double[] islandResidual;
+	private int islandHead = 0, islandEntries = 0;
+
+	// statistics
+	private int solves = 0;
+	private long totalIterations = 0;
+	private int maximumIterations = 0;
+	private double lastResidual = 0;
+	private double worstIslandResidual = 0;
+
+	/**
+	 * Create a new trace
+	 * @param capacity number of entries in each ring buffer
+	 */
+	public SolverTrace(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("SolverTrace: capacity must be positive");
+		this.capacity = capacity;
+		solve = new int[capacity];
+		iteration = new int[capacity];
+		restarts = new int[capacity];
+		residual = new double[capacity];
+		norm = new double[capacity];
+		islandSolve = new int[capacity];
+		islandIndex = new int[capacity];
+		islandRows = new int[capacity];
+		islandResidual = new double[capacity];
+	}
+
+	/**
+	 * Enable or disable summary mode. In summary mode, per island convergence is recorded instead of
+	 * individual iterations
+	 */
+	public final void setSummaryMode(boolean summary) {
+		this.summary = summary;
+	}
+
+	public final boolean isSummaryMode() {
+		return summary;
+	}
+
+	/**
+	 * Remove all entries and reset statistics
+	 */
+	public final void clear() {
+		head = 0; entries = 0;
+		islandHead = 0; islandEntries = 0;
+		solves = 0; totalIterations = 0; maximumIterations = 0;
+		lastResidual = 0; worstIslandResidual = 0;
+	}
+
+	@Override
+	public final void begin(int rows) {
+		solves++;
+	}
+
+	@Override
+	public final void iteration(int iteration, double residual, int restarts, double deltaLambdaNorm) {
+		if (summary)
+			return;
+
+		this.solve[head] = solves-1;
+		this.iteration[head] = iteration;
+		this.restarts[head] = restarts;
+		this.residual[head] = residual;
+		this.norm[head] = deltaLambdaNorm;
+		head = (head+1) % capacity;
+		if (entries < capacity) entries++;
+	}
+
+	@Override
+	public final void end(int iterations, double residual) {
+		totalIterations += iterations;
+		maximumIterations = Math.max(maximumIterations, iterations);
+		lastResidual = residual;
+	}
+
+	@Override
+	public final void island(int island, int rows, double residual) {
+		islandSolve[islandHead] = solves-1;
+		islandIndex[islandHead] = island;
+		islandRows[islandHead] = rows;
+		islandResidual[islandHead] = residual;
+		islandHead = (islandHead+1) % capacity;
+		if (islandEntries < capacity) islandEntries++;
+		worstIslandResidual = Math.max(worstIslandResidual, residual);
+	}
+
+	@Override
+	public final boolean isIslandSummaryEnabled() {
+		return summary;
+	}
+
+	/**
+	 * Number of recorded iterations in the buffer
+	 */
+	public final int getNumberOfEntries() {
+		return entries;
+	}
+
+	/** Solve number of the k'th recorded iteration */
+	public final int getSolve(int k) { return solve[slot(k, head, entries)]; }
+	/** Iteration number of the k'th recorded iteration */
+	public final int getIteration(int k) { return iteration[slot(k, head, entries)]; }
+	/** Restart count of the k'th recorded iteration */
+	public final int getRestarts(int k) { return restarts[slot(k, head, entries)]; }
+	/** Residual of the k'th recorded iteration */
+	public final double getResidual(int k) { return residual[slot(k, head, entries)]; }
+	/** Delta lambda norm of the k'th recorded iteration */
+	public final double getDeltaLambdaNorm(int k) { return norm[slot(k, head, entries)]; }
+
+	/**
+	 * Number of recorded island summaries in the buffer
+	 */
+	public final int getNumberOfIslandEntries() {
+		return islandEntries;
+	}
+
+	/** Solve number of the k'th island summary */
+	public final int getIslandSolve(int k) { return islandSolve[slot(k, islandHead, islandEntries)]; }
+	/** Island index of the k'th island summary */
+	public final int getIslandIndex(int k) { return islandIndex[slot(k, islandHead, islandEntries)]; }
+	/** Number of rows in the island of the k'th island summary */
+	public final int getIslandRows(int k) { return islandRows[slot(k, islandHead, islandEntries)]; }
+	/** Residual of the k'th island summary */
+	public final double getIslandResidual(int k) { return islandResidual[slot(k, islandHead, islandEntries)]; }
+
+	/** Number of solves since creation or the last call to clear() */
+	public final int getNumberOfSolves() { return solves; }
+	/** Average number of iterations per solve */
+	public final double getAverageIterations() { return solves>0? totalIterations/(double)solves : 0; }
+	/** Largest number of iterations in a single solve */
+	public final int getMaximumIterations() { return maximumIterations; }
+	/** Final residual of the latest solve */
+	public final double getLastResidual() { return lastResidual; }
+	/** Largest island residual recorded */
+	public final double getWorstIslandResidual() { return worstIslandResidual; }
+
+	// ring buffer slot of the k'th oldest entry
+	private int slot( int k, int head, int entries ) {
+		if (k < 0 || k >= entries)
+			throw new IndexOutOfBoundsException("SolverTrace: no entry " + k);
+		return (head - entries + k + capacity) % capacity;
+	}
+
+	/**
+	 * Compute the squared projected residual of the constraints from index from to to-1, using the
+	 * current lambda values and delta velocities. This is the squared change a single projected
+	 * Gauss-Seidel step would make to lambda, with all rows updated simultaneously.
+	 */
+	public static double projectedResidual( List<NCPConstraint> constraints, int from, int to ) {
+		double value = 0;
+		for (int i=from; i<to; i++) {
+			final NCPConstraint ci = constraints.get(i);
+			final Body b1 = ci.body1, b2 = ci.body2;
+			final double w = ci.j1.dot(b1.deltavelocity) + ci.j1.dot(b1.externaldeltavelocity)
+			+ ci.j2.dot(b1.deltaomega) + ci.j2.dot(b1.externaldeltaomega)
+			+ ci.j3.dot(b2.deltavelocity) + ci.j3.dot(b2.externaldeltavelocity)
+			+ ci.j4.dot(b2.deltaomega) + ci.j4.dot(b2.externaldeltaomega)
+			+ ci.lambda*ci.damper + ci.b;
+
+			// bounds of coupled rows follow the current lambda of the normal row
+			double lower = ci.lower, upper = ci.upper;
+			if (ci.coupling != null) {
+				lower = -Math.abs(ci.coupling.lambda)*ci.coupling.mu;
+				upper =  Math.abs(ci.coupling.lambda)*ci.coupling.mu;
+			}
+
+			final double lambda = Math.max(lower, Math.min(ci.lambda - w/(ci.diagonal+ci.damper), upper));
+			value += (lambda-ci.lambda)*(lambda-ci.lambda);
+		}
+		return value;
+	}
+}
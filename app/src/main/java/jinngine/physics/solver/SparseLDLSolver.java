@@ -0,0 +1,485 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics.solver;
+
+import java.util.List;
+
+import jinngine.math.Vector3;
+import jinngine.physics.Body;
+import jinngine.physics.solver.Solver.NCPConstraint;
+
+/**
+ * Direct solver for islands of joint equality rows. The system matrix A = J M^-1 J^T + D is assembled as blocks,
+ * one for each joint and one for each pair of joints sharing a body, and factored as A = L D L^T. Fixed bodies do
+ * not couple joints, so several joints may attach an island to fixed bodies.
+ * <p>
+ * The elimination order is taken from the graph of bodies and joints, the same structure maintained by the
+ * ComponentGraph of the scene. A joint is eliminated when it is the last remaining joint on one of its bodies.
+ * Its remaining neighbours then all share its other body, and are thus already coupled, so no fill-in occurs.
+ * When bodies and joints form a tree, such an order eliminates all joints, and the factorisation takes linear
+ * time for bounded numbers of joints per body. If no joint can be eliminated before all are, the joints form a
+ * loop, and the island is not accepted.
+ * <p>
+ * Rows must be equality rows, with infinite bounds, or inactive rows, where both bounds are zero. Islands with
+ * active limits, motors or contacts are not accepted, and are left to the ncp solver, typically
+ * {@link NonsmoothNonlinearConjugateGradient}.
+ */
+public final class SparseLDLSolver implements IslandSolver {
+
+	// bodies and joints. Rows of joint j are rows[rowStart[j]..rowStart[j+1]-1], the bodies of a joint are
+	// in jointBody1 and jointBody2, with -1 for fixed bodies
+	private int nb = 0, nj = 0;
+	private Body[] bodies = new Body[0];
+	private int[] rowStart = new int[1];
+	private int[] rows = new int[0];
+	private int[] jointBody1 = new int[0];
+	private int[] jointBody2 = new int[0];
+
+	// joints on each body, and the position of each joint in the lists of its two bodies
+	private int[] adjacencyStart = new int[1];
+	private int[] adjacency = new int[0];
+	private int[] position1 = new int[0];
+	private int[] position2 = new int[0];
+
+	// elimination order, the rank of each joint in the order, and the body shared with the remaining
+	// neighbours of each joint at the time of elimination
+	private int[] order = new int[0];
+	private int[] rank = new int[0];
+	private int[] shared = new int[0];
+	private int[] degree = new int[0];
+	private boolean[] queued = new boolean[0];
+
+	// 6 by 6 blocks. Diagonal blocks and their inverses for each joint, and off diagonal blocks
+	// for each pair of joints on a body, starting at pairOffset[body]
+	private double[] diagonal = new double[0];
+	private double[] inverse = new double[0];
+	private double[] pair = new double[0];
+	private int[] pairOffset = new int[0];
+
+	// vectors, 6 entries per joint
+	private double[] y = new double[0];
+	private double[] u = new double[0];
+	private double[] x = new double[0];
+
+	// scratch
+	private final double[] block = new double[36];
+	private final double[] temp = new double[36];
+	private final double[] work = new double[6];
+
+	// pivots smaller than this are considered singular
+	private static final double epsilon = 1e-12;
+
+	@Override
+	public final boolean solve( List<NCPConstraint> constraints, int from, int to ) {
+		if (!build(constraints, from, to))
+			return false;
+		if (!eliminationOrder())
+			return false;
+		assemble(constraints);
+		if (!factor())
+			return false;
+
+		// inactive rows end with lambda = 0. Remove any initial lambda from the delta velocities
+		for (int i=from; i<to; i++) {
+			final NCPConstraint ci = constraints.get(i);
+			if (ci.lower == 0 && ci.upper == 0 && ci.lambda != 0) {
+				apply(ci, -ci.lambda);
+				ci.lambda = 0;
+			}
+		}
+
+		solve(constraints);
+
+		// write back the solution
+		for (int j=0; j<nj; j++) {
+			for (int k=rowStart[j]; k<rowStart[j+1]; k++) {
+				final NCPConstraint ci = constraints.get(rows[k]);
+				final double delta = x[6*j+k-rowStart[j]];
+				ci.lambda += delta;
+				apply(ci, delta);
+			}
+		}
+
+		return true;
+	}
+
+	// group rows into joints and find the joints on each body. Return false if any row is not accepted
+	private boolean build( List<NCPConstraint> constraints, int from, int to ) {
+		nb = 0; nj = 0;
+		ensureJoints(to-from);
+
+		// group consecutive rows between the same pair of bodies into joints, leaving out inactive rows
+		Body previous1 = null, previous2 = null;
+		int count = 0;
+		for (int i=from; i<to; i++) {
+			final NCPConstraint ci = constraints.get(i);
+			if (!ArticulatedBodySolver.isAccepted(ci))
+				return false;
+			if (ci.lower == 0 && ci.upper == 0)
+				continue;
+			if (ci.body1.isFixed() && ci.body2.isFixed())
+				continue;
+
+			if (nj == 0 || ci.body1 != previous1 || ci.body2 != previous2 || count-rowStart[nj-1] >= 6) {
+				if (ci.body1 == ci.body2)
+					return false;
+				rowStart[nj] = count;
+				jointBody1[nj] = ci.body1.isFixed()? -1 : indexOf(ci.body1);
+				jointBody2[nj] = ci.body2.isFixed()? -1 : indexOf(ci.body2);
+				nj++;
+				previous1 = ci.body1; previous2 = ci.body2;
+			}
+			rows[count++] = i;
+		}
+		rowStart[nj] = count;
+
+		// joints on each body
+		ensureBodies();
+		for (int i=0; i<=nb; i++)
+			adjacencyStart[i] = 0;
+		for (int j=0; j<nj; j++) {
+			if (jointBody1[j] >= 0) adjacencyStart[jointBody1[j]+1]++;
+			if (jointBody2[j] >= 0) adjacencyStart[jointBody2[j]+1]++;
+		}
+		int pairs = 0;
+		for (int i=0; i<nb; i++) {
+			final int d = adjacencyStart[i+1];
+			pairOffset[i] = 36*pairs;
+			pairs += d*d;
+			adjacencyStart[i+1] += adjacencyStart[i];
+		}
+		if (adjacency.length < adjacencyStart[nb])
+			adjacency = new int[2*adjacencyStart[nb]];
+		if (pair.length < 36*pairs)
+			pair = new double[2*36*pairs];
+		for (int j=0; j<nj; j++) {
+			final int b1 = jointBody1[j], b2 = jointBody2[j];
+			if (b1 >= 0) { adjacency[adjacencyStart[b1]] = j; adjacencyStart[b1]++; }
+			if (b2 >= 0) { adjacency[adjacencyStart[b2]] = j; adjacencyStart[b2]++; }
+		}
+		for (int i=nb; i>0; i--)
+			adjacencyStart[i] = adjacencyStart[i-1];
+		adjacencyStart[0] = 0;
+		for (int i=0; i<nb; i++) {
+			for (int a=adjacencyStart[i]; a<adjacencyStart[i+1]; a++) {
+				final int j = adjacency[a];
+				if (jointBody1[j] == i) position1[j] = a-adjacencyStart[i];
+				else position2[j] = a-adjacencyStart[i];
+			}
+		}
+
+		return true;
+	}
+
+	// find an elimination order without fill-in. Return false if the joints form a loop
+	private boolean eliminationOrder() {
+		for (int i=0; i<nb; i++)
+			degree[i] = adjacencyStart[i+1]-adjacencyStart[i];
+
+		// joints that are alone on one of their bodies can be eliminated
+		int head = 0, tail = 0;
+		for (int j=0; j<nj; j++) {
+			rank[j] = -1;
+			queued[j] = free(jointBody1[j]) || free(jointBody2[j]);
+			if (queued[j])
+				order[tail++] = j;
+		}
+
+		while (head < tail) {
+			final int j = order[head];
+			final int b1 = jointBody1[j], b2 = jointBody2[j];
+			rank[j] = head++;
+
+			// remaining neighbours are on the body that is not free
+			shared[j] = free(b1)? b2 : b1;
+
+			// eliminating the joint may leave a single joint on its bodies
+			for (int e=0; e<2; e++) {
+				final int b = e==0? b1 : b2;
+				if (b < 0) continue;
+				degree[b]--;
+				if (degree[b] == 1) {
+					for (int a=adjacencyStart[b]; a<adjacencyStart[b+1]; a++) {
+						final int k = adjacency[a];
+						if (rank[k] < 0 && !queued[k]) {
+							queued[k] = true;
+							order[tail++] = k;
+						}
+					}
+				}
+			}
+		}
+
+		return head == nj;
+	}
+
+	// a side of a joint is free if the body is fixed, or if the joint is the last one on the body
+	private boolean free( int body ) {
+		return body < 0 || degree[body] == 1;
+	}
+
+	// assemble the blocks of A = J M^-1 J^T + D
+	private void assemble( List<NCPConstraint> constraints ) {
+		for (int j=0; j<nj; j++) {
+			final int o = 36*j, m = rowStart[j+1]-rowStart[j];
+			for (int r=0; r<m; r++) {
+				final NCPConstraint cr = constraints.get(rows[rowStart[j]+r]);
+				for (int s=0; s<m; s++) {
+					final NCPConstraint cs = constraints.get(rows[rowStart[j]+s]);
+					diagonal[o+6*r+s] = cr.j1.dot(cs.b1) + cr.j2.dot(cs.b2) + cr.j3.dot(cs.b3) + cr.j4.dot(cs.b4)
+					+ (r==s? cr.damper : 0);
+				}
+			}
+		}
+
+		// pairs of joints on the same body are coupled through that body only
+		for (int i=0; i<nb; i++) {
+			final int start = adjacencyStart[i], d = adjacencyStart[i+1]-start;
+			for (int ka=0; ka<d; ka++) {
+				final int k = adjacency[start+ka], mk = rowStart[k+1]-rowStart[k];
+				for (int la=0; la<d; la++) {
+					if (la == ka) continue;
+					final int l = adjacency[start+la], ml = rowStart[l+1]-rowStart[l];
+					final int o = pairOffset[i]+36*(ka*d+la);
+					for (int r=0; r<mk; r++) {
+						final NCPConstraint cr = constraints.get(rows[rowStart[k]+r]);
+						final Vector3 jlin = jointBody1[k]==i? cr.j1 : cr.j3;
+						final Vector3 jang = jointBody1[k]==i? cr.j2 : cr.j4;
+						for (int s=0; s<ml; s++) {
+							final NCPConstraint cs = constraints.get(rows[rowStart[l]+s]);
+							final Vector3 blin = jointBody1[l]==i? cs.b1 : cs.b3;
+							final Vector3 bang = jointBody1[l]==i? cs.b2 : cs.b4;
+							pair[o+6*r+s] = jlin.dot(blin) + jang.dot(bang);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	// offset of the block A_kl of joints k and l on body i
+	private int offset( int k, int l, int i ) {
+		final int d = adjacencyStart[i+1]-adjacencyStart[i];
+		final int pk = jointBody1[k]==i? position1[k] : position2[k];
+		final int pl = jointBody1[l]==i? position1[l] : position2[l];
+		return pairOffset[i]+36*(pk*d+pl);
+	}
+
+	// factor A = L D L^T in the elimination order. Return false if a pivot block is singular
+	private boolean factor() {
+		for (int t=0; t<nj; t++) {
+			final int j = order[t], mj = rowStart[j+1]-rowStart[j];
+			if (!invert(diagonal, 36*j, mj, inverse, 36*j))
+				return false;
+
+			final int i = shared[j];
+			if (i < 0)
+				continue;
+
+			// A_kl -= A_kj D_j^-1 A_jl for all remaining neighbours k and l
+			for (int a=adjacencyStart[i]; a<adjacencyStart[i+1]; a++) {
+				final int k = adjacency[a];
+				if (rank[k] <= t) continue;
+				final int mk = rowStart[k+1]-rowStart[k];
+				multiply(pair, offset(k, j, i), mk, mj, inverse, 36*j, mj, temp, 0);
+
+				for (int c=adjacencyStart[i]; c<adjacencyStart[i+1]; c++) {
+					final int l = adjacency[c];
+					if (rank[l] <= t) continue;
+					final int ml = rowStart[l+1]-rowStart[l];
+					multiply(temp, 0, mk, mj, pair, offset(j, l, i), ml, block, 0);
+					final double[] target = k == l? diagonal : pair;
+					final int o = k == l? 36*k : offset(k, l, i);
+					for (int r=0; r<mk; r++)
+						for (int s=0; s<ml; s++)
+							target[o+6*r+s] -= block[6*r+s];
+				}
+			}
+		}
+		return true;
+	}
+
+	// solve L D L^T x = r
+	private void solve( List<NCPConstraint> constraints ) {
+		// right hand side r = -(b + Fext + J dv + D lambda). The solution is the change of lambda relative
+		// to the current values, in line with the iterative solvers
+		for (int j=0; j<nj; j++) {
+			for (int k=rowStart[j]; k<rowStart[j+1]; k++) {
+				final NCPConstraint ci = constraints.get(rows[k]);
+				final Body b1 = ci.body1, b2 = ci.body2;
+				final double w = ci.j1.dot(b1.deltavelocity) + ci.j1.dot(b1.externaldeltavelocity)
+				+ ci.j2.dot(b1.deltaomega) + ci.j2.dot(b1.externaldeltaomega)
+				+ ci.j3.dot(b2.deltavelocity) + ci.j3.dot(b2.externaldeltavelocity)
+				+ ci.j4.dot(b2.deltaomega) + ci.j4.dot(b2.externaldeltaomega);
+				y[6*j+k-rowStart[j]] = -(ci.b + w + ci.damper*ci.lambda);
+			}
+		}
+
+		// forward pass, u_j = D_j^-1 y_j and y_k -= A_kj u_j
+		for (int t=0; t<nj; t++) {
+			final int j = order[t], mj = rowStart[j+1]-rowStart[j];
+			multiply(inverse, 36*j, mj, mj, y, 6*j, 1, u, 6*j);
+			final int i = shared[j];
+			if (i < 0) continue;
+			for (int a=adjacencyStart[i]; a<adjacencyStart[i+1]; a++) {
+				final int k = adjacency[a];
+				if (rank[k] <= t) continue;
+				final int mk = rowStart[k+1]-rowStart[k], o = offset(k, j, i);
+				for (int r=0; r<mk; r++) {
+					double sum = 0;
+					for (int s=0; s<mj; s++)
+						sum += pair[o+6*r+s]*u[6*j+s];
+					y[6*k+r] -= sum;
+				}
+			}
+		}
+
+		// backward pass, x_j = u_j - D_j^-1 sum_k A_jk x_k
+		for (int t=nj-1; t>=0; t--) {
+			final int j = order[t], mj = rowStart[j+1]-rowStart[j];
+			for (int r=0; r<mj; r++)
+				work[r] = 0;
+			final int i = shared[j];
+			if (i >= 0) {
+				for (int a=adjacencyStart[i]; a<adjacencyStart[i+1]; a++) {
+					final int k = adjacency[a];
+					if (rank[k] <= t) continue;
+					final int mk = rowStart[k+1]-rowStart[k], o = offset(j, k, i);
+					for (int r=0; r<mj; r++)
+						for (int s=0; s<mk; s++)
+							work[r] += pair[o+6*r+s]*x[6*k+s];
+				}
+			}
+			for (int r=0; r<mj; r++) {
+				double sum = 0;
+				for (int s=0; s<mj; s++)
+					sum += inverse[36*j+6*r+s]*work[s];
+				x[6*j+r] = u[6*j+r] - sum;
+			}
+		}
+	}
+
+	// add B_i delta to the delta velocities of the bodies of row i
+	private static void apply( NCPConstraint ci, double delta ) {
+		final Vector3 v1 = ci.body1.deltavelocity, w1 = ci.body1.deltaomega;
+		final Vector3 v2 = ci.body2.deltavelocity, w2 = ci.body2.deltaomega;
+		v1.x += ci.b1.x*delta; v1.y += ci.b1.y*delta; v1.z += ci.b1.z*delta;
+		w1.x += ci.b2.x*delta; w1.y += ci.b2.y*delta; w1.z += ci.b2.z*delta;
+		v2.x += ci.b3.x*delta; v2.y += ci.b3.y*delta; v2.z += ci.b3.z*delta;
+		w2.x += ci.b4.x*delta; w2.y += ci.b4.y*delta; w2.z += ci.b4.z*delta;
+	}
+
+	// C = A B, where A is n by m and B is m by p, all with row stride 6, except a B with p=1, which is a vector
+	private static void multiply( double[] A, int oa, int n, int m, double[] B, int ob, int p, double[] C, int oc ) {
+		final int stride = p == 1? 1 : 6;
+		for (int r=0; r<n; r++)
+			for (int s=0; s<p; s++) {
+				double sum = 0;
+				for (int t=0; t<m; t++)
+					sum += A[oa+6*r+t]*B[ob+stride*t+s];
+				C[oc+(p == 1? r : 6*r+s)] = sum;
+			}
+	}
+
+	// invert the n by n block of a, with row stride 6, into result. Gauss-Jordan elimination with partial
+	// pivoting. Return false if the block is singular
+	private boolean invert( double[] a, int oa, int n, double[] result, int offset ) {
+		for (int r=0; r<n; r++)
+			for (int s=0; s<n; s++) {
+				block[6*r+s] = a[oa+6*r+s];
+				result[offset+6*r+s] = r==s? 1 : 0;
+			}
+
+		double scale = 0;
+		for (int r=0; r<n; r++)
+			for (int s=0; s<n; s++)
+				scale = Math.max(scale, Math.abs(block[6*r+s]));
+		if (scale == 0)
+			return false;
+
+		for (int col=0; col<n; col++) {
+			// pivot
+			int pivot = col;
+			for (int r=col+1; r<n; r++)
+				if (Math.abs(block[6*r+col]) > Math.abs(block[6*pivot+col])) pivot = r;
+			if (Math.abs(block[6*pivot+col]) <= epsilon*scale)
+				return false;
+			if (pivot != col) {
+				for (int s=0; s<n; s++) {
+					double t = block[6*col+s]; block[6*col+s] = block[6*pivot+s]; block[6*pivot+s] = t;
+					t = result[offset+6*col+s]; result[offset+6*col+s] = result[offset+6*pivot+s]; result[offset+6*pivot+s] = t;
+				}
+			}
+
+			// normalise pivot row
+			final double inv = 1/block[6*col+col];
+			for (int s=0; s<n; s++) {
+				block[6*col+s] *= inv;
+				result[offset+6*col+s] *= inv;
+			}
+
+			// eliminate other rows
+			for (int r=0; r<n; r++) {
+				if (r == col) continue;
+				final double f = block[6*r+col];
+				if (f == 0) continue;
+				for (int s=0; s<n; s++) {
+					block[6*r+s] -= f*block[6*col+s];
+					result[offset+6*r+s] -= f*result[offset+6*col+s];
+				}
+			}
+		}
+		return true;
+	}
+
+	// return the index of the given body, adding it if not already present
+	private int indexOf( final Body body ) {
+		final int k = body.index;
+		if (k >= 0 && k < nb && bodies[k] == body)
+			return k;
+		if (nb >= bodies.length) {
+			final Body[] newbodies = new Body[Math.max(16, bodies.length*2)];
+			System.arraycopy(bodies, 0, newbodies, 0, nb);
+			bodies = newbodies;
+		}
+		bodies[nb] = body;
+		body.index = nb;
+		return nb++;
+	}
+
+	private void ensureJoints( int m ) {
+		if (rows.length >= m)
+			return;
+		final int capacity = Math.max(m, rows.length*2);
+		rows = new int[capacity];
+		rowStart = new int[capacity+1];
+		jointBody1 = new int[capacity];
+		jointBody2 = new int[capacity];
+		position1 = new int[capacity];
+		position2 = new int[capacity];
+		order = new int[capacity];
+		rank = new int[capacity];
+		shared = new int[capacity];
+		queued = new boolean[capacity];
+		diagonal = new double[36*capacity];
+		inverse = new double[36*capacity];
+		y = new double[6*capacity];
+		u = new double[6*capacity];
+		x = new double[6*capacity];
+	}
+
+	private void ensureBodies() {
+		if (degree.length >= nb)
+			return;
+		final int capacity = Math.max(nb, degree.length*2);
+		adjacencyStart = new int[capacity+1];
+		pairOffset = new int[capacity];
+		degree = new int[capacity];
+	}
+}
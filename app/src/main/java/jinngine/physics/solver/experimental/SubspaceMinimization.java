@@ -31,6 +31,7 @@ public class SubspaceMinimization implements Solver {
 	private final List<NCPConstraint> normals = new ArrayList<NCPConstraint>();
 	private final double epsilon = 1e-6;
 	private  int pgsmin = 25;
+	private int maximumIterations = 3;
 	private final ProjectedGaussSeidel pgs = new ProjectedGaussSeidel();
 	private double phi;
 	private final boolean debug;
@@ -43,8 +44,7 @@ public class SubspaceMinimization implements Solver {
 	
 	@Override
 	public void setMaximumIterations(int n) {
-		// TODO Auto-generated method stub
-
+		this.maximumIterations = n;
 	}
 
 	@Override
@@ -312,7 +312,7 @@ public class SubspaceMinimization implements Solver {
 //				break;
 //			}
 			
-			if (phi<epsilon||i==2 || productcount>1200)
+			if (phi<epsilon||i>=maximumIterations-1 || productcount>1200)
 				break;
 			
 			//if here damp the frictions
@@ -329,32 +329,9 @@ public class SubspaceMinimization implements Solver {
 
 		}
 		
-		//if (debug)
-			System.out.println("**) pgs-sm iteration "+i+" error="+phi +" pgs equivalent " + productcount);	
-    
-    
-    
-    
-    
-    if (phi>0.1 && false) {
-    	for (NCPConstraint ci: constraints) {
-    		if (ci.coupling != null)
-    			System.out.print("F:");
-
-    		if (inactive.contains(ci))
-    			System.out.print("A:");
-    		System.out.print(" lambda=" +ci.lambda);
-    		
-    		System.out.println(" phi="+FischerNewton.fischer(ci));
-    	}
-    	
-    	
-    	System.exit(0);
-    }
+		if (debug)
+			stream.println("**) pgs-sm iteration "+i+" error="+phi +" pgs equivalent " + productcount);	
 
-	  
-	  
-	  
 		return 0;
 	}
 }
@@ -30,7 +30,11 @@ public class Interaction implements Rendering.EventCallback {
 	public Interaction( Scene scene) {
 		this.scene = scene;
 		this.controller.state.anisotropicmass.assignScale(1); // hope to prevent bugs
-		this.controller.setFixed(true);
+		
+		// the controller body stays in the scene. It is kinematic, so it is moved only 
+		// by the user, and it has no geometries, so it takes no part in collision detection 
+		this.controller.setKinematic(true);
+		scene.addBody(this.controller);
 	}
 	
 	public void mouseScrolled(int scrolled){
@@ -65,8 +69,8 @@ public class Interaction implements Rendering.EventCallback {
 		while (bodies.hasNext()) {
 			Body bi = bodies.next();
 
-			// only shoot at non-fixed bodies
-			if ( !bi.isFixed()) {
+			// only shoot at non-fixed bodies, and not at the controller
+			if ( !bi.isFixed() && !bi.isKinematic()) {
 				Iterator<Geometry> geometries = bi.getGeometries();
 				Geometry gi = geometries.next();
 
@@ -119,7 +123,6 @@ public class Interaction implements Rendering.EventCallback {
 			target.setAngularVelocity(0,0,0);
 
 			// insert the acting stuff into the physics world
-			scene.addBody(this.controller);
 			scene.addConstraint(this.force);
 			scene.addLiveConstraint(this.force);
 		}
@@ -132,9 +135,8 @@ public class Interaction implements Rendering.EventCallback {
 		synchronized(DefaultScene.monitor){
 			
 		if (interacting) {						
-			// remove controller body and force
+			// remove the force. The controller body remains in the scene
 			scene.removeConstraint(this.force);
-			scene.removeBody(this.controller);	
 			scene.removeLiveConstraint(this.force);
 					
 			// restore angular inertia properties
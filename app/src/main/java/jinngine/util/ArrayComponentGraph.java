@@ -0,0 +1,887 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.util;
+import java.util.*;
+
+/**
+ * A {@link ComponentGraph} that stores nodes, edges and components in primitive arrays, indexed by dense integer ids.
+ * Only the lookup of node and edge ids goes through hash maps, after that, no wrapper objects are created. Node and
+ * edge ids are recycled when nodes and edges are removed.
+ * <p>
+ * The nodes and edges of each component are kept in linked lists, and the component of a node is found through a
+ * union-find structure over the components. Merging two components is therefore O(1), independent of their size.
+ * When an edge is removed, a breadth first search is started from both end-nodes at the same time, and is stopped
+ * as soon as the two searches meet, or one of them runs out of nodes. In the latter case, only the nodes reached by
+ * that search are moved into a new component, so the cost of a split is bounded by the size of the smaller part.
+ * <p>
+ * Optionally, splitting is deferred. Removing an edge then only marks the component as dirty, and all dirty
+ * components are split in one linear pass over their nodes and edges, when {@link #resolveComponents()} is called.
+ * This avoids searching the same component over and over, when many of its edges are removed at once.
+ * <p>
+ * The {@link ComponentGraph.ComponentHandler} is called in the same situations as with {@link HashMapComponentGraph}.
+ * When two components merge, the component with the most nodes remains.
+ *
+ * @param <T> Type that stores in nodes
+ * @param <U> Type that stores in edges
+ * @param <V> Type that stores in components
+ */
+public class ArrayComponentGraph<T,U,V> implements ComponentGraph<T,U,V> {
+	private static final int NONE = -1;
+
+	private final NodeClassifier<T> nodeClassifier;
+	private final ComponentHandler<T,V> componenthandler;
+	private final boolean deferred;
+
+	// id lookup
+	private final Map<T,Integer> nodeIndex = new HashMap<T,Integer>();
+	private final Map<Pair<T>,Integer> edgeIndex = new HashMap<Pair<T>,Integer>();
+	private final Map<V,Integer> componentIndex = new HashMap<V,Integer>();
+
+	// nodes. A node is either in the list of free nodes, or in the node list of its component
+	private Object[] nodes = new Object[0];
+	private int[] nodeComponent = new int[0];
+	private int[] nodeNext = new int[0];
+	private int[] nodePrev = new int[0];
+	private int[] degree = new int[0];
+	private int[][] incident = new int[0][];
+	private int[] visited = new int[0];
+	private int[] freeNodeIds = new int[0];
+	private int freeNodeIdCount = 0;
+	private int nodeCount = 0;
+	private int freeHead = NONE, freeTail = NONE, freeCount = 0;
+
+	// edges, and the position of each edge in the incident lists of its end-nodes
+	private Object[] edges = new Object[0];
+	private Object[] edgePairs = new Object[0];
+	private int[] edgeA = new int[0];
+	private int[] edgeB = new int[0];
+	private int[] edgePosA = new int[0];
+	private int[] edgePosB = new int[0];
+	private int[] edgeNext = new int[0];
+	private int[] edgePrev = new int[0];
+	private int[] edgeVisited = new int[0];
+	private int[] freeEdgeIds = new int[0];
+	private int freeEdgeIdCount = 0;
+	private int edgeCount = 0;
+
+	// components. Merged components remain in the union-find structure until the next compaction
+	private Object[] components = new Object[0];
+	private int[] parent = new int[0];
+	private int[] nodeHead = new int[0];
+	private int[] nodeTail = new int[0];
+	private int[] nodesInComponent = new int[0];
+	private int[] edgeHead = new int[0];
+	private int[] edgeTail = new int[0];
+	private int[] edgesInComponent = new int[0];
+	private int[] rootPosition = new int[0];
+	private int[] roots = new int[0];
+	private int rootCount = 0;
+	private int[] freeComponentIds = new int[0];
+	private int freeComponentIdCount = 0;
+	private int componentCount = 0;
+	private int merged = 0;
+
+	// components that may have fallen apart, when splitting is deferred
+	private boolean[] dirty = new boolean[0];
+	private int[] dirtyComponents = new int[0];
+	private int dirtyCount = 0;
+
+	// search queues for splitting components
+	private int[] queueA = new int[0];
+	private int[] queueB = new int[0];
+	private int stamp = 0;
+
+	/**
+	 * Create a new component graph
+	 * @param nodeClassifier a classifier for the type T, used for the connected components analysis
+	 * @param componentcreator a creator for new components that arrise inside the component graph
+	 */
+	public ArrayComponentGraph( NodeClassifier<T> nodeClassifier, ComponentHandler<T,V> componentcreator ) {
+		this(nodeClassifier, componentcreator, false);
+	}
+
+	/**
+	 * Create a new component graph
+	 * @param nodeClassifier a classifier for the type T, used for the connected components analysis
+	 * @param componentcreator a creator for new components that arrise inside the component graph
+	 * @param deferred if true, components are not split when edges are removed, but only when {@link #resolveComponents()} is called
+	 */
+	public ArrayComponentGraph( NodeClassifier<T> nodeClassifier, ComponentHandler<T,V> componentcreator, boolean deferred ) {
+		this.nodeClassifier = nodeClassifier;
+		this.componenthandler = componentcreator;
+		this.deferred = deferred;
+	}
+
+	@Override
+	public void addNode(T node) {
+		if (!nodeIndex.containsKey(node))
+			createNode(node);
+	}
+
+	@Override
+	public void removeNode(T node) {
+		final Integer id = nodeIndex.get(node);
+		if (id == null)
+			return;
+
+		// remove incident edges, after which the node is free
+		final int n = id;
+		while (degree[n] > 0) {
+			removeEdge(edgePair(incident[n][degree[n]-1]));
+		}
+
+		unlinkFree(n);
+		nodeIndex.remove(node);
+		nodes[n] = null;
+		push(n, true);
+	}
+
+	@Override
+	public final void addEdge(Pair<T> pair, U edgeelement) {
+		// only update the edge element if the edge is already present
+		final Integer existing = edgeIndex.get(pair);
+		if (existing != null) {
+			edges[existing] = edgeelement;
+			return;
+		}
+
+		int a = nodeId(pair.getFirst());
+		int b = nodeId(pair.getSecond());
+		if (a == b)
+			throw new IllegalArgumentException("ArrayComponentGraph: edges from a node to itself are not supported");
+
+		final int e = createEdge(pair, edgeelement, a, b);
+
+		// a is a delimiter if any of the nodes are
+		if (isDelimiter(b)) {
+			int t = a; a = b; b = t;
+		}
+
+		if (isDelimiter(b)) {
+			// both are delimiters, the edge is not in any component
+		} else if (isDelimiter(a)) {
+			if (nodeComponent[b] == NONE) {
+				final int g = createComponent();
+				unlinkFree(b);
+				appendNode(g, b);
+				componenthandler.nodeAddedToComponent(component(g), node(b));
+				appendEdge(g, e);
+			} else {
+				appendEdge(find(b), e);
+			}
+		} else {
+			// if b is in a component, so is a
+			if (nodeComponent[b] != NONE) {
+				int t = a; a = b; b = t;
+			}
+
+			if (nodeComponent[b] != NONE) {
+				final int ga = find(a);
+				final int gb = find(b);
+				if (ga == gb) {
+					appendEdge(ga, e);
+				} else {
+					// the larger component remains
+					final int remaining = nodesInComponent[ga] >= nodesInComponent[gb]? ga : gb;
+					final int leaving = remaining == ga? gb : ga;
+					componenthandler.mergeComponent(component(remaining), component(leaving));
+					merge(remaining, leaving);
+					appendEdge(remaining, e);
+				}
+			} else if (nodeComponent[a] != NONE) {
+				final int g = find(a);
+				unlinkFree(b);
+				appendNode(g, b);
+				appendEdge(g, e);
+				componenthandler.nodeAddedToComponent(component(g), node(b));
+			} else {
+				final int g = createComponent();
+				unlinkFree(a);
+				unlinkFree(b);
+				appendNode(g, a);
+				appendNode(g, b);
+				componenthandler.nodeAddedToComponent(component(g), node(a));
+				componenthandler.nodeAddedToComponent(component(g), node(b));
+				appendEdge(g, e);
+			}
+		}
+	}
+
+	@Override
+	public final boolean removeEdge(Pair<T> pair) {
+		final Integer id = edgeIndex.get(pair);
+		if (id == null)
+			return false;
+
+		final int e = id;
+		int a = edgeA[e];
+		int b = edgeB[e];
+
+		// the edge is in the component of the non-delimiter nodes, if any
+		int g = NONE;
+		if (!isDelimiter(a)) g = find(a);
+		else if (!isDelimiter(b)) g = find(b);
+
+		if (g != NONE)
+			unlinkEdge(g, e);
+
+		deleteEdge(e);
+
+		// a is a delimiter if any of the nodes are
+		if (isDelimiter(b)) {
+			int t = a; a = b; b = t;
+		}
+
+		if (isDelimiter(b)) {
+			// both are delimiters, the edge was not in any component
+		} else if (isDelimiter(a)) {
+			// b leaves the component if this was its last edge
+			if (degree[b] == 0) {
+				unlinkNode(g, b);
+				componenthandler.nodeRemovedFromComponent(component(g), node(b));
+				appendFree(b);
+			}
+		} else {
+			// make a the node that still has edges, if any
+			if (degree[b] > 0) {
+				int t = a; a = b; b = t;
+			}
+
+			if (degree[b] > 0) {
+				// both nodes still have edges, so the component could be split in two
+				if (deferred) markDirty(g);
+				else split(g, a, b);
+			} else if (degree[a] > 0) {
+				unlinkNode(g, b);
+				appendFree(b);
+				componenthandler.nodeRemovedFromComponent(component(g), node(b));
+			} else {
+				unlinkNode(g, a);
+				unlinkNode(g, b);
+				appendFree(a);
+				appendFree(b);
+				componenthandler.nodeRemovedFromComponent(component(g), node(a));
+				componenthandler.nodeRemovedFromComponent(component(g), node(b));
+			}
+		}
+
+		// the component is gone when its last edge is removed
+		if (g != NONE && edgesInComponent[g] == 0)
+			deleteComponent(g);
+
+		return true;
+	}
+
+	@Override
+	public final void resolveComponents() {
+		for (int i=0; i<dirtyCount; i++) {
+			final int g = dirtyComponents[i];
+			// merged and removed components are no longer dirty
+			if (dirty[g]) {
+				dirty[g] = false;
+				resolve(g);
+			}
+		}
+		dirtyCount = 0;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public final U getEdge(Pair<T> pair) {
+		final Integer id = edgeIndex.get(pair);
+		return id == null? null : (U)edges[id];
+	}
+
+	@Override
+	public final Iterator<U> getEdgesInComponent(V c) {
+		final Integer id = componentIndex.get(c);
+		if (id == null)
+			return null;
+
+		return new Iterator<U>() {
+			private int e = edgeHead[id];
+			@Override
+			public boolean hasNext() {
+				return e != NONE;
+			}
+			@Override
+			@SuppressWarnings("unchecked")
+			public U next() {
+				if (e == NONE)
+					throw new NoSuchElementException();
+				final U edge = (U)edges[e];
+				e = edgeNext[e];
+				return edge;
+			}
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	public final Iterator<T> getNodesInComponent(V c) {
+		final Integer id = componentIndex.get(c);
+		if (id == null)
+			return null;
+
+		return new NodeIterator(nodeHead[id]);
+	}
+
+	@Override
+	public final Iterator<V> getComponents() {
+		return new Iterator<V>() {
+			private int i = 0;
+			@Override
+			public boolean hasNext() {
+				return i < rootCount;
+			}
+			@Override
+			public V next() {
+				if (i >= rootCount)
+					throw new NoSuchElementException();
+				return component(roots[i++]);
+			}
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	public final int getNumberOfComponents() {
+		return rootCount;
+	}
+
+	@Override
+	public final int getNumberOfNodes() {
+		return nodeIndex.size();
+	}
+
+	@Override
+	public final int getNumberOfFreeNodes() {
+		return freeCount;
+	}
+
+	@Override
+	public final Iterator<T> getFreeNodes() {
+		return new NodeIterator(freeHead);
+	}
+
+	@Override
+	public final Iterator<T> getConnectedNodes(T node) {
+		final Integer id = nodeIndex.get(node);
+		final int n = id == null? NONE : id;
+		return new Iterator<T>() {
+			private int i = 0;
+			@Override
+			public boolean hasNext() {
+				return n != NONE && i < degree[n];
+			}
+			@Override
+			@SuppressWarnings("unchecked")
+			public T next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				final int e = incident[n][i++];
+				return (T)nodes[edgeA[e] == n? edgeB[e] : edgeA[e]];
+			}
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	public final Iterator<U> getConnectedEdges(T node) {
+		final Integer id = nodeIndex.get(node);
+		final int n = id == null? NONE : id;
+		return new Iterator<U>() {
+			private int i = 0;
+			@Override
+			public boolean hasNext() {
+				return n != NONE && i < degree[n];
+			}
+			@Override
+			@SuppressWarnings("unchecked")
+			public U next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				return (U)edges[incident[n][i++]];
+			}
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	// iterator following the node links from the given node
+	private final class NodeIterator implements Iterator<T> {
+		private int n;
+		public NodeIterator(int first) { this.n = first; }
+		@Override
+		public boolean hasNext() {
+			return n != NONE;
+		}
+		@Override
+		@SuppressWarnings("unchecked")
+		public T next() {
+			if (n == NONE)
+				throw new NoSuchElementException();
+			final T node = (T)nodes[n];
+			n = nodeNext[n];
+			return node;
+		}
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * Search from both a and b in the component g, after an edge between them has been removed. If one search
+	 * runs out of nodes before meeting the other, the nodes it reached are moved into a new component
+	 */
+	private void split(final int g, final int a, final int b) {
+		// new visit marks, stamp for nodes reached from a, stamp+1 for nodes reached from b
+		if (stamp > Integer.MAX_VALUE-4) {
+			Arrays.fill(visited, 0);
+			Arrays.fill(edgeVisited, 0);
+			stamp = 0;
+		}
+		stamp += 2;
+		final int markA = stamp, markB = stamp+1;
+
+		int headA = 0, tailA = 0, headB = 0, tailB = 0;
+		queueA[tailA++] = a; visited[a] = markA;
+		queueB[tailB++] = b; visited[b] = markB;
+
+		while (true) {
+			// the nodes reached from a are disconnected from b
+			if (headA == tailA) {
+				moveToNewComponent(g, queueA, tailA, markA);
+				return;
+			}
+
+			// expand one node from a
+			int n = queueA[headA++];
+			for (int i=0; i<degree[n]; i++) {
+				final int e = incident[n][i];
+				final int m = edgeA[e] == n? edgeB[e] : edgeA[e];
+				if (visited[m] == markB)
+					return;
+				if (visited[m] != markA && !isDelimiter(m)) {
+					visited[m] = markA;
+					queueA[tailA++] = m;
+				}
+			}
+
+			// the nodes reached from b are disconnected from a
+			if (headB == tailB) {
+				moveToNewComponent(g, queueB, tailB, markB);
+				return;
+			}
+
+			// expand one node from b
+			n = queueB[headB++];
+			for (int i=0; i<degree[n]; i++) {
+				final int e = incident[n][i];
+				final int m = edgeA[e] == n? edgeB[e] : edgeA[e];
+				if (visited[m] == markA)
+					return;
+				if (visited[m] != markB && !isDelimiter(m)) {
+					visited[m] = markB;
+					queueB[tailB++] = m;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Find the connected parts of the component g. The part containing the first node stays in g, while each
+	 * of the other parts is moved into a new component
+	 */
+	private void resolve(final int g) {
+		// take a copy of the nodes, since the node list changes as parts are moved
+		final int count = nodesInComponent[g];
+		int n = nodeHead[g];
+		for (int i=0; i<count; i++) {
+			queueB[i] = n;
+			n = nodeNext[n];
+		}
+
+		// one visit mark for each part
+		if (stamp > Integer.MAX_VALUE-count-4) {
+			Arrays.fill(visited, 0);
+			Arrays.fill(edgeVisited, 0);
+			stamp = 0;
+		}
+		final int first = stamp+1;
+
+		for (int i=0; i<count; i++) {
+			final int start = queueB[i];
+			if (visited[start] >= first)
+				continue;
+
+			final int mark = ++stamp;
+			int head = 0, tail = 0;
+			queueA[tail++] = start; visited[start] = mark;
+			while (head < tail) {
+				final int m = queueA[head++];
+				for (int j=0; j<degree[m]; j++) {
+					final int e = incident[m][j];
+					final int k = edgeA[e] == m? edgeB[e] : edgeA[e];
+					if (visited[k] != mark && !isDelimiter(k)) {
+						visited[k] = mark;
+						queueA[tail++] = k;
+					}
+				}
+			}
+
+			if (i > 0)
+				moveToNewComponent(g, queueA, tail, mark);
+		}
+	}
+
+	private void markDirty(final int g) {
+		if (!dirty[g]) {
+			dirty[g] = true;
+			// a removed component can be reused and marked again, so the list may hold an id more than once
+			if (dirtyCount == dirtyComponents.length)
+				dirtyComponents = Arrays.copyOf(dirtyComponents, dirtyCount*2);
+			dirtyComponents[dirtyCount++] = g;
+		}
+	}
+
+	// move the given nodes and their incident edges from g into a new component
+	private void moveToNewComponent(final int g, final int[] queue, final int count, final int mark) {
+		final int h = createComponent();
+		for (int i=0; i<count; i++) {
+			final int n = queue[i];
+			unlinkNode(g, n);
+			appendNode(h, n);
+		}
+		for (int i=0; i<count; i++) {
+			final int n = queue[i];
+			for (int j=0; j<degree[n]; j++) {
+				final int e = incident[n][j];
+				if (edgeVisited[e] != mark) {
+					edgeVisited[e] = mark;
+					unlinkEdge(g, e);
+					appendEdge(h, e);
+				}
+			}
+		}
+	}
+
+	private boolean isDelimiter(final int n) {
+		return nodeClassifier.isDelimitor(node(n));
+	}
+
+	@SuppressWarnings("unchecked")
+	private T node(final int n) {
+		return (T)nodes[n];
+	}
+
+	@SuppressWarnings("unchecked")
+	private V component(final int g) {
+		return (V)components[g];
+	}
+
+	@SuppressWarnings("unchecked")
+	private Pair<T> edgePair(final int e) {
+		return (Pair<T>)edgePairs[e];
+	}
+
+	// find the component of a node, and shorten the path to it
+	private int find(final int n) {
+		int g = nodeComponent[n];
+		while (parent[g] != g) {
+			parent[g] = parent[parent[g]];
+			g = parent[g];
+		}
+		nodeComponent[n] = g;
+		return g;
+	}
+
+	// get the id of a node, creating the node if needed
+	private int nodeId(final T node) {
+		final Integer id = nodeIndex.get(node);
+		return id == null? createNode(node) : id;
+	}
+
+	private int createNode(final T node) {
+		final int n;
+		if (freeNodeIdCount > 0) {
+			n = freeNodeIds[--freeNodeIdCount];
+		} else {
+			n = nodeCount++;
+			if (n >= nodes.length)
+				growNodes(Math.max(16, nodes.length*2));
+		}
+		nodes[n] = node;
+		nodeComponent[n] = NONE;
+		degree[n] = 0;
+		if (incident[n] == null)
+			incident[n] = new int[4];
+		nodeIndex.put(node, n);
+		appendFree(n);
+		return n;
+	}
+
+	private int createEdge(final Pair<T> pair, final U edgeelement, final int a, final int b) {
+		final int e;
+		if (freeEdgeIdCount > 0) {
+			e = freeEdgeIds[--freeEdgeIdCount];
+		} else {
+			e = edgeCount++;
+			if (e >= edges.length)
+				growEdges(Math.max(16, edges.length*2));
+		}
+		edges[e] = edgeelement;
+		edgePairs[e] = pair;
+		edgeA[e] = a;
+		edgeB[e] = b;
+		edgePosA[e] = addIncident(a, e);
+		edgePosB[e] = addIncident(b, e);
+		edgeIndex.put(pair, e);
+		return e;
+	}
+
+	private void deleteEdge(final int e) {
+		removeIncident(edgeA[e], edgePosA[e]);
+		removeIncident(edgeB[e], edgePosB[e]);
+		edgeIndex.remove(edgePairs[e]);
+		edges[e] = null;
+		edgePairs[e] = null;
+		push(e, false);
+	}
+
+	private int addIncident(final int n, final int e) {
+		if (degree[n] == incident[n].length)
+			incident[n] = Arrays.copyOf(incident[n], degree[n]*2);
+		incident[n][degree[n]] = e;
+		return degree[n]++;
+	}
+
+	// remove an entry from the incident list of n, by moving the last entry into its place
+	private void removeIncident(final int n, final int position) {
+		final int last = incident[n][--degree[n]];
+		if (position != degree[n]) {
+			incident[n][position] = last;
+			if (edgeA[last] == n) edgePosA[last] = position;
+			else edgePosB[last] = position;
+		}
+	}
+
+	private void push(final int id, final boolean node) {
+		if (node) {
+			if (freeNodeIdCount == freeNodeIds.length)
+				freeNodeIds = Arrays.copyOf(freeNodeIds, Math.max(16, freeNodeIds.length*2));
+			freeNodeIds[freeNodeIdCount++] = id;
+		} else {
+			if (freeEdgeIdCount == freeEdgeIds.length)
+				freeEdgeIds = Arrays.copyOf(freeEdgeIds, Math.max(16, freeEdgeIds.length*2));
+			freeEdgeIds[freeEdgeIdCount++] = id;
+		}
+	}
+
+	private int createComponent() {
+		if (freeComponentIdCount == 0) {
+			// reclaim merged components if they make up half of the ids, otherwise grow
+			if (merged > 0 && merged*2 >= componentCount) {
+				compact();
+			} else {
+				final int g = componentCount++;
+				if (g >= components.length)
+					growComponents(Math.max(16, components.length*2));
+				freeComponentIds[freeComponentIdCount++] = g;
+			}
+		}
+
+		final int g = freeComponentIds[--freeComponentIdCount];
+		final V component = componenthandler.newComponent();
+		components[g] = component;
+		parent[g] = g;
+		nodeHead[g] = nodeTail[g] = NONE;
+		edgeHead[g] = edgeTail[g] = NONE;
+		nodesInComponent[g] = edgesInComponent[g] = 0;
+		dirty[g] = false;
+		rootPosition[g] = rootCount;
+		roots[rootCount++] = g;
+		componentIndex.put(component, g);
+		return g;
+	}
+
+	// remove an empty component. No node refers to it, so the id can be reused right away
+	private void deleteComponent(final int g) {
+		if (nodesInComponent[g] != 0)
+			throw new IllegalStateException("ArrayComponentGraph: component without edges still has nodes. ComponentGraph corrupted.");
+		removeRoot(g);
+		dirty[g] = false;
+		freeComponentIds[freeComponentIdCount++] = g;
+	}
+
+	private void removeRoot(final int g) {
+		final int last = roots[--rootCount];
+		roots[rootPosition[g]] = last;
+		rootPosition[last] = rootPosition[g];
+		componentIndex.remove(components[g]);
+		components[g] = null;
+	}
+
+	// join the leaving component into the remaining one. Nodes of the leaving component find the remaining one through the parent link
+	private void merge(final int remaining, final int leaving) {
+		if (nodeHead[leaving] != NONE) {
+			if (nodeHead[remaining] == NONE) {
+				nodeHead[remaining] = nodeHead[leaving];
+			} else {
+				nodeNext[nodeTail[remaining]] = nodeHead[leaving];
+				nodePrev[nodeHead[leaving]] = nodeTail[remaining];
+			}
+			nodeTail[remaining] = nodeTail[leaving];
+		}
+		if (edgeHead[leaving] != NONE) {
+			if (edgeHead[remaining] == NONE) {
+				edgeHead[remaining] = edgeHead[leaving];
+			} else {
+				edgeNext[edgeTail[remaining]] = edgeHead[leaving];
+				edgePrev[edgeHead[leaving]] = edgeTail[remaining];
+			}
+			edgeTail[remaining] = edgeTail[leaving];
+		}
+		nodesInComponent[remaining] += nodesInComponent[leaving];
+		edgesInComponent[remaining] += edgesInComponent[leaving];
+
+		// the union is dirty if any of the components were
+		if (dirty[leaving]) {
+			dirty[leaving] = false;
+			markDirty(remaining);
+		}
+
+		removeRoot(leaving);
+		parent[leaving] = remaining;
+		merged++;
+	}
+
+	// point all nodes directly at their component, after which merged component ids can be reused
+	private void compact() {
+		for (int i=0; i<rootCount; i++) {
+			final int g = roots[i];
+			for (int n = nodeHead[g]; n != NONE; n = nodeNext[n])
+				nodeComponent[n] = g;
+		}
+		for (int g=0; g<componentCount; g++) {
+			if (parent[g] != g) {
+				parent[g] = g;
+				freeComponentIds[freeComponentIdCount++] = g;
+			}
+		}
+		merged = 0;
+	}
+
+	private void appendNode(final int g, final int n) {
+		nodeComponent[n] = g;
+		nodeNext[n] = NONE;
+		nodePrev[n] = nodeTail[g];
+		if (nodeTail[g] == NONE) nodeHead[g] = n;
+		else nodeNext[nodeTail[g]] = n;
+		nodeTail[g] = n;
+		nodesInComponent[g]++;
+	}
+
+	private void unlinkNode(final int g, final int n) {
+		if (nodePrev[n] == NONE) nodeHead[g] = nodeNext[n];
+		else nodeNext[nodePrev[n]] = nodeNext[n];
+		if (nodeNext[n] == NONE) nodeTail[g] = nodePrev[n];
+		else nodePrev[nodeNext[n]] = nodePrev[n];
+		nodeComponent[n] = NONE;
+		nodesInComponent[g]--;
+	}
+
+	private void appendFree(final int n) {
+		nodeComponent[n] = NONE;
+		nodeNext[n] = NONE;
+		nodePrev[n] = freeTail;
+		if (freeTail == NONE) freeHead = n;
+		else nodeNext[freeTail] = n;
+		freeTail = n;
+		freeCount++;
+	}
+
+	private void unlinkFree(final int n) {
+		if (nodePrev[n] == NONE) freeHead = nodeNext[n];
+		else nodeNext[nodePrev[n]] = nodeNext[n];
+		if (nodeNext[n] == NONE) freeTail = nodePrev[n];
+		else nodePrev[nodeNext[n]] = nodePrev[n];
+		freeCount--;
+	}
+
+	private void appendEdge(final int g, final int e) {
+		edgeNext[e] = NONE;
+		edgePrev[e] = edgeTail[g];
+		if (edgeTail[g] == NONE) edgeHead[g] = e;
+		else edgeNext[edgeTail[g]] = e;
+		edgeTail[g] = e;
+		edgesInComponent[g]++;
+	}
+
+	private void unlinkEdge(final int g, final int e) {
+		if (edgePrev[e] == NONE) edgeHead[g] = edgeNext[e];
+		else edgeNext[edgePrev[e]] = edgeNext[e];
+		if (edgeNext[e] == NONE) edgeTail[g] = edgePrev[e];
+		else edgePrev[edgeNext[e]] = edgePrev[e];
+		edgesInComponent[g]--;
+	}
+
+	private void growNodes(final int size) {
+		nodes = Arrays.copyOf(nodes, size);
+		nodeComponent = Arrays.copyOf(nodeComponent, size);
+		nodeNext = Arrays.copyOf(nodeNext, size);
+		nodePrev = Arrays.copyOf(nodePrev, size);
+		degree = Arrays.copyOf(degree, size);
+		incident = Arrays.copyOf(incident, size);
+		visited = Arrays.copyOf(visited, size);
+		queueA = new int[size];
+		queueB = new int[size];
+	}
+
+	private void growEdges(final int size) {
+		edges = Arrays.copyOf(edges, size);
+		edgePairs = Arrays.copyOf(edgePairs, size);
+		edgeA = Arrays.copyOf(edgeA, size);
+		edgeB = Arrays.copyOf(edgeB, size);
+		edgePosA = Arrays.copyOf(edgePosA, size);
+		edgePosB = Arrays.copyOf(edgePosB, size);
+		edgeNext = Arrays.copyOf(edgeNext, size);
+		edgePrev = Arrays.copyOf(edgePrev, size);
+		edgeVisited = Arrays.copyOf(edgeVisited, size);
+	}
+
+	private void growComponents(final int size) {
+		components = Arrays.copyOf(components, size);
+		parent = Arrays.copyOf(parent, size);
+		nodeHead = Arrays.copyOf(nodeHead, size);
+		nodeTail = Arrays.copyOf(nodeTail, size);
+		nodesInComponent = Arrays.copyOf(nodesInComponent, size);
+		edgeHead = Arrays.copyOf(edgeHead, size);
+		edgeTail = Arrays.copyOf(edgeTail, size);
+		edgesInComponent = Arrays.copyOf(edgesInComponent, size);
+		rootPosition = Arrays.copyOf(rootPosition, size);
+		roots = Arrays.copyOf(roots, size);
+		freeComponentIds = Arrays.copyOf(freeComponentIds, size);
+		dirty = Arrays.copyOf(dirty, size);
+		if (dirtyComponents.length < size)
+			dirtyComponents = Arrays.copyOf(dirtyComponents, size);
+	}
+}
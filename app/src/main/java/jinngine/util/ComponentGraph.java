@@ -164,5 +164,13 @@ public interface ComponentGraph<T,U,V> {
 	 * @return An iterator over all edges connected to the given node
 	 */
 	public Iterator<U> getConnectedEdges(T node);
+	
+	/**
+	 * Split components that have fallen apart since the last call. Implementations that may defer 
+	 * splitting components when edges are removed, resolve all pending splits here. Until then, the nodes 
+	 * and edges of such components are still reported together. Implementations that split components 
+	 * immediately do nothing.
+	 */
+	public void resolveComponents();
 
 }
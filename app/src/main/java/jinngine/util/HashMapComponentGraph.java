@@ -923,6 +923,11 @@ public class HashMapComponentGraph<T,U,V> implements ComponentGraph<T,U,V> {
 		}
 	}
 	
+	@Override
+	public void resolveComponents() {
+		// components are split immediately in removeEdge()
+	}
+	
 	@Override
 	public int getNumberOfNodes() {
 		return allnodes.size();
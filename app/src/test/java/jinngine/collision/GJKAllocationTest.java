@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.collision;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import jinngine.geometry.Box;
+import jinngine.geometry.Sphere;
+import jinngine.geometry.UniformCapsule;
+import jinngine.math.Quaternion;
+import jinngine.math.Vector3;
+import jinngine.physics.Body;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that GJK and RayCast do not produce garbage in the steady state
+ */
+public class GJKAllocationTest {
+
+	private static final int warmup = 20000;
+	private static final int runs = 1000;
+
+	// returns the bytes allocated by the current thread, or -1 if not supported by the JVM
+	private static long allocatedBytes() {
+		final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			final com.sun.management.ThreadMXBean sunbean = (com.sun.management.ThreadMXBean)bean;
+			if (sunbean.isThreadAllocatedMemorySupported() && sunbean.isThreadAllocatedMemoryEnabled())
+				return sunbean.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	// the overhead of measuring allocated bytes itself
+	private static long measurementOverhead() {
+		long overhead = Long.MAX_VALUE;
+		for (int i=0; i<10; i++) {
+			final long start = allocatedBytes();
+			overhead = Math.min(overhead, allocatedBytes()-start);
+		}
+		return overhead;
+	}
+
+	@Test
+	public void gjkIsAllocationFree() {
+		final Box box = new Box(1,1,1);
+		final UniformCapsule capsule = new UniformCapsule(0.25, 1);
+		final Sphere sphere = new Sphere(0.5);
+		new Body("box", box);
+		new Body("capsule", capsule).setPosition(0.3, 1.2, 0.1);
+		final Body b = new Body("sphere", sphere);
+		b.setPosition(-0.2, -0.3, 1.1);
+		b.setOrientation(Quaternion.rotation(0.5, new Vector3(0,1,0)).toRotationMatrix3());
+
+		final GJK gjk = new GJK();
+		final Vector3 pa = new Vector3(), pb = new Vector3();
+
+		for (int i=0; i<warmup; i++) {
+			gjk.run(box, capsule, pa, pb, 0.5, 1e-7, 32);
+			gjk.run(sphere, box, pa, pb, 0.5, 1e-7, 32);
+		}
+
+		if (allocatedBytes() < 0) return; // not supported on this JVM
+		final long overhead = measurementOverhead();
+		final long start = allocatedBytes();
+		for (int i=0; i<runs; i++) {
+			gjk.run(box, capsule, pa, pb, 0.5, 1e-7, 32);
+			gjk.run(sphere, box, pa, pb, 0.5, 1e-7, 32);
+		}
+		final long allocated = allocatedBytes()-start-overhead;
+		assertEquals("bytes allocated by GJK", 0, allocated);
+
+		// sanity check of the result, GJK ignores sphere sweeping, so the capsule core is 0.7 above the box
+		gjk.run(box, capsule, pa, pb, 0.5, 1e-7, 32);
+		assertEquals(0.7, pb.sub(pa).y, 1e-6);
+	}
+
+	@Test
+	public void rayCastIsAllocationFree() {
+		final Box box = new Box(1,1,1);
+		final UniformCapsule capsule = new UniformCapsule(0.25, 1);
+		new Body("box", box);
+		new Body("capsule", capsule).setPosition(3, 0.1, 0);
+
+		final RayCast raycast = new RayCast();
+		final Vector3 point = new Vector3(0,0.1,5);
+		final Vector3 direction = new Vector3(0,0,-1);
+		final Vector3 capsuledirection = new Vector3(-1,0,0);
+		final Vector3 origin = new Vector3();
+		final Vector3 pb = new Vector3(), pc = new Vector3();
+
+		for (int i=0; i<warmup; i++) {
+			raycast.run(box, null, point, direction, pb, pc, 0, 0.01, 1e-7, false);
+			raycast.run(box, capsule, origin, capsuledirection, pb, pc, 0, 0.01, 1e-7, true);
+		}
+
+		if (allocatedBytes() < 0) return; // not supported on this JVM
+		final long overhead = measurementOverhead();
+		final long start = allocatedBytes();
+		for (int i=0; i<runs; i++) {
+			raycast.run(box, null, point, direction, pb, pc, 0, 0.01, 1e-7, false);
+			raycast.run(box, capsule, origin, capsuledirection, pb, pc, 0, 0.01, 1e-7, true);
+		}
+		final long allocated = allocatedBytes()-start-overhead;
+		assertEquals("bytes allocated by RayCast", 0, allocated);
+
+		// the ray hits the box face at z=0.5, 4.5 units away
+		final double lambda = raycast.run(box, null, point, direction, pb, pc, 0, 0.01, 1e-7, false);
+		assertEquals(4.5, lambda, 0.01);
+	}
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.geometry.contact;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import jinngine.geometry.Box;
+import jinngine.geometry.Sphere;
+import jinngine.geometry.UniformCapsule;
+import jinngine.geometry.contact.ContactGenerator.ContactPoint;
+import jinngine.math.Quaternion;
+import jinngine.math.Vector3;
+import jinngine.physics.Body;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Validates the analytic contact generators against the GJK based support map generators
+ */
+public class AnalyticContactGeneratorTest {
+
+	private static Body body( String name, jinngine.geometry.Geometry g, double x, double y, double z, double angle, Vector3 axis ) {
+		Body b = new Body(name, g);
+		b.setPosition(x, y, z);
+		b.setOrientation(Quaternion.rotation(angle, axis.normalize()).toRotationMatrix3());
+		return b;
+	}
+
+	private static List<ContactPoint> run( ContactGenerator g ) {
+		g.run();
+		List<ContactPoint> result = new ArrayList<ContactPoint>();
+		Iterator<ContactPoint> i = g.getContacts();
+		while (i.hasNext())
+			result.add(i.next());
+		return result;
+	}
+
+	private static ContactPoint deepest( List<ContactPoint> contacts ) {
+		ContactPoint best = null;
+		for (ContactPoint cp: contacts)
+			if (best == null || cp.distance < best.distance)
+				best = cp;
+		return best;
+	}
+
+	private static void assertSameContact( List<ContactPoint> expected, List<ContactPoint> actual ) {
+		assertEquals("contact presence", expected.isEmpty(), actual.isEmpty());
+		if (expected.isEmpty())
+			return;
+		ContactPoint e = deepest(expected);
+		ContactPoint a = deepest(actual);
+		assertTrue("normal "+e.normal+" vs "+a.normal, e.normal.dot(a.normal) > 0.999);
+		assertEquals("distance", e.distance, a.distance, 1e-4);
+		assertEquals("depth", e.depth, a.depth, 1e-4);
+	}
+
+	@Test
+	public void sphereBoxMatchesSupportMapGenerator() {
+		Vector3 axis = new Vector3(0.3,1,-0.2);
+		double[][] positions = { {0,1.55,0}, {1.2,1.2,0}, {1.1,1.1,1.1}, {0.2,-1.4,0.3}, {3,0,0} };
+		for (double[] p: positions) {
+			for (double angle: new double[] {0, 0.4}) {
+				Box box = new Box(2,2,2);
+				Sphere sphere = new Sphere(0.5);
+				body("box", box, 0,0,0, angle, axis);
+				body("sphere", sphere, p[0],p[1],p[2], 0, axis);
+
+				assertSameContact(
+						run(new SupportMapSphereContactGenerator(sphere.getBody(), sphere, box.getBody(), box, box)),
+						run(new SphereBoxContactGenerator(sphere, box)));
+				assertSameContact(
+						run(new SupportMapSphereContactGenerator(box.getBody(), box, box, sphere.getBody(), sphere)),
+						run(new SphereBoxContactGenerator(box, sphere)));
+			}
+		}
+	}
+
+	@Test
+	public void sphereCentreInsideBox() {
+		Box box = new Box(2,2,2);
+		Sphere sphere = new Sphere(0.5);
+		body("box", box, 0,0,0, 0, new Vector3(0,1,0));
+		body("sphere", sphere, 0.1,0.8,0, 0, new Vector3(0,1,0));
+
+		List<ContactPoint> contacts = run(new SphereBoxContactGenerator(sphere, box));
+		assertEquals(1, contacts.size());
+		assertEquals(1, contacts.get(0).normal.y, 1e-9);
+		assertEquals(-0.7, contacts.get(0).distance, 1e-9);
+	}
+
+	@Test
+	public void sphereBoxEnvelopeFollowsGeometries() {
+		// the sphere is 0.1 above the box, outside the default envelope
+		Box box = new Box(2,2,2);
+		Sphere sphere = new Sphere(0.5);
+		body("box", box, 0,0,0, 0, new Vector3(0,1,0));
+		body("sphere", sphere, 0,1.6,0, 0, new Vector3(0,1,0));
+		assertTrue(run(new SphereBoxContactGenerator(sphere, box)).isEmpty());
+
+		// a larger envelope on either geometry reports the contact
+		box.setEnvelope(0.5);
+		List<ContactPoint> contacts = run(new SphereBoxContactGenerator(sphere, box));
+		assertEquals(1, contacts.size());
+		assertEquals(0.25, contacts.get(0).envelope, 1e-9);
+		box.setEnvelope(0.125);
+		sphere.setEnvelope(0.5);
+		assertEquals(1, run(new SphereBoxContactGenerator(box, sphere)).size());
+	}
+
+	@Test
+	public void capsuleCapsuleMatchesSupportMapGenerator() {
+		double[][] configurations = {
+				// x, y, z, angle about x axis
+				{0.2, 1.6, 0.1, 1.2},
+				{0.3, 1.0, 0.2, 1.0},
+				{0, 0.98, 0, 0},
+				{0.5, 0.9, 0.4, 0},
+				{0, 3, 0, 0} };
+		for (double[] c: configurations) {
+			UniformCapsule a = new UniformCapsule(0.5, 2);
+			UniformCapsule b = new UniformCapsule(0.5, 2);
+			body("a", a, c[0],c[1],c[2], c[3], new Vector3(1,0,0));
+			body("b", b, 0,0,0, 0, new Vector3(1,0,0));
+
+			List<ContactPoint> expected = run(new SupportMapContactGenerator(a, a, b, b));
+			List<ContactPoint> actual = run(new CapsuleCapsuleContactGenerator(a, b));
+			assertSameContact(expected, actual);
+
+			// parallel capsules are supported at both ends of the overlap
+			if (c[3] == 0)
+				assertEquals("number of contacts", expected.size(), actual.size());
+		}
+	}
+
+	@Test
+	public void capsuleBoxMatchesSupportMapGenerator() {
+		double[][] configurations = {
+				// x, y, z, angle about z axis
+				{0, 1.45, 0, 0},
+				{0.2, 1.5, 0.3, 0},
+				{0, 1.9, 0, 0.6},
+				{1.3, 1.3, 0.1, 0.9},
+				{0, 4, 0, 0} };
+		for (double[] c: configurations) {
+			Box box = new Box(2,2,2);
+			UniformCapsule capsule = new UniformCapsule(0.5, 1.5);
+			body("box", box, 0,0,0, 0, new Vector3(0,0,1));
+			// lay the capsule along the x axis, then tilt it about the z axis
+			Body b = body("capsule", capsule, c[0],c[1],c[2], Math.PI/2, new Vector3(0,1,0));
+			b.setOrientation(Quaternion.rotation(c[3], new Vector3(0,0,1)).toRotationMatrix3().multiply(b.getOrientation()));
+
+			List<ContactPoint> expected = run(new SupportMapContactGenerator(capsule, capsule, box, box));
+			List<ContactPoint> actual = run(new CapsuleBoxContactGenerator(capsule, box));
+			assertSameContact(expected, actual);
+			assertEquals("number of contacts", expected.size(), actual.size());
+
+			// reversed order
+			expected = run(new SupportMapContactGenerator(box, box, capsule, capsule));
+			actual = run(new CapsuleBoxContactGenerator(box, capsule));
+			assertSameContact(expected, actual);
+		}
+	}
+}
@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.geometry.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import jinngine.geometry.Box;
+import jinngine.geometry.contact.ContactGenerator;
+import jinngine.geometry.contact.ContactGenerator.ContactPoint;
+import jinngine.geometry.contact.SupportMapContactGenerator;
+import jinngine.math.Quaternion;
+import jinngine.math.Vector3;
+import jinngine.physics.Body;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of {@link ManifoldReduction}, on contact points in a plane that is not aligned with the axes
+ */
+public class ManifoldReductionTest {
+
+	private final Random random = new Random(5);
+	private final ManifoldReduction reduction = new ManifoldReduction();
+
+	// contact normal, and two orthogonal directions in the contact plane
+	private final Vector3 normal = new Vector3(0.2,1,-0.3).normalize();
+	private final Vector3 u = normal.cross(new Vector3(1,0,0)).normalize();
+	private final Vector3 v = normal.cross(u);
+
+	// a contact point at (x,y) in the contact plane, with the given distance
+	private ContactPoint point( double x, double y, double distance ) {
+		final ContactPoint cp = new ContactPoint();
+		cp.point.assign(u.multiply(x).add(v.multiply(y)).add(normal.multiply(distance)));
+		cp.normal.assign(normal);
+		cp.distance = distance;
+		return cp;
+	}
+
+	// twice the area of the polygon given by the contact points, in order, projected onto the contact plane
+	private double area( List<ContactPoint> polygon ) {
+		double area = 0;
+		for (int k=0; k<polygon.size(); k++) {
+			final Vector3 a = polygon.get(k).point, b = polygon.get((k+1)%polygon.size()).point;
+			area += a.cross(b).dot(normal);
+		}
+		return area;
+	}
+
+	@Test
+	public void deepestPointIsKept() {
+		for (int trial=0; trial<20; trial++) {
+			final List<ContactPoint> contacts = new ArrayList<ContactPoint>();
+			for (int i=0; i<12; i++)
+				contacts.add(point(random.nextGaussian(), random.nextGaussian(), -0.01*random.nextDouble()));
+			// the deepest point lies inside the polygon, where it adds no area
+			final ContactPoint deepest = point(0.01, 0.01, -0.02);
+			contacts.add(random.nextInt(contacts.size()), deepest);
+
+			reduction.reduce(contacts, 4);
+			assertEquals(4, contacts.size());
+			assertTrue(contacts.contains(deepest));
+		}
+	}
+
+	@Test
+	public void squareFaceReducesToCorners() {
+		// a 4 by 4 grid on a square face, which is slightly tilted so one corner is deepest
+		final List<ContactPoint> contacts = new ArrayList<ContactPoint>();
+		final List<ContactPoint> corners = new ArrayList<ContactPoint>();
+		for (int i=0; i<4; i++) {
+			for (int j=0; j<4; j++) {
+				final ContactPoint cp = point(i, j, -0.01+0.001*(i+j));
+				contacts.add(cp);
+				if ((i == 0 || i == 3) && (j == 0 || j == 3))
+					corners.add(cp);
+			}
+		}
+		Collections.shuffle(contacts, random);
+
+		reduction.reduce(contacts, 4);
+		assertEquals(4, contacts.size());
+		assertTrue(contacts.containsAll(corners));
+		// the corners are in counter clock-wise order
+		assertEquals(2*9, area(contacts), 1e-9);
+	}
+
+	@Test
+	public void collinearPointsStopEarly() {
+		// points on a line add no area, so only the deepest point and the point farthest from it are kept
+		final List<ContactPoint> contacts = new ArrayList<ContactPoint>();
+		for (int i=0; i<8; i++)
+			contacts.add(point(i-3, 2*(i-3), i == 3? -0.02 : -0.01));
+		final ContactPoint deepest = contacts.get(3), farthest = contacts.get(7);
+
+		reduction.reduce(contacts, 4);
+		assertEquals(2, contacts.size());
+		assertTrue(contacts.contains(deepest));
+		assertTrue(contacts.contains(farthest));
+	}
+
+	@Test
+	public void fewPointsAreUntouched() {
+		final List<ContactPoint> contacts = new ArrayList<ContactPoint>();
+		for (int i=0; i<4; i++)
+			contacts.add(point(random.nextGaussian(), random.nextGaussian(), -0.01*random.nextDouble()));
+		final List<ContactPoint> original = new ArrayList<ContactPoint>(contacts);
+
+		reduction.reduce(contacts, 4);
+		assertEquals(original, contacts);
+		contacts.remove(3);
+		original.remove(3);
+		reduction.reduce(contacts, 4);
+		assertEquals(original, contacts);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void nonPositiveMaximumIsRejected() {
+		reduction.reduce(new ArrayList<ContactPoint>(), 0);
+	}
+
+	private static int contacts( ContactGenerator generator ) {
+		generator.run();
+		int count = 0;
+		final Iterator<ContactPoint> i = generator.getContacts();
+		while (i.hasNext()) {
+			i.next();
+			count++;
+		}
+		return count;
+	}
+
+	@Test
+	public void generatorsHaveTheirOwnLimit() {
+		// two boxes resting face to face, rotated so the clipped face has eight corners
+		final Box a = new Box(1,1,1), b = new Box(1,1,1);
+		new Body("a", a);
+		final Body bb = new Body("b", b);
+		bb.setPosition(0,0.99,0);
+		bb.setOrientation(Quaternion.rotation(Math.PI/4, new Vector3(0,1,0)).toRotationMatrix3());
+
+		final SupportMapContactGenerator bounded = new SupportMapContactGenerator(a, a, b, b);
+		final SupportMapContactGenerator unbounded = new SupportMapContactGenerator(a, a, b, b, 16);
+		assertEquals(4, bounded.getMaximumContactPoints());
+		assertEquals(16, unbounded.getMaximumContactPoints());
+		assertEquals(4, contacts(bounded));
+		assertEquals(8, contacts(unbounded));
+	}
+}
@@ -0,0 +1,170 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import jinngine.collision.SAP2;
+import jinngine.geometry.Box;
+import jinngine.math.Vector3;
+import jinngine.physics.constraint.contact.ContactConstraint;
+import jinngine.physics.constraint.contact.ContactConstraintManager;
+import jinngine.physics.constraint.contact.FrictionalContactConstraint;
+import jinngine.physics.solver.PackedNonsmoothNonlinearConjugateGradient;
+import jinngine.physics.solver.Solver.NCPConstraint;
+import jinngine.util.Pair;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of {@link ContactTriggerDispatcher}, with recorded rows given directly, and in a {@link DefaultScene}
+ */
+public class ContactTriggerDispatcherTest {
+
+	// records the events of a callback
+	private static final class Events implements ContactTrigger.Callback {
+		final List<String> events = new ArrayList<String>();
+		public void contactAboveThreshold(Body interactingBody, ContactConstraint constraint) {
+			events.add("above "+interactingBody);
+		}
+		public void contactBelowThreshold(Body interactingBody, ContactConstraint constraint) {
+			events.add("below "+interactingBody);
+		}
+	}
+
+	// a manager that only keeps the handler installed by the dispatcher
+	private static final class Manager implements ContactConstraintManager {
+		Handler handler;
+		public void setup(Scene scene) {}
+		public void cleanup(Scene scene) {}
+		public void addHandler(Handler handler) {
+			this.handler = handler;
+		}
+		public void removeHandler(Handler handler) {}
+	}
+
+	private final Manager manager = new Manager();
+	private final ContactTriggerDispatcher dispatcher = new ContactTriggerDispatcher(manager);
+	private final Body a = new Body("a"), floor = new Body("floor");
+	private final ContactConstraint contact = new FrictionalContactConstraint(a, floor, null);
+
+	// apply the contact with one normal row and two coupled friction rows, with the given impulses
+	private void step( double normal, double friction ) {
+		final List<NCPConstraint> rows = new ArrayList<NCPConstraint>();
+		final NCPConstraint n = new NCPConstraint();
+		n.assign(a, floor, new Vector3(), new Vector3(), new Vector3(), new Vector3(), new Vector3(), new Vector3(), new Vector3(), new Vector3(),
+				0, Double.POSITIVE_INFINITY, null, 0, 0);
+		n.lambda = normal;
+		n.mu = 1;
+		rows.add(n);
+		for (int k=0; k<2; k++) {
+			final NCPConstraint t = new NCPConstraint();
+			t.assign(a, floor, new Vector3(), new Vector3(), new Vector3(), new Vector3(), new Vector3(), new Vector3(), new Vector3(), new Vector3(),
+					-normal, normal, n, 0, 0);
+			t.lambda = friction;
+			rows.add(t);
+		}
+		dispatcher.record(contact, rows, 0, rows.size());
+		dispatcher.dispatch(rows);
+	}
+
+	@Test
+	public void aboveAndBelowEventsArriveInPairs() {
+		final Events events = new Events();
+		dispatcher.subscribe(a, 1, events);
+		for (double normal: new double[] {0.5, 2, 3, 2.5, 0.5, 0.2, 2, 0.1})
+			step(normal, 0);
+		assertEquals(Arrays.asList("above floor", "below floor", "above floor", "below floor"), events.events);
+	}
+
+	@Test
+	public void frictionImpulseIsNotCounted() {
+		// the threshold applies to the total normal impulse of the contact
+		final Events events = new Events();
+		dispatcher.subscribe(a, 1, events);
+		step(0.5, 5);
+		step(0.5, -5);
+		assertTrue(events.events.isEmpty());
+		step(1.5, -5);
+		assertEquals(Arrays.asList("above floor"), events.events);
+	}
+
+	@Test
+	public void removedContactReportsBelow() {
+		final Events events = new Events(), other = new Events();
+		dispatcher.subscribe(a, 1, events);
+		dispatcher.subscribe(floor, 1, other);
+		step(2, 0);
+		assertEquals(Arrays.asList("above floor"), events.events);
+		assertEquals(Arrays.asList("above a"), other.events);
+
+		// removed while above the threshold, reported once to both sides
+		manager.handler.contactConstraintRemoved(new Pair<Body>(a, floor), contact);
+		manager.handler.contactConstraintRemoved(new Pair<Body>(a, floor), contact);
+		assertEquals(Arrays.asList("above floor", "below floor"), events.events);
+		assertEquals(Arrays.asList("above a", "below a"), other.events);
+
+		// removed while below the threshold, nothing to report
+		step(0.5, 0);
+		manager.handler.contactConstraintRemoved(new Pair<Body>(a, floor), contact);
+		assertEquals(2, events.events.size());
+	}
+
+	@Test
+	public void unsubscribeStopsEvents() {
+		final Events events = new Events(), other = new Events();
+		final ContactTriggerDispatcher.Subscription subscription = dispatcher.subscribe(a, 1, events);
+		dispatcher.subscribe(a, 1, other);
+		step(2, 0);
+		dispatcher.unsubscribe(subscription);
+		// unsubscribing twice is harmless
+		dispatcher.unsubscribe(subscription);
+		step(0.5, 0);
+		step(2, 0);
+		manager.handler.contactConstraintRemoved(new Pair<Body>(a, floor), contact);
+		assertEquals(Arrays.asList("above floor"), events.events);
+		assertEquals(Arrays.asList("above floor", "below floor", "above floor", "below floor"), other.events);
+	}
+
+	@Test
+	public void deactivatedContactsDoNotFire() {
+		final DeactivationPolicy policy = new DefaultDeactivationPolicy();
+		final DefaultScene scene = new DefaultScene(new SAP2(), new PackedNonsmoothNonlinearConjugateGradient(45), policy);
+		scene.setTimestep(0.02);
+		scene.getForceField().setGravity(new Vector3(0,-9.8,0));
+		final Body ground = new Body("ground", new Box(20,1,20));
+		ground.setPosition(0,-0.5,0);
+		scene.addBody(ground);
+		scene.fixBody(ground, true);
+		final Body box = new Body("box", new Box(1,1,1));
+		box.setPosition(0,0.5,0);
+		scene.addBody(box);
+
+		for (int i=0; i<100; i++)
+			scene.tick();
+		assertTrue(box.deactivated);
+
+		// the resting contact is above the threshold, but is not applied while the box sleeps
+		final Events events = new Events();
+		scene.getContactTriggerDispatcher().subscribe(box, 0.5*9.8*0.02, events);
+		for (int i=0; i<20; i++)
+			scene.tick();
+		assertTrue(box.deactivated);
+		assertTrue(events.events.isEmpty());
+
+		// once awake, the contact fires
+		policy.forceActivate(box);
+		scene.tick();
+		assertEquals(Arrays.asList("above ground"), events.events);
+	}
+}
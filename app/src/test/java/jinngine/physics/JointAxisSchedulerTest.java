@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics;
+
+import jinngine.collision.SAP2;
+import jinngine.geometry.Box;
+import jinngine.math.Vector3;
+import jinngine.physics.constraint.joint.HingeJoint;
+import jinngine.physics.solver.PackedNonsmoothNonlinearConjugateGradient;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of {@link JointAxisScheduler}
+ */
+public class JointAxisSchedulerTest {
+
+	@Test
+	public void changedAxisWakesIslandOnce() {
+		final DefaultScene scene = new DefaultScene(new SAP2(), new PackedNonsmoothNonlinearConjugateGradient(45), new DefaultDeactivationPolicy());
+		scene.setTimestep(0.02);
+		scene.getForceField().setGravity(new Vector3(0,-9.8,0));
+
+		final Body floor = new Body("floor", new Box(20,1,20));
+		floor.setPosition(0,-0.5,0);
+		scene.addBody(floor);
+		scene.fixBody(floor, true);
+
+		// two boxes resting on the floor, connected by a hinge
+		final Body a = new Body("a", new Box(1,1,1));
+		a.setPosition(0,0.5,0);
+		scene.addBody(a);
+		final Body b = new Body("b", new Box(1,1,1));
+		b.setPosition(1.2,0.5,0);
+		scene.addBody(b);
+		final HingeJoint hinge = new HingeJoint(a, b, new Vector3(0.6,0.5,0), new Vector3(0,0,1));
+		scene.addConstraint(hinge);
+		final JointAxisScheduler scheduler = scene.getJointAxisScheduler();
+		final int[] ids = { scheduler.add(hinge, hinge.getHingeControler()) };
+
+		for (int i=0; i<200; i++)
+			scene.tick();
+		assertTrue(a.deactivated && b.deactivated);
+
+		// a motor holding the hinge still wakes the island, which then falls asleep again. A forced 
+		// activation left behind by the scheduler would wake it a second time
+		scheduler.setMotors(ids, new double[] {10}, new double[] {0}, 1);
+		int wakes = 0;
+		boolean asleep = true;
+		for (int i=0; i<400; i++) {
+			scene.tick();
+			if (asleep && !a.deactivated)
+				wakes++;
+			asleep = a.deactivated;
+		}
+		assertEquals(1, wakes);
+		assertTrue(a.deactivated && b.deactivated);
+	}
+}
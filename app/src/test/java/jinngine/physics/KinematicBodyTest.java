@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jinngine.collision.SAP2;
+import jinngine.geometry.Box;
+import jinngine.math.Vector3;
+import jinngine.physics.constraint.Constraint;
+import jinngine.physics.constraint.joint.BallInSocketJoint;
+import jinngine.physics.solver.PackedNonsmoothNonlinearConjugateGradient;
+import jinngine.physics.solver.Solver.NCPConstraint;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of kinematic bodies in {@link DefaultScene}
+ */
+public class KinematicBodyTest {
+
+	private DefaultScene scene;
+	private DeactivationPolicy policy;
+	private Body floor, a, b;
+
+	// two boxes far apart on a kinematic floor
+	private void build() {
+		policy = new DefaultDeactivationPolicy();
+		scene = new DefaultScene(new SAP2(), new PackedNonsmoothNonlinearConjugateGradient(45), policy);
+		scene.setTimestep(0.02);
+		scene.getForceField().setGravity(new Vector3(0,-9.8,0));
+
+		floor = new Body("floor", new Box(40,1,40));
+		floor.setPosition(0,-0.5,0);
+		floor.setKinematic(true);
+		scene.addBody(floor);
+
+		a = new Body("a", new Box(1,1,1));
+		a.setPosition(-10,0.5,0);
+		scene.addBody(a);
+		b = new Body("b", new Box(1,1,1));
+		b.setPosition(10,0.5,0);
+		scene.addBody(b);
+	}
+
+	@Test
+	public void kinematicBodyDoesNotMergeIslands() {
+		build();
+		for (int i=0; i<100; i++)
+			scene.tick();
+		assertTrue(a.deactivated && b.deactivated);
+
+		// wake and slide one box, the other should stay asleep
+		policy.forceActivate(a);
+		a.setVelocity(5,0,0);
+		for (int i=0; i<20; i++) {
+			scene.tick();
+			assertTrue(b.deactivated);
+		}
+		assertTrue(a.getVelocity().norm() > 0.1);
+	}
+
+	@Test
+	public void stationaryKinematicBodyIsNeverDeactivated() {
+		build();
+		for (int i=0; i<100; i++) {
+			scene.tick();
+			assertFalse(floor.deactivated);
+		}
+		assertTrue(a.deactivated && b.deactivated);
+
+		// moving the floor moves it, and wakes the boxes
+		floor.setVelocity(0,1,0);
+		for (int i=0; i<10; i++)
+			scene.tick();
+		assertEquals(-0.5+10*0.02, floor.getPosition().y, 1e-9);
+		assertFalse(a.deactivated || b.deactivated);
+		assertTrue(a.getPosition().y > 0.6);
+	}
+
+	// names of the bodies of each row, after a time-step of a chain hanging from a fixed or kinematic 
+	// body, with the joints added from the bottom up
+	private static List<String> chainRows( boolean kinematic ) {
+		final DefaultScene scene = new DefaultScene(new SAP2(), new PackedNonsmoothNonlinearConjugateGradient(45), new DefaultDeactivationPolicy());
+		scene.setTimestep(0.02);
+		scene.setIslandSolver(null);
+		scene.getForceField().setGravity(new Vector3(0,-9.8,0));
+
+		final Body ceiling = new Body("ceiling", new Box(2,1,2));
+		ceiling.setPosition(0,20,0);
+		ceiling.setKinematic(kinematic);
+		scene.addBody(ceiling);
+		if (!kinematic)
+			scene.fixBody(ceiling, true);
+
+		final List<Constraint> joints = new ArrayList<Constraint>();
+		Body previous = ceiling;
+		for (int i=0; i<5; i++) {
+			final Body link = new Body("link"+i, new Box(0.5,1.8,0.5));
+			link.setPosition(0,18.5-2*i,0);
+			scene.addBody(link);
+			joints.add(0, new BallInSocketJoint(previous, link, new Vector3(0,19.5-2*i,0), new Vector3(0,1,0)));
+			previous = link;
+		}
+		for (Constraint joint: joints)
+			scene.addConstraint(joint);
+
+		scene.tick();
+		final List<String> result = new ArrayList<String>();
+		for (NCPConstraint row: scene.ncpconstraints)
+			result.add(row.body1+" "+row.body2);
+		return result;
+	}
+
+	@Test
+	public void constraintsAreOrderedFromKinematicBody() {
+		// the joint at the kinematic body comes first, as for a fixed body
+		final List<String> rows = chainRows(true);
+		assertEquals("ceiling link0", rows.get(0));
+		assertEquals(chainRows(false), rows);
+	}
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import jinngine.collision.SAP2;
+import jinngine.geometry.Box;
+import jinngine.math.Vector3;
+import jinngine.physics.solver.PackedNonsmoothNonlinearConjugateGradient;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of {@link WindowedDeactivationPolicy}, on a single body driven directly, and on a group of bodies in a {@link DefaultScene}
+ */
+public class WindowedDeactivationPolicyTest {
+
+	private static final double sleepThreshold = 1e-3, wakeThreshold = 1e-1;
+
+	// drive a free body the way DefaultScene does. After moving for a while, the motion of the body alternates
+	// between low and high. The motion is given as delta velocities, which are not removed when the body is
+	// deactivated. Returns the number of changes between the activated and deactivated states
+	private static int transitions( DeactivationPolicy policy, double low, double high, int steps ) {
+		final Body body = new Body("body", new Box(1,1,1));
+		final int moving = 50;
+		int count = 0;
+		for (int i=0; i<moving+steps; i++) {
+			body.deltavelocity.assign(Math.sqrt(i < moving? 10*sleepThreshold : i%2 == 0? low : high), 0, 0);
+			final boolean deactivated = body.deactivated;
+			if (body.deactivated) {
+				if (policy.shouldBeActivated(body))
+					policy.activate(body);
+			} else {
+				if (policy.shouldBeDeactivated(body))
+					policy.deactivate(body);
+			}
+			if (body.deactivated != deactivated)
+				count++;
+		}
+		return count;
+	}
+
+	@Test
+	public void motionAroundSleepThresholdDoesNotFlicker() {
+		// the average motion is above the sleep threshold, so the body stays active, although half of the
+		// time-steps are below the threshold
+		assertEquals(0, transitions(new WindowedDeactivationPolicy(10, sleepThreshold, wakeThreshold), 0.6*sleepThreshold, 1.8*sleepThreshold, 200));
+		// the default policy deactivates on the first quiet time-step
+		assertEquals(1, transitions(new DefaultDeactivationPolicy(), 0.6*sleepThreshold, 1.8*sleepThreshold, 200));
+
+		// the average motion is below the sleep threshold, so the body is deactivated once, and the motion
+		// above the sleep threshold does not activate it again
+		assertEquals(1, transitions(new WindowedDeactivationPolicy(10, sleepThreshold, wakeThreshold), 0.2*sleepThreshold, 1.8*sleepThreshold, 200));
+	}
+
+	// records the classification of each body, in each time-step
+	private static final class Recorder extends WindowedDeactivationPolicy {
+		final Map<Body,Integer> calls = new HashMap<Body,Integer>();
+		final Map<Body,Integer> active = new HashMap<Body,Integer>();
+		int step = 0;
+
+		Recorder( int window ) {
+			super(window, sleepThreshold, wakeThreshold);
+		}
+
+		@Override
+		public boolean shouldBeDeactivated(Body b) {
+			final boolean result = super.shouldBeDeactivated(b);
+			final Integer count = calls.get(b);
+			calls.put(b, count == null? 1 : count+1);
+			// the last time-step where the body could not be deactivated
+			if (!result)
+				active.put(b, step);
+			return result;
+		}
+	}
+
+	@Test
+	public void groupSleepsAfterSleepDelay() {
+		final int window = 10;
+		final Recorder policy = new Recorder(window);
+		final DefaultScene scene = new DefaultScene(new SAP2(), new PackedNonsmoothNonlinearConjugateGradient(45), policy);
+		assertEquals(window, policy.getSleepDelay());
+		scene.setTimestep(0.02);
+		scene.getForceField().setGravity(new Vector3(0,-9.8,0));
+		final Body floor = new Body("floor", new Box(20,1,20));
+		floor.setPosition(0,-0.5,0);
+		scene.addBody(floor);
+		scene.fixBody(floor, true);
+		final Body lower = new Body("lower", new Box(1,1,1)), upper = new Body("upper", new Box(1,1,1));
+		lower.setPosition(0,0.5,0);
+		upper.setPosition(0.2,1.5,0);
+		scene.addBody(lower);
+		scene.addBody(upper);
+
+		int step = 0;
+		while (!lower.deactivated && step < 1000) {
+			policy.step = ++step;
+			scene.tick();
+			// the policy is asked once per body in each time-step, so the rolling averages have the span of the window
+			assertEquals(step, policy.calls.get(lower).intValue());
+			assertEquals(step, policy.calls.get(upper).intValue());
+		}
+		assertTrue(lower.deactivated);
+		assertTrue(upper.deactivated);
+
+		// the group is deactivated after a window of time-steps where both bodies could be deactivated
+		final int quiet = Math.max(policy.active.get(lower), policy.active.get(upper));
+		assertTrue(policy.active.get(lower) > 1 && policy.active.get(upper) > 1);
+		assertEquals(quiet+window, step);
+	}
+}
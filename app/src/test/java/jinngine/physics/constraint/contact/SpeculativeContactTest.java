@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics.constraint.contact;
+
+import jinngine.collision.SAP2;
+import jinngine.geometry.Box;
+import jinngine.math.Vector3;
+import jinngine.physics.Body;
+import jinngine.physics.DefaultDeactivationPolicy;
+import jinngine.physics.DefaultScene;
+import jinngine.physics.solver.PackedNonsmoothNonlinearConjugateGradient;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of speculative contacts in {@link FrictionalContactConstraint}
+ */
+public class SpeculativeContactTest {
+
+	@After
+	public void disable() {
+		FrictionalContactConstraint.setSpeculativeMarginScale(0);
+	}
+
+	// drop a fast, thin body onto a thin fixed plate at a large time-step, and return its lowest height
+	private static double drop( double scale ) {
+		FrictionalContactConstraint.setSpeculativeMarginScale(scale);
+		final DefaultScene scene = new DefaultScene(new SAP2(), new PackedNonsmoothNonlinearConjugateGradient(45), new DefaultDeactivationPolicy());
+		scene.setTimestep(0.08);
+		scene.getForceField().setGravity(new Vector3(0,-9.8,0));
+
+		final Body plate = new Body("plate", new Box(10,0.2,10));
+		plate.setPosition(0,0,0);
+		scene.addBody(plate);
+		scene.fixBody(plate, true);
+
+		// the body travels 4 units per time-step, far more than the plate and body thickness
+		final Body thin = new Body("thin", new Box(2,0.1,2));
+		thin.setPosition(0,10.3,0);
+		thin.setVelocity(0,-50,0);
+		thin.setAngularVelocity(0,3,0);
+		scene.addBody(thin);
+
+		double lowest = Double.POSITIVE_INFINITY;
+		for (int i=0; i<40; i++) {
+			scene.tick();
+			lowest = Math.min(lowest, thin.getPosition().y);
+		}
+		return lowest;
+	}
+
+	@Test
+	public void fastBodyTunnelsWithoutSpeculativeContacts() {
+		assertTrue(drop(0) < -1);
+	}
+
+	@Test
+	public void fastBodyStopsOnPlate() {
+		// the plate top is at 0.1, and the body is 0.1 thick
+		assertTrue(drop(1.5) > 0.1);
+	}
+}
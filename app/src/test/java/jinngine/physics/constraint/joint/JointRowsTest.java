@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics.constraint.joint;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import jinngine.geometry.Box;
+import jinngine.math.Matrix3;
+import jinngine.math.Vector3;
+import jinngine.physics.Body;
+import jinngine.physics.constraint.Constraint;
+import jinngine.physics.solver.Solver.NCPConstraint;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the rows written by {@link JointRows} with rows formed from the Jacobian and B matrices, using
+ * {@link Matrix3#crossProductMatrix(Vector3)}, as the joints did before
+ */
+public class JointRowsTest {
+
+	private static final double tolerance = 1e-12;
+	private final Random random = new Random(3);
+
+	private Vector3 gaussian() {
+		return new Vector3(random.nextGaussian(), random.nextGaussian(), random.nextGaussian());
+	}
+
+	private Matrix3 matrix() {
+		return new Matrix3(gaussian(), gaussian(), gaussian());
+	}
+
+	// a body with general inverse mass and inertia matrices, so a mix up of rows and columns is noticed
+	private Body body( String name, boolean fixed ) {
+		final Body body = new Body(name, new Box(1,2,3));
+		body.setPosition(gaussian());
+		body.setVelocity(gaussian());
+		body.setAngularVelocity(gaussian());
+		body.setFixed(fixed);
+		body.state.inverseanisotropicmass.assign(matrix());
+		body.state.inverseinertia.assign(matrix());
+		return body;
+	}
+
+	// row k of the linear constraint, formed from the Jacobian and B matrices
+	private static NCPConstraint linear( Body bi, Body bj, int k, Vector3 riw, Vector3 rjw ) {
+		final Matrix3 Ji = Matrix3.identity().multiply(1);
+		final Matrix3 Jangi = Matrix3.crossProductMatrix(riw).multiply(-1);
+		final Matrix3 Jj = Matrix3.identity().multiply(-1);
+		final Matrix3 Jangj = Matrix3.crossProductMatrix(rjw);
+
+		final Matrix3 Bi = bi.isFixed()? new Matrix3() : bi.state.inverseanisotropicmass.multiply(Ji.transpose());
+		final Matrix3 Bangi = bi.isFixed()? new Matrix3() : bi.state.inverseinertia.multiply(Jangi.transpose());
+		final Matrix3 Bj = bj.isFixed()? new Matrix3() : bj.state.inverseanisotropicmass.multiply(Jj.transpose());
+		final Matrix3 Bangj = bj.isFixed()? new Matrix3() : bj.state.inverseinertia.multiply(Jangj.transpose());
+
+		return new NCPConstraint().assign(bi, bj,
+				Bi.column(k), Bangi.column(k), Bj.column(k), Bangj.column(k),
+				Ji.row(k), Jangi.row(k), Jj.row(k), Jangj.row(k),
+				Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, null, 0, 0);
+	}
+
+	// an angular row along the given axis
+	private static NCPConstraint angular( Body bi, Body bj, Vector3 axis ) {
+		return new NCPConstraint().assign(bi, bj,
+				new Vector3(), bi.isFixed()? new Vector3() : bi.state.inverseinertia.multiply(axis),
+				new Vector3(), bj.isFixed()? new Vector3() : bj.state.inverseinertia.multiply(axis.multiply(-1)),
+				new Vector3(), axis, new Vector3(), axis.multiply(-1),
+				Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, null, 0, 0);
+	}
+
+	private static void assertEqualVectors( Vector3 expected, Vector3 actual ) {
+		assertEquals(0, expected.sub(actual).norm(), tolerance);
+	}
+
+	private static void assertEqualRows( NCPConstraint expected, NCPConstraint actual ) {
+		assertSame(expected.body1, actual.body1);
+		assertSame(expected.body2, actual.body2);
+		assertEqualVectors(expected.j1, actual.j1);
+		assertEqualVectors(expected.j2, actual.j2);
+		assertEqualVectors(expected.j3, actual.j3);
+		assertEqualVectors(expected.j4, actual.j4);
+		assertEqualVectors(expected.b1, actual.b1);
+		assertEqualVectors(expected.b2, actual.b2);
+		assertEqualVectors(expected.b3, actual.b3);
+		assertEqualVectors(expected.b4, actual.b4);
+		assertEquals(expected.diagonal, actual.diagonal, tolerance);
+	}
+
+	@Test
+	public void rowsMatchMatrixFormulation() {
+		for (int trial=0; trial<50; trial++) {
+			// all combinations of fixed and non-fixed bodies
+			final Body bi = body("bi", trial%4 == 1), bj = body("bj", trial%4 == 2);
+			final Vector3 riw = gaussian(), rjw = gaussian(), axis = gaussian();
+
+			final NCPConstraint row = new NCPConstraint();
+			for (int k=0; k<3; k++) {
+				JointRows.linear(row, bi, bj, k, riw, rjw, 0.5);
+				assertEqualRows(linear(bi, bj, k, riw, rjw), row);
+				assertEquals(0.5, row.b, 0);
+			}
+
+			JointRows.angular(row, bi, bj, axis, -1, 2, 0.5);
+			assertEqualRows(angular(bi, bj, axis), row);
+			assertEquals(-1, row.lower, 0);
+			assertEquals(2, row.upper, 0);
+			assertNull(row.coupling);
+		}
+	}
+
+	// rows of the joint, with linear rows first, followed by angular rows
+	private static void assertJointRows( Constraint joint, Body bi, Body bj, Vector3 p, int minimum ) {
+		final List<NCPConstraint> rows = new ArrayList<NCPConstraint>();
+		joint.applyConstraints(rows.listIterator(), 0.02);
+		assertTrue(rows.size() >= minimum);
+
+		// the bodies have not moved since the joint was created
+		final Vector3 riw = p.sub(bi.state.position), rjw = p.sub(bj.state.position);
+		for (int k=0; k<3; k++)
+			assertEqualRows(linear(bi, bj, k, riw, rjw), rows.get(k));
+		for (int i=3; i<rows.size(); i++) {
+			assertEqualVectors(new Vector3(), rows.get(i).j1);
+			assertTrue(rows.get(i).j2.norm() > 0);
+			assertEqualRows(angular(bi, bj, rows.get(i).j2), rows.get(i));
+		}
+	}
+
+	@Test
+	public void jointsMatchMatrixFormulation() {
+		for (int trial=0; trial<12; trial++) {
+			final boolean fixedi = trial%3 == 1, fixedj = trial%3 == 2;
+			final Vector3 p = gaussian();
+			final Vector3 n1 = gaussian().normalize();
+			final Vector3 n2 = n1.cross(gaussian()).normalize();
+
+			Body bi = body("bi", fixedi), bj = body("bj", fixedj);
+			final UniversalJoint universal = new UniversalJoint(bi, bj, p, n1, n2);
+			universal.getFirstAxisControler().setMotorForce(1, 0.5);
+			assertJointRows(universal, bi, bj, p, 5);
+
+			bi = body("bi", fixedi); bj = body("bj", fixedj);
+			final HingeJoint hinge = new HingeJoint(bi, bj, p, n1);
+			hinge.getHingeControler().setFrictionMagnitude(1);
+			assertJointRows(hinge, bi, bj, p, 6);
+		}
+	}
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics.force;
+
+import jinngine.collision.SAP2;
+import jinngine.geometry.Box;
+import jinngine.math.Vector3;
+import jinngine.physics.Body;
+import jinngine.physics.DefaultDeactivationPolicy;
+import jinngine.physics.DefaultScene;
+import jinngine.physics.solver.PackedNonsmoothNonlinearConjugateGradient;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the scene force field
+ */
+public class ForceFieldTest {
+
+	// count the time-steps where a box resting on a fixed floor is deactivated
+	private static int asleep( double dt, int settle, int steps ) {
+		final DefaultScene scene = new DefaultScene(new SAP2(), new PackedNonsmoothNonlinearConjugateGradient(45), new DefaultDeactivationPolicy());
+		scene.setTimestep(dt);
+		scene.getForceField().setGravity(new Vector3(0,-9.8,0));
+
+		final Body floor = new Body("floor", new Box(20,1,20));
+		floor.setPosition(0,-0.5,0);
+		scene.addBody(floor);
+		scene.fixBody(floor, true);
+		final Body box = new Body("box", new Box(1,1,1));
+		box.setPosition(0,0.5,0);
+		scene.addBody(box);
+
+		for (int i=0; i<settle; i++)
+			scene.tick();
+
+		int count = 0;
+		for (int i=0; i<steps; i++) {
+			scene.tick();
+			if (box.deactivated)
+				count++;
+		}
+		return count;
+	}
+
+	@Test
+	public void restingBodyStaysAsleepAtDefaultTimestep() {
+		assertEquals(500, asleep(0.08, 100, 500));
+	}
+
+	@Test
+	public void restingBodyStaysAsleepAtSmallTimestep() {
+		assertEquals(500, asleep(0.04, 200, 500));
+	}
+
+	// a light body in a strong drag field, released against the wind
+	private static double dragged( double drag, double dt ) {
+		final ForceField field = new ForceField();
+		field.setWind(new Vector3(1,0,0));
+		field.setDrag(drag, drag);
+		final Body body = new Body("body", new Box(0.2,0.2,0.2));
+		body.setVelocity(-5,0,0);
+		body.setAngularVelocity(0,0,3);
+		for (int i=0; i<20; i++) {
+			body.externaldeltavelocity.assignZero();
+			body.externaldeltaomega.assignZero();
+			field.apply(body, dt);
+			final double before = body.state.velocity.x - 1;
+			body.state.velocity.assign(body.state.velocity.add(body.externaldeltavelocity));
+			body.state.omega.assign(body.state.omega.add(body.externaldeltaomega));
+			// the velocity relative to the wind never changes sign, or grows
+			final double after = body.state.velocity.x - 1;
+			assertTrue(after*before >= 0 && Math.abs(after) <= Math.abs(before));
+			assertTrue(body.state.omega.z >= 0 && body.state.omega.z <= 3);
+		}
+		return body.state.velocity.x;
+	}
+
+	@Test
+	public void dragOnlyDampsTowardsWind() {
+		// drag*dt/m is far above 2 for this body
+		assertEquals(1, dragged(100, 0.08), 1e-3);
+		assertTrue(dragged(0.1, 0.08) > -5);
+	}
+}
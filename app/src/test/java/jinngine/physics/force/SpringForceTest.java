@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics.force;
+
+import jinngine.collision.SAP2;
+import jinngine.geometry.Box;
+import jinngine.math.Vector3;
+import jinngine.physics.Body;
+import jinngine.physics.DefaultScene;
+import jinngine.physics.DisabledDeactivationPolicy;
+import jinngine.physics.solver.ProjectedGaussSeidel;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the implicit and the explicit integration of a {@link SpringForce}
+ */
+public class SpringForceTest {
+
+	// initial deviation from the equilibrium length
+	private static final double deviation = 0.2;
+
+	// a unit box on a spring from a fixed body, released at the given deviation. Returns the final position
+	// of the box along the spring, followed by the largest distance from equilibrium during the simulation
+	private static double[] oscillate( boolean implicit, double force, double damper, double dt, double time ) {
+		final DefaultScene scene = new DefaultScene(new SAP2(), new ProjectedGaussSeidel(50), new DisabledDeactivationPolicy());
+		scene.setTimestep(dt);
+
+		// the spring runs along the x axis, from the anchor point at -0.5 to the centre of the box at 0
+		final Body anchor = new Body("anchor", new Box(1,1,1));
+		anchor.setPosition(-5,0,0);
+		scene.addBody(anchor);
+		scene.fixBody(anchor, true);
+		final Body box = new Body("box", new Box(1,1,1));
+		box.setPosition(0,0,0);
+		scene.addBody(box);
+
+		final SpringForce spring = new SpringForce(anchor, new Vector3(4.5,0,0), box, new Vector3(), force, damper);
+		spring.setImplicit(implicit);
+		if (implicit)
+			scene.addConstraint(spring);
+		else
+			scene.addForce(spring);
+		box.setPosition(deviation,0,0);
+
+		double largest = 0;
+		for (int i=0, n=(int)Math.round(time/dt); i<n; i++) {
+			scene.tick();
+			largest = Math.max(largest, Math.abs(box.state.position.x));
+		}
+		return new double[] {box.state.position.x, largest};
+	}
+
+	@Test
+	public void stiffImplicitSpringStaysBounded() {
+		// k dt^2/m is far beyond the stability limit of explicit integration
+		final double[] explicit = oscillate(false, 1e5, 0, 0.08, 4);
+		assertTrue(explicit[1] > 100*deviation);
+		final double[] implicit = oscillate(true, 1e5, 0, 0.08, 4);
+		assertTrue(implicit[1] <= deviation);
+		assertEquals(0, implicit[0], 1e-3);
+	}
+
+	@Test
+	public void softImplicitSpringConvergesToExplicit() {
+		// both integrations are first order, so the difference shrinks with the time-step
+		double previous = Double.POSITIVE_INFINITY;
+		for (double dt: new double[] {0.04, 0.004, 0.0004}) {
+			final double[] explicit = oscillate(false, 10, 0.5, dt, 2);
+			final double[] implicit = oscillate(true, 10, 0.5, dt, 2);
+			// the spring has moved the box a visible amount
+			assertTrue(Math.abs(explicit[0]-deviation) > 0.1*deviation);
+			final double difference = Math.abs(explicit[0]-implicit[0]);
+			assertTrue(difference < 0.2*previous);
+			previous = difference;
+		}
+		assertTrue(previous < 1e-3);
+	}
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jinngine.collision.SAP2;
+import jinngine.geometry.Box;
+import jinngine.math.Vector3;
+import jinngine.physics.Body;
+import jinngine.physics.DefaultDeactivationPolicy;
+import jinngine.physics.DefaultScene;
+import jinngine.physics.constraint.joint.BallInSocketJoint;
+import jinngine.physics.constraint.joint.UniversalJoint;
+import jinngine.physics.force.GravityForce;
+import jinngine.physics.solver.Solver.NCPConstraint;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares an {@link IslandSolver} with a converged {@link ProjectedGaussSeidel} on joint islands. Subclasses
+ * give the island solver, and whether it accepts a chain attached to two fixed bodies
+ */
+public abstract class AbstractIslandSolverTest {
+
+	/**
+	 * Create the island solver to test
+	 */
+	protected abstract IslandSolver create();
+
+	/**
+	 * True if the island solver accepts a chain attached to fixed bodies at both ends
+	 */
+	protected abstract boolean acceptsAnchoredChains();
+
+	// PGS iterating to convergence, regardless of the tolerance given by the scene
+	private static final class ConvergedPGS implements Solver {
+		private final Solver pgs = new ProjectedGaussSeidel(20000);
+		public double solve(List<NCPConstraint> constraints, List<Body> bodies, double epsilon) {
+			return pgs.solve(constraints, bodies, 0);
+		}
+		public void setMaximumIterations(int n) {}
+	}
+
+	// a swinging chain of joints hanging from a fixed body, with a branch, and optionally with the
+	// last link attached to a second fixed body
+	private static List<Body> chain( DefaultScene scene, boolean universal, boolean anchored ) {
+		final List<Body> result = new ArrayList<Body>();
+		scene.setTimestep(0.01);
+
+		final Body ceiling = new Body("ceiling", new Box(2,1,2));
+		ceiling.setPosition(0,20,0);
+		scene.addBody(ceiling);
+		scene.fixBody(ceiling, true);
+		Body previous = ceiling;
+		for (int i=0; i<6; i++) {
+			final Body link = new Body("link"+i, new Box(0.5,1,0.5));
+			link.setPosition(0.3*i,18.5-2*i,0.1*i);
+			scene.addBody(link);
+			scene.addForce(new GravityForce(link));
+			final Vector3 anchor = new Vector3(0.15*i,19.5-2*i,0.05*i);
+			if (universal)
+				scene.addConstraint(new UniversalJoint(previous, link, anchor, new Vector3(1,0,0), new Vector3(0,0,1)));
+			else
+				scene.addConstraint(new BallInSocketJoint(previous, link, anchor, new Vector3(0,1,0)));
+			result.add(link);
+			previous = link;
+		}
+
+		final Body branch = new Body("branch", new Box(0.5,0.5,0.5));
+		branch.setPosition(4,14.5,0);
+		scene.addBody(branch);
+		scene.addForce(new GravityForce(branch));
+		scene.addConstraint(new BallInSocketJoint(result.get(2), branch, new Vector3(2,14.5,0), new Vector3(0,1,0)));
+		result.add(branch);
+
+		if (anchored) {
+			final Body anchor = new Body("anchor", new Box(1,1,1));
+			anchor.setPosition(1.5,6.5,0.5);
+			scene.addBody(anchor);
+			scene.fixBody(anchor, true);
+			scene.addConstraint(new BallInSocketJoint(result.get(5), anchor, new Vector3(1.5,7.5,0.5), new Vector3(0,1,0)));
+		}
+
+		result.get(0).setVelocity(3,0,1);
+		return result;
+	}
+
+	// the rows of the chain, left in the scene by a time-step
+	private static DefaultScene rows( boolean universal, boolean anchored ) {
+		final DefaultScene scene = new DefaultScene(new SAP2(), new ProjectedGaussSeidel(1), new DefaultDeactivationPolicy());
+		scene.setIslandSolver(null);
+		chain(scene, universal, anchored);
+		scene.tick();
+		return scene;
+	}
+
+	// solve the rows from zero, and return lambda values followed by delta velocities
+	private static double[] solve( List<NCPConstraint> rows, List<Body> bodies, IslandSolver island, Solver solver ) {
+		for (Body b: bodies) {
+			b.deltavelocity.assignZero();
+			b.deltaomega.assignZero();
+		}
+		for (NCPConstraint ci: rows)
+			ci.lambda = 0;
+		if (island != null)
+			assertTrue(island.solve(rows, 0, rows.size()));
+		else
+			solver.solve(rows, bodies, 0);
+
+		final double[] result = new double[rows.size() + 6*bodies.size()];
+		int k = 0;
+		for (NCPConstraint ci: rows)
+			result[k++] = ci.lambda;
+		for (Body b: bodies) {
+			result[k++] = b.deltavelocity.x; result[k++] = b.deltavelocity.y; result[k++] = b.deltavelocity.z;
+			result[k++] = b.deltaomega.x; result[k++] = b.deltaomega.y; result[k++] = b.deltaomega.z;
+		}
+		return result;
+	}
+
+	private static double maximumDifference( double[] a, double[] b ) {
+		double difference = 0;
+		for (int i=0; i<a.length; i++)
+			difference = Math.max(difference, Math.abs(a[i]-b[i]));
+		return difference;
+	}
+
+	private void rowsMatchPGS( boolean universal, boolean anchored ) {
+		final DefaultScene scene = rows(universal, anchored);
+		final List<NCPConstraint> rows = new ArrayList<NCPConstraint>(scene.ncpconstraints);
+
+		final double[] direct = solve(rows, scene.bodies, create(), null);
+		final double[] reference = solve(rows, scene.bodies, null, new ProjectedGaussSeidel(20000));
+		assertTrue(maximumDifference(direct, reference) < 1e-9);
+	}
+
+	@Test
+	public void ballInSocketRowsMatchPGS() {
+		rowsMatchPGS(false, false);
+	}
+
+	@Test
+	public void universalRowsMatchPGS() {
+		rowsMatchPGS(true, false);
+	}
+
+	@Test
+	public void anchoredRowsMatchPGS() {
+		if (acceptsAnchoredChains()) {
+			// fixed bodies do not couple joints, so the island is accepted although ground closes a loop
+			rowsMatchPGS(false, true);
+		} else {
+			// the island is rejected, and left for the iterative solver
+			final DefaultScene scene = rows(false, true);
+			assertFalse(create().solve(scene.ncpconstraints, 0, scene.ncpconstraints.size()));
+		}
+	}
+
+	@Test
+	public void chainMatchesPGS() {
+		final boolean anchored = acceptsAnchoredChains();
+		final DefaultScene direct = new DefaultScene(new SAP2(), new PackedNonsmoothNonlinearConjugateGradient(45), new DefaultDeactivationPolicy());
+		final DefaultScene reference = new DefaultScene(new SAP2(), new ConvergedPGS(), new DefaultDeactivationPolicy());
+		direct.setIslandSolver(create());
+		reference.setIslandSolver(null);
+		final List<Body> a = chain(direct, true, anchored), b = chain(reference, true, anchored);
+
+		double difference = 0;
+		for (int i=0; i<40; i++) {
+			direct.tick();
+			reference.tick();
+			for (int k=0; k<a.size(); k++)
+				difference = Math.max(difference, a.get(k).state.position.sub(b.get(k).state.position).norm());
+		}
+		assertTrue(difference < 1e-7);
+	}
+}
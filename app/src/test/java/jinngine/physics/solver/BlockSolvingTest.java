@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import jinngine.geometry.Box;
+import jinngine.math.Vector3;
+import jinngine.physics.Body;
+import jinngine.physics.constraint.Constraint;
+import jinngine.physics.constraint.joint.BallInSocketJoint;
+import jinngine.physics.constraint.joint.HingeJoint;
+import jinngine.physics.constraint.joint.UniversalJoint;
+import jinngine.physics.solver.Solver.NCPConstraint;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares solving blocks of equality rows in {@link PackedConstraints} with solving the rows one at a time
+ */
+public class BlockSolvingTest {
+
+	private final Random random = new Random(9);
+	private final List<Body> bodies = new ArrayList<Body>();
+	private final List<NCPConstraint> rows = new ArrayList<NCPConstraint>();
+
+	private void apply( Constraint joint ) {
+		joint.applyConstraints(rows.listIterator(rows.size()), 0.02);
+	}
+
+	// a chain of links hanging from a fixed body, connected by alternating joint types
+	private void chain( int links ) {
+		final Body ceiling = new Body("ceiling", new Box(2,1,2));
+		ceiling.setPosition(0,20,0);
+		ceiling.setFixed(true);
+		bodies.add(ceiling);
+
+		Body previous = ceiling;
+		for (int i=0; i<links; i++) {
+			final Body link = new Body("link"+i, new Box(0.5,1.8,0.5));
+			link.setPosition(0.3*i,18.5-2*i,0);
+			link.setVelocity(random.nextGaussian(), random.nextGaussian(), random.nextGaussian());
+			link.setAngularVelocity(random.nextGaussian(), random.nextGaussian(), random.nextGaussian());
+			link.externaldeltavelocity.assign(0,-9.8*0.02,0);
+			bodies.add(link);
+
+			final Vector3 p = new Vector3(0.15*i,19.5-2*i,0);
+			switch (i%3) {
+			case 0: apply(new UniversalJoint(previous, link, p, new Vector3(1,0,0), new Vector3(0,0,1))); break;
+			case 1: apply(new HingeJoint(previous, link, p, new Vector3(0,0,1))); break;
+			default: apply(new BallInSocketJoint(previous, link, p, new Vector3(0,1,0)));
+			}
+			previous = link;
+		}
+	}
+
+	// solve the rows from zero, and return lambda values followed by delta velocities
+	private double[] solve( Solver solver ) {
+		for (Body b: bodies) {
+			b.deltavelocity.assignZero();
+			b.deltaomega.assignZero();
+		}
+		for (NCPConstraint ci: rows)
+			ci.lambda = 0;
+		solver.solve(rows, bodies, 0);
+		final double[] result = new double[rows.size() + 6*bodies.size()];
+		int k = 0;
+		for (NCPConstraint ci: rows)
+			result[k++] = ci.lambda;
+		for (Body b: bodies) {
+			result[k++] = b.deltavelocity.x; result[k++] = b.deltavelocity.y; result[k++] = b.deltavelocity.z;
+			result[k++] = b.deltaomega.x; result[k++] = b.deltaomega.y; result[k++] = b.deltaomega.z;
+		}
+		return result;
+	}
+
+	private static PackedProjectedGaussSeidel pgs( int iterations, boolean blocks ) {
+		final PackedProjectedGaussSeidel solver = new PackedProjectedGaussSeidel(iterations);
+		solver.setBlockSolving(blocks);
+		return solver;
+	}
+
+	private static PackedNonsmoothNonlinearConjugateGradient nncg( int iterations, boolean blocks ) {
+		final PackedNonsmoothNonlinearConjugateGradient solver = new PackedNonsmoothNonlinearConjugateGradient(iterations);
+		solver.setBlockSolving(blocks);
+		return solver;
+	}
+
+	// sizes of the blocks formed by pack()
+	private int[] blocks() {
+		final PackedConstraints packed = new PackedConstraints();
+		packed.setBlockSolving(true);
+		packed.pack(rows, bodies);
+		final int[] result = new int[packed.n];
+		System.arraycopy(packed.blockSize, 0, result, 0, packed.n);
+		return result;
+	}
+
+	private static double maximumValue( double[] a ) {
+		double value = 0;
+		for (int i=0; i<a.length; i++)
+			value = Math.max(value, Math.abs(a[i]));
+		return value;
+	}
+
+	private static double maximumDifference( double[] a, double[] b ) {
+		double difference = 0;
+		for (int i=0; i<a.length; i++)
+			difference = Math.max(difference, Math.abs(a[i]-b[i]));
+		return difference;
+	}
+
+	@Test
+	public void chainMatchesScalarRows() {
+		chain(6);
+		// the three point constraint rows of each joint form a block
+		final int[] size = blocks();
+		assertEquals(3, size[0]);
+		assertEquals(0, size[1]);
+
+		final double[] reference = solve(pgs(20000, false));
+		assertTrue(maximumValue(reference) > 0.1);
+		assertTrue(maximumDifference(reference, solve(pgs(20000, true))) < 1e-8);
+		assertTrue(maximumDifference(reference, solve(nncg(20000, false))) < 1e-8);
+		assertTrue(maximumDifference(reference, solve(nncg(20000, true))) < 1e-8);
+	}
+
+	// row i is replaced by row j, with the Jacobian perturbed by the given amount
+	private void copyRow( int i, int j, double perturbation ) {
+		final NCPConstraint ci = rows.get(i), cj = rows.get(j);
+		final Vector3 d = new Vector3(random.nextGaussian(), random.nextGaussian(), random.nextGaussian()).multiply(perturbation);
+		ci.assign(cj.body1, cj.body2, cj.b1.add(d), cj.b2, cj.b3, cj.b4, cj.j1.add(d), cj.j2, cj.j3, cj.j4,
+				Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, null, cj.b, 0);
+	}
+
+	@Test
+	public void nearSingularBlocksShrink() {
+		chain(1);
+		// the third row nearly repeats the first, so the block of three is near-singular, while its first two rows are not
+		copyRow(2, 0, 1e-6);
+		// in a second joint, all three rows nearly repeat each other, so only single rows remain
+		final int offset = rows.size();
+		chain(1);
+		copyRow(offset+1, offset, 1e-6);
+		copyRow(offset+2, offset, 1e-6);
+
+		final int[] size = blocks();
+		assertEquals(2, size[0]);
+		assertEquals(0, size[1]);
+		// the third row starts a new block
+		assertTrue(size[2] > 0);
+		assertEquals(1, size[offset]);
+		assertEquals(1, size[offset+1]);
+		assertTrue(size[offset+2] > 0);
+
+		// lambda is poorly determined by the near repeated rows, but the velocities are not
+		final double[] reference = solve(pgs(20000, false));
+		final double[] pgs = solve(pgs(20000, true)), nncg = solve(nncg(20000, true));
+		for (int i=rows.size(); i<reference.length; i++) {
+			assertEquals(reference[i], pgs[i], 1e-8);
+			assertEquals(reference[i], nncg[i], 1e-8);
+		}
+	}
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics.solver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jinngine.collision.SAP2;
+import jinngine.geometry.Box;
+import jinngine.math.Vector3;
+import jinngine.physics.Body;
+import jinngine.physics.DefaultDeactivationPolicy;
+import jinngine.physics.DefaultScene;
+import jinngine.physics.solver.Solver.NCPConstraint;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the lambda values written back by the NNCG solvers are the impulses applied to the bodies
+ */
+public class NonsmoothNonlinearConjugateGradientTest {
+
+	private DefaultScene scene;
+	private List<NCPConstraint> rows;
+
+	// the contact rows of a stack of boxes on a fixed floor, left in the scene by a time-step
+	private void stack() {
+		scene = new DefaultScene(new SAP2(), new ProjectedGaussSeidel(100), new DefaultDeactivationPolicy());
+		scene.setTimestep(0.02);
+		scene.getForceField().setGravity(new Vector3(0,-9.8,0));
+		final Body floor = new Body("floor", new Box(20,1,20));
+		floor.setPosition(0,-0.5,0);
+		scene.addBody(floor);
+		scene.fixBody(floor, true);
+		for (int i=0; i<3; i++) {
+			final Body box = new Body("box"+i, new Box(1,1,1));
+			box.setPosition(0.1*i,0.5+i,0);
+			scene.addBody(box);
+		}
+		scene.tick();
+		rows = new ArrayList<NCPConstraint>(scene.ncpconstraints);
+		assertFalse(rows.isEmpty());
+	}
+
+	private void solve( Solver solver ) {
+		for (Body b: scene.bodies) {
+			b.deltavelocity.assignZero();
+			b.deltaomega.assignZero();
+		}
+		for (NCPConstraint ci: rows)
+			ci.lambda = 0;
+		solver.solve(rows, scene.bodies, 0);
+	}
+
+	// check that the delta velocities are given by the lambda values, as the sum of B lambda over the rows
+	private void assertLambdaIsAppliedImpulse() {
+		final Map<Body,Vector3[]> applied = new HashMap<Body,Vector3[]>();
+		for (Body b: scene.bodies)
+			applied.put(b, new Vector3[] {new Vector3(), new Vector3()});
+		for (NCPConstraint ci: rows) {
+			Vector3.add(applied.get(ci.body1)[0], ci.b1.multiply(ci.lambda));
+			Vector3.add(applied.get(ci.body1)[1], ci.b2.multiply(ci.lambda));
+			Vector3.add(applied.get(ci.body2)[0], ci.b3.multiply(ci.lambda));
+			Vector3.add(applied.get(ci.body2)[1], ci.b4.multiply(ci.lambda));
+		}
+		double velocity = 0;
+		for (Body b: scene.bodies) {
+			assertEquals(0, applied.get(b)[0].sub(b.deltavelocity).norm(), 1e-9);
+			assertEquals(0, applied.get(b)[1].sub(b.deltaomega).norm(), 1e-9);
+			velocity = Math.max(velocity, b.deltavelocity.norm());
+		}
+		assertTrue(velocity > 0.1);
+	}
+
+	// total normal impulse between each pair of bodies. Unlike the single lambda values of the four
+	// contact points of a face, these are uniquely determined
+	private Map<String,Double> normalImpulses() {
+		final Map<String,Double> result = new HashMap<String,Double>();
+		for (NCPConstraint ci: rows) {
+			if (ci.coupling != null || ci.upper != Double.POSITIVE_INFINITY)
+				continue;
+			final String pair = ci.body1+" "+ci.body2;
+			final Double sum = result.get(pair);
+			result.put(pair, (sum == null? 0 : sum) + ci.lambda);
+		}
+		return result;
+	}
+
+	private static void assertEqualImpulses( Map<String,Double> expected, Map<String,Double> actual ) {
+		assertEquals(expected.keySet(), actual.keySet());
+		for (String pair: expected.keySet())
+			assertEquals(expected.get(pair), actual.get(pair), 1e-6*Math.abs(expected.get(pair)));
+	}
+
+	@Test
+	public void lambdaIsAppliedImpulse() {
+		stack();
+		solve(new NonsmoothNonlinearConjugateGradient(200));
+		assertLambdaIsAppliedImpulse();
+		solve(new PackedNonsmoothNonlinearConjugateGradient(200));
+		assertLambdaIsAppliedImpulse();
+	}
+
+	@Test
+	public void lambdaMatchesPGS() {
+		stack();
+		solve(new ProjectedGaussSeidel(20000));
+		final Map<String,Double> reference = normalImpulses();
+		assertEquals(3, reference.size());
+		for (double impulse: reference.values())
+			assertTrue(impulse > 0.1);
+
+		solve(new NonsmoothNonlinearConjugateGradient(2000));
+		assertEqualImpulses(reference, normalImpulses());
+		solve(new PackedNonsmoothNonlinearConjugateGradient(2000));
+		assertEqualImpulses(reference, normalImpulses());
+	}
+}
@@ -0,0 +1,196 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import jinngine.collision.SAP2;
+import jinngine.geometry.Box;
+import jinngine.math.Vector3;
+import jinngine.physics.Body;
+import jinngine.physics.DefaultDeactivationPolicy;
+import jinngine.physics.DefaultScene;
+import jinngine.physics.constraint.joint.UniversalJoint;
+import jinngine.physics.force.GravityForce;
+import jinngine.physics.solver.Solver.NCPConstraint;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares {@link PackedNonsmoothNonlinearConjugateGradient} with {@link NonsmoothNonlinearConjugateGradient}
+ */
+public class PackedSolverTest {
+
+	private List<Body> bodies;
+	private List<NCPConstraint> rows;
+
+	// random contact like problem with normal rows and coupled friction rows, and joint like equality rows
+	private void build( long seed ) {
+		final Random random = new Random(seed);
+		bodies = new ArrayList<Body>();
+		rows = new ArrayList<NCPConstraint>();
+		for (int i=0; i<20; i++) {
+			final Body body = new Body("body"+i);
+			body.externaldeltavelocity.assign(0,-0.1,0);
+			bodies.add(body);
+		}
+		for (int i=0; i<60; i++) {
+			final Body a = bodies.get(random.nextInt(20)), b = bodies.get(random.nextInt(20));
+			if (a == b)
+				continue;
+			final Vector3[] v = new Vector3[8];
+			for (int k=0; k<4; k++) {
+				v[k+4] = new Vector3(random.nextGaussian(), random.nextGaussian(), random.nextGaussian());
+				v[k] = v[k+4].multiply(0.5+random.nextDouble());
+			}
+			final NCPConstraint normal = new NCPConstraint();
+			if (i%3 == 0) {
+				normal.assign(a, b, v[0], v[1], v[2], v[3], v[4], v[5], v[6], v[7], Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, null, random.nextGaussian(), 0);
+				rows.add(normal);
+				continue;
+			}
+			normal.assign(a, b, v[0], v[1], v[2], v[3], v[4], v[5], v[6], v[7], 0, Double.POSITIVE_INFINITY, null, random.nextGaussian(), 0);
+			normal.mu = 0.5;
+			rows.add(normal);
+			final NCPConstraint friction = new NCPConstraint();
+			friction.assign(a, b, v[1], v[0], v[3], v[2], v[5], v[4], v[7], v[6], -1, 1, normal, random.nextGaussian(), 0);
+			rows.add(friction);
+		}
+	}
+
+	// solve the rows, and return lambda values followed by delta velocities
+	private double[] solve( Solver solver, List<NCPConstraint> rows ) {
+		for (Body b: bodies) {
+			b.deltavelocity.assignZero();
+			b.deltaomega.assignZero();
+		}
+		for (NCPConstraint ci: rows)
+			ci.lambda = 0;
+		solver.solve(rows, bodies, 1e-9);
+		final double[] result = new double[rows.size() + 6*bodies.size()];
+		int k = 0;
+		for (NCPConstraint ci: rows)
+			result[k++] = ci.lambda;
+		for (Body b: bodies) {
+			result[k++] = b.deltavelocity.x; result[k++] = b.deltavelocity.y; result[k++] = b.deltavelocity.z;
+			result[k++] = b.deltaomega.x; result[k++] = b.deltaomega.y; result[k++] = b.deltaomega.z;
+		}
+		return result;
+	}
+
+	private static PackedNonsmoothNonlinearConjugateGradient packed( int iterations ) {
+		final PackedNonsmoothNonlinearConjugateGradient solver = new PackedNonsmoothNonlinearConjugateGradient(iterations);
+		solver.setBlockSolving(false);
+		return solver;
+	}
+
+	private static double maximumValue( double[] a ) {
+		double value = 0;
+		for (int i=0; i<a.length; i++)
+			value = Math.max(value, Math.abs(a[i]));
+		return value;
+	}
+
+	private static double maximumDifference( double[] a, double[] b ) {
+		double difference = 0;
+		for (int i=0; i<a.length; i++)
+			difference = Math.max(difference, Math.abs(a[i]-b[i]));
+		return difference;
+	}
+
+	@Test
+	public void rowsMatchUnpackedSolver() {
+		build(11);
+		final double[] reference = solve(new NonsmoothNonlinearConjugateGradient(50), rows);
+		final double[] result = solve(packed(50), rows);
+		assertTrue(maximumValue(reference) > 0.1);
+		assertTrue(maximumDifference(reference, result) < 1e-9);
+	}
+
+	@Test
+	public void couplingOutsideRowsIsConstant() {
+		// solve all rows, and then only the friction rows, so their normal rows are not in the list
+		build(13);
+		solve(new NonsmoothNonlinearConjugateGradient(50), rows);
+		final List<NCPConstraint> friction = new ArrayList<NCPConstraint>();
+		for (NCPConstraint ci: rows)
+			if (ci.coupling != null)
+				friction.add(ci);
+
+		final double[] reference = solve(new NonsmoothNonlinearConjugateGradient(50), friction);
+		final double[] result = solve(packed(50), friction);
+		assertTrue(maximumDifference(reference, result) < 1e-9);
+
+		// the friction bounds are given by the unchanged normal lambda values
+		for (NCPConstraint ci: friction) {
+			final double bound = Math.abs(ci.coupling.lambda)*ci.coupling.mu;
+			assertEquals(-bound, ci.lower, 0);
+			assertEquals(bound, ci.upper, 0);
+		}
+	}
+
+	// a stack of boxes on a fixed floor, and a chain of universal joints hanging from a fixed body
+	private static List<Body> scene( DefaultScene scene ) {
+		final List<Body> result = new ArrayList<Body>();
+		scene.setTimestep(0.02);
+
+		final Body floor = new Body("floor", new Box(20,1,20));
+		floor.setPosition(0,-0.5,0);
+		scene.addBody(floor);
+		scene.fixBody(floor, true);
+		for (int i=0; i<4; i++) {
+			final Body box = new Body("box"+i, new Box(1,1,1));
+			box.setPosition(0.1*i,0.5+i,0);
+			scene.addBody(box);
+			scene.addForce(new GravityForce(box));
+			result.add(box);
+		}
+
+		final Body ceiling = new Body("ceiling", new Box(2,1,2));
+		ceiling.setPosition(10,20,0);
+		scene.addBody(ceiling);
+		scene.fixBody(ceiling, true);
+		Body previous = ceiling;
+		for (int i=0; i<6; i++) {
+			final Body link = new Body("link"+i, new Box(0.5,1.8,0.5));
+			link.setPosition(10+0.3*i,18.5-2*i,0);
+			scene.addBody(link);
+			scene.addForce(new GravityForce(link));
+			scene.addConstraint(new UniversalJoint(previous, link, new Vector3(10+0.15*i,19.5-2*i,0), new Vector3(1,0,0), new Vector3(0,0,1)));
+			result.add(link);
+			previous = link;
+		}
+		return result;
+	}
+
+	@Test
+	public void sceneMatchesUnpackedSolver() {
+		final DefaultScene reference = new DefaultScene(new SAP2(), new NonsmoothNonlinearConjugateGradient(25), new DefaultDeactivationPolicy());
+		final DefaultScene packed = new DefaultScene(new SAP2(), packed(25), new DefaultDeactivationPolicy());
+		reference.setIslandSolver(null);
+		packed.setIslandSolver(null);
+		final List<Body> a = scene(reference), b = scene(packed);
+
+		double difference = 0, speed = 0;
+		for (int i=0; i<60; i++) {
+			reference.tick();
+			packed.tick();
+			for (int k=0; k<a.size(); k++)
+				difference = Math.max(difference, a.get(k).state.position.sub(b.get(k).state.position).norm());
+		}
+		for (Body body: a)
+			speed = Math.max(speed, body.state.velocity.norm());
+		assertTrue(speed > 0);
+		assertTrue(difference < 1e-9);
+	}
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import jinngine.math.Vector3;
+import jinngine.physics.Body;
+import jinngine.physics.solver.Solver.NCPConstraint;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the convergence information reported by {@link PackedSubspaceMinimization}
+ */
+public class PackedSubspaceMinimizationTest {
+
+	// records the values reported by the latest iteration() and end() calls
+	private static final class Recorder implements SolverMonitor {
+		int iterations = 0;
+		double residual = Double.NaN, norm = Double.NaN, end = Double.NaN;
+		public void begin(int rows) {}
+		public void iteration(int iteration, double residual, int restarts, double deltaLambdaNorm) {
+			iterations++;
+			this.residual = residual;
+			this.norm = deltaLambdaNorm;
+		}
+		public void end(int iterations, double residual) { end = residual; }
+		public void island(int island, int rows, double residual) {}
+		public boolean isIslandSummaryEnabled() { return false; }
+	}
+
+	private List<Body> bodies;
+	private List<NCPConstraint> rows;
+
+	// random contact like problem, with normal rows and coupled friction rows
+	private void build( long seed ) {
+		final Random random = new Random(seed);
+		bodies = new ArrayList<Body>();
+		rows = new ArrayList<NCPConstraint>();
+		for (int i=0; i<20; i++) {
+			final Body body = new Body("body"+i);
+			body.externaldeltavelocity.assign(0,-0.1,0);
+			bodies.add(body);
+		}
+		for (int i=0; i<60; i++) {
+			final Body a = bodies.get(random.nextInt(20)), b = bodies.get(random.nextInt(20));
+			if (a == b)
+				continue;
+			final Vector3[] v = new Vector3[8];
+			for (int k=0; k<4; k++) {
+				v[k+4] = new Vector3(random.nextGaussian(), random.nextGaussian(), random.nextGaussian());
+				v[k] = v[k+4].multiply(0.5+random.nextDouble());
+			}
+			final NCPConstraint normal = new NCPConstraint();
+			normal.assign(a, b, v[0], v[1], v[2], v[3], v[4], v[5], v[6], v[7], 0, Double.POSITIVE_INFINITY, null, random.nextGaussian(), 0);
+			normal.mu = 0.5;
+			rows.add(normal);
+			final NCPConstraint friction = new NCPConstraint();
+			friction.assign(a, b, v[1], v[0], v[3], v[2], v[5], v[4], v[7], v[6], -1, 1, normal, random.nextGaussian(), 0);
+			rows.add(friction);
+		}
+	}
+
+	@Test
+	public void reportedResidualIsProjectedResidual() {
+		build(5);
+		final PackedSubspaceMinimization solver = new PackedSubspaceMinimization(10);
+		final Recorder recorder = new Recorder();
+		solver.setMonitor(recorder);
+		solver.solve(rows, bodies, 0);
+
+		final double residual = SolverTrace.projectedResidual(rows, 0, rows.size());
+		assertEquals(10, recorder.iterations);
+		assertEquals(residual, recorder.residual, 1e-9*residual);
+		assertEquals(residual, recorder.end, 1e-9*residual);
+	}
+
+	@Test
+	public void reportedNormIsChangeInLambda() {
+		// starting from zero, the change during a single iteration is the final lambda
+		build(5);
+		final PackedSubspaceMinimization solver = new PackedSubspaceMinimization(1);
+		final Recorder recorder = new Recorder();
+		solver.setMonitor(recorder);
+		solver.solve(rows, bodies, 0);
+
+		double norm = 0;
+		for (NCPConstraint ci: rows)
+			norm += ci.lambda*ci.lambda;
+		norm = Math.sqrt(norm);
+		assertTrue(norm > 0);
+		assertEquals(norm, recorder.norm, 1e-12*norm);
+	}
+}
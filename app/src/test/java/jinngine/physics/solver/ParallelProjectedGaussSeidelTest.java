@@ -0,0 +1,203 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics.solver;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import jinngine.math.Vector3;
+import jinngine.physics.Body;
+import jinngine.physics.solver.Solver.NCPConstraint;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the colouring of {@link ParallelProjectedGaussSeidel}, and compares it with {@link ProjectedGaussSeidel}
+ */
+public class ParallelProjectedGaussSeidelTest {
+
+	// more threads than rows per colour would need, also on machines with a single processor
+	private final ForkJoinPool pool = new ForkJoinPool(4);
+	private final Random random = new Random(5);
+	private final List<Body> bodies = new ArrayList<Body>();
+	private final List<NCPConstraint> rows = new ArrayList<NCPConstraint>();
+
+	@After
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	private Body body( boolean fixed ) {
+		final Body body = new Body("body"+bodies.size());
+		body.setFixed(fixed);
+		body.externaldeltavelocity.assign(0,-0.1,0);
+		bodies.add(body);
+		return body;
+	}
+
+	private Vector3 gaussian() {
+		return new Vector3(random.nextGaussian(), random.nextGaussian(), random.nextGaussian());
+	}
+
+	// a random row, with B columns of fixed bodies set to zero unless fixedB is set
+	private NCPConstraint row( Body a, Body b, double lower, double upper, NCPConstraint coupling, boolean fixedB ) {
+		final Vector3[] j = { gaussian(), gaussian(), gaussian(), gaussian() };
+		final Vector3[] B = new Vector3[4];
+		for (int k=0; k<4; k++) {
+			final boolean fixed = (k<2? a : b).isFixed() && !fixedB;
+			B[k] = fixed? new Vector3() : j[k].multiply(0.5+random.nextDouble());
+		}
+		final NCPConstraint ci = new NCPConstraint();
+		ci.assign(a, b, B[0], B[1], B[2], B[3], j[0], j[1], j[2], j[3], lower, upper, coupling, random.nextGaussian(), 0);
+		ci.mu = 0.5;
+		rows.add(ci);
+		return ci;
+	}
+
+	// contact like rows, a normal row followed by a coupled friction row
+	private void contact( Body a, Body b, boolean fixedB ) {
+		final NCPConstraint normal = row(a, b, 0, Double.POSITIVE_INFINITY, null, fixedB);
+		row(a, b, -1, 1, normal, fixedB);
+	}
+
+	// solve the rows, and return lambda values followed by delta velocities
+	private double[] solve( Solver solver, int iterations ) {
+		for (Body b: bodies) {
+			b.deltavelocity.assignZero();
+			b.deltaomega.assignZero();
+		}
+		for (NCPConstraint ci: rows)
+			ci.lambda = 0;
+		solver.setMaximumIterations(iterations);
+		solver.solve(rows, bodies, 0);
+		final double[] result = new double[rows.size() + 6*bodies.size()];
+		int k = 0;
+		for (NCPConstraint ci: rows)
+			result[k++] = ci.lambda;
+		for (Body b: bodies) {
+			result[k++] = b.deltavelocity.x; result[k++] = b.deltavelocity.y; result[k++] = b.deltavelocity.z;
+			result[k++] = b.deltaomega.x; result[k++] = b.deltaomega.y; result[k++] = b.deltaomega.z;
+		}
+		return result;
+	}
+
+	private static double maximumValue( double[] a ) {
+		double value = 0;
+		for (int i=0; i<a.length; i++)
+			value = Math.max(value, Math.abs(a[i]));
+		return value;
+	}
+
+	private static double maximumDifference( double[] a, double[] b ) {
+		double difference = 0;
+		for (int i=0; i<a.length; i++)
+			difference = Math.max(difference, Math.abs(a[i]-b[i]));
+		return difference;
+	}
+
+	// check that no two rows of one colour share a non-fixed body
+	private static void assertValidColoring( ParallelProjectedGaussSeidel solver, List<NCPConstraint> rows ) {
+		final List<Set<Body>> used = new ArrayList<Set<Body>>();
+		for (int c=0; c<solver.getNumberOfColors(); c++)
+			used.add(new HashSet<Body>());
+		for (int i=0; i<rows.size(); i++) {
+			final Set<Body> colour = used.get(solver.getColor(i));
+			final NCPConstraint ci = rows.get(i);
+			if (!ci.body1.isFixed())
+				assertTrue(colour.add(ci.body1));
+			if (!ci.body2.isFixed())
+				assertTrue(colour.add(ci.body2));
+		}
+		for (Set<Body> colour: used)
+			assertFalse(colour.isEmpty());
+	}
+
+	@Test
+	public void colorsDoNotShareBodies() {
+		for (int i=0; i<60; i++)
+			body(i<3);
+		for (int i=0; i<200; i++) {
+			final Body a = bodies.get(random.nextInt(60)), b = bodies.get(random.nextInt(60));
+			if (a != b && !(a.isFixed() && b.isFixed()))
+				contact(a, b, false);
+		}
+		assertTrue(rows.size() >= ParallelProjectedGaussSeidel.sequentialLimit);
+
+		final ParallelProjectedGaussSeidel solver = new ParallelProjectedGaussSeidel(10, pool);
+		solve(solver, 10);
+		assertTrue(solver.getNumberOfColors() > 1);
+		assertValidColoring(solver, rows);
+	}
+
+	@Test
+	public void disjointRowsMatchSequentialSolver() {
+		// independent pairs of bodies, so iterating in colour order is the same as in list order
+		for (int i=0; i<80; i++) {
+			final Body a = body(false), b = body(false);
+			contact(a, b, false);
+			row(a, b, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, null, false);
+			contact(a, b, false);
+		}
+		assertTrue(rows.size() >= ParallelProjectedGaussSeidel.sequentialLimit);
+
+		final ParallelProjectedGaussSeidel solver = new ParallelProjectedGaussSeidel(30, pool);
+		final double[] reference = solve(new ProjectedGaussSeidel(30), 30);
+		final double[] result = solve(solver, 30);
+		assertEquals(5, solver.getNumberOfColors());
+		assertValidColoring(solver, rows);
+		assertTrue(maximumValue(reference) > 0.1);
+		assertTrue(maximumDifference(reference, result) < 1e-12);
+	}
+
+	@Test
+	public void rowsOnFixedBodyAreNotSerialised() {
+		// bodies hanging from one fixed body, each with a single row
+		final Body anchor = body(true);
+		for (int i=0; i<300; i++)
+			row(anchor, body(false), Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, null, false);
+
+		final ParallelProjectedGaussSeidel solver = new ParallelProjectedGaussSeidel(30, pool);
+		final double[] reference = solve(new ProjectedGaussSeidel(30), 30);
+		final double[] result = solve(solver, 30);
+		assertEquals(1, solver.getNumberOfColors());
+		assertTrue(maximumValue(reference) > 0.1);
+		assertTrue(maximumDifference(reference, result) < 1e-12);
+
+		// linking the bodies into a chain needs only two more colours
+		for (int i=1; i<300; i++)
+			row(bodies.get(i), bodies.get(i+1), Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, null, false);
+		solve(solver, 30);
+		assertTrue(solver.getNumberOfColors() <= 3);
+		assertValidColoring(solver, rows);
+	}
+
+	@Test
+	public void fixedBodiesAreNotUpdated() {
+		// rows with non-zero B columns for the fixed body
+		final Body anchor = body(true);
+		for (int i=0; i<300; i++)
+			contact(anchor, body(false), true);
+		final Vector3 b1 = new Vector3(rows.get(0).b1);
+
+		final ParallelProjectedGaussSeidel solver = new ParallelProjectedGaussSeidel(10, pool);
+		solve(solver, 10);
+		assertEquals(0, anchor.deltavelocity.norm(), 0);
+		assertEquals(0, anchor.deltaomega.norm(), 0);
+		// the constraints themselves are unchanged
+		assertEquals(0, b1.sub(rows.get(0).b1).norm(), 0);
+		assertTrue(b1.norm() > 0);
+	}
+}
@@ -0,0 +1,25 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.physics.solver;
+
+/**
+ * Compares {@link SparseLDLSolver} with a converged {@link ProjectedGaussSeidel} on joint islands
+ */
+public class SparseLDLSolverTest extends AbstractIslandSolverTest {
+
+	@Override
+	protected IslandSolver create() {
+		return new SparseLDLSolver();
+	}
+
+	@Override
+	protected boolean acceptsAnchoredChains() {
+		return true;
+	}
+}
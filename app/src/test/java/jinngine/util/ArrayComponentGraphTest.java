@@ -0,0 +1,340 @@
+/**
+ * Copyright (c) 2008-2010  Morten Silcowitz.
+ *
+ * This file is part of the Jinngine physics library
+ *
+ * Jinngine is published under the GPL license, available
+ * at http://www.gnu.org/copyleft/gpl.html.
+ */
+package jinngine.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares {@link ArrayComponentGraph} with {@link HashMapComponentGraph} under random edits, with
+ * components split at once and with deferred splitting
+ */
+public class ArrayComponentGraphTest {
+
+	// nodes 0 and 1 are delimiters
+	private static final ComponentGraph.NodeClassifier<Integer> classifier = new ComponentGraph.NodeClassifier<Integer>() {
+		public boolean isDelimitor(Integer node) {
+			return node < 2;
+		}
+	};
+
+	private static final class Component {}
+
+	// records the handler calls, and checks that they are consistent with each other
+	private static final class Recorder implements ComponentGraph.ComponentHandler<Integer,Component> {
+		int added = 0, removed = 0, merged = 0;
+		final Map<Integer,Integer> balance = new HashMap<Integer,Integer>();
+		final Set<Component> leaving = new HashSet<Component>();
+
+		public Component newComponent() {
+			return new Component();
+		}
+		public void mergeComponent(Component remaining, Component leaving) {
+			assertNotSame(remaining, leaving);
+			assertFalse(this.leaving.contains(remaining));
+			assertTrue(this.leaving.add(leaving));
+			merged++;
+		}
+		public void nodeAddedToComponent(Component component, Integer node) {
+			assertFalse(leaving.contains(component));
+			balance.put(node, balance(node)+1);
+			added++;
+		}
+		public void nodeRemovedFromComponent(Component component, Integer node) {
+			balance.put(node, balance(node)-1);
+			removed++;
+		}
+		int balance( Integer node ) {
+			final Integer value = balance.get(node);
+			return value == null? 0 : value;
+		}
+	}
+
+	private ComponentGraph<Integer,String,Component> reference, graph;
+	private Recorder referenceHandler, handler;
+	private boolean deferred;
+
+	private void create( boolean deferred ) {
+		referenceHandler = new Recorder();
+		handler = new Recorder();
+		reference = new HashMapComponentGraph<Integer,String,Component>(classifier, referenceHandler);
+		graph = new ArrayComponentGraph<Integer,String,Component>(classifier, handler, deferred);
+		this.deferred = deferred;
+	}
+
+	private static String edge( int a, int b ) {
+		return Math.min(a,b)+"-"+Math.max(a,b);
+	}
+
+	// the components of a graph, each given by its sorted nodes and edges
+	private static Set<String> parts( ComponentGraph<Integer,String,Component> g ) {
+		final Set<String> result = new HashSet<String>();
+		final Iterator<Component> components = g.getComponents();
+		int count = 0;
+		while (components.hasNext()) {
+			final Component c = components.next();
+			final Set<Integer> nodes = new TreeSet<Integer>();
+			final Iterator<Integer> n = g.getNodesInComponent(c);
+			while (n.hasNext())
+				assertTrue(nodes.add(n.next()));
+			final Set<String> edges = new TreeSet<String>();
+			final Iterator<String> e = g.getEdgesInComponent(c);
+			while (e.hasNext())
+				assertTrue(edges.add(e.next()));
+			assertFalse(nodes.isEmpty() || edges.isEmpty());
+			result.add(nodes+" "+edges);
+			count++;
+		}
+		assertEquals(count, g.getNumberOfComponents());
+		return result;
+	}
+
+	private static <T> Set<T> set( Iterator<T> i ) {
+		final Set<T> result = new TreeSet<T>();
+		while (i.hasNext())
+			assertTrue(result.add(i.next()));
+		return result;
+	}
+
+	private static boolean contains( ComponentGraph<Integer,String,Component> g, int node ) {
+		return g.getConnectedEdges(node).hasNext() || set(g.getFreeNodes()).contains(node);
+	}
+
+	// compare the graphs, and check the handler calls against the components
+	private void compare( int nodes ) {
+		assertEquals(parts(reference), parts(graph));
+		assertEquals(reference.getNumberOfNodes(), graph.getNumberOfNodes());
+		assertEquals(reference.getNumberOfFreeNodes(), graph.getNumberOfFreeNodes());
+		assertEquals(set(reference.getFreeNodes()), set(graph.getFreeNodes()));
+		assertEquals(referenceHandler.added, handler.added);
+		assertEquals(referenceHandler.removed, handler.removed);
+		// with deferred splitting, parts of a component that are not yet split merge with others as one
+		if (deferred)
+			assertTrue(handler.merged <= referenceHandler.merged);
+		else
+			assertEquals(referenceHandler.merged, handler.merged);
+
+		// nodes in components of the graph
+		final Set<Integer> inComponent = new HashSet<Integer>();
+		final Iterator<Component> components = graph.getComponents();
+		while (components.hasNext())
+			inComponent.addAll(set(graph.getNodesInComponent(components.next())));
+
+		// a node is reported added to a component once more than it is reported removed, while it is in one
+		for (int i=0; i<nodes; i++) {
+			// the reference graph only lists neighbours of nodes with edges
+			assertEquals(set(reference.getConnectedEdges(i)), set(graph.getConnectedEdges(i)));
+			if (reference.getConnectedEdges(i).hasNext())
+				assertEquals(set(reference.getConnectedNodes(i)), set(graph.getConnectedNodes(i)));
+			else
+				assertFalse(graph.getConnectedNodes(i).hasNext());
+			assertEquals(inComponent.contains(i)? 1 : 0, handler.balance(i));
+			assertEquals(inComponent.contains(i)? 1 : 0, referenceHandler.balance(i));
+		}
+	}
+
+	// random edits of edges and nodes, comparing the graphs after each resolve
+	private void randomEdits( boolean deferred, long seed, int nodes, int steps, int resolveInterval ) {
+		create(deferred);
+		final Random random = new Random(seed);
+		final List<Pair<Integer>> present = new ArrayList<Pair<Integer>>();
+
+		for (int step=0; step<steps; step++) {
+			final int operation = random.nextInt(100);
+			if (present.isEmpty() || operation < 50) {
+				final int a = random.nextInt(nodes), b = random.nextInt(nodes);
+				if (a == b)
+					continue;
+				if (reference.getEdge(new Pair<Integer>(a,b)) == null)
+					present.add(new Pair<Integer>(a,b));
+				reference.addEdge(new Pair<Integer>(a,b), edge(a,b));
+				// the pair is unordered
+				graph.addEdge(new Pair<Integer>(b,a), edge(a,b));
+			} else if (operation < 95) {
+				final Pair<Integer> pair = present.remove(random.nextInt(present.size()));
+				assertEquals(reference.removeEdge(pair), graph.removeEdge(pair));
+				assertFalse(graph.removeEdge(pair));
+			} else if (operation < 98) {
+				// the reference graph only supports removing nodes it has, and leaves the edges of removed 
+				// delimiters behind, see removingDelimiterRemovesItsEdges()
+				final int node = 2 + random.nextInt(nodes-2);
+				if (!contains(reference, node))
+					continue;
+				reference.removeNode(node);
+				graph.removeNode(node);
+				assertFalse(contains(graph, node));
+				for (Iterator<Pair<Integer>> i = present.iterator(); i.hasNext(); ) {
+					final Pair<Integer> pair = i.next();
+					if (pair.getFirst() == node || pair.getSecond() == node)
+						i.remove();
+				}
+			} else {
+				final int node = nodes + random.nextInt(nodes);
+				if (contains(reference, node))
+					continue;
+				reference.addNode(node);
+				graph.addNode(node);
+			}
+
+			if (step % resolveInterval == 0) {
+				graph.resolveComponents();
+				compare(nodes);
+			}
+		}
+		graph.resolveComponents();
+		compare(nodes);
+	}
+
+	@Test
+	public void randomEditsMatchHashMapGraph() {
+		for (long seed=0; seed<4; seed++)
+			randomEdits(false, seed, 30, 5000, 1);
+	}
+
+	@Test
+	public void denseRandomEditsMatchHashMapGraph() {
+		randomEdits(false, 7, 8, 5000, 1);
+	}
+
+	@Test
+	public void deferredRandomEditsMatchHashMapGraph() {
+		for (long seed=0; seed<4; seed++)
+			randomEdits(true, seed, 30, 5000, 1+(int)seed*8);
+	}
+
+	// apply an edit to both graphs
+	private void add( int a, int b ) {
+		reference.addEdge(new Pair<Integer>(a,b), edge(a,b));
+		graph.addEdge(new Pair<Integer>(a,b), edge(a,b));
+	}
+
+	private void remove( int a, int b ) {
+		assertEquals(reference.removeEdge(new Pair<Integer>(a,b)), graph.removeEdge(new Pair<Integer>(a,b)));
+	}
+
+	@Test
+	public void dirtyComponentMergedBeforeResolve() {
+		// the dirty component leaves the merge
+		create(true);
+		add(2,3); add(3,4); add(4,5);
+		remove(3,4);
+		assertEquals(2, parts(reference).size());
+		for (int i=6; i<10; i++)
+			add(i,i+1);
+		add(5,6);
+		graph.resolveComponents();
+		compare(11);
+		assertEquals(2, graph.getNumberOfComponents());
+
+		// the dirty component remains after the merge
+		create(true);
+		for (int i=2; i<6; i++)
+			add(i,i+1);
+		remove(3,4);
+		add(7,8);
+		add(8,2);
+		graph.resolveComponents();
+		compare(9);
+		assertEquals(2, graph.getNumberOfComponents());
+	}
+
+	@Test
+	public void dirtyComponentDeletedAndReused() {
+		create(true);
+		add(2,3); add(3,4); add(4,5);
+		remove(3,4);
+		// deleting the dirty component frees its id
+		remove(2,3);
+		remove(4,5);
+		assertEquals(0, graph.getNumberOfComponents());
+
+		// a new component is clean, even if it takes the id of a dirty one
+		add(6,7); add(7,8); add(8,9);
+		graph.resolveComponents();
+		compare(10);
+		assertEquals(1, graph.getNumberOfComponents());
+
+		// and is split when it becomes dirty itself
+		remove(7,8);
+		graph.resolveComponents();
+		compare(10);
+		assertEquals(2, graph.getNumberOfComponents());
+	}
+
+	@Test
+	public void resolveMatchesImmediateSplitting() {
+		// a chain cut in several places before a single resolve
+		create(true);
+		for (int i=2; i<20; i++)
+			add(i,i+1);
+		add(0,10);
+		remove(4,5);
+		remove(9,10);
+		remove(10,11);
+		remove(15,16);
+		assertEquals(1, graph.getNumberOfComponents());
+		graph.resolveComponents();
+		compare(21);
+		assertEquals(5, graph.getNumberOfComponents());
+		// resolving again does nothing
+		graph.resolveComponents();
+		compare(21);
+	}
+
+	@Test
+	public void removingDelimiterRemovesItsEdges() {
+		create(false);
+		graph.addEdge(new Pair<Integer>(0,3), edge(0,3));
+		graph.addEdge(new Pair<Integer>(3,5), edge(3,5));
+		graph.addEdge(new Pair<Integer>(0,6), edge(0,6));
+		assertEquals(2, graph.getNumberOfComponents());
+
+		// node 6 was only attached to the delimiter, and becomes free
+		graph.removeNode(0);
+		assertFalse(contains(graph, 0));
+		assertNull(graph.getEdge(new Pair<Integer>(0,3)));
+		assertEquals(set(graph.getEdgesInComponent(graph.getComponents().next())), set(Arrays.asList(edge(3,5)).iterator()));
+		assertEquals(1, graph.getNumberOfComponents());
+		assertEquals(set(Arrays.asList(6).iterator()), set(graph.getFreeNodes()));
+		assertEquals(0, handler.balance(6));
+		assertEquals(1, handler.balance(3));
+	}
+
+	@Test
+	public void removingNodesSplitsComponents() {
+		create(false);
+		// a star around node 5, with a delimiter attached
+		for (int i=6; i<10; i++) {
+			reference.addEdge(new Pair<Integer>(5,i), edge(5,i));
+			graph.addEdge(new Pair<Integer>(5,i), edge(5,i));
+		}
+		reference.addEdge(new Pair<Integer>(0,5), edge(0,5));
+		graph.addEdge(new Pair<Integer>(0,5), edge(0,5));
+		assertEquals(1, graph.getNumberOfComponents());
+
+		reference.removeNode(5);
+		graph.removeNode(5);
+		compare(10);
+		assertEquals(0, graph.getNumberOfComponents());
+		assertEquals(5, graph.getNumberOfNodes());
+		assertFalse(graph.getConnectedNodes(5).hasNext());
+	}
+}